@@ -0,0 +1,58 @@
+// Compara sin()/cos() de libm con fast_sin()/fast_cos() (modo fast trig) en la máquina
+// donde corre, por ejemplo la placa con soft-float:
+//
+//   gcc -O2 bench_trig.c graphics.c -o bench_trig -lm && ./bench_trig [llamadas] [rango]
+//
+// Imprime ns por llamada de cada versión y el error máximo medido.
+#include <stdio.h>
+#include <stdlib.h>
+#include <math.h>
+#include <time.h>
+#include "graphics.h"
+
+#define INPUTS 1024
+
+static double now_ns(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return ts.tv_sec * 1e9 + ts.tv_nsec;
+}
+
+static double inputs[INPUTS];
+static volatile double sink;
+
+static double bench(double (*f)(double), long calls) {
+    double sum = 0;
+    double start = now_ns();
+    for (long i = 0; i < calls; i++) {
+        sum += f(inputs[i & (INPUTS - 1)]);
+    }
+    double elapsed = now_ns() - start;
+    sink = sum;
+    return elapsed / calls;
+}
+
+int main(int argc, char **argv) {
+    long calls = argc > 1 ? atol(argv[1]) : 10000000;
+    double range = argc > 2 ? atof(argv[2]) : 1000.0;
+
+    srand(42);
+    for (int i = 0; i < INPUTS; i++) {
+        inputs[i] = ((double)rand() / RAND_MAX * 2 - 1) * range;
+    }
+
+    double max_error = 0;
+    for (int i = 0; i < INPUTS; i++) {
+        double es = fabs(fast_sin(inputs[i]) - sin(inputs[i]));
+        double ec = fabs(fast_cos(inputs[i]) - cos(inputs[i]));
+        max_error = fmax(max_error, fmax(es, ec));
+    }
+
+    printf("calls: %ld, |x| <= %g\n", calls, range);
+    printf("sin      %7.2f ns/call\n", bench(sin, calls));
+    printf("fast_sin %7.2f ns/call\n", bench(fast_sin, calls));
+    printf("cos      %7.2f ns/call\n", bench(cos, calls));
+    printf("fast_cos %7.2f ns/call\n", bench(fast_cos, calls));
+    printf("max abs error: %.3e\n", max_error);
+    return 0;
+}
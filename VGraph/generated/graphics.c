@@ -1,3 +1,7 @@
+// clock_gettime/clock_nanosleep (reloj de frames) también con -std=c99
+#ifndef _POSIX_C_SOURCE
+#define _POSIX_C_SOURCE 200809L
+#endif
 #include <stdio.h>
 #include <stdlib.h>
 #include <stdint.h>
@@ -8,6 +12,8 @@
 #include <linux/fb.h>
 #include <math.h>
 #include <string.h>
+#include <time.h>
+#include <errno.h>
 #include "graphics.h"
 
 // Definición de las variables globales
@@ -41,6 +47,12 @@ vColor get_color_by_name(const char* color_name) {
     return color;
 }
 
+// ===== Dispositivo =====
+// init_framebuffer, cleanup_framebuffer y pan_display son lo único que habla con
+// /dev/fb0. Compilando con -DVGRAPH_EMU se toman los de graphics_emu.c, que dibujan
+// sobre un archivo mapeado en memoria para correr sin la placa.
+#ifndef VGRAPH_EMU
+
 // Función para inicializar el framebuffer
 int init_framebuffer() {
     fb_info.fb = open("/dev/fb0", O_RDWR);
@@ -61,6 +73,17 @@ int init_framebuffer() {
         return -1;
     }
 
+    // Doble buffer: se pide una pantalla virtual del doble de alto para hacer page flip
+    if (fb_info.vinfo.yres_virtual < fb_info.vinfo.yres * 2) {
+        struct fb_var_screeninfo wanted = fb_info.vinfo;
+        wanted.yres_virtual = fb_info.vinfo.yres * 2;
+        wanted.yoffset = 0;
+        if (ioctl(fb_info.fb, FBIOPUT_VSCREENINFO, &wanted) == 0) {
+            ioctl(fb_info.fb, FBIOGET_VSCREENINFO, &fb_info.vinfo);
+            ioctl(fb_info.fb, FBIOGET_FSCREENINFO, &fb_info.finfo);
+        }
+    }
+
     printf("Resolution: %dx%d, %d bpp\n", fb_info.vinfo.xres, fb_info.vinfo.yres, fb_info.vinfo.bits_per_pixel);
 
     fb_info.screensize = fb_info.vinfo.yres_virtual * fb_info.finfo.line_length;
@@ -72,6 +95,12 @@ int init_framebuffer() {
         return -1;
     }
 
+    if (init_pages() == -1) {
+        munmap(fb_info.fbp, fb_info.screensize);
+        close(fb_info.fb);
+        return -1;
+    }
+
     // Inicializar con color negro
     current_color = 0;
     return 0;
@@ -79,10 +108,123 @@ int init_framebuffer() {
 
 // Función para limpiar y cerrar el framebuffer
 void cleanup_framebuffer() {
+    frame_clock_report();
+    if (!fb_info.page_flip) {
+        free(fb_info.back);
+    }
     munmap(fb_info.fbp, fb_info.screensize);
     close(fb_info.fb);
 }
 
+// Muestra la página que empieza en vinfo.yoffset
+int pan_display() {
+    if (ioctl(fb_info.fb, FBIOPAN_DISPLAY, &fb_info.vinfo) == -1) {
+        perror("Error panning display");
+        return -1;
+    }
+    return 0;
+}
+
+// Con -DVGRAPH_VSYNC se espera el retrazado vertical antes de presentar cada frame, si el
+// driver tiene FBIO_WAITFORVSYNC; si el ioctl falla una vez no se vuelve a intentar
+void wait_vsync() {
+#if defined(VGRAPH_VSYNC) && defined(FBIO_WAITFORVSYNC)
+    static int unsupported = 0;
+    uint32_t screen = 0;
+    if (!unsupported && ioctl(fb_info.fb, FBIO_WAITFORVSYNC, &screen) == -1) {
+        unsupported = 1;
+    }
+#endif
+}
+
+#endif // VGRAPH_EMU
+
+// Ubica la página visible y la de atrás. Si el driver no dio el doble de alto, la
+// página de atrás es memoria normal y se copia al presentar
+int init_pages() {
+    fb_info.page_size = fb_info.vinfo.yres * fb_info.finfo.line_length;
+    fb_info.front = fb_info.fbp + fb_info.vinfo.yoffset * fb_info.finfo.line_length;
+    fb_info.page_flip = fb_info.vinfo.yres_virtual >= fb_info.vinfo.yres * 2;
+
+    if (fb_info.page_flip) {
+        uint32_t back_y = fb_info.vinfo.yoffset >= fb_info.vinfo.yres ? 0 : fb_info.vinfo.yres;
+        fb_info.back = fb_info.fbp + back_y * fb_info.finfo.line_length;
+    } else {
+        fb_info.back = (uint8_t *)malloc(fb_info.page_size);
+        if (fb_info.back == NULL) {
+            perror("Error allocating back buffer");
+            return -1;
+        }
+    }
+
+    fb_info.draw = fb_info.front;
+    fb_info.draw_state = &fb_info.front_state;
+    fb_info.frame_depth = 0;
+
+    // Al empezar no se sabe qué hay en ninguna de las dos páginas
+    fb_info.front_state.clean = 0;
+    fb_info.back_state.clean = 0;
+    dirty_reset(&fb_info.front_state.drawn);
+    dirty_reset(&fb_info.back_state.drawn);
+    dirty_reset(&fb_info.changed);
+    dirty_reset(&fb_info.pending);
+    dirty_add(&fb_info.pending, 0, 0, fb_info.vinfo.xres - 1, fb_info.vinfo.yres - 1);
+    return 0;
+}
+
+// ===== Regiones sucias =====
+// Cada página guarda el rectángulo que se dibujó desde su último clear completo, así
+// clear_screen solo borra esa zona. Además se lleva lo que cambió durante el frame
+// (changed) y la zona donde la página visible y la de atrás difieren (pending), para
+// que frame_begin/frame_end solo copien esas regiones.
+
+void dirty_reset(dirty_rect *r) {
+    r->empty = 1;
+}
+
+void dirty_add(dirty_rect *r, int x0, int y0, int x1, int y1) {
+    if (r->empty) {
+        r->x0 = x0;
+        r->y0 = y0;
+        r->x1 = x1;
+        r->y1 = y1;
+        r->empty = 0;
+        return;
+    }
+    if (x0 < r->x0) r->x0 = x0;
+    if (y0 < r->y0) r->y0 = y0;
+    if (x1 > r->x1) r->x1 = x1;
+    if (y1 > r->y1) r->y1 = y1;
+}
+
+// Registra un rectángulo dibujado; las coordenadas se recortan a la pantalla
+static void mark(long long x0, long long y0, long long x1, long long y1) {
+    if (x0 < 0) x0 = 0;
+    if (y0 < 0) y0 = 0;
+    if (x1 >= (long long)fb_info.vinfo.xres) x1 = fb_info.vinfo.xres - 1;
+    if (y1 >= (long long)fb_info.vinfo.yres) y1 = fb_info.vinfo.yres - 1;
+    if (x0 > x1 || y0 > y1) {
+        return;
+    }
+
+    dirty_add(&fb_info.draw_state->drawn, (int)x0, (int)y0, (int)x1, (int)y1);
+    dirty_add(fb_info.frame_depth > 0 ? &fb_info.changed : &fb_info.pending,
+              (int)x0, (int)y0, (int)x1, (int)y1);
+}
+
+// Copia una región de una página a otra, fila por fila
+static void copy_region(uint8_t *dst, const uint8_t *src, const dirty_rect *r) {
+    if (r->empty) {
+        return;
+    }
+    long start = (r->x0 + fb_info.vinfo.xoffset) * (fb_info.vinfo.bits_per_pixel / 8);
+    size_t bytes = (size_t)(r->x1 - r->x0 + 1) * (fb_info.vinfo.bits_per_pixel / 8);
+    for (int y = r->y0; y <= r->y1; y++) {
+        long offset = y * fb_info.finfo.line_length + start;
+        memcpy(dst + offset, src + offset, bytes);
+    }
+}
+
 // Función para crear un color RGB (compatible con vColor)
 uint32_t create_color_rgb(uint8_t r, uint8_t g, uint8_t b) {
     return (r << fb_info.vinfo.red.offset) | 
@@ -101,8 +243,8 @@ void setcolor_vcolor(vColor color) {
     current_color = create_color_rgb(color.r, color.g, color.b);
 }
 
-// Función para dibujar un pixel (compatible con DrawPixel)
-void pixel(int x, int y) {
+// Escribe un pixel sin registrarlo como sucio (quien llama ya lo hizo)
+static void plot(int x, int y) {
     // Verificar límites
     if (x < 0 || x >= fb_info.vinfo.xres || y < 0 || y >= fb_info.vinfo.yres) {
         return;
@@ -110,10 +252,16 @@ void pixel(int x, int y) {
 
     // Calcular la ubicación del pixel
     long location = (x + fb_info.vinfo.xoffset) * (fb_info.vinfo.bits_per_pixel / 8) + 
-                   (y + fb_info.vinfo.yoffset) * fb_info.finfo.line_length;
+                   y * fb_info.finfo.line_length;
+
+    // Escribir el pixel con el color actual (en la página de atrás si estamos en un frame)
+    *((uint32_t*)(fb_info.draw + location)) = current_color;
+}
 
-    // Escribir el pixel con el color actual
-    *((uint32_t*)(fb_info.fbp + location)) = current_color;
+// Función para dibujar un pixel (compatible con DrawPixel)
+void pixel(int x, int y) {
+    mark(x, y, x, y);
+    plot(x, y);
 }
 
 // Función para dibujar una línea (compatible con DrawLine)
@@ -125,8 +273,10 @@ void line(int x0, int y0, int x1, int y1) {
     int err = dx - dy;
     int e2;
 
+    mark(x0 < x1 ? x0 : x1, y0 < y1 ? y0 : y1, x0 < x1 ? x1 : x0, y0 < y1 ? y1 : y0);
+
     while (1) {
-        pixel(x0, y0);
+        plot(x0, y0);
 
         if (x0 == x1 && y0 == y1) break;
 
@@ -142,13 +292,69 @@ void line(int x0, int y0, int x1, int y1) {
     }
 }
 
+// Tramo horizontal [x0, x1] en la fila y: se recorta una sola vez y la dirección
+// de la fila se calcula una sola vez, en lugar de hacerlo en cada pixel()
+void fill_span(int x0, int x1, int y, uint32_t color) {
+    if (y < 0 || y >= (int)fb_info.vinfo.yres) {
+        return;
+    }
+    if (x0 < 0) {
+        x0 = 0;
+    }
+    if (x1 >= (int)fb_info.vinfo.xres) {
+        x1 = fb_info.vinfo.xres - 1;
+    }
+    if (x0 > x1) {
+        return;
+    }
+
+    uint32_t *row = (uint32_t *)(fb_info.draw + y * fb_info.finfo.line_length) +
+                    fb_info.vinfo.xoffset + x0;
+    int count = x1 - x0 + 1;
+
+    // Si los 4 bytes del color son iguales (negro, blanco) alcanza con memset
+    uint8_t low = color & 0xFF;
+    if (color == low * 0x01010101u) {
+        memset(row, low, (size_t)count * sizeof(uint32_t));
+        return;
+    }
+    while (count >= 4) {
+        row[0] = color;
+        row[1] = color;
+        row[2] = color;
+        row[3] = color;
+        row += 4;
+        count -= 4;
+    }
+    while (count-- > 0) {
+        *row++ = color;
+    }
+}
+
 // Función para dibujar un rectángulo (compatible con DrawRect)
 void rect(int x, int y, int width, int height) {
     // Rectángulo relleno por defecto (según tu gramática parece ser así)
-    for (int i = y; i < y + height && i < fb_info.vinfo.yres; i++) {
-        for (int j = x; j < x + width && j < fb_info.vinfo.xres; j++) {
-            pixel(j, i);
-        }
+    if (width <= 0 || height <= 0) {
+        return;
+    }
+    mark(x, y, (long long)x + width - 1, (long long)y + height - 1);
+
+    // Límites recortados en 64 bits: x + width o y + height pueden desbordar un int
+    long long x0 = x < 0 ? 0 : x;
+    long long x1 = (long long)x + width;
+    if (x1 > (long long)fb_info.vinfo.xres) {
+        x1 = fb_info.vinfo.xres;
+    }
+    long long y0 = y < 0 ? 0 : y;
+    long long y1 = (long long)y + height;
+    if (y1 > (long long)fb_info.vinfo.yres) {
+        y1 = fb_info.vinfo.yres;
+    }
+    if (x0 >= x1) {
+        return;
+    }
+    for (long long i = y0; i < y1; i++) {
+        fill_span((int)x0, (int)(x1 - 1), (int)i, current_color);
     }
 }
 
@@ -158,17 +364,18 @@ void circle(int cx, int cy, int radius) {
     int y = radius;
     int d = 1 - radius;
 
+    if (radius < 0) {
+        return;
+    }
+    mark((long long)cx - radius, (long long)cy - radius, (long long)cx + radius, (long long)cy + radius);
+
     // Círculo relleno por defecto
     while (x <= y) {
-        // Dibujar líneas horizontales para rellenar el círculo
-        for (int i = cx - x; i <= cx + x; i++) {
-            pixel(i, cy + y);
-            pixel(i, cy - y);
-        }
-        for (int i = cx - y; i <= cx + y; i++) {
-            pixel(i, cy + x);
-            pixel(i, cy - x);
-        }
+        // Líneas horizontales para rellenar el círculo
+        fill_span(cx - x, cx + x, cy + y, current_color);
+        fill_span(cx - x, cx + x, cy - y, current_color);
+        fill_span(cx - y, cx + y, cy + x, current_color);
+        fill_span(cx - y, cx + y, cy - x, current_color);
 
         if (d < 0) {
             d += 2 * x + 3;
@@ -180,26 +387,230 @@ void circle(int cx, int cy, int radius) {
     }
 }
 
-// Función clear compatible con ClearComm
+// Función clear compatible con ClearComm. Si la página ya estaba limpia fuera de
+// lo dibujado, solo se borra esa zona
 void clear_screen() {
     uint32_t black = create_color_rgb(0, 0, 0);
-    for (int y = 0; y < fb_info.vinfo.yres; y++) {
-        for (int x = 0; x < fb_info.vinfo.xres; x++) {
-            long location = (x + fb_info.vinfo.xoffset) * (fb_info.vinfo.bits_per_pixel / 8) + 
-                           (y + fb_info.vinfo.yoffset) * fb_info.finfo.line_length;
-            *((uint32_t*)(fb_info.fbp + location)) = black;
+    page_state *state = fb_info.draw_state;
+    dirty_rect region = state->drawn;
+
+    if (!state->clean) {
+        dirty_reset(&region);
+        dirty_add(&region, 0, 0, fb_info.vinfo.xres - 1, fb_info.vinfo.yres - 1);
+    }
+    if (!region.empty) {
+        for (int y = region.y0; y <= region.y1; y++) {
+            fill_span(region.x0, region.x1, y, black);
         }
+        dirty_add(fb_info.frame_depth > 0 ? &fb_info.changed : &fb_info.pending,
+                  region.x0, region.y0, region.x1, region.y1);
     }
+
+    dirty_reset(&state->drawn);
+    state->clean = 1;
 }
 
-// Función wait compatible con WaitComm
+// Inicio de frame { }: desde aquí se dibuja en la página de atrás, que parte
+// de lo que ya se ve en pantalla (solo se copia donde las dos páginas difieren)
+void frame_begin() {
+    if (fb_info.frame_depth++ > 0) {
+        return;
+    }
+    copy_region(fb_info.back, fb_info.front, &fb_info.pending);
+    fb_info.back_state = fb_info.front_state;
+    dirty_reset(&fb_info.pending);
+    dirty_reset(&fb_info.changed);
+
+    fb_info.draw = fb_info.back;
+    fb_info.draw_state = &fb_info.back_state;
+}
+
+// Fin de frame { }: presenta la página de atrás de una sola vez
+void frame_end() {
+    if (fb_info.frame_depth == 0 || --fb_info.frame_depth > 0) {
+        return;
+    }
+
+    wait_vsync();
+    if (fb_info.page_flip) {
+        fb_info.vinfo.yoffset = (fb_info.back - fb_info.fbp) / fb_info.finfo.line_length;
+        pan_display();
+        uint8_t *shown = fb_info.back;
+        fb_info.back = fb_info.front;
+        fb_info.front = shown;
+
+        page_state shown_state = fb_info.back_state;
+        fb_info.back_state = fb_info.front_state;
+        fb_info.front_state = shown_state;
+
+        // La página que quedó atrás no tiene lo que se dibujó en este frame
+        fb_info.pending = fb_info.changed;
+    } else {
+        copy_region(fb_info.front, fb_info.back, &fb_info.changed);
+        fb_info.front_state = fb_info.back_state;
+    }
+    dirty_reset(&fb_info.changed);
+
+    fb_info.draw = fb_info.front;
+    fb_info.draw_state = &fb_info.front_state;
+}
+
+// Modo fast trig (vgraph --fast-trig): seno por tabla de FAST_TRIG_SIZE muestras por vuelta
+// con interpolación lineal, el mismo algoritmo que v.ast.FastTrig. Error absoluto máximo
+// frente a libm: h²/8 ≈ 2.95e-7 (h = 2π/4096) más |x|·2.3e-16 de la reducción, o sea menos
+// de 3e-7 para |x| <= 1e6. Fuera de FAST_TRIG_LIMIT (y con NaN/inf) se llama a sin()/cos().
+// La tabla sale de una serie (no de sin() de libm) para que tenga los mismos bits que la de
+// FastTrig: así el compilador puede plegar fast_sin(literal) al valor que da acá.
+#ifndef M_PI
+#define M_PI 3.14159265358979323846
+#endif
+#define FAST_TRIG_SIZE 4096
+#define FAST_TRIG_LIMIT 1e9
+
+static double fast_trig_table[FAST_TRIG_SIZE + 1];
+static int fast_trig_ready = 0;
+
+// Taylor para 0 <= x <= π/4, igual que FastTrig.sinSeries/cosSeries. Cada paso es un
+// producto seguido de una división, que gcc no fusiona en un fma
+static double fast_trig_sin(double x) {
+    double x2 = x * x;
+    double term = 1.0;
+    for (int k = 10; k >= 1; k--) {
+        term = 1.0 - x2 * term / ((2 * k) * (2 * k + 1));
+    }
+    return x * term;
+}
+
+static double fast_trig_cos(double x) {
+    double x2 = x * x;
+    double term = 1.0;
+    for (int k = 10; k >= 1; k--) {
+        term = 1.0 - x2 * term / ((2 * k - 1) * (2 * k));
+    }
+    return term;
+}
+
+static void fast_trig_init(void) {
+    // Primer cuadrante con las series (sin hasta π/4, cos desde ahí, así sin(π/2) da 1
+    // justo); el resto por simetría, que es exacta
+    for (int i = 0; i <= FAST_TRIG_SIZE / 8; i++) {
+        fast_trig_table[i] = fast_trig_sin(i * (2 * M_PI / FAST_TRIG_SIZE));
+    }
+    for (int i = FAST_TRIG_SIZE / 8 + 1; i <= FAST_TRIG_SIZE / 4; i++) {
+        fast_trig_table[i] = fast_trig_cos((FAST_TRIG_SIZE / 4 - i) * (2 * M_PI / FAST_TRIG_SIZE));
+    }
+    for (int i = FAST_TRIG_SIZE / 4 + 1; i <= FAST_TRIG_SIZE / 2; i++) {
+        fast_trig_table[i] = fast_trig_table[FAST_TRIG_SIZE / 2 - i];
+    }
+    for (int i = FAST_TRIG_SIZE / 2 + 1; i <= FAST_TRIG_SIZE; i++) {
+        fast_trig_table[i] = -fast_trig_table[i - FAST_TRIG_SIZE / 2];
+    }
+    fast_trig_ready = 1;
+}
+
+static double fast_trig_lookup(double t) {
+    if (!fast_trig_ready) {
+        fast_trig_init();
+    }
+    double f = floor(t);
+    int i = (int)((long long)f & (FAST_TRIG_SIZE - 1));
+    double frac = t - f;
+    return fast_trig_table[i] + (fast_trig_table[i + 1] - fast_trig_table[i]) * frac;
+}
+
+double fast_sin(double x) {
+    if (!(fabs(x) <= FAST_TRIG_LIMIT)) {
+        return sin(x);
+    }
+    return fast_trig_lookup(x * (FAST_TRIG_SIZE / (2 * M_PI)));
+}
+
+// cos(x) = sin(x + π/2): un cuarto de vuelta son FAST_TRIG_SIZE / 4 muestras exactas
+double fast_cos(double x) {
+    if (!(fabs(x) <= FAST_TRIG_LIMIT)) {
+        return cos(x);
+    }
+    return fast_trig_lookup(x * (FAST_TRIG_SIZE / (2 * M_PI)) + FAST_TRIG_SIZE / 4);
+}
+
+// Tabla de fx_sin/fx_cos (modo punto fijo): seno en Q30, que no depende de FX_FRAC_BITS.
+// Se llena con libm una sola vez; después las consultas son solo enteras. El error es el
+// de la interpolación (2.95e-7, como fast_sin) más medio paso del formato del resultado.
+#define FX_TRIG_SIZE 4096
+
+static int32_t fx_trig_table[FX_TRIG_SIZE + 1];
+static int fx_trig_ready = 0;
+
+static void fx_trig_init(void) {
+    for (int i = 0; i <= FX_TRIG_SIZE; i++) {
+        fx_trig_table[i] = (int32_t) lround(sin(i * (2 * M_PI / FX_TRIG_SIZE)) * (1 << 30));
+    }
+    fx_trig_ready = 1;
+}
+
+int32_t fx_trig_lookup(int64_t t) {
+    if (!fx_trig_ready) {
+        fx_trig_init();
+    }
+    int i = (int) ((t >> 16) & (FX_TRIG_SIZE - 1));
+    int64_t frac = t & 0xFFFF;
+    return fx_trig_table[i] + (int32_t) (((int64_t) (fx_trig_table[i + 1] - fx_trig_table[i]) * frac) >> 16);
+}
+
+// Pausa fija al final de main para que se vea el resultado (el wait del lenguaje es wait_ms)
 void wait_seconds(int seconds) {
     sleep(seconds);
 }
 
-// Función wait en milisegundos
+// Reloj de wait(ms), el mismo que v.render.FrameClock: cada wait duerme hasta el deadline
+// anterior + ms en CLOCK_MONOTONIC (clock_nanosleep con TIMER_ABSTIME), así lo que tarda
+// en dibujarse un frame no se suma al período y la animación no se atrasa de a poco. Si el
+// deadline ya pasó se cuenta como perdido y el reloj se realinea con el momento actual.
+static struct timespec clock_deadline;
+static int clock_started = 0;
+static long clock_waits = 0;
+static long clock_missed = 0;
+static int64_t clock_worst_late = 0; // ns
+
+static int64_t timespec_ns(const struct timespec *t) {
+    return (int64_t) t->tv_sec * 1000000000 + t->tv_nsec;
+}
+
 void wait_ms(int milliseconds) {
-    usleep(milliseconds * 1000);
+    if (milliseconds <= 0) {
+        return;
+    }
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    if (!clock_started) {
+        clock_deadline = now;
+        clock_started = 1;
+    }
+    int64_t deadline = timespec_ns(&clock_deadline) + (int64_t) milliseconds * 1000000;
+    clock_waits++;
+
+    int64_t late = timespec_ns(&now) - deadline;
+    if (late > 0) {
+        clock_missed++;
+        if (late > clock_worst_late) {
+            clock_worst_late = late;
+        }
+        clock_deadline = now;
+        return;
+    }
+    clock_deadline.tv_sec = deadline / 1000000000;
+    clock_deadline.tv_nsec = deadline % 1000000000;
+    // Una señal lo despierta antes (EINTR): se sigue esperando el mismo deadline
+    while (clock_nanosleep(CLOCK_MONOTONIC, TIMER_ABSTIME, &clock_deadline, NULL) == EINTR) {
+    }
+}
+
+// Resumen al cerrar (solo si hubo waits), igual que FrameClock.toString en la preview
+void frame_clock_report() {
+    if (clock_waits > 0) {
+        printf("frame clock: %ld waits, %ld missed deadlines (worst %.1f ms late)\n",
+               clock_waits, clock_missed, clock_worst_late / 1e6);
+    }
 }
 
 // Función println compatible con tu gramática
@@ -17,6 +17,18 @@ typedef struct {
     uint8_t r, g, b;
 } vColor;
 
+// Rectángulo (inclusive) que se modificó; empty = 1 si no hay nada
+typedef struct {
+    int x0, y0, x1, y1;
+    int empty;
+} dirty_rect;
+
+// Lo que se sabe del contenido de una página
+typedef struct {
+    dirty_rect drawn;   // lo dibujado desde el último clear completo
+    int clean;          // 1 si fuera de drawn todo es negro
+} page_state;
+
 // Estructura global para la información del framebuffer
 struct framebuffer_info {
     int fb;
@@ -24,6 +36,21 @@ struct framebuffer_info {
     struct fb_var_screeninfo vinfo;
     struct fb_fix_screeninfo finfo;
     long screensize;
+
+    // Doble buffer para frame { }
+    uint8_t *front;     // página visible
+    uint8_t *back;      // página donde se arma el frame
+    uint8_t *draw;      // página en la que dibujan pixel/line/rect/circle/clear
+    long page_size;
+    int page_flip;      // 1 si back es la otra mitad de yres_virtual (FBIOPAN_DISPLAY)
+    int frame_depth;
+
+    // Regiones sucias
+    page_state front_state;
+    page_state back_state;
+    page_state *draw_state; // estado de la página en draw
+    dirty_rect changed;     // lo modificado durante el frame actual
+    dirty_rect pending;     // donde la página visible y la de atrás difieren
 };
 
 // Variables globales (declaradas como extern en el header)
@@ -33,6 +60,8 @@ extern uint32_t current_color;
 // Funciones de inicialización y limpieza
 int init_framebuffer(void);
 void cleanup_framebuffer(void);
+int init_pages(void);
+int pan_display(void);
 
 // Funciones de manejo de colores
 vColor get_color_by_name(const char* color_name);
@@ -45,11 +74,93 @@ void pixel(int x, int y);
 void line(int x0, int y0, int x1, int y1);
 void rect(int x, int y, int width, int height);
 void circle(int cx, int cy, int radius);
+void fill_span(int x0, int x1, int y, uint32_t color);
+
+// Regiones sucias
+void dirty_reset(dirty_rect *r);
+void dirty_add(dirty_rect *r, int x0, int y0, int x1, int y1);
+
+// Doble buffer
+void frame_begin(void);
+void frame_end(void);
+void wait_vsync(void);
+
+// Seno y coseno por tabla (modo fast trig)
+double fast_sin(double x);
+double fast_cos(double x);
+
+// Punto fijo (vgraph --fixed-point): los double del programa son fixed_t, enteros de 32 bits
+// escalados por 2^FX_FRAC_BITS (Q16.16 si main.c no define otro formato). Todas las
+// operaciones saturan en [FX_MIN, FX_MAX] en vez de dar la vuelta; fx_mul redondea al más
+// cercano, fx_div trunca, y dividir por cero da FX_MAX o FX_MIN según el signo (0 / 0 da 0).
+// fx_to_int trunca hacia cero como la conversión de double a int de C.
+#ifndef FX_FRAC_BITS
+#define FX_FRAC_BITS 16
+#endif
+#define FX_MAX INT32_MAX
+#define FX_MIN (-INT32_MAX)
+#define FX_ONE ((int64_t) 1 << FX_FRAC_BITS)
+
+typedef int32_t fixed_t;
+
+static inline fixed_t fx_saturate(int64_t v) {
+    return v > FX_MAX ? FX_MAX : v < FX_MIN ? FX_MIN : (fixed_t) v;
+}
+
+static inline fixed_t fx_from_int(int v) {
+    return fx_saturate((int64_t) v * FX_ONE);
+}
+
+static inline int fx_to_int(fixed_t x) {
+    return x >= 0 ? x >> FX_FRAC_BITS : -((-x) >> FX_FRAC_BITS);
+}
+
+static inline fixed_t fx_add(fixed_t a, fixed_t b) {
+    return fx_saturate((int64_t) a + b);
+}
+
+static inline fixed_t fx_sub(fixed_t a, fixed_t b) {
+    return fx_saturate((int64_t) a - b);
+}
+
+static inline fixed_t fx_mul(fixed_t a, fixed_t b) {
+    return fx_saturate(((int64_t) a * b + (FX_ONE >> 1)) >> FX_FRAC_BITS);
+}
+
+static inline fixed_t fx_div(fixed_t a, fixed_t b) {
+    if (b == 0) {
+        return a > 0 ? FX_MAX : a < 0 ? FX_MIN : 0;
+    }
+    return fx_saturate((int64_t) a * FX_ONE / b);
+}
+
+// Seno en Q30 por tabla de 4096 muestras por vuelta; t es la posición en la tabla en Q16
+int32_t fx_trig_lookup(int64_t t);
+
+// x · 4096 / 2π en Q16. La constante (4096 / 2π · 2^32) va partida en 16 + 16 bits para
+// no desbordar 64 bits sin perder precisión con ángulos grandes
+static inline int64_t fx_trig_index(fixed_t x) {
+    return ((int64_t) x * 42722829 + (((int64_t) x * 47417) >> 16)) >> FX_FRAC_BITS;
+}
+
+static inline fixed_t fx_trig_result(int32_t q30) {
+    return (fixed_t) (((int64_t) q30 + ((int64_t) 1 << (29 - FX_FRAC_BITS))) >> (30 - FX_FRAC_BITS));
+}
+
+static inline fixed_t fx_sin(fixed_t x) {
+    return fx_trig_result(fx_trig_lookup(fx_trig_index(x)));
+}
+
+// Un cuarto de vuelta son 1024 muestras exactas
+static inline fixed_t fx_cos(fixed_t x) {
+    return fx_trig_result(fx_trig_lookup(fx_trig_index(x) + ((int64_t) 1024 << 16)));
+}
 
 // Funciones de utilidad
 void clear_screen(void);
 void wait_seconds(int seconds);
 void wait_ms(int milliseconds);
+void frame_clock_report(void);
 
 // Funciones de salida
 void println_int(int value);
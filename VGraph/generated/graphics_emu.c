@@ -0,0 +1,114 @@
+// Dispositivo emulado para correr sin la placa: en vez de /dev/fb0 se dibuja sobre un
+// archivo mapeado en memoria que el IDE lee mientras el programa corre.
+//
+//   gcc -O2 -DVGRAPH_EMU main.c graphics.c graphics_emu.c -o emu_main -lm
+//   VGRAPH_FB_FILE=framebuffer.raw VGRAPH_FB_WIDTH=640 VGRAPH_FB_HEIGHT=480 ./emu_main
+//
+// Formato del archivo (enteros de 32 bits en el orden de la máquina):
+//   [0]  'VGFB'           [1] ancho            [2] alto             [3] line_length
+//   [4]  yoffset de la página visible          [5] frames presentados
+//   [6]  1 mientras el programa corre          [7] reservado
+// y después dos páginas de alto x line_length bytes en XRGB8888 (doble buffer con page flip).
+#ifdef VGRAPH_EMU
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <stdint.h>
+#include <fcntl.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <string.h>
+#include "graphics.h"
+
+#define EMU_MAGIC 0x42464756u // "VGFB"
+#define EMU_HEADER_WORDS 8
+
+static volatile uint32_t *emu_header;
+static long emu_size;
+
+static int env_int(const char *name, int fallback) {
+    const char *value = getenv(name);
+    return value != NULL && atoi(value) > 0 ? atoi(value) : fallback;
+}
+
+int init_framebuffer() {
+    const char *path = getenv("VGRAPH_FB_FILE");
+    if (path == NULL) {
+        path = "framebuffer.raw";
+    }
+
+    memset(&fb_info.vinfo, 0, sizeof(fb_info.vinfo));
+    memset(&fb_info.finfo, 0, sizeof(fb_info.finfo));
+    fb_info.vinfo.xres = fb_info.vinfo.xres_virtual = env_int("VGRAPH_FB_WIDTH", 640);
+    fb_info.vinfo.yres = env_int("VGRAPH_FB_HEIGHT", 480);
+    fb_info.vinfo.yres_virtual = fb_info.vinfo.yres * 2;
+    fb_info.vinfo.bits_per_pixel = 32;
+    fb_info.vinfo.red.offset = 16;
+    fb_info.vinfo.green.offset = 8;
+    fb_info.vinfo.blue.offset = 0;
+    fb_info.finfo.line_length = fb_info.vinfo.xres * 4;
+
+    printf("Resolution: %dx%d, %d bpp (emulated: %s)\n", fb_info.vinfo.xres, fb_info.vinfo.yres,
+           fb_info.vinfo.bits_per_pixel, path);
+
+    fb_info.fb = open(path, O_RDWR | O_CREAT | O_TRUNC, 0644);
+    if (fb_info.fb == -1) {
+        perror("Error opening framebuffer file");
+        return -1;
+    }
+
+    fb_info.screensize = fb_info.vinfo.yres_virtual * fb_info.finfo.line_length;
+    emu_size = EMU_HEADER_WORDS * sizeof(uint32_t) + fb_info.screensize;
+    if (ftruncate(fb_info.fb, emu_size) == -1) {
+        perror("Error sizing framebuffer file");
+        close(fb_info.fb);
+        return -1;
+    }
+
+    uint8_t *base = (uint8_t *)mmap(0, emu_size, PROT_READ | PROT_WRITE, MAP_SHARED, fb_info.fb, 0);
+    if (base == MAP_FAILED) {
+        perror("Error mapping framebuffer file");
+        close(fb_info.fb);
+        return -1;
+    }
+    emu_header = (volatile uint32_t *)base;
+    fb_info.fbp = base + EMU_HEADER_WORDS * sizeof(uint32_t);
+
+    if (init_pages() == -1) {
+        munmap(base, emu_size);
+        close(fb_info.fb);
+        return -1;
+    }
+
+    emu_header[1] = fb_info.vinfo.xres;
+    emu_header[2] = fb_info.vinfo.yres;
+    emu_header[3] = fb_info.finfo.line_length;
+    emu_header[4] = fb_info.vinfo.yoffset;
+    emu_header[5] = 0;
+    emu_header[6] = 1;
+    // El magic va al final: quien lee no confía en el resto hasta verlo
+    emu_header[0] = EMU_MAGIC;
+
+    current_color = 0;
+    return 0;
+}
+
+void cleanup_framebuffer() {
+    frame_clock_report();
+    emu_header[6] = 0;
+    munmap((void *)emu_header, emu_size);
+    close(fb_info.fb);
+}
+
+// El "page flip" es publicar qué página se ve y contar el frame
+int pan_display() {
+    emu_header[4] = fb_info.vinfo.yoffset;
+    emu_header[5]++;
+    return 0;
+}
+
+// El dispositivo emulado no tiene retrazado vertical
+void wait_vsync() {
+}
+
+#endif // VGRAPH_EMU
@@ -0,0 +1,46 @@
+package v.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import v.graph.VGraphCustomVisitor;
+import v.graph.VGraphParser;
+
+import java.util.concurrent.TimeUnit;
+
+// Generación de main.c desde un árbol ya validado, con y sin la optimización de loops
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CodegenBenchmark {
+
+    @Param({"sample", "10", "100", "1000"})
+    public String script;
+
+    @Param({"true", "false"})
+    public boolean optimizeLoops;
+
+    private VGraphParser.ProgramContext tree;
+
+    @Setup
+    public void setup() {
+        String source = Scripts.load(script);
+        tree = script.equals("sample") ? Scripts.parse(source) : Scripts.parseValid(source);
+    }
+
+    @Benchmark
+    public String emitC() {
+        return new VGraphCustomVisitor(optimizeLoops).visit(tree);
+    }
+}
@@ -0,0 +1,100 @@
+package v.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import v.ast.LoopOptimizer;
+import v.ast.Program;
+import v.engine.BytecodeCompiler;
+import v.engine.BytecodeProgram;
+import v.engine.ClosureCompiler;
+import v.engine.CompiledProgram;
+import v.graph.ASTBuilder;
+import v.render.Canvas;
+import v.render.RasterTarget;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecución de un loop aritmético ("arithmetic") o de llamadas a una función chica con 100
+ * globales declaradas ("calls") en las cuatro rutas de v.ast: el intérprete con mapa,
+ * los slots, las closures y el bytecode. La compilación (resolve, closures, clase oculta)
+ * se hace en el setup; lo medido es solo correr el programa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExecutionBenchmark {
+
+    @Param({"arithmetic", "calls"})
+    public String workload;
+
+    @Param({"map", "slots", "closure", "bytecode"})
+    public String engine;
+
+    @Param({"1000", "100000"})
+    public int iterations;
+
+    @Param({"true", "false"})
+    public boolean optimizeLoops;
+
+    private Program program;
+    private CompiledProgram closures;
+    private BytecodeProgram bytecode;
+    private Canvas canvas;
+
+    @Setup
+    public void setup() {
+        String source = workload.equals("calls") ? Scripts.calls(iterations, 100) : Scripts.arithmetic(iterations);
+        Program built = ASTBuilder.build(Scripts.parseValid(source));
+        program = optimizeLoops ? LoopOptimizer.optimize(built) : built;
+        switch (engine) {
+            case "slots":
+                program.prepare();
+                break;
+            case "closure":
+                closures = ClosureCompiler.compile(program);
+                break;
+            case "bytecode":
+                bytecode = BytecodeCompiler.compile(program);
+                break;
+            default:
+                break;
+        }
+        canvas = new Canvas();
+    }
+
+    @Benchmark
+    public Canvas run() {
+        switch (engine) {
+            case "map":
+                Map<String, Object> symbolTable = new HashMap<>();
+                symbolTable.put(RasterTarget.SYMBOL, canvas);
+                program.execute(symbolTable);
+                break;
+            case "slots":
+                program.run(canvas);
+                break;
+            case "closure":
+                closures.run(canvas);
+                break;
+            default:
+                bytecode.run(canvas);
+                break;
+        }
+        return canvas;
+    }
+}
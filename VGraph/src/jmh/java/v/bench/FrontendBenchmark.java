@@ -0,0 +1,70 @@
+package v.bench;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import v.ast.Program;
+import v.graph.ASTBuilder;
+import v.graph.SemanticValidator;
+import v.graph.VGraphLexer;
+import v.graph.VGraphParser;
+
+import java.util.concurrent.TimeUnit;
+
+// Lexer, parser (SLL con vuelta a LL) y validación semántica sobre programas de distinto tamaño.
+// parse() es lo que pagan la validación y la generación de C; parseAndBuildAst() lo que paga
+// quien ejecuta el programa (ASTBuilder)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FrontendBenchmark {
+
+    @Param({"sample", "10", "100", "1000"})
+    public String script;
+
+    private String source;
+    private VGraphParser.ProgramContext tree;
+
+    @Setup
+    public void setup() {
+        source = Scripts.load(script);
+        tree = script.equals("sample") ? Scripts.parse(source) : Scripts.parseValid(source);
+    }
+
+    @Benchmark
+    public int lex() {
+        CommonTokenStream tokens = new CommonTokenStream(new VGraphLexer(CharStreams.fromString(source)));
+        tokens.fill();
+        return tokens.size();
+    }
+
+    @Benchmark
+    public VGraphParser.ProgramContext parse() {
+        return Scripts.parse(source);
+    }
+
+    @Benchmark
+    public Program parseAndBuildAst() {
+        return ASTBuilder.build(Scripts.parse(source));
+    }
+
+    @Benchmark
+    public int validate() {
+        SemanticValidator validator = new SemanticValidator();
+        validator.visit(tree);
+        return validator.getSemanticErrors().size();
+    }
+}
@@ -0,0 +1,129 @@
+package v.bench;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import v.graph.SemanticValidator;
+import v.graph.TwoStageParser;
+import v.graph.VGraphParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Programas de entrada para los benchmarks. "sample" es src/test/resources/test.vgraph;
+ * un número N genera un programa de N bloques con declaraciones, una función, un loop
+ * con trigonometría, condicionales y dibujo, todos con nombres distintos para que el
+ * resultado pase la validación semántica y el tamaño crezca de forma lineal.
+ */
+final class Scripts {
+
+    private Scripts() {
+    }
+
+    static String load(String script) {
+        return script.equals("sample") ? sample() : generate(Integer.parseInt(script));
+    }
+
+    static String sample() {
+        try (InputStream in = Scripts.class.getResourceAsStream("/test.vgraph")) {
+            if (in == null) {
+                throw new IllegalStateException("test.vgraph is not on the benchmark classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String generate(int blocks) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < blocks; i++) {
+            sb.append("# bloque ").append(i).append('\n');
+            sb.append("(int) x").append(i).append(", y").append(i).append(", t").append(i).append(";\n");
+            sb.append("(color) c").append(i).append(" = rojo;\n");
+            sb.append("(double) d").append(i).append(" = ").append(i % 10).append(".5;\n");
+            sb.append("function dibuja").append(i).append("(a, b) {\n");
+            sb.append("    draw pixel(a, b);\n");
+            sb.append("    draw circle(a, b, 3);\n");
+            sb.append("}\n");
+            sb.append("frame {\n");
+            sb.append("    loop (t").append(i).append(" = 0; t").append(i).append(" < 360; t").append(i)
+                    .append(" = t").append(i).append(" + 5) {\n");
+            sb.append("        x").append(i).append(" = 320 + t").append(i).append(" * cos(t").append(i)
+                    .append(" * 3 / 180) / 2;\n");
+            sb.append("        y").append(i).append(" = 240 + t").append(i).append(" * sin(t").append(i)
+                    .append(" * 3 / 180) / 2 + d").append(i).append(";\n");
+            sb.append("        if (t").append(i).append(" % 3 == 0) { c").append(i).append(" = rojo; }\n");
+            sb.append("        elseif (t").append(i).append(" % 3 == 1) { c").append(i).append(" = azul; }\n");
+            sb.append("        else { c").append(i).append(" = verde; }\n");
+            sb.append("        setcolor(c").append(i).append(");\n");
+            sb.append("        dibuja").append(i).append("(x").append(i).append(", y").append(i).append(");\n");
+            sb.append("        draw line(x").append(i).append(", y").append(i).append(", 320, 240);\n");
+            sb.append("    }\n");
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    // Programa de cálculo puro: un loop de iterations vueltas con enteros y doubles, y un
+    // único pixel al final para que el resultado se vea en el canvas
+    static String arithmetic(int iterations) {
+        return "(int) i, acc, k;\n"
+                + "(double) s;\n"
+                + "acc = 0;\n"
+                + "k = 7;\n"
+                + "s = 0.0;\n"
+                + "loop (i = 0; i < " + iterations + "; i = i + 1) {\n"
+                + "    acc = (acc + i * k + i * 3 / 180 + i % 13) % 1000003;\n"
+                + "    s = s + sin(i * 0.001) * cos(k / 100.0) - (i - acc) % 7 / 2.0;\n"
+                + "}\n"
+                + "draw pixel(acc % 640, 10);\n";
+    }
+
+    // Llamadas a una función chica desde un loop, con globals variables globales de relleno
+    // (el costo de una llamada en el intérprete con mapa no debería depender de cuántas hay)
+    static String calls(int iterations, int globals) {
+        StringBuilder sb = new StringBuilder();
+        for (int g = 0; g < globals; g++) {
+            sb.append("(int) g").append(g).append(" = ").append(g).append(";\n");
+        }
+        sb.append("(int) i, acc;\n");
+        sb.append("acc = 0;\n");
+        sb.append("function acumula(a, b) {\n");
+        sb.append("    acc = (acc + a * b % 7) % 1000003;\n");
+        sb.append("}\n");
+        sb.append("loop (i = 0; i < ").append(iterations).append("; i = i + 1) {\n");
+        sb.append("    acumula(i, 3);\n");
+        sb.append("}\n");
+        sb.append("draw pixel(acc % 640, 10);\n");
+        return sb.toString();
+    }
+
+    static VGraphParser.ProgramContext parse(String source) {
+        TwoStageParser parser = new TwoStageParser(CharStreams.fromString(source), new FailingListener());
+        return parser.program();
+    }
+
+    // Falla si el programa no valida: un benchmark sobre un árbol con errores no mide nada
+    static VGraphParser.ProgramContext parseValid(String source) {
+        VGraphParser.ProgramContext tree = parse(source);
+        SemanticValidator validator = new SemanticValidator();
+        validator.visit(tree);
+        if (validator.hasErrors()) {
+            throw new IllegalStateException("Invalid benchmark script: " + validator.getSemanticErrors());
+        }
+        return tree;
+    }
+
+    private static final class FailingListener extends BaseErrorListener {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                                int line, int charPositionInLine, String msg, RecognitionException e) {
+            throw new IllegalStateException("Syntax error at line " + line + ":" + charPositionInLine + " - " + msg);
+        }
+    }
+}
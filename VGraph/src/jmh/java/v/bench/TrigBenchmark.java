@@ -0,0 +1,83 @@
+package v.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import v.ast.FastTrig;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Math.sin/cos frente a la tabla de FastTrig, sobre argumentos de hasta ±range
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TrigBenchmark {
+    private static final int COUNT = 1024;
+
+    @Param({"10", "1000000"})
+    public double range;
+
+    private double[] inputs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        inputs = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            inputs[i] = (random.nextDouble() * 2 - 1) * range;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double mathSin() {
+        double sum = 0;
+        for (double x : inputs) {
+            sum += Math.sin(x);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double fastSin() {
+        double sum = 0;
+        for (double x : inputs) {
+            sum += FastTrig.sin(x);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double mathCos() {
+        double sum = 0;
+        for (double x : inputs) {
+            sum += Math.cos(x);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public double fastCos() {
+        double sum = 0;
+        for (double x : inputs) {
+            sum += FastTrig.cos(x);
+        }
+        return sum;
+    }
+}
@@ -4,4 +4,30 @@ import java.util.Map;
 
 public interface ASTNode {
     public Object execute(Map<String, Object> symbolTable);
+
+    // Resuelve los nombres a índices de slot (una sola vez, antes de execute(Object[])).
+    // Devuelve el nodo que debe usarse en lugar de este.
+    public ASTNode resolve(SlotScope scope);
+
+    // Ejecución sobre el arreglo de slots; el execute con Map se mantiene como respaldo
+    public Object execute(Object[] slots);
+
+    // Tipo estático del resultado; UNKNOWN si solo se conoce en ejecución
+    public default ValueKind kind() {
+        return ValueKind.UNKNOWN;
+    }
+
+    // Entradas especializadas: las variantes tipadas las sobrescriben para no crear
+    // Integer/Double/Boolean intermedios
+    public default int executeInt(Object[] slots) {
+        return Values.toInt(execute(slots));
+    }
+
+    public default double executeDouble(Object[] slots) {
+        return Values.toDouble(execute(slots));
+    }
+
+    public default boolean executeBoolean(Object[] slots) {
+        return Values.toBoolean(execute(slots));
+    }
 }
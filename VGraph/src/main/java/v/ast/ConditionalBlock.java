@@ -11,6 +11,11 @@ public class ConditionalBlock {
         this.body = body;
     }
 
+    public void resolve(SlotScope scope) {
+        condition = condition.resolve(scope);
+        scope.resolveAll(body);
+    }
+
     // getters
     public ASTNode getCondition() { return condition; }
     public List<ASTNode> getBody() { return body; }
@@ -5,14 +5,45 @@ import java.util.Map;
 public class Constant implements ASTNode{
 
     private Object value;
+    private ValueKind kind;
 
     public Constant(Object value) {
         super();
         this.value = value;
+        this.kind = Values.kindOf(value);
     }
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
         return value;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return value;
+    }
+
+    @Override
+    public ValueKind kind() {
+        return kind;
+    }
+
+    @Override
+    public int executeInt(Object[] slots) {
+        return Values.toInt(value);
+    }
+
+    @Override
+    public double executeDouble(Object[] slots) {
+        return Values.toDouble(value);
+    }
+
+    public Object getValue() {
+        return value;
+    }
 }
@@ -3,8 +3,8 @@ package v.ast;
 import java.util.Map;
 
 public class Division implements ASTNode{
-    private ASTNode operand1;
-    private ASTNode operand2;
+    protected ASTNode operand1;
+    protected ASTNode operand2;
 
     public Division(ASTNode operand1, ASTNode operand2) {
         super();
@@ -14,6 +14,95 @@ public class Division implements ASTNode{
 
     @Override
     public Object execute(Map<String, Object> symbolTable){
-        return (int)operand1.execute(symbolTable) / (int)operand2.execute(symbolTable);
-    };
+        return compute(operand1.execute(symbolTable), operand2.execute(symbolTable));
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        operand1 = operand1.resolve(scope);
+        operand2 = operand2.resolve(scope);
+
+        // La variante se elige una sola vez según el tipo estático de los operandos
+        switch (Values.numeric(operand1.kind(), operand2.kind())) {
+            case INT:
+                return new IntDivision(operand1, operand2);
+            case DOUBLE:
+                return new DoubleDivision(operand1, operand2);
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return compute(operand1.execute(slots), operand2.execute(slots));
+    }
+
+    // int / int da int; si alguno es double se opera en double
+    private Object compute(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (Integer) left / (Integer) right;
+        }
+        return Values.toDouble(left) / Values.toDouble(right);
+    }
+
+    public ASTNode getOperand1() {
+        return operand1;
+    }
+
+    public ASTNode getOperand2() {
+        return operand2;
+    }
+
+    static final class IntDivision extends Division {
+        IntDivision(ASTNode operand1, ASTNode operand2) {
+            super(operand1, operand2);
+        }
+
+        @Override
+        public ValueKind kind() {
+            return ValueKind.INT;
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeInt(slots);
+        }
+
+        @Override
+        public int executeInt(Object[] slots) {
+            return operand1.executeInt(slots) / operand2.executeInt(slots);
+        }
+
+        @Override
+        public double executeDouble(Object[] slots) {
+            return executeInt(slots);
+        }
+    }
+
+    static final class DoubleDivision extends Division {
+        DoubleDivision(ASTNode operand1, ASTNode operand2) {
+            super(operand1, operand2);
+        }
+
+        @Override
+        public ValueKind kind() {
+            return ValueKind.DOUBLE;
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeDouble(slots);
+        }
+
+        @Override
+        public int executeInt(Object[] slots) {
+            return (int) executeDouble(slots);
+        }
+
+        @Override
+        public double executeDouble(Object[] slots) {
+            return operand1.executeDouble(slots) / operand2.executeDouble(slots);
+        }
+    }
 }
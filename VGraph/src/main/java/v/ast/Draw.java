@@ -9,4 +9,14 @@ public abstract class Draw implements ASTNode {
     public Object execute(Map<String, Object> symbolTable) {
         return null;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return null;
+    }
 }
\ No newline at end of file
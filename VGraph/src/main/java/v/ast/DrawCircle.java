@@ -1,8 +1,9 @@
 package v.ast;
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class DrawCircle extends Draw {
-    private final ASTNode x1, y1, r1;
+    private ASTNode x1, y1, r1;
 
     public DrawCircle(ASTNode x1, ASTNode y1, ASTNode r1) {
         this.x1 = x1;
@@ -11,9 +12,45 @@ public class DrawCircle extends Draw {
     }
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        int xStart = (Integer) x1.execute(symbolTable);
-        int yStart = (Integer) y1.execute(symbolTable);
-        int rEnd = (Integer) r1.execute(symbolTable);
+        int xStart = Values.toInt(x1.execute(symbolTable));
+        int yStart = Values.toInt(y1.execute(symbolTable));
+        int rEnd = Values.toInt(r1.execute(symbolTable));
+        RasterTarget target = RasterTarget.from(symbolTable);
+        if (target != null) {
+            target.circle(xStart, yStart, rEnd);
+        }
         return null;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        x1 = x1.resolve(scope);
+        y1 = y1.resolve(scope);
+        r1 = r1.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        int xStart = x1.executeInt(slots);
+        int yStart = y1.executeInt(slots);
+        int rEnd = r1.executeInt(slots);
+        RasterTarget target = RasterTarget.from(slots);
+        if (target != null) {
+            target.circle(xStart, yStart, rEnd);
+        }
+        return null;
+    }
+
+    public ASTNode getX1() {
+        return x1;
+    }
+
+    public ASTNode getY1() {
+        return y1;
+    }
+
+    public ASTNode getR1() {
+        return r1;
+    }
 }
@@ -1,9 +1,10 @@
 package v.ast;
 
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class DrawLine extends Draw {
-    private final ASTNode a,b,c,d;
+    private ASTNode a,b,c,d;
 
     public DrawLine(ASTNode a, ASTNode b, ASTNode c,ASTNode d) {
         this.a = a;
@@ -13,12 +14,52 @@ public class DrawLine extends Draw {
     }
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        int aStart = (Integer) a.execute(symbolTable);
-        int bStart = (Integer) b.execute(symbolTable);
-        int cStart= (Integer) c.execute(symbolTable);
-        int dStart= (Integer) d.execute(symbolTable);
+        int aStart = Values.toInt(a.execute(symbolTable));
+        int bStart = Values.toInt(b.execute(symbolTable));
+        int cStart= Values.toInt(c.execute(symbolTable));
+        int dStart= Values.toInt(d.execute(symbolTable));
+        RasterTarget target = RasterTarget.from(symbolTable);
+        if (target != null) {
+            target.line(aStart, bStart, cStart, dStart);
+        }
+        return null;
+    }
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        a = a.resolve(scope);
+        b = b.resolve(scope);
+        c = c.resolve(scope);
+        d = d.resolve(scope);
+        return this;
+    }
 
+    @Override
+    public Object execute(Object[] slots) {
+        int aStart = a.executeInt(slots);
+        int bStart = b.executeInt(slots);
+        int cStart= c.executeInt(slots);
+        int dStart= d.executeInt(slots);
+        RasterTarget target = RasterTarget.from(slots);
+        if (target != null) {
+            target.line(aStart, bStart, cStart, dStart);
+        }
         return null;
     }
+
+    public ASTNode getA() {
+        return a;
+    }
+
+    public ASTNode getB() {
+        return b;
+    }
+
+    public ASTNode getC() {
+        return c;
+    }
+
+    public ASTNode getD() {
+        return d;
+    }
 }
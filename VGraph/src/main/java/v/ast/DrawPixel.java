@@ -1,8 +1,9 @@
 package v.ast;
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class DrawPixel extends Draw {
-    private final ASTNode x,y;
+    private ASTNode x,y;
 
     public DrawPixel(ASTNode x, ASTNode y) {
         this.x = x;
@@ -10,11 +11,38 @@ public class DrawPixel extends Draw {
     }
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        int xStart = (Integer) x.execute(symbolTable);
-        int yStart = (Integer) y.execute(symbolTable);
-
+        int xStart = Values.toInt(x.execute(symbolTable));
+        int yStart = Values.toInt(y.execute(symbolTable));
+        RasterTarget target = RasterTarget.from(symbolTable);
+        if (target != null) {
+            target.pixel(xStart, yStart);
+        }
+        return null;
+    }
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        x = x.resolve(scope);
+        y = y.resolve(scope);
+        return this;
+    }
 
+    @Override
+    public Object execute(Object[] slots) {
+        int xStart = x.executeInt(slots);
+        int yStart = y.executeInt(slots);
+        RasterTarget target = RasterTarget.from(slots);
+        if (target != null) {
+            target.pixel(xStart, yStart);
+        }
         return null;
     }
+
+    public ASTNode getX() {
+        return x;
+    }
+
+    public ASTNode getY() {
+        return y;
+    }
 }
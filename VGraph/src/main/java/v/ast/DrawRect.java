@@ -1,8 +1,9 @@
 package v.ast;
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class DrawRect extends Draw {
-    private final ASTNode x,y,w,h;
+    private ASTNode x,y,w,h;
 
     public DrawRect(ASTNode x, ASTNode y, ASTNode w,ASTNode h) {
         this.x = x;
@@ -12,11 +13,52 @@ public class DrawRect extends Draw {
     }
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        int xStart = (Integer) x.execute(symbolTable);
-        int yStart = (Integer) y.execute(symbolTable);
-        int wid= (Integer) w.execute(symbolTable);
-        int hi= (Integer) h.execute(symbolTable);
+        int xStart = Values.toInt(x.execute(symbolTable));
+        int yStart = Values.toInt(y.execute(symbolTable));
+        int wid= Values.toInt(w.execute(symbolTable));
+        int hi= Values.toInt(h.execute(symbolTable));
+        RasterTarget target = RasterTarget.from(symbolTable);
+        if (target != null) {
+            target.rect(xStart, yStart, wid, hi);
+        }
+        return null;
+    }
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        x = x.resolve(scope);
+        y = y.resolve(scope);
+        w = w.resolve(scope);
+        h = h.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        int xStart = x.executeInt(slots);
+        int yStart = y.executeInt(slots);
+        int wid= w.executeInt(slots);
+        int hi= h.executeInt(slots);
+        RasterTarget target = RasterTarget.from(slots);
+        if (target != null) {
+            target.rect(xStart, yStart, wid, hi);
+        }
         return null;
     }
+
+    public ASTNode getX() {
+        return x;
+    }
+
+    public ASTNode getY() {
+        return y;
+    }
+
+    public ASTNode getW() {
+        return w;
+    }
+
+    public ASTNode getH() {
+        return h;
+    }
 }
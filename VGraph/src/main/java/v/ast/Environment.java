@@ -0,0 +1,104 @@
+package v.ast;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tabla de símbolos de una llamada a función en el intérprete con mapa. En vez de copiar
+ * la tabla global en cada llamada, los parámetros van en un arreglo, las variables que
+ * declara el cuerpo en un mapa que se crea recién si hace falta, y todo lo demás se busca
+ * en la tabla global. Asignar una variable que no es local escribe en la global, igual que
+ * en la ruta con slots; declarar (VarDecl, VarDecl2, Function) siempre crea una local.
+ */
+public final class Environment extends AbstractMap<String, Object> {
+    private final Map<String, Object> globals;
+    private final String[] names;
+    private final Object[] values;
+    private Map<String, Object> locals;
+
+    public Environment(Map<String, Object> caller, String[] names, Object[] values) {
+        // Las funciones ven las globales, no las locales de quien las llama
+        this.globals = caller instanceof Environment ? ((Environment) caller).globals : caller;
+        this.names = names;
+        this.values = values;
+    }
+
+    // Declaración: en una llamada queda local; en la tabla global es un put común
+    public static void declare(Map<String, Object> symbolTable, String name, Object value) {
+        if (symbolTable instanceof Environment) {
+            ((Environment) symbolTable).declare(name, value);
+        } else {
+            symbolTable.put(name, value);
+        }
+    }
+
+    public void declare(String name, Object value) {
+        int param = indexOf(name);
+        if (param >= 0) {
+            values[param] = value;
+            return;
+        }
+        if (locals == null) {
+            locals = new HashMap<>();
+        }
+        locals.put(name, value);
+    }
+
+    // Desde el final: con parámetros repetidos gana el último, como al llenar un HashMap
+    private int indexOf(Object name) {
+        for (int i = names.length - 1; i >= 0; i--) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object get(Object name) {
+        int param = indexOf(name);
+        if (param >= 0) {
+            return values[param];
+        }
+        if (locals != null && locals.containsKey(name)) {
+            return locals.get(name);
+        }
+        return globals.get(name);
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0 || locals != null && locals.containsKey(name) || globals.containsKey(name);
+    }
+
+    // Asignación: a la local si existe, si no a la global
+    @Override
+    public Object put(String name, Object value) {
+        int param = indexOf(name);
+        if (param >= 0) {
+            Object previous = values[param];
+            values[param] = value;
+            return previous;
+        }
+        if (locals != null && locals.containsKey(name)) {
+            return locals.put(name, value);
+        }
+        return globals.put(name, value);
+    }
+
+    // Vista combinada (solo para depurar): las locales tapan a las globales del mismo nombre
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> merged = new LinkedHashMap<>(globals);
+        if (locals != null) {
+            merged.putAll(locals);
+        }
+        for (int i = 0; i < names.length; i++) {
+            merged.put(names[i], values[i]);
+        }
+        return java.util.Collections.unmodifiableMap(merged).entrySet();
+    }
+}
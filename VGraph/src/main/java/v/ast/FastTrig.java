@@ -0,0 +1,89 @@
+package v.ast;
+
+/**
+ * Seno y coseno por tabla con interpolación lineal, para el modo fast trig (opcional).
+ * Es el mismo algoritmo que fast_sin/fast_cos de generated/graphics.c, así la preview
+ * y la placa dibujan lo mismo.
+ *
+ * La tabla tiene SIZE = 4096 muestras por vuelta (paso h = 2π/4096). Error absoluto
+ * máximo frente a Math.sin/Math.cos:
+ *   interpolación   h²/8 ≈ 2.95e-7
+ *   reducción       |x|·2.3e-16 (x·SIZE/2π se redondea una vez)
+ * o sea menos de 3e-7 para |x| ≤ 1e6 y menos de 6e-7 hasta LIMIT. Por encima de LIMIT,
+ * y para NaN o infinito, se usa Math.sin/Math.cos directamente.
+ *
+ * La tabla no sale de sin() sino de una serie con solo sumas, productos y divisiones, que
+ * dan el mismo double en Java y en C: con libm la tabla de graphics.c difería en el último
+ * bit de 160 de las 4097 muestras, y el generador de C no podía plegar fast_sin(literal)
+ * al valor que calcula la placa.
+ */
+public final class FastTrig {
+    public static final int SIZE = 4096; // potencia de 2: el índice se reduce con & (SIZE - 1)
+    public static final double LIMIT = 1e9;
+
+    private static final double SCALE = SIZE / (2 * Math.PI);
+    private static final double[] TABLE = new double[SIZE + 1];
+
+    static {
+        // Primer cuadrante con las series (sin hasta π/4, cos desde ahí, así sin(π/2) da 1
+        // justo); el resto por simetría, que es exacta
+        for (int i = 0; i <= SIZE / 8; i++) {
+            TABLE[i] = sinSeries(i * (2 * Math.PI / SIZE));
+        }
+        for (int i = SIZE / 8 + 1; i <= SIZE / 4; i++) {
+            TABLE[i] = cosSeries((SIZE / 4 - i) * (2 * Math.PI / SIZE));
+        }
+        for (int i = SIZE / 4 + 1; i <= SIZE / 2; i++) {
+            TABLE[i] = TABLE[SIZE / 2 - i];
+        }
+        for (int i = SIZE / 2 + 1; i <= SIZE; i++) {
+            TABLE[i] = -TABLE[i - SIZE / 2];
+        }
+    }
+
+    // Taylor para 0 <= x <= π/4 (el primer término que falta es < 1e-23), igual que
+    // fast_trig_sin/fast_trig_cos de graphics.c. Cada paso es un producto seguido de una
+    // división, así que C no lo puede fusionar en un fma y el redondeo es el mismo
+    static double sinSeries(double x) {
+        double x2 = x * x;
+        double term = 1.0;
+        for (int k = 10; k >= 1; k--) {
+            term = 1.0 - x2 * term / ((2 * k) * (2 * k + 1));
+        }
+        return x * term;
+    }
+
+    static double cosSeries(double x) {
+        double x2 = x * x;
+        double term = 1.0;
+        for (int k = 10; k >= 1; k--) {
+            term = 1.0 - x2 * term / ((2 * k - 1) * (2 * k));
+        }
+        return term;
+    }
+
+    private FastTrig() {
+    }
+
+    public static double sin(double x) {
+        if (!(Math.abs(x) <= LIMIT)) {
+            return Math.sin(x);
+        }
+        return lookup(x * SCALE);
+    }
+
+    // cos(x) = sin(x + π/2): un cuarto de vuelta son SIZE/4 muestras exactas
+    public static double cos(double x) {
+        if (!(Math.abs(x) <= LIMIT)) {
+            return Math.cos(x);
+        }
+        return lookup(x * SCALE + SIZE / 4);
+    }
+
+    private static double lookup(double t) {
+        double floor = Math.floor(t);
+        int i = (int) ((long) floor & (SIZE - 1));
+        double frac = t - floor;
+        return TABLE[i] + (TABLE[i + 1] - TABLE[i]) * frac;
+    }
+}
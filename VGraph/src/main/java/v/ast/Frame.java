@@ -1,6 +1,7 @@
 package v.ast;
 import java.util.List;
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class Frame implements ASTNode {
     private final List<ASTNode> sentences;
@@ -12,13 +13,57 @@ public class Frame implements ASTNode {
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        if (sentences != null) {
-            for (ASTNode sentence : sentences) {
-                if (sentence != null) {
-                    sentence.execute(symbolTable);
+        RasterTarget target = RasterTarget.from(symbolTable);
+        if (target != null) {
+            target.beginFrame();
+        }
+        try {
+            if (sentences != null) {
+                for (ASTNode sentence : sentences) {
+                    if (sentence != null) {
+                        sentence.execute(symbolTable);
+                    }
+                }
+            }
+        } finally {
+            // El frame se presenta completo al final del bloque
+            if (target != null) {
+                target.endFrame();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        scope.resolveAll(sentences);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        RasterTarget target = RasterTarget.from(slots);
+        if (target != null) {
+            target.beginFrame();
+        }
+        try {
+            if (sentences != null) {
+                for (ASTNode sentence : sentences) {
+                    if (sentence != null) {
+                        sentence.execute(slots);
+                    }
                 }
             }
+        } finally {
+            // El frame se presenta completo al final del bloque
+            if (target != null) {
+                target.endFrame();
+            }
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public List<ASTNode> getSentences() {
+        return sentences;
+    }
+}
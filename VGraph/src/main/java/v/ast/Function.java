@@ -7,16 +7,43 @@ public class Function implements ASTNode{
     public String name;
     private List<String> args;
     private List<ASTNode> sentences;
+    private final String[] paramNames;
+
+    private int slot = -1;
+    private int[] paramSlots;
+    private int[] localSlots; // parámetros + variables declaradas en el cuerpo
 
     public Function(String name, List<String> args, List<ASTNode> sentences) {
         this.name = name;
         this.args = args;
         this.sentences = sentences;
+        this.paramNames = args.toArray(new String[0]);
     }
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        symbolTable.put(name,this);
+        Environment.declare(symbolTable, name, this);
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        slot = scope.declare(name, ValueKind.UNKNOWN);
+
+        scope.enterFunction(this);
+        paramSlots = new int[args.size()];
+        for (int i = 0; i < args.size(); i++) {
+            // Los parámetros pueden recibir cualquier valor
+            paramSlots[i] = scope.declare(args.get(i), ValueKind.UNKNOWN);
+        }
+        scope.resolveAll(sentences);
+        localSlots = scope.exitFunction();
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        slots[slot] = this;
         return null;
     }
 
@@ -24,8 +51,23 @@ public class Function implements ASTNode{
         return args;
     }
 
+    public String[] getParamNames() {
+        return paramNames;
+    }
+
     public List<ASTNode> getSentences() {
         return sentences;
     }
-}
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public int[] getParamSlots() {
+        return paramSlots;
+    }
+
+    public int[] getLocalSlots() {
+        return localSlots;
+    }
+}
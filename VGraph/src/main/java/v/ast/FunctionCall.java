@@ -1,44 +1,114 @@
 package v.ast;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class FunctionCall implements ASTNode{
     public String name;
     private List<ASTNode> args;
+    private ASTNode[] argNodes; // args como arreglo, para no recorrer la lista en cada llamada
+    private int slot = -1;
+
+    // Caché monomórfica del sitio de llamada: la última función que se encontró ligada a
+    // name y ya se validó (que es Function y que la aridad coincide). Mientras el nombre
+    // siga ligado a ese mismo objeto no se vuelve a validar; si se redefine, el guard
+    // (comparar identidad) falla y se valida la nueva.
+    private Function cached;
 
     public FunctionCall(String name, List<ASTNode> args) {
         this.name = name;
         this.args = args;
+        this.argNodes = args.toArray(new ASTNode[0]);
     }
 
-    @Override
-    public Object execute(Map<String, Object> symbolTable) {
-        if (!symbolTable.containsKey(name)) {
+    private Function bind(Object value) {
+        // Antes que el guard: cached empieza en null y no tiene que dar por buena una función
+        // que no existe
+        if (value == null) {
             throw new RuntimeException("Error: Funcion '" + name + "' no ha sido declarada.");
         }
-
-        Object value = symbolTable.get(name);
-        if (!value.getClass().getSimpleName().equals("Function")){
+        if (value == cached) {
+            return cached;
+        }
+        if (!(value instanceof Function)){
             throw new RuntimeException("Error:  '" + name + "' no es una funcion");
         }
         Function fun = (Function) value;
-        List<ASTNode>  sentences = fun.getSentences();
-        List<String> args = fun.getArgs();
+        int expected = fun.getParamNames().length;
+        if (argNodes.length != expected){
+            throw new RuntimeException("Error: '" + name + "' esperaba " + expected + " argumentos, pero se le dieron " + argNodes.length);
+        }
+        cached = fun;
+        return fun;
+    }
 
-        if (this.args.size() != args.size()){
-            throw new RuntimeException("Error: '" + name + "' esperaba " + args.size() + " argumentos, pero se le dieron " + this.args.size());
+    @Override
+    public Object execute(Map<String, Object> symbolTable) {
+        Function fun = bind(symbolTable.get(name));
+        String[] params = fun.getParamNames();
+
+        // Sin copiar la tabla: los parámetros van en un arreglo y el resto se lee
+        // (y se asigna) en la tabla global
+        Object[] values = new Object[params.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = argNodes[i].execute(symbolTable);
         }
+        Environment local = new Environment(symbolTable, params, values);
+        for (ASTNode sentence: fun.getSentences()){
+            sentence.execute(local);
+        }
+        return null;
+    }
 
-        Map<String, Object> localSymbolTable = new HashMap<>(symbolTable);
-        for (int i = 0; i < args.size() ; i++) {
-            localSymbolTable.put(args.get(i), this.args.get(i).execute(symbolTable));
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        slot = scope.slotOf(name);
+        scope.resolveAll(args);
+        argNodes = args.toArray(new ASTNode[0]);
+        cached = null;
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        Function fun = bind(slots[slot]);
+        int[] paramSlots = fun.getParamSlots();
+        int[] localSlots = fun.getLocalSlots();
+
+        // Los argumentos se evalúan antes de tocar los slots de la función
+        Object[] values = new Object[paramSlots.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = argNodes[i].execute(slots);
+        }
+
+        // Los slots de paramSlots/localSlots son solo de esta función (SlotScope no los
+        // comparte con las globales del mismo nombre), así que guardarlos y restaurarlos es
+        // el frame de la llamada: las funciones que se llamen desde acá siguen leyendo las
+        // globales, y una llamada recursiva no pisa los valores de esta
+        Object[] saved = new Object[localSlots.length];
+        for (int i = 0; i < localSlots.length; i++) {
+            saved[i] = slots[localSlots[i]];
         }
-        for (ASTNode sentence: sentences){
-            sentence.execute(localSymbolTable);
+        try {
+            for (int i = 0; i < paramSlots.length; i++) {
+                slots[paramSlots[i]] = values[i];
+            }
+            for (ASTNode sentence: fun.getSentences()){
+                sentence.execute(slots);
+            }
+        } finally {
+            for (int i = 0; i < localSlots.length; i++) {
+                slots[localSlots[i]] = saved[i];
+            }
         }
         return null;
     }
-}
 
+    public List<ASTNode> getArgs() {
+        return args;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -3,8 +3,8 @@ package v.ast;
 import java.util.Map;
 
 public class GreaterOrEqual implements ASTNode{
-    private ASTNode expression1;
-    private ASTNode expression2;
+    protected ASTNode expression1;
+    protected ASTNode expression2;
 
     public GreaterOrEqual(ASTNode expression1, ASTNode expression2){
         super();
@@ -14,6 +14,79 @@ public class GreaterOrEqual implements ASTNode{
 
     @Override
     public Object execute(Map<String, Object> symbolTable){
-        return ((int)expression1.execute(symbolTable) <= (int)expression2.execute(symbolTable));
+        return compute(expression1.execute(symbolTable), expression2.execute(symbolTable));
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        expression1 = expression1.resolve(scope);
+        expression2 = expression2.resolve(scope);
+
+        // La variante se elige una sola vez según el tipo estático de los operandos
+        switch (Values.numeric(expression1.kind(), expression2.kind())) {
+            case INT:
+                return new IntGreaterOrEqual(expression1, expression2);
+            case DOUBLE:
+                return new DoubleGreaterOrEqual(expression1, expression2);
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return compute(expression1.execute(slots), expression2.execute(slots));
+    }
+
+    @Override
+    public ValueKind kind() {
+        return ValueKind.BOOLEAN;
+    }
+
+    private Object compute(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) left >= (int) right;
+        }
+        return Values.toDouble(left) >= Values.toDouble(right);
+    }
+
+    public ASTNode getExpression1() {
+        return expression1;
+    }
+
+    public ASTNode getExpression2() {
+        return expression2;
+    }
+
+    static final class IntGreaterOrEqual extends GreaterOrEqual {
+        IntGreaterOrEqual(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeInt(slots) >= expression2.executeInt(slots);
+        }
+    }
+
+    static final class DoubleGreaterOrEqual extends GreaterOrEqual {
+        DoubleGreaterOrEqual(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeDouble(slots) >= expression2.executeDouble(slots);
+        }
     }
 }
@@ -37,9 +37,55 @@ public class If implements ASTNode {
         return null;
     }
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        condition = condition.resolve(scope);
+        scope.resolveAll(ifBody);
+        for (ConditionalBlock cb : elseifBlocks) {
+            cb.resolve(scope);
+        }
+        scope.resolveAll(elseBody);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        if (condition.executeBoolean(slots)) {
+            for (ASTNode n : ifBody) n.execute(slots);
+        } else {
+            boolean matched = false;
+            for (ConditionalBlock cb : elseifBlocks) {
+                if (cb.getCondition().executeBoolean(slots)) {
+                    for (ASTNode n : cb.getBody()) n.execute(slots);
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched && elseBody != null) {
+                for (ASTNode n : elseBody) n.execute(slots);
+            }
+        }
+        return null;
+    }
+
     private boolean evaluate(ASTNode condition, Map<String, Object> symbolTable) {
         Object result = condition.execute(symbolTable);
         return result instanceof Boolean && (Boolean) result;
     }
-}
 
+    public ASTNode getCondition() {
+        return condition;
+    }
+
+    public List<ASTNode> getIfBody() {
+        return ifBody;
+    }
+
+    public List<ConditionalBlock> getElseifBlocks() {
+        return elseifBlocks;
+    }
+
+    public List<ASTNode> getElseBody() {
+        return elseBody;
+    }
+}
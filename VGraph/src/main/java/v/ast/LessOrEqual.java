@@ -3,10 +3,10 @@ package v.ast;
 import java.util.Map;
 
 public class LessOrEqual implements ASTNode{
-    private ASTNode expression1;
-    private ASTNode expression2;
+    protected ASTNode expression1;
+    protected ASTNode expression2;
 
-    public LessOrEqual(ASTNode expression1, ASTNode expression2) {
+    public LessOrEqual(ASTNode expression1, ASTNode expression2){
         super();
         this.expression1 = expression1;
         this.expression2 = expression2;
@@ -14,6 +14,79 @@ public class LessOrEqual implements ASTNode{
 
     @Override
     public Object execute(Map<String, Object> symbolTable){
-        return ((int) expression1.execute(symbolTable) <= (int) expression2.execute(symbolTable));
+        return compute(expression1.execute(symbolTable), expression2.execute(symbolTable));
     }
-}
\ No newline at end of file
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        expression1 = expression1.resolve(scope);
+        expression2 = expression2.resolve(scope);
+
+        // La variante se elige una sola vez según el tipo estático de los operandos
+        switch (Values.numeric(expression1.kind(), expression2.kind())) {
+            case INT:
+                return new IntLessOrEqual(expression1, expression2);
+            case DOUBLE:
+                return new DoubleLessOrEqual(expression1, expression2);
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return compute(expression1.execute(slots), expression2.execute(slots));
+    }
+
+    @Override
+    public ValueKind kind() {
+        return ValueKind.BOOLEAN;
+    }
+
+    private Object compute(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) left <= (int) right;
+        }
+        return Values.toDouble(left) <= Values.toDouble(right);
+    }
+
+    public ASTNode getExpression1() {
+        return expression1;
+    }
+
+    public ASTNode getExpression2() {
+        return expression2;
+    }
+
+    static final class IntLessOrEqual extends LessOrEqual {
+        IntLessOrEqual(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeInt(slots) <= expression2.executeInt(slots);
+        }
+    }
+
+    static final class DoubleLessOrEqual extends LessOrEqual {
+        DoubleLessOrEqual(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeDouble(slots) <= expression2.executeDouble(slots);
+        }
+    }
+}
@@ -3,8 +3,8 @@ package v.ast;
 import java.util.Map;
 
 public class LessThan implements ASTNode{
-    private ASTNode expression1;
-    private ASTNode expression2;
+    protected ASTNode expression1;
+    protected ASTNode expression2;
 
     public LessThan(ASTNode expression1, ASTNode expression2){
         super();
@@ -13,14 +13,80 @@ public class LessThan implements ASTNode{
     }
 
     @Override
-    public Object execute(Map<String, Object> symbolTable) {
-        Object left = expression1.execute(symbolTable);
-        Object right = expression2.execute(symbolTable);
+    public Object execute(Map<String, Object> symbolTable){
+        return compute(expression1.execute(symbolTable), expression2.execute(symbolTable));
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        expression1 = expression1.resolve(scope);
+        expression2 = expression2.resolve(scope);
 
-        int leftValue = (left instanceof Double) ? ((Double) left).intValue() : (int) left;
-        int rightValue = (right instanceof Double) ? ((Double) right).intValue() : (int) right;
+        // La variante se elige una sola vez según el tipo estático de los operandos
+        switch (Values.numeric(expression1.kind(), expression2.kind())) {
+            case INT:
+                return new IntLessThan(expression1, expression2);
+            case DOUBLE:
+                return new DoubleLessThan(expression1, expression2);
+            default:
+                return this;
+        }
+    }
 
-        return leftValue < rightValue;
+    @Override
+    public Object execute(Object[] slots) {
+        return compute(expression1.execute(slots), expression2.execute(slots));
     }
 
-}
\ No newline at end of file
+    @Override
+    public ValueKind kind() {
+        return ValueKind.BOOLEAN;
+    }
+
+    private Object compute(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) left < (int) right;
+        }
+        return Values.toDouble(left) < Values.toDouble(right);
+    }
+
+    public ASTNode getExpression1() {
+        return expression1;
+    }
+
+    public ASTNode getExpression2() {
+        return expression2;
+    }
+
+    static final class IntLessThan extends LessThan {
+        IntLessThan(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeInt(slots) < expression2.executeInt(slots);
+        }
+    }
+
+    static final class DoubleLessThan extends LessThan {
+        DoubleLessThan(ASTNode expression1, ASTNode expression2) {
+            super(expression1, expression2);
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeBoolean(slots);
+        }
+
+        @Override
+        public boolean executeBoolean(Object[] slots) {
+            return expression1.executeDouble(slots) < expression2.executeDouble(slots);
+        }
+    }
+}
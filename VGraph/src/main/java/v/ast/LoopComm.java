@@ -30,6 +30,28 @@ public class LoopComm implements ASTNode{
         return null;
     }
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        init = init.resolve(scope);
+        condition = condition.resolve(scope);
+        update = update.resolve(scope);
+        scope.resolveAll(body);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        init.execute(slots);
+
+        while (condition.executeBoolean(slots)){
+            for (ASTNode expr: body){
+                expr.execute(slots);
+            }
+            update.execute(slots);
+        }
+        return null;
+    }
+
     private boolean evaluateCondition(Map<String, Object> symbolTable){
         Object result = condition.execute(symbolTable);
         if (result instanceof Boolean){
@@ -38,4 +60,20 @@ public class LoopComm implements ASTNode{
             throw new RuntimeException("error in the loop condition");
         }
     }
+
+    public ASTNode getInit() {
+        return init;
+    }
+
+    public ASTNode getCondition() {
+        return condition;
+    }
+
+    public ASTNode getUpdate() {
+        return update;
+    }
+
+    public List<ASTNode> getBody() {
+        return body;
+    }
 }
@@ -0,0 +1,529 @@
+package v.ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimización de los loop para las rutas de Java (intérprete, slots, closures y bytecode),
+ * la misma que hace VGraphCustomVisitor en el C generado. Devuelve una copia del programa
+ * (sin resolver todavía) en la que:
+ *  - las subexpresiones numéricas que no dependen de nada que el loop modifique se
+ *    calculan una vez antes del loop, en variables $invN;
+ *  - los productos v * k, con v la variable de inducción (v = v + c) y k invariante,
+ *    pasan a ser variables $srN que suman c * k en cada vuelta.
+ * Los nombres con $ no los puede escribir el usuario, así que no chocan con los suyos.
+ * Solo se tocan expresiones cuyo tipo se conoce por las declaraciones; las que pueden
+ * fallar (división entera por algo que no es una constante distinta de cero) no se mueven.
+ */
+public final class LoopOptimizer {
+
+    // Un loop en reescritura: lo que modifica y lo que hay que agregar antes y dentro de él
+    private static final class Scope {
+        final Set<String> assigned;
+        final List<ASTNode> preheader = new ArrayList<>();
+        final Map<String, String> temps = new HashMap<>();
+        final List<ASTNode> updates = new ArrayList<>();
+        String induction;
+        int step;
+
+        Scope(Set<String> assigned) {
+            this.assigned = assigned;
+        }
+    }
+
+    // Tipo declarado de cada variable; UNKNOWN si se declara con tipos distintos o es parámetro
+    private final Map<String, ValueKind> types = new HashMap<>();
+    // Lo que puede modificar una llamada a cualquier función
+    private final Set<String> functionAssigned = new HashSet<>();
+    private Deque<Scope> loops = new ArrayDeque<>();
+    private int tempCounter = 0;
+
+    private LoopOptimizer() {
+    }
+
+    // Se aplica al programa recién construido por ASTBuilder, antes de prepare()
+    public static Program optimize(Program program) {
+        LoopOptimizer optimizer = new LoopOptimizer();
+        optimizer.collectTypes(program.getSentences());
+        return new Program(optimizer.block(program.getSentences()));
+    }
+
+    // ===== Análisis =====
+
+    private void collectTypes(List<ASTNode> sentences) {
+        for (ASTNode sentence : sentences) {
+            if (sentence instanceof VarDecl) {
+                VarDecl decl = (VarDecl) sentence;
+                declare(decl.getType(), decl.getDeclarations().keySet());
+            } else if (sentence instanceof VarDecl2) {
+                VarDecl2 decl = (VarDecl2) sentence;
+                declare(decl.getType(), decl.getDeclarations().keySet());
+            } else if (sentence instanceof Function) {
+                Function function = (Function) sentence;
+                for (String arg : function.getArgs()) {
+                    types.put(arg, ValueKind.UNKNOWN);
+                }
+                collectAssigned(function.getSentences(), functionAssigned);
+            }
+            for (List<ASTNode> nested : nestedBlocks(sentence)) {
+                collectTypes(nested);
+            }
+        }
+    }
+
+    private void declare(ASTNode type, Set<String> names) {
+        ValueKind kind = ValueKind.fromTypeName(((Type) type).type);
+        for (String name : names) {
+            types.merge(name, kind, (a, b) -> a == b ? a : ValueKind.UNKNOWN);
+        }
+    }
+
+    // Todo lo que se asigna o declara en sentences; una llamada cuenta como lo que
+    // asigna cualquier función (functionAssigned ya junta los cuerpos de todas)
+    private void collectAssigned(List<ASTNode> sentences, Set<String> assigned) {
+        for (ASTNode sentence : sentences) {
+            if (sentence instanceof VarAssign) {
+                assigned.add(((VarAssign) sentence).name);
+            } else if (sentence instanceof VarDecl) {
+                assigned.addAll(((VarDecl) sentence).getDeclarations().keySet());
+            } else if (sentence instanceof VarDecl2) {
+                assigned.addAll(((VarDecl2) sentence).getDeclarations().keySet());
+            } else if (sentence instanceof FunctionCall) {
+                assigned.addAll(functionAssigned);
+            } else if (sentence instanceof LoopComm) {
+                LoopComm loop = (LoopComm) sentence;
+                assigned.add(((VarAssign) loop.getInit()).name);
+                assigned.add(((VarAssign) loop.getUpdate()).name);
+            }
+            for (List<ASTNode> nested : nestedBlocks(sentence)) {
+                collectAssigned(nested, assigned);
+            }
+        }
+    }
+
+    private static List<List<ASTNode>> nestedBlocks(ASTNode sentence) {
+        List<List<ASTNode>> blocks = new ArrayList<>();
+        if (sentence instanceof LoopComm) {
+            blocks.add(((LoopComm) sentence).getBody());
+        } else if (sentence instanceof Frame) {
+            blocks.add(((Frame) sentence).getSentences());
+        } else if (sentence instanceof Function) {
+            blocks.add(((Function) sentence).getSentences());
+        } else if (sentence instanceof If) {
+            If conditional = (If) sentence;
+            blocks.add(conditional.getIfBody());
+            for (ConditionalBlock block : conditional.getElseifBlocks()) {
+                blocks.add(block.getBody());
+            }
+            if (conditional.getElseBody() != null) {
+                blocks.add(conditional.getElseBody());
+            }
+        }
+        return blocks;
+    }
+
+    private ValueKind kindOf(ASTNode expr) {
+        if (expr instanceof Constant) {
+            return expr.kind();
+        }
+        if (expr instanceof VarRef) {
+            return types.getOrDefault(((VarRef) expr).getName(), ValueKind.UNKNOWN);
+        }
+        if (expr instanceof Sin || expr instanceof Cos) {
+            return kindOf(argument(expr)).isNumeric() ? ValueKind.DOUBLE : ValueKind.UNKNOWN;
+        }
+        ASTNode[] operands = operands(expr);
+        if (operands != null && isArithmetic(expr)) {
+            return Values.numeric(kindOf(operands[0]), kindOf(operands[1]));
+        }
+        return ValueKind.UNKNOWN;
+    }
+
+    private boolean canTrap(ASTNode expr) {
+        if ((expr instanceof Division || expr instanceof Modulus) && kindOf(expr) == ValueKind.INT) {
+            ASTNode divisor = operands(expr)[1];
+            if (!(divisor instanceof Constant) || Values.toDouble(((Constant) divisor).getValue()) == 0) {
+                return true;
+            }
+        }
+        if (expr instanceof Sin || expr instanceof Cos) {
+            return canTrap(argument(expr));
+        }
+        ASTNode[] operands = operands(expr);
+        return operands != null && (canTrap(operands[0]) || canTrap(operands[1]));
+    }
+
+    private static void collectVars(ASTNode expr, Set<String> vars) {
+        if (expr instanceof VarRef) {
+            vars.add(((VarRef) expr).getName());
+        } else if (expr instanceof Sin || expr instanceof Cos) {
+            collectVars(argument(expr), vars);
+        } else if (operands(expr) != null) {
+            collectVars(operands(expr)[0], vars);
+            collectVars(operands(expr)[1], vars);
+        }
+    }
+
+    // Texto de la expresión para no calcular dos veces lo mismo en un loop
+    private static String key(ASTNode expr) {
+        if (expr instanceof Constant) {
+            return String.valueOf(((Constant) expr).getValue());
+        }
+        if (expr instanceof VarRef) {
+            return ((VarRef) expr).getName();
+        }
+        if (expr instanceof Sin || expr instanceof Cos) {
+            return (expr instanceof Sin ? "sin(" : "cos(") + key(argument(expr)) + ")";
+        }
+        ASTNode[] operands = operands(expr);
+        return "(" + key(operands[0]) + " " + expr.getClass().getSimpleName() + " " + key(operands[1]) + ")";
+    }
+
+    // ===== Reescritura =====
+
+    private List<ASTNode> block(List<ASTNode> sentences) {
+        List<ASTNode> result = new ArrayList<>();
+        for (ASTNode sentence : sentences) {
+            if (sentence instanceof LoopComm) {
+                result.addAll(loop((LoopComm) sentence));
+            } else {
+                result.add(statement(sentence));
+            }
+        }
+        return result;
+    }
+
+    private List<ASTNode> loop(LoopComm loop) {
+        VarAssign init = (VarAssign) loop.getInit();
+        VarAssign update = (VarAssign) loop.getUpdate();
+        // La inicialización corre una vez: lo suyo se puede adelantar a un loop de afuera
+        VarAssign newInit = new VarAssign(init.name, hoist(init.getExpression()));
+
+        Set<String> assigned = new HashSet<>();
+        collectAssigned(List.of(loop), assigned);
+        Scope scope = new Scope(assigned);
+        detectInduction(loop, scope);
+        loops.push(scope);
+        ASTNode condition = hoist(loop.getCondition());
+        List<ASTNode> body = block(loop.getBody());
+        loops.pop();
+
+        body.addAll(scope.updates);
+        ASTNode newUpdate = new VarAssign(update.name, copy(update.getExpression()));
+        if (scope.preheader.isEmpty()) {
+            return List.of(new LoopComm(newInit, condition, newUpdate, body));
+        }
+        // Los temporales se calculan con la variable ya inicializada (los $sr la leen),
+        // así que la inicialización sale del loop y adentro queda v = v
+        List<ASTNode> result = new ArrayList<>();
+        result.add(newInit);
+        result.addAll(scope.preheader);
+        result.add(new LoopComm(new VarAssign(init.name, new VarRef(init.name)), condition, newUpdate, body));
+        return result;
+    }
+
+    // v = v + c o v = v - c (c constante entera) con v int que el cuerpo no toca
+    private void detectInduction(LoopComm loop, Scope scope) {
+        VarAssign update = (VarAssign) loop.getUpdate();
+        String name = update.name;
+        if (types.get(name) != ValueKind.INT) {
+            return;
+        }
+        Set<String> body = new HashSet<>();
+        collectAssigned(loop.getBody(), body);
+        if (body.contains(name)) {
+            return;
+        }
+        ASTNode expr = update.getExpression();
+        ASTNode[] operands = operands(expr);
+        ASTNode constant = null;
+        if (expr instanceof Addition && isVar(operands[0], name)) {
+            constant = operands[1];
+        } else if (expr instanceof Addition && isVar(operands[1], name)) {
+            constant = operands[0];
+        } else if (expr instanceof Subtraction && isVar(operands[0], name)) {
+            constant = operands[1];
+        }
+        if (!(constant instanceof Constant) || !(((Constant) constant).getValue() instanceof Integer)) {
+            return;
+        }
+        int step = (Integer) ((Constant) constant).getValue();
+        if (expr instanceof Subtraction) {
+            if (step == Integer.MIN_VALUE) {
+                return;
+            }
+            step = -step;
+        }
+        scope.induction = name;
+        scope.step = step;
+    }
+
+    private static boolean isVar(ASTNode expr, String name) {
+        return expr instanceof VarRef && ((VarRef) expr).getName().equals(name);
+    }
+
+    // Copia expr reemplazando lo invariante por temporales de los loops que la rodean
+    private ASTNode hoist(ASTNode expr) {
+        if (loops.isEmpty() || expr instanceof Constant || expr instanceof VarRef) {
+            return copy(expr);
+        }
+        // Se adelanta al loop más externo del que no depende
+        ValueKind kind = kindOf(expr);
+        if (kind.isNumeric() && !canTrap(expr)) {
+            Set<String> vars = new HashSet<>();
+            collectVars(expr, vars);
+            Iterator<Scope> outward = loops.descendingIterator();
+            while (outward.hasNext()) {
+                Scope scope = outward.next();
+                if (Collections.disjoint(vars, scope.assigned)) {
+                    return invariant(scope, expr, kind);
+                }
+            }
+        }
+        ASTNode reduced = reduce(expr);
+        if (reduced != null) {
+            return reduced;
+        }
+        return rebuild(expr, this::hoist);
+    }
+
+    private ASTNode invariant(Scope scope, ASTNode expr, ValueKind kind) {
+        String text = key(expr);
+        String temp = scope.temps.get(text);
+        if (temp == null) {
+            temp = "$inv" + tempCounter++;
+            scope.preheader.add(declaration(kind, temp, copy(expr)));
+            scope.temps.put(text, temp);
+        }
+        return new VarRef(temp);
+    }
+
+    // Reducción de fuerza: v * k pasa a un $sr que arranca en v * k y suma step * k en
+    // cada vuelta. Solo con int, donde la suma repetida da exactamente el producto
+    // (también al desbordar: ambos quedan módulo 2^32).
+    private ASTNode reduce(ASTNode expr) {
+        if (!(expr instanceof Multiplication) || kindOf(expr) != ValueKind.INT) {
+            return null;
+        }
+        ASTNode[] operands = operands(expr);
+        for (Scope scope : loops) {
+            if (scope.induction == null) {
+                continue;
+            }
+            ASTNode factor = isVar(operands[0], scope.induction) ? operands[1]
+                    : isVar(operands[1], scope.induction) ? operands[0] : null;
+            if (factor == null || kindOf(factor) != ValueKind.INT || canTrap(factor)) {
+                continue;
+            }
+            Set<String> vars = new HashSet<>();
+            collectVars(factor, vars);
+            if (!Collections.disjoint(vars, scope.assigned)) {
+                continue;
+            }
+            // k es invariante en este loop: queda en un temporal o es trivial
+            ASTNode k = hoist(factor);
+            String text = scope.induction + " * " + key(k);
+            String temp = scope.temps.get(text);
+            if (temp == null) {
+                temp = "$sr" + tempCounter++;
+                ASTNode delta = k instanceof Constant
+                        ? new Constant(scope.step * (Integer) ((Constant) k).getValue())
+                        : invariant(scope, new Multiplication(new Constant(scope.step), copy(k)), ValueKind.INT);
+                scope.preheader.add(declaration(ValueKind.INT, temp,
+                        new Multiplication(new VarRef(scope.induction), copy(k))));
+                scope.updates.add(new VarAssign(temp, new Addition(new VarRef(temp), delta)));
+                scope.temps.put(text, temp);
+            }
+            return new VarRef(temp);
+        }
+        return null;
+    }
+
+    private ASTNode declaration(ValueKind kind, String name, ASTNode value) {
+        types.put(name, kind);
+        Map<String, ASTNode> declMap = new HashMap<>();
+        declMap.put(name, value);
+        return new VarDecl2(new Type(kind == ValueKind.INT ? "int" : "double"), declMap);
+    }
+
+    private ASTNode statement(ASTNode sentence) {
+        if (sentence instanceof VarDecl) {
+            VarDecl decl = (VarDecl) sentence;
+            return new VarDecl(copy(decl.getType()), declarations(decl.getDeclarations()));
+        }
+        if (sentence instanceof VarDecl2) {
+            VarDecl2 decl = (VarDecl2) sentence;
+            return new VarDecl2(copy(decl.getType()), declarations(decl.getDeclarations()));
+        }
+        if (sentence instanceof VarAssign) {
+            VarAssign assign = (VarAssign) sentence;
+            return new VarAssign(assign.name, hoist(assign.getExpression()));
+        }
+        if (sentence instanceof Println) {
+            return new Println(hoist(((Println) sentence).getData()));
+        }
+        if (sentence instanceof Setcolor) {
+            return new Setcolor(hoist(((Setcolor) sentence).getColor()));
+        }
+        if (sentence instanceof WaitComm) {
+            return new WaitComm(hoist(((WaitComm) sentence).getValue()));
+        }
+        if (sentence instanceof ClearComm) {
+            return new ClearComm();
+        }
+        if (sentence instanceof shapeCall) {
+            return new shapeCall(statement(((shapeCall) sentence).getShape()));
+        }
+        if (sentence instanceof DrawPixel) {
+            DrawPixel pixel = (DrawPixel) sentence;
+            return new DrawPixel(hoist(pixel.getX()), hoist(pixel.getY()));
+        }
+        if (sentence instanceof DrawLine) {
+            DrawLine line = (DrawLine) sentence;
+            return new DrawLine(hoist(line.getA()), hoist(line.getB()), hoist(line.getC()), hoist(line.getD()));
+        }
+        if (sentence instanceof DrawRect) {
+            DrawRect rect = (DrawRect) sentence;
+            return new DrawRect(hoist(rect.getX()), hoist(rect.getY()), hoist(rect.getW()), hoist(rect.getH()));
+        }
+        if (sentence instanceof DrawCircle) {
+            DrawCircle circle = (DrawCircle) sentence;
+            return new DrawCircle(hoist(circle.getX1()), hoist(circle.getY1()), hoist(circle.getR1()));
+        }
+        if (sentence instanceof Frame) {
+            return new Frame(block(((Frame) sentence).getSentences()));
+        }
+        if (sentence instanceof If) {
+            If conditional = (If) sentence;
+            List<ConditionalBlock> elseifBlocks = new ArrayList<>();
+            for (ConditionalBlock block : conditional.getElseifBlocks()) {
+                elseifBlocks.add(new ConditionalBlock(hoist(block.getCondition()), block(block.getBody())));
+            }
+            List<ASTNode> elseBody = conditional.getElseBody() == null ? null : block(conditional.getElseBody());
+            return new If(hoist(conditional.getCondition()), block(conditional.getIfBody()), elseifBlocks, elseBody);
+        }
+        if (sentence instanceof Function) {
+            // El cuerpo de una función no ve los loops de donde se declara
+            Function function = (Function) sentence;
+            Deque<Scope> outer = loops;
+            loops = new ArrayDeque<>();
+            List<ASTNode> body = block(function.getSentences());
+            loops = outer;
+            return new Function(function.name, new ArrayList<>(function.getArgs()), body);
+        }
+        if (sentence instanceof FunctionCall) {
+            FunctionCall call = (FunctionCall) sentence;
+            List<ASTNode> args = new ArrayList<>();
+            for (ASTNode arg : call.getArgs()) {
+                args.add(hoist(arg));
+            }
+            return new FunctionCall(call.name, args);
+        }
+        return copy(sentence);
+    }
+
+    private Map<String, ASTNode> declarations(Map<String, ASTNode> declMap) {
+        Map<String, ASTNode> result = new LinkedHashMap<>();
+        for (Map.Entry<String, ASTNode> entry : declMap.entrySet()) {
+            result.put(entry.getKey(), entry.getValue() == null ? null : hoist(entry.getValue()));
+        }
+        return result;
+    }
+
+    // Copia sin cambios: el programa optimizado no comparte nodos con el original,
+    // porque resolve los modifica
+    private ASTNode copy(ASTNode expr) {
+        if (expr instanceof Type) {
+            return new Type(((Type) expr).type);
+        }
+        return rebuild(expr, this::copy);
+    }
+
+    private static ASTNode rebuild(ASTNode expr, java.util.function.UnaryOperator<ASTNode> mapper) {
+        if (expr instanceof Constant) {
+            return expr; // inmutable
+        }
+        if (expr instanceof VarRef) {
+            return new VarRef(((VarRef) expr).getName());
+        }
+        if (expr instanceof Sin) {
+            return new Sin(mapper.apply(((Sin) expr).expression), ((Sin) expr).isFast());
+        }
+        if (expr instanceof Cos) {
+            return new Cos(mapper.apply(((Cos) expr).expression), ((Cos) expr).isFast());
+        }
+        ASTNode[] operands = operands(expr);
+        if (operands == null) {
+            throw new RuntimeException("LoopOptimizer: nodo no soportado: " + expr.getClass().getSimpleName());
+        }
+        ASTNode a = mapper.apply(operands[0]);
+        ASTNode b = mapper.apply(operands[1]);
+        if (expr instanceof Addition) return new Addition(a, b);
+        if (expr instanceof Subtraction) return new Subtraction(a, b);
+        if (expr instanceof Multiplication) return new Multiplication(a, b);
+        if (expr instanceof Division) return new Division(a, b);
+        if (expr instanceof Modulus) return new Modulus(a, b);
+        if (expr instanceof Equal) return new Equal(a, b);
+        if (expr instanceof NotEqual) return new NotEqual(a, b);
+        if (expr instanceof GreaterThan) return new GreaterThan(a, b);
+        if (expr instanceof GreaterOrEqual) return new GreaterOrEqual(a, b);
+        if (expr instanceof LessThan) return new LessThan(a, b);
+        return new LessOrEqual(a, b);
+    }
+
+    private static boolean isArithmetic(ASTNode expr) {
+        return expr instanceof Addition || expr instanceof Subtraction || expr instanceof Multiplication
+                || expr instanceof Division || expr instanceof Modulus;
+    }
+
+    private static ASTNode argument(ASTNode expr) {
+        return expr instanceof Sin ? ((Sin) expr).expression : ((Cos) expr).expression;
+    }
+
+    // Operandos de los nodos binarios (aritméticos y comparaciones); null para el resto
+    private static ASTNode[] operands(ASTNode expr) {
+        if (expr instanceof Addition) {
+            return new ASTNode[] {((Addition) expr).getOperand1(), ((Addition) expr).getOperand2()};
+        }
+        if (expr instanceof Subtraction) {
+            return new ASTNode[] {((Subtraction) expr).getOperand1(), ((Subtraction) expr).getOperand2()};
+        }
+        if (expr instanceof Multiplication) {
+            return new ASTNode[] {((Multiplication) expr).getOperand1(), ((Multiplication) expr).getOperand2()};
+        }
+        if (expr instanceof Division) {
+            return new ASTNode[] {((Division) expr).getOperand1(), ((Division) expr).getOperand2()};
+        }
+        if (expr instanceof Modulus) {
+            return new ASTNode[] {((Modulus) expr).getOperand1(), ((Modulus) expr).getOperand2()};
+        }
+        if (expr instanceof Equal) {
+            return new ASTNode[] {((Equal) expr).getExpression1(), ((Equal) expr).getExpression2()};
+        }
+        if (expr instanceof NotEqual) {
+            return new ASTNode[] {((NotEqual) expr).getExpression1(), ((NotEqual) expr).getExpression2()};
+        }
+        if (expr instanceof GreaterThan) {
+            return new ASTNode[] {((GreaterThan) expr).getExpression1(), ((GreaterThan) expr).getExpression2()};
+        }
+        if (expr instanceof GreaterOrEqual) {
+            return new ASTNode[] {((GreaterOrEqual) expr).getExpression1(), ((GreaterOrEqual) expr).getExpression2()};
+        }
+        if (expr instanceof LessThan) {
+            return new ASTNode[] {((LessThan) expr).getExpression1(), ((LessThan) expr).getExpression2()};
+        }
+        if (expr instanceof LessOrEqual) {
+            return new ASTNode[] {((LessOrEqual) expr).getExpression1(), ((LessOrEqual) expr).getExpression2()};
+        }
+        return null;
+    }
+}
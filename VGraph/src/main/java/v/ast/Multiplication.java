@@ -3,8 +3,8 @@ package v.ast;
 import java.util.Map;
 
 public class Multiplication implements ASTNode{
-    private ASTNode operand1;
-    private ASTNode operand2;
+    protected ASTNode operand1;
+    protected ASTNode operand2;
 
     public Multiplication(ASTNode operand1, ASTNode operand2) {
         super();
@@ -14,34 +14,95 @@ public class Multiplication implements ASTNode{
 
     @Override
     public Object execute(Map<String, Object> symbolTable){
-        Object left = operand1.execute(symbolTable);
-        Object right = operand2.execute(symbolTable);
-
-        // Convertir left a entero
-        int leftValue;
-        if (left instanceof Integer) {
-            leftValue = (Integer) left;
-        } else if (left instanceof Double) {
-            leftValue = ((Double) left).intValue();
-        } else if (left instanceof String) {
-            leftValue = Integer.parseInt((String) left);
-        } else {
-            leftValue = 0; // valor por defecto
-        }
-
-        // Convertir right a entero
-        int rightValue;
-        if (right instanceof Integer) {
-            rightValue = (Integer) right;
-        } else if (right instanceof Double) {
-            rightValue = ((Double) right).intValue();
-        } else if (right instanceof String) {
-            rightValue = Integer.parseInt((String) right);
-        } else {
-            rightValue = 0; // valor por defecto
-        }
-
-        return leftValue * rightValue;
+        return compute(operand1.execute(symbolTable), operand2.execute(symbolTable));
     }
-}
 
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        operand1 = operand1.resolve(scope);
+        operand2 = operand2.resolve(scope);
+
+        // La variante se elige una sola vez según el tipo estático de los operandos
+        switch (Values.numeric(operand1.kind(), operand2.kind())) {
+            case INT:
+                return new IntMultiplication(operand1, operand2);
+            case DOUBLE:
+                return new DoubleMultiplication(operand1, operand2);
+            default:
+                return this;
+        }
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return compute(operand1.execute(slots), operand2.execute(slots));
+    }
+
+    // int * int da int; si alguno es double se opera en double
+    private Object compute(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (Integer) left * (Integer) right;
+        }
+        return Values.toDouble(left) * Values.toDouble(right);
+    }
+
+    public ASTNode getOperand1() {
+        return operand1;
+    }
+
+    public ASTNode getOperand2() {
+        return operand2;
+    }
+
+    static final class IntMultiplication extends Multiplication {
+        IntMultiplication(ASTNode operand1, ASTNode operand2) {
+            super(operand1, operand2);
+        }
+
+        @Override
+        public ValueKind kind() {
+            return ValueKind.INT;
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeInt(slots);
+        }
+
+        @Override
+        public int executeInt(Object[] slots) {
+            return operand1.executeInt(slots) * operand2.executeInt(slots);
+        }
+
+        @Override
+        public double executeDouble(Object[] slots) {
+            return executeInt(slots);
+        }
+    }
+
+    static final class DoubleMultiplication extends Multiplication {
+        DoubleMultiplication(ASTNode operand1, ASTNode operand2) {
+            super(operand1, operand2);
+        }
+
+        @Override
+        public ValueKind kind() {
+            return ValueKind.DOUBLE;
+        }
+
+        @Override
+        public Object execute(Object[] slots) {
+            return executeDouble(slots);
+        }
+
+        @Override
+        public int executeInt(Object[] slots) {
+            return (int) executeDouble(slots);
+        }
+
+        @Override
+        public double executeDouble(Object[] slots) {
+            return operand1.executeDouble(slots) * operand2.executeDouble(slots);
+        }
+    }
+}
@@ -16,4 +16,20 @@ public class Println implements  ASTNode{
         System.out.println(data.execute(symbolTable));
         return null;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        data = data.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        System.out.println(data.execute(slots));
+        return null;
+    }
+
+    public ASTNode getData() {
+        return data;
+    }
 }
@@ -0,0 +1,64 @@
+package v.ast;
+
+import java.util.List;
+import java.util.Map;
+import v.render.RasterTarget;
+
+public class Program implements ASTNode {
+    private final List<ASTNode> sentences;
+    private SlotScope scope;
+
+    public Program(List<ASTNode> sentences) {
+        this.sentences = sentences;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> symbolTable) {
+        for (ASTNode sentence : sentences) {
+            sentence.execute(symbolTable);
+        }
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        // La primera pasada registra todas las declaraciones; la segunda elige las
+        // variantes tipadas ya con el tipo de cada variable conocido
+        scope.resolveAll(sentences);
+        scope.resolveAll(sentences);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        for (ASTNode sentence : sentences) {
+            sentence.execute(slots);
+        }
+        return null;
+    }
+
+    // Resuelve el programa la primera vez que se necesita
+    public SlotScope prepare() {
+        if (scope == null) {
+            scope = new SlotScope();
+            resolve(scope);
+        }
+        return scope;
+    }
+
+    // Ejecuta el programa con un arreglo de slots nuevo
+    public Object run() {
+        return run(null);
+    }
+
+    // Igual que run(), pero los comandos de dibujo van a target
+    public Object run(RasterTarget target) {
+        Object[] slots = new Object[prepare().size()];
+        slots[RasterTarget.SLOT] = target;
+        return execute(slots);
+    }
+
+    public List<ASTNode> getSentences() {
+        return sentences;
+    }
+}
@@ -1,5 +1,6 @@
 package v.ast;
 import java.util.Map;
+import v.render.RasterTarget;
 
 public class Setcolor implements ASTNode{
     private ASTNode color;
@@ -10,6 +11,34 @@ public class Setcolor implements ASTNode{
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
+        apply(RasterTarget.from(symbolTable), color.execute(symbolTable));
         return null;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        color = color.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        apply(RasterTarget.from(slots), color.execute(slots));
+        return null;
+    }
+
+    public void apply(RasterTarget target, Object value) {
+        if (!(value instanceof vColor)) {
+            throw new RuntimeException("Error: setcolor esperaba un color pero se obtuvo " +
+                    (value == null ? "null" : value.getClass().getSimpleName()));
+        }
+        if (target != null) {
+            Integer[] rgb = ((vColor) value).getValue();
+            target.setColor(rgb[0], rgb[1], rgb[2]);
+        }
+    }
+
+    public ASTNode getColor() {
+        return color;
+    }
 }
@@ -4,14 +4,62 @@ import java.util.Map;
 
 public class Sin implements ASTNode{
     public ASTNode expression;
+    private final boolean fast; // modo fast trig: tabla de FastTrig en vez de Math.sin
+    private boolean numericArgument;
 
     public Sin(ASTNode expression) {
+        this(expression, false);
+    }
+
+    public Sin(ASTNode expression, boolean fast) {
         this.expression = expression;
+        this.fast = fast;
+    }
+
+    public boolean isFast() {
+        return fast;
+    }
+
+    private double apply(double x) {
+        return fast ? FastTrig.sin(x) : Math.sin(x);
     }
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        Object value = expression.execute(symbolTable);
+        return compute(expression.execute(symbolTable));
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        expression = expression.resolve(scope);
+        numericArgument = expression.kind().isNumeric();
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return executeDouble(slots);
+    }
+
+    @Override
+    public ValueKind kind() {
+        return ValueKind.DOUBLE;
+    }
+
+    @Override
+    public int executeInt(Object[] slots) {
+        return (int) executeDouble(slots);
+    }
+
+    @Override
+    public double executeDouble(Object[] slots) {
+        if (numericArgument) {
+            return apply(expression.executeDouble(slots));
+        }
+        return (double) compute(expression.execute(slots));
+    }
+
+    private Object compute(Object value) {
         String valueType = value.getClass().getSimpleName();
         if (valueType.equals("Integer")){
             value = ((Integer) value).doubleValue();
@@ -21,6 +69,6 @@ public class Sin implements ASTNode{
             );
         }
 
-        return Math.sin((double) value);
+        return apply((double) value);
     }
 }
@@ -0,0 +1,130 @@
+package v.ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import v.render.RasterTarget;
+
+/**
+ * Pasada de resolución: asigna a cada nombre (variable o función) un índice fijo
+ * dentro del arreglo de slots con el que se ejecuta el programa, de modo que
+ * VarRef/VarAssign/VarDecl no tengan que buscar por String en cada ejecución.
+ *
+ * Lo que declara una función (parámetros y variables del cuerpo) recibe slots propios de
+ * esa función, distintos de los de las globales con el mismo nombre. Dentro del cuerpo un
+ * nombre se busca primero entre los de la función y después entre los globales, así una
+ * función que se llama desde otra lee la global aunque quien la llama tenga un parámetro
+ * con ese nombre (el mismo alcance que el intérprete con Map, el bytecode y el C).
+ */
+public class SlotScope {
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    // Tipo declarado de cada slot; UNKNOWN si se declara con tipos distintos o como parámetro
+    private final List<ValueKind> kinds = new ArrayList<>();
+
+    // Nombres declarados por cada función. Se conservan entre las dos pasadas de
+    // Program.resolve: en la segunda, un uso anterior a la declaración ya encuentra el slot local
+    private final Map<Object, Map<String, Integer>> functionNames = new IdentityHashMap<>();
+
+    // Funciones que se están resolviendo (la de más adentro primero)
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    private static final class Frame {
+        final Map<String, Integer> names;
+        final List<Integer> locals = new ArrayList<>();
+
+        Frame(Map<String, Integer> names) {
+            this.names = names;
+        }
+    }
+
+    public SlotScope() {
+        // El slot 0 siempre es el destino de dibujo (ver RasterTarget.SLOT)
+        slotOf(RasterTarget.SYMBOL);
+    }
+
+    public int slotOf(String name) {
+        Frame frame = frames.peek();
+        if (frame != null) {
+            Integer local = frame.names.get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = newSlot();
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    private int newSlot() {
+        kinds.add(null);
+        return kinds.size() - 1;
+    }
+
+    // Igual que slotOf, pero registra el tipo declarado. Dentro de una función el nombre
+    // queda local a ella
+    public int declare(String name, ValueKind kind) {
+        Frame frame = frames.peek();
+        int slot;
+        if (frame == null) {
+            slot = slotOf(name);
+        } else {
+            slot = frame.names.computeIfAbsent(name, n -> newSlot());
+            if (!frame.locals.contains(slot)) {
+                frame.locals.add(slot);
+            }
+        }
+        ValueKind previous = kinds.get(slot);
+        if (previous == null) {
+            kinds.set(slot, kind);
+        } else if (previous != kind) {
+            kinds.set(slot, ValueKind.UNKNOWN);
+        }
+        return slot;
+    }
+
+    public ValueKind kindOf(int slot) {
+        ValueKind kind = kinds.get(slot);
+        return kind == null ? ValueKind.UNKNOWN : kind;
+    }
+
+    // function identifica a la función entre pasadas (el nodo Function)
+    public void enterFunction(Object function) {
+        frames.push(new Frame(functionNames.computeIfAbsent(function, f -> new HashMap<>())));
+    }
+
+    // Devuelve los slots de la función, que se guardan y restauran en cada llamada para
+    // que una llamada recursiva no pise los de la que la hizo
+    public int[] exitFunction() {
+        List<Integer> locals = frames.pop().locals;
+        int[] result = new int[locals.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = locals.get(i);
+        }
+        return result;
+    }
+
+    // Resuelve cada sentencia de un cuerpo, reemplazándola por el nodo que devuelva resolve
+    public void resolveAll(List<ASTNode> nodes) {
+        if (nodes == null) {
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            ASTNode node = nodes.get(i);
+            if (node != null) {
+                nodes.set(i, node.resolve(this));
+            }
+        }
+    }
+
+    public int size() {
+        return kinds.size();
+    }
+}
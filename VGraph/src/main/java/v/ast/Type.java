@@ -13,4 +13,14 @@ public class Type implements ASTNode{
     public Object execute(Map<String, Object> symbolTable) {
         return type;
     }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return type;
+    }
 }
@@ -0,0 +1,23 @@
+package v.ast;
+
+// Tipo estático de un nodo, conocido después de resolve
+public enum ValueKind {
+    INT, DOUBLE, BOOLEAN, COLOR, UNKNOWN;
+
+    public boolean isNumeric() {
+        return this == INT || this == DOUBLE;
+    }
+
+    public static ValueKind fromTypeName(String typeName) {
+        switch (typeName) {
+            case "int":
+                return INT;
+            case "double":
+                return DOUBLE;
+            case "color":
+                return COLOR;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
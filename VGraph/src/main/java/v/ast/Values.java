@@ -0,0 +1,62 @@
+package v.ast;
+
+// Conversiones compartidas por los nodos en la ruta genérica (valores en caja)
+public final class Values {
+
+    private Values() {
+    }
+
+    public static int toInt(Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof Double) {
+            return ((Double) value).intValue();
+        } else if (value instanceof String) {
+            return Integer.parseInt((String) value);
+        }
+        return 0; // valor por defecto
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        } else if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof String) {
+            return Double.parseDouble((String) value);
+        }
+        return 0.0; // valor por defecto
+    }
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new RuntimeException("Error: se esperaba un valor booleano pero se obtuvo " +
+                (value == null ? "null" : value.getClass().getSimpleName()));
+    }
+
+    public static ValueKind kindOf(Object value) {
+        if (value instanceof Integer) {
+            return ValueKind.INT;
+        } else if (value instanceof Double) {
+            return ValueKind.DOUBLE;
+        } else if (value instanceof Boolean) {
+            return ValueKind.BOOLEAN;
+        } else if (value instanceof vColor) {
+            return ValueKind.COLOR;
+        }
+        return ValueKind.UNKNOWN;
+    }
+
+    // int con int da int; si alguno es double el resultado es double (igual que en C)
+    public static ValueKind numeric(ValueKind left, ValueKind right) {
+        if (left == ValueKind.INT && right == ValueKind.INT) {
+            return ValueKind.INT;
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            return ValueKind.DOUBLE;
+        }
+        return ValueKind.UNKNOWN;
+    }
+}
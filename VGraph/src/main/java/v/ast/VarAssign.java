@@ -5,6 +5,8 @@ import java.util.Map;
 public class VarAssign implements ASTNode{
     public String name;
     private ASTNode expression;
+    private int slot = -1;
+    private ValueKind kind = ValueKind.UNKNOWN; // tipo de la variable, si el de la expresión es compatible
 
     public VarAssign(String name,ASTNode expression) {
         this.expression = expression;
@@ -19,7 +21,36 @@ public class VarAssign implements ASTNode{
 
         Object currentValue = symbolTable.get(name);
         Object newValue = expression.execute(symbolTable);
+        symbolTable.put(name, checkType(currentValue, newValue));
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        slot = scope.slotOf(name);
+        expression = expression.resolve(scope);
+        kind = expression.kind().isNumeric() ? scope.kindOf(slot) : ValueKind.UNKNOWN;
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        Object currentValue = slots[slot];
+        if (currentValue == null) {
+            throw new RuntimeException("Error: Variable '" + name + "' no ha sido declarada.");
+        }
 
+        if (kind == ValueKind.INT) {
+            slots[slot] = expression.executeInt(slots);
+        } else if (kind == ValueKind.DOUBLE) {
+            slots[slot] = expression.executeDouble(slots);
+        } else {
+            slots[slot] = checkType(currentValue, expression.execute(slots));
+        }
+        return null;
+    }
+
+    public Object checkType(Object currentValue, Object newValue) {
         String currentType =  currentValue.getClass().getSimpleName();
         String newType = newValue.getClass().getSimpleName();
         //System.out.println("Current:" + currentValue.getClass().getName());
@@ -30,7 +61,8 @@ public class VarAssign implements ASTNode{
             if(currentType.equals("Integer") && newType.equals("Double")){
                 newValue = ((Double) newValue).intValue();
                 //System.out.println(newValue.toString() + newValue.getClass().getSimpleName());
-                symbolTable.put(name, newValue);
+            } else if (currentType.equals("Double") && newType.equals("Integer")) {
+                newValue = ((Integer) newValue).doubleValue();
             } else {
                 throw new RuntimeException("Error de tipo: Variable '" + name +
                         "' esperaba un valor de tipo " + currentType +
@@ -38,8 +70,14 @@ public class VarAssign implements ASTNode{
             }
         }
 
-        symbolTable.put(name, newValue);
-        return null;
+        return newValue;
+    }
+
+    public ASTNode getExpression() {
+        return expression;
     }
 
+    public int getSlot() {
+        return slot;
+    }
 }
@@ -6,6 +6,13 @@ public class VarDecl implements ASTNode {
     private ASTNode type;
     private Map<String, ASTNode> decl_map;
 
+    // Resultado de resolve: las entradas de decl_map con su slot correspondiente
+    private String[] names;
+    private ASTNode[] values;
+    private int[] slotIndexes;
+    private String typeName;
+    private ValueKind kind;
+
     public VarDecl(ASTNode type, Map<String, ASTNode> decl_map) {
         this.type = type;
         this.decl_map = decl_map;
@@ -22,34 +29,93 @@ public class VarDecl implements ASTNode {
             Object defaultValue;
 
             if (valueNode == null) {
-                // Sin valor inicial, usar valor por defecto según el tipo
-                switch (typeName) {
-                    case "int":
-                        defaultValue = 0;
-                        break;
-                    case "color":
-                        defaultValue = new vColor(); // color por defecto (negro)
-                        break;
-                    case "double":  // NUEVO CASO
-                        defaultValue = 0.0;
-                        break;
-                    default:
-                        throw new RuntimeException("Tipo desconocido: " + typeName);
-                }
+                defaultValue = defaultValue(typeName);
             } else {
                 // Con valor inicial
-                defaultValue = valueNode.execute(symbolTable);
-
-                // Verificar compatibilidad de tipos
-                if (typeName.equals("int") && defaultValue instanceof Double) {
-                    defaultValue = ((Double) defaultValue).intValue();
-                }
-                // NUEVO: No convertir si el tipo es double
-                // Si typeName es "double", mantener el valor como está
+                defaultValue = convert(typeName, valueNode.execute(symbolTable));
             }
 
-            symbolTable.put(varName, defaultValue);
+            Environment.declare(symbolTable, varName, defaultValue);
+        }
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        names = new String[decl_map.size()];
+        values = new ASTNode[decl_map.size()];
+        slotIndexes = new int[decl_map.size()];
+        typeName = (String) type.execute((Object[]) null);
+        kind = ValueKind.fromTypeName(typeName);
+
+        int i = 0;
+        for (Map.Entry<String, ASTNode> entry : decl_map.entrySet()) {
+            names[i] = entry.getKey();
+            values[i] = entry.getValue() == null ? null : entry.getValue().resolve(scope);
+            slotIndexes[i] = scope.declare(names[i], kind);
+            i++;
+        }
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] == null) {
+                slots[slotIndexes[i]] = defaultValue(typeName);
+            } else {
+                slots[slotIndexes[i]] = convert(typeName, values[i].execute(slots));
+            }
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public Object defaultValue(String typeName) {
+        // Sin valor inicial, usar valor por defecto según el tipo
+        switch (typeName) {
+            case "int":
+                return 0;
+            case "color":
+                return new vColor(); // color por defecto (negro)
+            case "double":  // NUEVO CASO
+                return 0.0;
+            default:
+                throw new RuntimeException("Tipo desconocido: " + typeName);
+        }
+    }
+
+    public Object convert(String typeName, Object value) {
+        // Verificar compatibilidad de tipos
+        if (typeName.equals("int") && value instanceof Double) {
+            return ((Double) value).intValue();
+        }
+        // NUEVO: No convertir si el tipo es double
+        // Si typeName es "double", mantener el valor como está
+        return value;
+    }
+
+    // Antes de resolve: el tipo y las variables tal como salieron del parser
+    public ASTNode getType() {
+        return type;
+    }
+
+    public Map<String, ASTNode> getDeclarations() {
+        return decl_map;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public ASTNode[] getValues() {
+        return values;
+    }
+
+    public int[] getSlotIndexes() {
+        return slotIndexes;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+}
@@ -6,6 +6,13 @@ public class VarDecl2 implements ASTNode {
     private ASTNode type;
     private Map<String, ASTNode> decl_map;
 
+    // Resultado de resolve: las entradas de decl_map con su slot correspondiente
+    private String[] names;
+    private ASTNode[] values;
+    private int[] slotIndexes;
+    private String typeName;
+    private ValueKind kind;
+
     // Constructor para declaraciones con asignación: (int) x = 5;
     public VarDecl2(ASTNode type, Map<String, ASTNode> decl_map) {
         this.type = type;
@@ -24,39 +31,101 @@ public class VarDecl2 implements ASTNode {
                 throw new RuntimeException("Error: VarDecl2 requiere un valor inicial para la variable: " + varName);
             }
 
-            Object value = valueNode.execute(symbolTable);
-
-            // Verificar y convertir tipos si es necesario
-            switch (typeName) {
-                case "int":
-                    if (value instanceof Double) {
-                        value = ((Double) value).intValue();
-                    } else if (!(value instanceof Integer)) {
-                        throw new RuntimeException("Error de tipo: Variable '" + varName +
-                                "' de tipo int no puede ser asignada con " + value.getClass().getSimpleName());
-                    }
-                    break;
-                case "color":
-                    if (!(value instanceof vColor)) {
-                        throw new RuntimeException("Error de tipo: Variable '" + varName +
-                                "' de tipo color no puede ser asignada con " + value.getClass().getSimpleName());
-                    }
-                    break;
-                case "double":  // NUEVO CASO
-                    // Aceptar tanto Double como Integer para double
-                    if (value instanceof Integer) {
-                        value = ((Integer) value).doubleValue();
-                    } else if (!(value instanceof Double)) {
-                        throw new RuntimeException("Error de tipo: Variable '" + varName +
-                                "' de tipo double no puede ser asignada con " + value.getClass().getSimpleName());
-                    }
-                    break;
-                default:
-                    throw new RuntimeException("Tipo desconocido: " + typeName);
+            Environment.declare(symbolTable, varName, convert(typeName, varName, valueNode.execute(symbolTable)));
+        }
+        return null;
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        names = new String[decl_map.size()];
+        values = new ASTNode[decl_map.size()];
+        slotIndexes = new int[decl_map.size()];
+        typeName = (String) type.execute((Object[]) null);
+        kind = ValueKind.fromTypeName(typeName);
+
+        int i = 0;
+        for (Map.Entry<String, ASTNode> entry : decl_map.entrySet()) {
+            names[i] = entry.getKey();
+            if (entry.getValue() == null) {
+                throw new RuntimeException("Error: VarDecl2 requiere un valor inicial para la variable: " + names[i]);
             }
+            values[i] = entry.getValue().resolve(scope);
+            slotIndexes[i] = scope.declare(names[i], kind);
+            i++;
+        }
+        return this;
+    }
 
-            symbolTable.put(varName, value);
+    @Override
+    public Object execute(Object[] slots) {
+        for (int i = 0; i < names.length; i++) {
+            if (kind == ValueKind.INT && values[i].kind().isNumeric()) {
+                slots[slotIndexes[i]] = values[i].executeInt(slots);
+            } else if (kind == ValueKind.DOUBLE && values[i].kind().isNumeric()) {
+                slots[slotIndexes[i]] = values[i].executeDouble(slots);
+            } else {
+                slots[slotIndexes[i]] = convert(typeName, names[i], values[i].execute(slots));
+            }
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public Object convert(String typeName, String varName, Object value) {
+        // Verificar y convertir tipos si es necesario
+        switch (typeName) {
+            case "int":
+                if (value instanceof Double) {
+                    value = ((Double) value).intValue();
+                } else if (!(value instanceof Integer)) {
+                    throw new RuntimeException("Error de tipo: Variable '" + varName +
+                            "' de tipo int no puede ser asignada con " + value.getClass().getSimpleName());
+                }
+                break;
+            case "color":
+                if (!(value instanceof vColor)) {
+                    throw new RuntimeException("Error de tipo: Variable '" + varName +
+                            "' de tipo color no puede ser asignada con " + value.getClass().getSimpleName());
+                }
+                break;
+            case "double":  // NUEVO CASO
+                // Aceptar tanto Double como Integer para double
+                if (value instanceof Integer) {
+                    value = ((Integer) value).doubleValue();
+                } else if (!(value instanceof Double)) {
+                    throw new RuntimeException("Error de tipo: Variable '" + varName +
+                            "' de tipo double no puede ser asignada con " + value.getClass().getSimpleName());
+                }
+                break;
+            default:
+                throw new RuntimeException("Tipo desconocido: " + typeName);
+        }
+
+        return value;
+    }
+
+    // Antes de resolve: el tipo y las variables tal como salieron del parser
+    public ASTNode getType() {
+        return type;
+    }
+
+    public Map<String, ASTNode> getDeclarations() {
+        return decl_map;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public ASTNode[] getValues() {
+        return values;
+    }
+
+    public int[] getSlotIndexes() {
+        return slotIndexes;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Map;
 public class VarRef implements ASTNode{
 
     private String name;
+    private int slot = -1;
+    private ValueKind kind = ValueKind.UNKNOWN;
 
     public VarRef(String name) {
         super();
@@ -15,5 +17,28 @@ public class VarRef implements ASTNode{
         return symbolTable.get(name);
     }
 
-}
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        slot = scope.slotOf(name);
+        kind = scope.kindOf(slot);
+        return this;
+    }
 
+    @Override
+    public Object execute(Object[] slots) {
+        return slots[slot];
+    }
+
+    @Override
+    public ValueKind kind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -1,9 +1,10 @@
 package v.ast;
 
-import java.util.Map;
+import v.render.FrameClock;
+import v.render.RasterTarget;
 
 public class WaitComm implements ASTNode{
-    private final ASTNode value;
+    private ASTNode value;
 
     public WaitComm(ASTNode value) {
         this.value = value;
@@ -11,28 +12,32 @@ public class WaitComm implements ASTNode{
 
     @Override
     public Object execute(java.util.Map<String, Object> symbolTable) {
-        Object result = value.execute(symbolTable);
-
-        if(result instanceof Integer) {
-            int waitTime = (int)result;
-            try {
-                Thread.sleep(waitTime);
-            }
-            catch (InterruptedException e){
-                e.printStackTrace();
-            }
-        } else if (result instanceof Long) {
-            long waitTime = (long)result;
-            try {
-                Thread.sleep(waitTime);
-            }
-            catch (InterruptedException e){
-                e.printStackTrace();
-            }
-        } else
-        {// CREO QUE LAS VARIABLES NO ESTÁN FUNCIONANDO, HAY QUE REVISAR ESO LUEGO
+        return waitFor(RasterTarget.from(symbolTable), value.execute(symbolTable));
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        value = value.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return waitFor(RasterTarget.from(slots), value.execute(slots));
+    }
+
+    // El valor es en milisegundos. Con destino se espera con su reloj (deadlines absolutos,
+    // ver FrameClock); sin destino no hay frames que alinear y es una espera común
+    public Object waitFor(RasterTarget target, Object result) {
+        if (!(result instanceof Integer) && !(result instanceof Long)) {
             throw new RuntimeException(result.getClass().getName() + " no es un numero");
         }
+        FrameClock clock = target != null ? target.getClock() : new FrameClock();
+        clock.waitMillis(((Number) result).longValue());
         return null;
     }
+
+    public ASTNode getValue() {
+        return value;
+    }
 }
@@ -10,6 +10,21 @@ public class shapeCall implements ASTNode {
 
     @Override
     public Object execute(Map<String, Object> symbolTable) {
-        return null;
+        return shape.execute(symbolTable);
+    }
+
+    @Override
+    public ASTNode resolve(SlotScope scope) {
+        shape = shape.resolve(scope);
+        return this;
+    }
+
+    @Override
+    public Object execute(Object[] slots) {
+        return shape.execute(slots);
+    }
+
+    public ASTNode getShape() {
+        return shape;
     }
 }
@@ -0,0 +1,1021 @@
+package v.engine;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import v.ast.*;
+import v.engine.ClosureCompiler.Op;
+import v.render.RasterTarget;
+
+/**
+ * Tercer backend: compila un Program de v.ast a bytecode de la JVM y lo carga como
+ * clase oculta. Cada function pasa a ser un método estático, las variables int/double
+ * son locales primitivas de la JVM y solo las globales que usan las funciones quedan
+ * como campos estáticos.
+ *
+ * Igual que en el código C generado, el alcance es léxico: dentro de una función, los
+ * nombres que no son parámetros ni locales se refieren a las globales. El tipo de cada
+ * parámetro se deduce de los argumentos de todas las llamadas (int si siempre recibe
+ * int, double si alguna vez recibe double, Object en otro caso).
+ */
+public class BytecodeCompiler {
+
+    private static final String CLASS_NAME = "v/engine/VGraphScript";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String VALUES = "v/ast/Values";
+    private static final String FAST_TRIG = "v/ast/FastTrig";
+    private static final String OP = "v/engine/ClosureCompiler$Op";
+    private static final String CLOSURE_COMPILER = "v/engine/ClosureCompiler";
+    private static final String TARGET_DESC = "Lv/render/RasterTarget;";
+
+    // Tipo de un valor en la pila de la JVM
+    private enum JType {
+        INT("I"), DOUBLE("D"), BOOLEAN("Z"), OBJECT("Ljava/lang/Object;");
+
+        final String descriptor;
+
+        JType(String descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        boolean isNumeric() {
+            return this == INT || this == DOUBLE;
+        }
+
+        static JType of(ValueKind kind) {
+            switch (kind) {
+                case INT:
+                    return INT;
+                case DOUBLE:
+                    return DOUBLE;
+                default:
+                    return OBJECT;
+            }
+        }
+
+        // Tipo de un parámetro que recibe valores de los dos tipos
+        static JType join(JType current, JType other) {
+            if (current == null || current == other) {
+                return other;
+            }
+            if (current.isNumeric() && other.isNumeric()) {
+                return DOUBLE;
+            }
+            return OBJECT;
+        }
+    }
+
+    private static final class FunctionInfo {
+        final Function node;
+        final String methodName;
+        final Set<Integer> locals = new TreeSet<>();
+        final JType[] paramTypes;
+
+        FunctionInfo(Function node) {
+            this.node = node;
+            this.methodName = "fn_" + node.name;
+            this.paramTypes = new JType[node.getParamSlots().length];
+            for (int slot : node.getLocalSlots()) {
+                locals.add(slot);
+            }
+        }
+
+        int paramIndex(int slot) {
+            int[] paramSlots = node.getParamSlots();
+            for (int i = 0; i < paramSlots.length; i++) {
+                if (paramSlots[i] == slot) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String descriptor() {
+            StringBuilder descriptor = new StringBuilder("(");
+            for (JType type : paramTypes) {
+                descriptor.append(type.descriptor);
+            }
+            return descriptor.append(")V").toString();
+        }
+    }
+
+    // Llamada a una función, junto con la función desde la que se hace (null si es el cuerpo principal)
+    private static final class CallSite {
+        final FunctionCall call;
+        final FunctionInfo caller;
+
+        CallSite(FunctionCall call, FunctionInfo caller) {
+            this.call = call;
+            this.caller = caller;
+        }
+    }
+
+    // Método que se está generando: run o el de una función
+    private static final class MethodScope {
+        final FunctionInfo function;
+        final MethodVisitor mv;
+        final Map<Integer, Integer> locals = new LinkedHashMap<>(); // slot -> índice de local en la JVM
+        int nextLocal;
+
+        MethodScope(FunctionInfo function, MethodVisitor mv) {
+            this.function = function;
+            this.mv = mv;
+        }
+    }
+
+    private final ValueKind[] kinds;
+    private final Map<String, FunctionInfo> functions = new LinkedHashMap<>();
+    private final List<CallSite> callSites = new ArrayList<>();
+    private final Set<Integer> fieldSlots = new TreeSet<>();
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndexes = new HashMap<>();
+
+    private BytecodeCompiler(ValueKind[] kinds) {
+        this.kinds = kinds;
+    }
+
+    public static BytecodeProgram compile(Program program) {
+        SlotScope scope = program.prepare();
+        ValueKind[] kinds = new ValueKind[scope.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = scope.kindOf(i);
+        }
+
+        BytecodeCompiler compiler = new BytecodeCompiler(kinds);
+        compiler.analyze(program.getSentences());
+        byte[] bytecode = compiler.generate(program.getSentences());
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytecode, true);
+            Class<?> script = lookup.lookupClass();
+            lookup.findStaticSetter(script, "constants", Object[].class)
+                    .invoke(compiler.constants.toArray());
+            MethodHandle main = lookup.findStatic(script, "run", MethodType.methodType(void.class));
+            MethodHandle target = lookup.findStaticSetter(script, "target", RasterTarget.class);
+            return new BytecodeProgram(main, target, bytecode);
+        } catch (Throwable e) {
+            throw new RuntimeException("Error: no se pudo cargar el programa compilado", e);
+        }
+    }
+
+    // ===== Análisis previo =====
+
+    private void analyze(List<ASTNode> sentences) {
+        for (ASTNode sentence : sentences) {
+            collectFunctions(sentence);
+        }
+
+        for (FunctionInfo function : functions.values()) {
+            for (ASTNode sentence : function.node.getSentences()) {
+                walk(sentence, node -> {
+                    for (int slot : slotsOf(node)) {
+                        if (!function.locals.contains(slot)) {
+                            fieldSlots.add(slot);
+                        }
+                    }
+                    if (node instanceof FunctionCall) {
+                        callSites.add(new CallSite((FunctionCall) node, function));
+                    }
+                });
+            }
+        }
+        for (ASTNode sentence : sentences) {
+            walk(sentence, node -> {
+                if (node instanceof FunctionCall) {
+                    callSites.add(new CallSite((FunctionCall) node, null));
+                }
+            });
+        }
+
+        inferParamTypes();
+    }
+
+    private void collectFunctions(ASTNode root) {
+        walk(root, node -> {
+            if (node instanceof Function) {
+                Function function = (Function) node;
+                if (functions.containsKey(function.name)) {
+                    throw new RuntimeException("Error: la funcion '" + function.name + "' se declara mas de una vez");
+                }
+                functions.put(function.name, new FunctionInfo(function));
+                for (ASTNode sentence : function.getSentences()) {
+                    collectFunctions(sentence);
+                }
+            }
+        });
+    }
+
+    // Punto fijo: los tipos solo pueden subir (int -> double -> Object), así que termina
+    private void inferParamTypes() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (CallSite site : callSites) {
+                FunctionInfo target = functions.get(site.call.name);
+                List<ASTNode> args = site.call.getArgs();
+                if (target == null || target.paramTypes.length != args.size()) {
+                    continue; // el error se reporta al generar la llamada
+                }
+                for (int i = 0; i < args.size(); i++) {
+                    JType joined = JType.join(target.paramTypes[i], typeOf(args.get(i), site.caller));
+                    if (joined != target.paramTypes[i]) {
+                        target.paramTypes[i] = joined;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Parámetros de funciones que nunca se llaman
+        for (FunctionInfo function : functions.values()) {
+            for (int i = 0; i < function.paramTypes.length; i++) {
+                if (function.paramTypes[i] == null) {
+                    function.paramTypes[i] = JType.INT;
+                }
+            }
+        }
+    }
+
+    private JType slotType(int slot, FunctionInfo function) {
+        if (function != null && function.locals.contains(slot)) {
+            int param = function.paramIndex(slot);
+            if (param >= 0) {
+                JType type = function.paramTypes[param];
+                return type == null ? JType.INT : type;
+            }
+        }
+        return JType.of(kinds[slot]);
+    }
+
+    private JType typeOf(ASTNode node, FunctionInfo function) {
+        if (node instanceof Constant) {
+            switch (node.kind()) {
+                case INT:
+                    return JType.INT;
+                case DOUBLE:
+                    return JType.DOUBLE;
+                case BOOLEAN:
+                    return JType.BOOLEAN;
+                default:
+                    return JType.OBJECT;
+            }
+        } else if (node instanceof VarRef) {
+            return slotType(((VarRef) node).getSlot(), function);
+        } else if (node instanceof Sin || node instanceof Cos) {
+            return JType.DOUBLE;
+        }
+
+        Op op = ClosureCompiler.opOf(node);
+        if (op == null) {
+            return JType.OBJECT;
+        } else if (op.ordinal() > Op.MOD.ordinal()) {
+            return JType.BOOLEAN;
+        }
+        ASTNode[] operands = ClosureCompiler.operandsOf(node);
+        return numeric(typeOf(operands[0], function), typeOf(operands[1], function));
+    }
+
+    // int con int da int; si alguno es double el resultado es double
+    private static JType numeric(JType left, JType right) {
+        if (left == JType.INT && right == JType.INT) {
+            return JType.INT;
+        }
+        if (left.isNumeric() && right.isNumeric()) {
+            return JType.DOUBLE;
+        }
+        return JType.OBJECT;
+    }
+
+    // ===== Generación de la clase =====
+
+    private byte[] generate(List<ASTNode> sentences) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // Las variables Object siempre se usan como Object, no hace falta cargar clases
+                return OBJECT;
+            }
+        };
+        cw.visit(V17, ACC_FINAL | ACC_SUPER, CLASS_NAME, null, OBJECT, null);
+        cw.visitField(ACC_PRIVATE | ACC_STATIC, "constants", "[Ljava/lang/Object;", null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_STATIC, "target", TARGET_DESC, null, null).visitEnd();
+
+        generateMethod(cw, ACC_STATIC, "run", "()V", null, sentences);
+        for (FunctionInfo function : functions.values()) {
+            generateMethod(cw, ACC_PRIVATE | ACC_STATIC, function.methodName, function.descriptor(),
+                    function, function.node.getSentences());
+        }
+
+        for (int slot : fieldSlots) {
+            cw.visitField(ACC_PRIVATE | ACC_STATIC, fieldName(slot), JType.of(kinds[slot]).descriptor, null, null)
+                    .visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateMethod(ClassWriter cw, int access, String name, String descriptor,
+                                FunctionInfo function, List<ASTNode> body) {
+        MethodScope scope = new MethodScope(function, cw.visitMethod(access, name, descriptor, null, null));
+        MethodVisitor mv = scope.mv;
+
+        int params = 0;
+        if (function != null) {
+            for (int slot : function.node.getParamSlots()) {
+                allocate(slot, scope);
+            }
+            params = scope.locals.size();
+        }
+        for (ASTNode sentence : body) {
+            walk(sentence, node -> {
+                for (int slot : slotsOf(node)) {
+                    if (isLocal(slot, scope) && !scope.locals.containsKey(slot)) {
+                        allocate(slot, scope);
+                    }
+                }
+            });
+        }
+
+        mv.visitCode();
+
+        // El verificador exige que toda local tenga valor antes de leerla
+        int index = 0;
+        for (Map.Entry<Integer, Integer> local : scope.locals.entrySet()) {
+            if (index++ < params) {
+                continue;
+            }
+            JType type = slotType(local.getKey(), function);
+            switch (type) {
+                case INT:
+                    mv.visitInsn(ICONST_0);
+                    break;
+                case DOUBLE:
+                    mv.visitInsn(DCONST_0);
+                    break;
+                default:
+                    mv.visitInsn(ACONST_NULL);
+            }
+            mv.visitVarInsn(storeOpcode(type), local.getValue());
+        }
+
+        emitBlock(body, scope);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private boolean isLocal(int slot, MethodScope scope) {
+        if (scope.function == null) {
+            return !fieldSlots.contains(slot);
+        }
+        return scope.function.locals.contains(slot);
+    }
+
+    private void allocate(int slot, MethodScope scope) {
+        scope.locals.put(slot, scope.nextLocal);
+        scope.nextLocal += slotType(slot, scope.function) == JType.DOUBLE ? 2 : 1;
+    }
+
+    private static String fieldName(int slot) {
+        return "g" + slot;
+    }
+
+    // ===== Sentencias =====
+
+    private void emitBlock(List<ASTNode> nodes, MethodScope scope) {
+        if (nodes == null) {
+            return;
+        }
+        for (ASTNode node : nodes) {
+            if (node != null) {
+                emitStmt(node, scope);
+            }
+        }
+    }
+
+    private void emitStmt(ASTNode node, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        if (node instanceof VarDecl) {
+            VarDecl decl = (VarDecl) node;
+            emitDecl(decl, decl.getNames(), decl.getValues(), decl.getSlotIndexes(), scope);
+        } else if (node instanceof VarDecl2) {
+            VarDecl2 decl = (VarDecl2) node;
+            emitDecl(decl, decl.getNames(), decl.getValues(), decl.getSlotIndexes(), scope);
+        } else if (node instanceof VarAssign) {
+            emitAssign((VarAssign) node, scope);
+        } else if (node instanceof If) {
+            emitIf((If) node, scope);
+        } else if (node instanceof LoopComm) {
+            LoopComm loop = (LoopComm) node;
+            Label condition = new Label();
+            Label end = new Label();
+            emitStmt(loop.getInit(), scope);
+            mv.visitLabel(condition);
+            emitCondition(loop.getCondition(), end, scope);
+            emitBlock(loop.getBody(), scope);
+            emitStmt(loop.getUpdate(), scope);
+            mv.visitJumpInsn(GOTO, condition);
+            mv.visitLabel(end);
+        } else if (node instanceof Frame) {
+            // Sin finally: si el cuerpo lanza una excepción el programa termina igual
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+            mv.visitMethodInsn(INVOKESTATIC, "v/engine/BytecodeCompiler", "beginFrame", "(" + TARGET_DESC + ")V", false);
+            emitBlock(((Frame) node).getSentences(), scope);
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+            mv.visitMethodInsn(INVOKESTATIC, "v/engine/BytecodeCompiler", "endFrame", "(" + TARGET_DESC + ")V", false);
+        } else if (node instanceof Println) {
+            mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+            JType type = emit(((Println) node).getData(), scope);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println",
+                    "(" + type.descriptor + ")V", false);
+        } else if (node instanceof WaitComm) {
+            pushConstant(node, mv);
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+            emitAs(((WaitComm) node).getValue(), JType.OBJECT, scope);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "v/ast/WaitComm", "waitFor",
+                    "(" + TARGET_DESC + "Ljava/lang/Object;)Ljava/lang/Object;", false);
+            mv.visitInsn(POP);
+        } else if (node instanceof Function) {
+            // Ya es un método estático de la clase
+        } else if (node instanceof FunctionCall) {
+            emitCall((FunctionCall) node, scope);
+        } else if (node instanceof Draw) {
+            emitDraw((Draw) node, scope);
+        } else if (node instanceof shapeCall) {
+            emitStmt(((shapeCall) node).getShape(), scope);
+        } else if (node instanceof Setcolor) {
+            pushConstant(node, mv);
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+            emitAs(((Setcolor) node).getColor(), JType.OBJECT, scope);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "v/ast/Setcolor", "apply",
+                    "(" + TARGET_DESC + "Ljava/lang/Object;)V", false);
+        } else if (node instanceof ClearComm) {
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+            mv.visitMethodInsn(INVOKESTATIC, "v/engine/BytecodeCompiler", "clear", "(" + TARGET_DESC + ")V", false);
+        } else {
+            throw new IllegalArgumentException("Nodo no soportado por el compilador: " + node.getClass().getSimpleName());
+        }
+    }
+
+    private void emitDecl(ASTNode decl, String[] names, ASTNode[] values, int[] slotIndexes, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        boolean simple = decl instanceof VarDecl;
+        String typeName = simple ? ((VarDecl) decl).getTypeName() : ((VarDecl2) decl).getTypeName();
+
+        for (int i = 0; i < names.length; i++) {
+            int slot = slotIndexes[i];
+            ASTNode value = values[i];
+            JType type = slotType(slot, scope.function);
+
+            if (value == null) {
+                if (type == JType.INT) {
+                    mv.visitInsn(ICONST_0);
+                } else if (type == JType.DOUBLE) {
+                    mv.visitInsn(DCONST_0);
+                } else {
+                    pushConstant(decl, mv);
+                    mv.visitLdcInsn(typeName);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, "v/ast/VarDecl", "defaultValue",
+                            "(Ljava/lang/String;)Ljava/lang/Object;", false);
+                }
+            } else if (type.isNumeric() && typeOf(value, scope.function).isNumeric()) {
+                emitAs(value, type, scope);
+            } else {
+                pushConstant(decl, mv);
+                mv.visitLdcInsn(typeName);
+                if (simple) {
+                    emitAs(value, JType.OBJECT, scope);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, "v/ast/VarDecl", "convert",
+                            "(Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;", false);
+                } else {
+                    mv.visitLdcInsn(names[i]);
+                    emitAs(value, JType.OBJECT, scope);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, "v/ast/VarDecl2", "convert",
+                            "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;", false);
+                }
+                coerce(JType.OBJECT, type, mv);
+            }
+            store(slot, scope);
+        }
+    }
+
+    private void emitAssign(VarAssign assign, MethodScope scope) {
+        int slot = assign.getSlot();
+        ASTNode value = assign.getExpression();
+        JType type = slotType(slot, scope.function);
+
+        if (type.isNumeric() && typeOf(value, scope.function).isNumeric()) {
+            emitAs(value, type, scope);
+        } else {
+            MethodVisitor mv = scope.mv;
+            pushConstant(assign, mv);
+            coerce(load(slot, scope), JType.OBJECT, mv);
+            emitAs(value, JType.OBJECT, scope);
+            mv.visitMethodInsn(INVOKESTATIC, "v/engine/BytecodeCompiler", "checkedAssign",
+                    "(Lv/ast/VarAssign;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false);
+            coerce(JType.OBJECT, type, mv);
+        }
+        store(slot, scope);
+    }
+
+    // Llamado desde el código generado cuando la variable no tiene tipo primitivo
+    static Object checkedAssign(VarAssign assign, Object currentValue, Object newValue) {
+        if (currentValue == null) {
+            throw new RuntimeException("Error: Variable '" + assign.name + "' no ha sido declarada.");
+        }
+        return assign.checkType(currentValue, newValue);
+    }
+
+    // Los argumentos van primero y el destino al final, así el código generado no
+    // tiene que reordenar la pila; los métodos de abajo revisan si hay destino
+    private void emitDraw(Draw node, MethodScope scope) {
+        List<ASTNode> args = drawArgs(node);
+        for (ASTNode arg : args) {
+            emitAs(arg, JType.INT, scope);
+        }
+        String name = node instanceof DrawPixel ? "pixel"
+                : node instanceof DrawLine ? "line"
+                : node instanceof DrawRect ? "rect" : "circle";
+        scope.mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "target", TARGET_DESC);
+        scope.mv.visitMethodInsn(INVOKESTATIC, "v/engine/BytecodeCompiler", name,
+                "(" + "I".repeat(args.size()) + TARGET_DESC + ")V", false);
+    }
+
+    static void pixel(int x, int y, RasterTarget target) {
+        if (target != null) {
+            target.pixel(x, y);
+        }
+    }
+
+    static void line(int x0, int y0, int x1, int y1, RasterTarget target) {
+        if (target != null) {
+            target.line(x0, y0, x1, y1);
+        }
+    }
+
+    static void rect(int x, int y, int width, int height, RasterTarget target) {
+        if (target != null) {
+            target.rect(x, y, width, height);
+        }
+    }
+
+    static void circle(int cx, int cy, int radius, RasterTarget target) {
+        if (target != null) {
+            target.circle(cx, cy, radius);
+        }
+    }
+
+    static void clear(RasterTarget target) {
+        if (target != null) {
+            target.clear();
+        }
+    }
+
+    static void beginFrame(RasterTarget target) {
+        if (target != null) {
+            target.beginFrame();
+        }
+    }
+
+    static void endFrame(RasterTarget target) {
+        if (target != null) {
+            target.endFrame();
+        }
+    }
+
+    private void emitIf(If node, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        Label end = new Label();
+        Label next = new Label();
+
+        emitCondition(node.getCondition(), next, scope);
+        emitBlock(node.getIfBody(), scope);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(next);
+
+        for (ConditionalBlock block : node.getElseifBlocks()) {
+            next = new Label();
+            emitCondition(block.getCondition(), next, scope);
+            emitBlock(block.getBody(), scope);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(next);
+        }
+
+        emitBlock(node.getElseBody(), scope);
+        mv.visitLabel(end);
+    }
+
+    private void emitCall(FunctionCall call, MethodScope scope) {
+        FunctionInfo target = functions.get(call.name);
+        if (target == null) {
+            throw new RuntimeException("Error: Funcion '" + call.name + "' no ha sido declarada.");
+        }
+        List<ASTNode> args = call.getArgs();
+        if (args.size() != target.paramTypes.length) {
+            throw new RuntimeException("Error: '" + call.name + "' esperaba " + target.paramTypes.length +
+                    " argumentos, pero se le dieron " + args.size());
+        }
+
+        for (int i = 0; i < args.size(); i++) {
+            emitAs(args.get(i), target.paramTypes[i], scope);
+        }
+        scope.mv.visitMethodInsn(INVOKESTATIC, CLASS_NAME, target.methodName, target.descriptor(), false);
+    }
+
+    // ===== Expresiones =====
+
+    private JType emit(ASTNode node, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        if (node instanceof Constant) {
+            Object value = ((Constant) node).getValue();
+            switch (node.kind()) {
+                case INT:
+                    pushInt(Values.toInt(value), mv);
+                    return JType.INT;
+                case DOUBLE:
+                    mv.visitLdcInsn(Values.toDouble(value));
+                    return JType.DOUBLE;
+                case BOOLEAN:
+                    mv.visitInsn(Values.toBoolean(value) ? ICONST_1 : ICONST_0);
+                    return JType.BOOLEAN;
+                default:
+                    pushConstant(value, mv);
+                    return JType.OBJECT;
+            }
+        } else if (node instanceof VarRef) {
+            return load(((VarRef) node).getSlot(), scope);
+        } else if (node instanceof Sin) {
+            emitAs(((Sin) node).expression, JType.DOUBLE, scope);
+            mv.visitMethodInsn(INVOKESTATIC, ((Sin) node).isFast() ? FAST_TRIG : "java/lang/Math", "sin", "(D)D", false);
+            return JType.DOUBLE;
+        } else if (node instanceof Cos) {
+            emitAs(((Cos) node).expression, JType.DOUBLE, scope);
+            mv.visitMethodInsn(INVOKESTATIC, ((Cos) node).isFast() ? FAST_TRIG : "java/lang/Math", "cos", "(D)D", false);
+            return JType.DOUBLE;
+        }
+
+        Op op = ClosureCompiler.opOf(node);
+        if (op == null) {
+            throw new IllegalArgumentException("Expresion no soportada por el compilador: " + node.getClass().getSimpleName());
+        }
+        ASTNode[] operands = ClosureCompiler.operandsOf(node);
+        if (op.ordinal() <= Op.MOD.ordinal()) {
+            return emitArithmetic(op, operands[0], operands[1], scope);
+        }
+
+        Label isFalse = new Label();
+        Label end = new Label();
+        emitCompare(op, operands[0], operands[1], isFalse, scope);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isFalse);
+        mv.visitInsn(ICONST_0);
+        mv.visitLabel(end);
+        return JType.BOOLEAN;
+    }
+
+    private void emitAs(ASTNode node, JType type, MethodScope scope) {
+        coerce(emit(node, scope), type, scope.mv);
+    }
+
+    private JType emitArithmetic(Op op, ASTNode left, ASTNode right, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        JType type = numeric(typeOf(left, scope.function), typeOf(right, scope.function));
+        if (type == JType.OBJECT) {
+            // Ruta genérica, con las mismas reglas que el intérprete
+            mv.visitFieldInsn(GETSTATIC, OP, op.name(), "L" + OP + ";");
+            emitAs(left, JType.OBJECT, scope);
+            emitAs(right, JType.OBJECT, scope);
+            mv.visitMethodInsn(INVOKESTATIC, CLOSURE_COMPILER, "arithmeticObjects",
+                    "(L" + OP + ";Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false);
+            return JType.OBJECT;
+        }
+
+        emitAs(left, type, scope);
+        emitAs(right, type, scope);
+        boolean isInt = type == JType.INT;
+        switch (op) {
+            case ADD:
+                mv.visitInsn(isInt ? IADD : DADD);
+                break;
+            case SUB:
+                mv.visitInsn(isInt ? ISUB : DSUB);
+                break;
+            case MUL:
+                mv.visitInsn(isInt ? IMUL : DMUL);
+                break;
+            case DIV:
+                mv.visitInsn(isInt ? IDIV : DDIV);
+                break;
+            default:
+                mv.visitInsn(isInt ? IREM : DREM);
+        }
+        return type;
+    }
+
+    // Salta a isFalse si la condición no se cumple
+    private void emitCondition(ASTNode node, Label isFalse, MethodScope scope) {
+        Op op = ClosureCompiler.opOf(node);
+        if (op != null && op.ordinal() > Op.MOD.ordinal()) {
+            ASTNode[] operands = ClosureCompiler.operandsOf(node);
+            emitCompare(op, operands[0], operands[1], isFalse, scope);
+            return;
+        }
+        emitAs(node, JType.BOOLEAN, scope);
+        scope.mv.visitJumpInsn(IFEQ, isFalse);
+    }
+
+    private void emitCompare(Op op, ASTNode left, ASTNode right, Label isFalse, MethodScope scope) {
+        MethodVisitor mv = scope.mv;
+        JType type = numeric(typeOf(left, scope.function), typeOf(right, scope.function));
+        if (type == JType.INT) {
+            emitAs(left, JType.INT, scope);
+            emitAs(right, JType.INT, scope);
+            mv.visitJumpInsn(negatedIntCompare(op), isFalse);
+        } else if (type == JType.DOUBLE) {
+            emitAs(left, JType.DOUBLE, scope);
+            emitAs(right, JType.DOUBLE, scope);
+            // Con NaN toda comparación es falsa, igual que en Java
+            mv.visitInsn(op == Op.LT || op == Op.LEQ ? DCMPG : DCMPL);
+            mv.visitJumpInsn(negatedZeroCompare(op), isFalse);
+        } else {
+            mv.visitFieldInsn(GETSTATIC, OP, op.name(), "L" + OP + ";");
+            emitAs(left, JType.OBJECT, scope);
+            emitAs(right, JType.OBJECT, scope);
+            mv.visitMethodInsn(INVOKESTATIC, CLOSURE_COMPILER, "compareObjects",
+                    "(L" + OP + ";Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+            mv.visitJumpInsn(IFEQ, isFalse);
+        }
+    }
+
+    private static int negatedIntCompare(Op op) {
+        switch (op) {
+            case EQ: return IF_ICMPNE;
+            case NEQ: return IF_ICMPEQ;
+            case GT: return IF_ICMPLE;
+            case GEQ: return IF_ICMPLT;
+            case LT: return IF_ICMPGE;
+            default: return IF_ICMPGT;
+        }
+    }
+
+    private static int negatedZeroCompare(Op op) {
+        switch (op) {
+            case EQ: return IFNE;
+            case NEQ: return IFEQ;
+            case GT: return IFLE;
+            case GEQ: return IFLT;
+            case LT: return IFGE;
+            default: return IFGT;
+        }
+    }
+
+    // ===== Variables, constantes y conversiones =====
+
+    private JType load(int slot, MethodScope scope) {
+        JType type = slotType(slot, scope.function);
+        Integer local = scope.locals.get(slot);
+        if (local != null) {
+            scope.mv.visitVarInsn(loadOpcode(type), local);
+        } else {
+            scope.mv.visitFieldInsn(GETSTATIC, CLASS_NAME, fieldName(slot), type.descriptor);
+        }
+        return type;
+    }
+
+    private void store(int slot, MethodScope scope) {
+        JType type = slotType(slot, scope.function);
+        Integer local = scope.locals.get(slot);
+        if (local != null) {
+            scope.mv.visitVarInsn(storeOpcode(type), local);
+        } else {
+            scope.mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, fieldName(slot), type.descriptor);
+        }
+    }
+
+    private static int loadOpcode(JType type) {
+        switch (type) {
+            case INT:
+            case BOOLEAN:
+                return ILOAD;
+            case DOUBLE:
+                return DLOAD;
+            default:
+                return ALOAD;
+        }
+    }
+
+    private static int storeOpcode(JType type) {
+        switch (type) {
+            case INT:
+            case BOOLEAN:
+                return ISTORE;
+            case DOUBLE:
+                return DSTORE;
+            default:
+                return ASTORE;
+        }
+    }
+
+    private static void pushInt(int value, MethodVisitor mv) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    // Los objetos que no son literales de la JVM (nodos, colores) van en el arreglo constants
+    private void pushConstant(Object value, MethodVisitor mv) {
+        Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "constants", "[Ljava/lang/Object;");
+        pushInt(index, mv);
+        mv.visitInsn(AALOAD);
+        mv.visitTypeInsn(CHECKCAST, value.getClass().getName().replace('.', '/'));
+    }
+
+    private static void coerce(JType from, JType to, MethodVisitor mv) {
+        if (from == to) {
+            return;
+        }
+        if (from == JType.INT && to == JType.DOUBLE) {
+            mv.visitInsn(I2D);
+            return;
+        }
+        if (from == JType.DOUBLE && to == JType.INT) {
+            mv.visitInsn(D2I);
+            return;
+        }
+
+        switch (from) {
+            case INT:
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+                break;
+            case DOUBLE:
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+                break;
+            case BOOLEAN:
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+                break;
+            default:
+                break;
+        }
+        switch (to) {
+            case INT:
+                mv.visitMethodInsn(INVOKESTATIC, VALUES, "toInt", "(Ljava/lang/Object;)I", false);
+                break;
+            case DOUBLE:
+                mv.visitMethodInsn(INVOKESTATIC, VALUES, "toDouble", "(Ljava/lang/Object;)D", false);
+                break;
+            case BOOLEAN:
+                mv.visitMethodInsn(INVOKESTATIC, VALUES, "toBoolean", "(Ljava/lang/Object;)Z", false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // ===== Recorrido del árbol =====
+
+    // Visita un nodo y sus hijos, sin entrar al cuerpo de las funciones
+    private static void walk(ASTNode node, Consumer<ASTNode> visitor) {
+        if (node == null) {
+            return;
+        }
+        visitor.accept(node);
+        if (node instanceof Function) {
+            return;
+        }
+        for (ASTNode child : childrenOf(node)) {
+            walk(child, visitor);
+        }
+    }
+
+    private static List<ASTNode> childrenOf(ASTNode node) {
+        List<ASTNode> children = new ArrayList<>();
+        if (node instanceof VarDecl) {
+            addAll(children, ((VarDecl) node).getValues());
+        } else if (node instanceof VarDecl2) {
+            addAll(children, ((VarDecl2) node).getValues());
+        } else if (node instanceof VarAssign) {
+            children.add(((VarAssign) node).getExpression());
+        } else if (node instanceof If) {
+            If conditional = (If) node;
+            children.add(conditional.getCondition());
+            addAll(children, conditional.getIfBody());
+            for (ConditionalBlock block : conditional.getElseifBlocks()) {
+                children.add(block.getCondition());
+                addAll(children, block.getBody());
+            }
+            addAll(children, conditional.getElseBody());
+        } else if (node instanceof LoopComm) {
+            LoopComm loop = (LoopComm) node;
+            children.add(loop.getInit());
+            children.add(loop.getCondition());
+            children.add(loop.getUpdate());
+            addAll(children, loop.getBody());
+        } else if (node instanceof Frame) {
+            addAll(children, ((Frame) node).getSentences());
+        } else if (node instanceof Println) {
+            children.add(((Println) node).getData());
+        } else if (node instanceof WaitComm) {
+            children.add(((WaitComm) node).getValue());
+        } else if (node instanceof FunctionCall) {
+            addAll(children, ((FunctionCall) node).getArgs());
+        } else if (node instanceof Draw) {
+            children.addAll(drawArgs((Draw) node));
+        } else if (node instanceof shapeCall) {
+            children.add(((shapeCall) node).getShape());
+        } else if (node instanceof Setcolor) {
+            children.add(((Setcolor) node).getColor());
+        } else if (node instanceof Sin) {
+            children.add(((Sin) node).expression);
+        } else if (node instanceof Cos) {
+            children.add(((Cos) node).expression);
+        } else if (ClosureCompiler.opOf(node) != null) {
+            addAll(children, ClosureCompiler.operandsOf(node));
+        }
+        return children;
+    }
+
+    private static void addAll(List<ASTNode> children, ASTNode[] nodes) {
+        for (ASTNode node : nodes) {
+            if (node != null) {
+                children.add(node);
+            }
+        }
+    }
+
+    private static void addAll(List<ASTNode> children, List<ASTNode> nodes) {
+        if (nodes != null) {
+            for (ASTNode node : nodes) {
+                if (node != null) {
+                    children.add(node);
+                }
+            }
+        }
+    }
+
+    private static List<ASTNode> drawArgs(Draw node) {
+        List<ASTNode> args = new ArrayList<>();
+        if (node instanceof DrawPixel) {
+            DrawPixel pixel = (DrawPixel) node;
+            args.add(pixel.getX());
+            args.add(pixel.getY());
+        } else if (node instanceof DrawLine) {
+            DrawLine line = (DrawLine) node;
+            args.add(line.getA());
+            args.add(line.getB());
+            args.add(line.getC());
+            args.add(line.getD());
+        } else if (node instanceof DrawRect) {
+            DrawRect rect = (DrawRect) node;
+            args.add(rect.getX());
+            args.add(rect.getY());
+            args.add(rect.getW());
+            args.add(rect.getH());
+        } else if (node instanceof DrawCircle) {
+            DrawCircle circle = (DrawCircle) node;
+            args.add(circle.getX1());
+            args.add(circle.getY1());
+            args.add(circle.getR1());
+        }
+        return args;
+    }
+
+    // Slots que escribe o lee directamente un nodo
+    private static int[] slotsOf(ASTNode node) {
+        if (node instanceof VarRef) {
+            return new int[]{((VarRef) node).getSlot()};
+        } else if (node instanceof VarAssign) {
+            return new int[]{((VarAssign) node).getSlot()};
+        } else if (node instanceof VarDecl) {
+            return ((VarDecl) node).getSlotIndexes();
+        } else if (node instanceof VarDecl2) {
+            return ((VarDecl2) node).getSlotIndexes();
+        }
+        return new int[0];
+    }
+}
@@ -0,0 +1,39 @@
+package v.engine;
+
+import java.lang.invoke.MethodHandle;
+import v.render.RasterTarget;
+
+/**
+ * Programa compilado por BytecodeCompiler y ya cargado como clase oculta.
+ */
+public final class BytecodeProgram {
+    private final MethodHandle main;
+    private final MethodHandle setTarget;
+    private final byte[] bytecode;
+
+    BytecodeProgram(MethodHandle main, MethodHandle setTarget, byte[] bytecode) {
+        this.main = main;
+        this.setTarget = setTarget;
+        this.bytecode = bytecode;
+    }
+
+    public void run() {
+        run(null);
+    }
+
+    public void run(RasterTarget target) {
+        try {
+            setTarget.invokeExact(target);
+            main.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Bytes de la clase generada, por ejemplo para revisarla con javap
+    public byte[] getBytecode() {
+        return bytecode.clone();
+    }
+}
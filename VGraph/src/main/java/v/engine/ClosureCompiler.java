@@ -0,0 +1,762 @@
+package v.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import v.ast.*;
+import v.render.RasterTarget;
+
+/**
+ * Compila un Program de v.ast, una sola vez, a un árbol de lambdas ya enlazadas.
+ * El tipo de cada operación y el slot de cada variable se deciden aquí y no en
+ * cada execute, y las variables int/double viven sin caja en Env.
+ */
+public class ClosureCompiler {
+
+    public interface IntExpr {
+        int eval(Env env);
+    }
+
+    public interface DoubleExpr {
+        double eval(Env env);
+    }
+
+    public interface BoolExpr {
+        boolean eval(Env env);
+    }
+
+    public interface ObjExpr {
+        Object eval(Env env);
+    }
+
+    public interface Stmt {
+        void run(Env env);
+    }
+
+    // Conversión que aplica cada tipo de declaración a su valor inicial
+    private interface Converter {
+        Object convert(String varName, Object value);
+    }
+
+    enum Op { ADD, SUB, MUL, DIV, MOD, EQ, NEQ, GT, GEQ, LT, LEQ }
+
+    private final ValueKind[] kinds;
+
+    private ClosureCompiler(ValueKind[] kinds) {
+        this.kinds = kinds;
+    }
+
+    public static CompiledProgram compile(Program program) {
+        SlotScope scope = program.prepare();
+        ValueKind[] kinds = new ValueKind[scope.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = scope.kindOf(i);
+        }
+
+        ClosureCompiler compiler = new ClosureCompiler(kinds);
+        return new CompiledProgram(compiler.compileBlock(program.getSentences()), kinds);
+    }
+
+    // ===== Sentencias =====
+
+    private Stmt compileBlock(List<ASTNode> nodes) {
+        List<Stmt> compiled = new ArrayList<>();
+        if (nodes != null) {
+            for (ASTNode node : nodes) {
+                if (node != null) {
+                    compiled.add(compileStmt(node));
+                }
+            }
+        }
+        return block(compiled.toArray(new Stmt[0]));
+    }
+
+    private Stmt block(Stmt[] stmts) {
+        switch (stmts.length) {
+            case 0:
+                return env -> { };
+            case 1:
+                return stmts[0];
+            case 2:
+                Stmt first = stmts[0];
+                Stmt second = stmts[1];
+                return env -> {
+                    first.run(env);
+                    second.run(env);
+                };
+            default:
+                return env -> {
+                    for (Stmt stmt : stmts) {
+                        stmt.run(env);
+                    }
+                };
+        }
+    }
+
+    private Stmt compileStmt(ASTNode node) {
+        if (node instanceof VarDecl) {
+            VarDecl decl = (VarDecl) node;
+            String typeName = decl.getTypeName();
+            return compileDecl(decl.getNames(), decl.getValues(), decl.getSlotIndexes(), typeName,
+                    env -> decl.defaultValue(typeName), (name, value) -> decl.convert(typeName, value));
+        } else if (node instanceof VarDecl2) {
+            VarDecl2 decl = (VarDecl2) node;
+            String typeName = decl.getTypeName();
+            return compileDecl(decl.getNames(), decl.getValues(), decl.getSlotIndexes(), typeName,
+                    null, (name, value) -> decl.convert(typeName, name, value));
+        } else if (node instanceof VarAssign) {
+            return compileAssign((VarAssign) node);
+        } else if (node instanceof If) {
+            return compileIf((If) node);
+        } else if (node instanceof LoopComm) {
+            LoopComm loop = (LoopComm) node;
+            Stmt init = compileStmt(loop.getInit());
+            BoolExpr condition = compileBool(loop.getCondition());
+            Stmt update = compileStmt(loop.getUpdate());
+            Stmt body = compileBlock(loop.getBody());
+            return env -> {
+                init.run(env);
+                while (condition.eval(env)) {
+                    body.run(env);
+                    update.run(env);
+                }
+            };
+        } else if (node instanceof Frame) {
+            Stmt body = compileBlock(((Frame) node).getSentences());
+            return env -> {
+                RasterTarget target = env.target();
+                if (target != null) {
+                    target.beginFrame();
+                }
+                try {
+                    body.run(env);
+                } finally {
+                    if (target != null) {
+                        target.endFrame();
+                    }
+                }
+            };
+        } else if (node instanceof Println) {
+            ObjExpr data = compileObj(((Println) node).getData());
+            return env -> System.out.println(data.eval(env));
+        } else if (node instanceof WaitComm) {
+            WaitComm wait = (WaitComm) node;
+            ObjExpr value = compileObj(wait.getValue());
+            return env -> wait.waitFor(env.target(), value.eval(env));
+        } else if (node instanceof Function) {
+            Function fun = (Function) node;
+            CompiledFunction compiled = new CompiledFunction(fun.name, fun.getParamSlots(),
+                    fun.getLocalSlots(), compileBlock(fun.getSentences()));
+            int slot = fun.getSlot();
+            return env -> env.store(slot, compiled);
+        } else if (node instanceof FunctionCall) {
+            return compileCall((FunctionCall) node);
+        } else if (node instanceof Draw) {
+            return compileDraw((Draw) node);
+        } else if (node instanceof shapeCall) {
+            return compileStmt(((shapeCall) node).getShape());
+        } else if (node instanceof Setcolor) {
+            Setcolor setcolor = (Setcolor) node;
+            ObjExpr color = compileObj(setcolor.getColor());
+            return env -> setcolor.apply(env.target(), color.eval(env));
+        } else if (node instanceof ClearComm) {
+            return env -> {
+                RasterTarget target = env.target();
+                if (target != null) {
+                    target.clear();
+                }
+            };
+        }
+        throw new IllegalArgumentException("Nodo no soportado por el compilador: " + node.getClass().getSimpleName());
+    }
+
+    private Stmt compileDecl(String[] names, ASTNode[] values, int[] slotIndexes, String typeName,
+                             ObjExpr defaultValue, Converter converter) {
+        Stmt[] stmts = new Stmt[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            int slot = slotIndexes[i];
+            ASTNode value = values[i];
+            ValueKind kind = kinds[slot];
+
+            if (value == null) {
+                if (kind == ValueKind.INT) {
+                    stmts[i] = env -> env.ints[slot] = 0;
+                } else if (kind == ValueKind.DOUBLE) {
+                    stmts[i] = env -> env.doubles[slot] = 0.0;
+                } else {
+                    stmts[i] = env -> env.store(slot, defaultValue.eval(env));
+                }
+            } else if (kind == ValueKind.INT && value.kind().isNumeric()) {
+                IntExpr expr = compileInt(value);
+                stmts[i] = env -> env.ints[slot] = expr.eval(env);
+            } else if (kind == ValueKind.DOUBLE && value.kind().isNumeric()) {
+                DoubleExpr expr = compileDouble(value);
+                stmts[i] = env -> env.doubles[slot] = expr.eval(env);
+            } else {
+                ObjExpr expr = compileObj(value);
+                stmts[i] = env -> env.store(slot, converter.convert(name, expr.eval(env)));
+            }
+        }
+        return block(stmts);
+    }
+
+    private Stmt compileAssign(VarAssign assign) {
+        int slot = assign.getSlot();
+        ASTNode value = assign.getExpression();
+        ValueKind kind = kinds[slot];
+
+        if (kind == ValueKind.INT && value.kind() == ValueKind.INT) {
+            Stmt fused = intAssign(slot, value);
+            if (fused != null) {
+                return fused;
+            }
+        }
+        if (kind == ValueKind.INT && value.kind().isNumeric()) {
+            IntExpr expr = compileInt(value);
+            return env -> env.ints[slot] = expr.eval(env);
+        } else if (kind == ValueKind.DOUBLE && value.kind().isNumeric()) {
+            DoubleExpr expr = compileDouble(value);
+            return env -> env.doubles[slot] = expr.eval(env);
+        }
+
+        String name = assign.name;
+        ObjExpr expr = compileObj(value);
+        return env -> {
+            Object currentValue = env.load(slot);
+            if (currentValue == null) {
+                throw new RuntimeException("Error: Variable '" + name + "' no ha sido declarada.");
+            }
+            env.store(slot, assign.checkType(currentValue, expr.eval(env)));
+        };
+    }
+
+    // Asignaciones de la forma x = a OP c o x = a OP b (típicas de contadores de loop)
+    // en una sola lambda
+    private Stmt intAssign(int slot, ASTNode value) {
+        Op op = opOf(value);
+        if (op == null || op.ordinal() > Op.MOD.ordinal()) {
+            return null;
+        }
+        ASTNode[] operands = operandsOf(value);
+        int leftSlot = intSlot(operands[0]);
+        if (leftSlot < 0) {
+            return null;
+        }
+        if (isConstant(operands[1])) {
+            int c = Values.toInt(((Constant) operands[1]).getValue());
+            switch (op) {
+                case ADD: return env -> env.ints[slot] = env.ints[leftSlot] + c;
+                case SUB: return env -> env.ints[slot] = env.ints[leftSlot] - c;
+                case MUL: return env -> env.ints[slot] = env.ints[leftSlot] * c;
+                case DIV: return env -> env.ints[slot] = env.ints[leftSlot] / c;
+                case MOD: return env -> env.ints[slot] = env.ints[leftSlot] % c;
+                default: return null;
+            }
+        }
+        int rightSlot = intSlot(operands[1]);
+        if (rightSlot >= 0) {
+            switch (op) {
+                case ADD: return env -> env.ints[slot] = env.ints[leftSlot] + env.ints[rightSlot];
+                case SUB: return env -> env.ints[slot] = env.ints[leftSlot] - env.ints[rightSlot];
+                case MUL: return env -> env.ints[slot] = env.ints[leftSlot] * env.ints[rightSlot];
+                case DIV: return env -> env.ints[slot] = env.ints[leftSlot] / env.ints[rightSlot];
+                case MOD: return env -> env.ints[slot] = env.ints[leftSlot] % env.ints[rightSlot];
+                default: return null;
+            }
+        }
+        return null;
+    }
+
+    private Stmt compileIf(If node) {
+        BoolExpr condition = compileBool(node.getCondition());
+        Stmt ifBody = compileBlock(node.getIfBody());
+
+        List<ConditionalBlock> blocks = node.getElseifBlocks();
+        BoolExpr[] conditions = new BoolExpr[blocks.size()];
+        Stmt[] bodies = new Stmt[blocks.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = compileBool(blocks.get(i).getCondition());
+            bodies[i] = compileBlock(blocks.get(i).getBody());
+        }
+        Stmt elseBody = compileBlock(node.getElseBody());
+
+        if (conditions.length == 0) {
+            return env -> {
+                if (condition.eval(env)) {
+                    ifBody.run(env);
+                } else {
+                    elseBody.run(env);
+                }
+            };
+        }
+        return env -> {
+            if (condition.eval(env)) {
+                ifBody.run(env);
+                return;
+            }
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].eval(env)) {
+                    bodies[i].run(env);
+                    return;
+                }
+            }
+            elseBody.run(env);
+        };
+    }
+
+    private Stmt compileCall(FunctionCall call) {
+        List<ASTNode> argNodes = call.getArgs();
+        ObjExpr[] args = new ObjExpr[argNodes.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = compileObj(argNodes.get(i));
+        }
+        String name = call.name;
+        int slot = call.getSlot();
+
+        return env -> {
+            Object value = env.load(slot);
+            if (value == null) {
+                throw new RuntimeException("Error: Funcion '" + name + "' no ha sido declarada.");
+            }
+            if (!(value instanceof CompiledFunction)) {
+                throw new RuntimeException("Error:  '" + name + "' no es una funcion");
+            }
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = args[i].eval(env);
+            }
+            ((CompiledFunction) value).invoke(env, values);
+        };
+    }
+
+    private Stmt compileDraw(Draw node) {
+        if (node instanceof DrawPixel) {
+            DrawPixel pixel = (DrawPixel) node;
+            IntExpr x = compileInt(pixel.getX());
+            IntExpr y = compileInt(pixel.getY());
+            return env -> {
+                int px = x.eval(env);
+                int py = y.eval(env);
+                RasterTarget target = env.target();
+                if (target != null) {
+                    target.pixel(px, py);
+                }
+            };
+        } else if (node instanceof DrawLine) {
+            DrawLine line = (DrawLine) node;
+            IntExpr x0 = compileInt(line.getA());
+            IntExpr y0 = compileInt(line.getB());
+            IntExpr x1 = compileInt(line.getC());
+            IntExpr y1 = compileInt(line.getD());
+            return env -> {
+                int ax = x0.eval(env);
+                int ay = y0.eval(env);
+                int bx = x1.eval(env);
+                int by = y1.eval(env);
+                RasterTarget target = env.target();
+                if (target != null) {
+                    target.line(ax, ay, bx, by);
+                }
+            };
+        } else if (node instanceof DrawRect) {
+            DrawRect rect = (DrawRect) node;
+            IntExpr x = compileInt(rect.getX());
+            IntExpr y = compileInt(rect.getY());
+            IntExpr w = compileInt(rect.getW());
+            IntExpr h = compileInt(rect.getH());
+            return env -> {
+                int rx = x.eval(env);
+                int ry = y.eval(env);
+                int rw = w.eval(env);
+                int rh = h.eval(env);
+                RasterTarget target = env.target();
+                if (target != null) {
+                    target.rect(rx, ry, rw, rh);
+                }
+            };
+        }
+
+        DrawCircle circle = (DrawCircle) node;
+        IntExpr x = compileInt(circle.getX1());
+        IntExpr y = compileInt(circle.getY1());
+        IntExpr r = compileInt(circle.getR1());
+        return env -> {
+            int cx = x.eval(env);
+            int cy = y.eval(env);
+            int radius = r.eval(env);
+            RasterTarget target = env.target();
+            if (target != null) {
+                target.circle(cx, cy, radius);
+            }
+        };
+    }
+
+    // ===== Expresiones =====
+
+    private IntExpr compileInt(ASTNode node) {
+        ValueKind kind = node.kind();
+        if (kind == ValueKind.INT) {
+            if (node instanceof Constant) {
+                int value = Values.toInt(((Constant) node).getValue());
+                return env -> value;
+            } else if (node instanceof VarRef) {
+                int slot = ((VarRef) node).getSlot();
+                return env -> env.ints[slot];
+            }
+            Op op = opOf(node);
+            if (op != null) {
+                ASTNode[] operands = operandsOf(node);
+                return intBinary(op, operands[0], operands[1]);
+            }
+        } else if (kind == ValueKind.DOUBLE) {
+            DoubleExpr expr = compileDouble(node);
+            return env -> (int) expr.eval(env);
+        }
+
+        ObjExpr expr = compileObj(node);
+        return env -> Values.toInt(expr.eval(env));
+    }
+
+    private DoubleExpr compileDouble(ASTNode node) {
+        ValueKind kind = node.kind();
+        if (kind == ValueKind.INT) {
+            IntExpr expr = compileInt(node);
+            return env -> expr.eval(env);
+        } else if (kind == ValueKind.DOUBLE) {
+            if (node instanceof Constant) {
+                double value = Values.toDouble(((Constant) node).getValue());
+                return env -> value;
+            } else if (node instanceof VarRef) {
+                int slot = ((VarRef) node).getSlot();
+                return env -> env.doubles[slot];
+            } else if (node instanceof Sin) {
+                DoubleExpr arg = compileDouble(((Sin) node).expression);
+                if (((Sin) node).isFast()) {
+                    return env -> FastTrig.sin(arg.eval(env));
+                }
+                return env -> Math.sin(arg.eval(env));
+            } else if (node instanceof Cos) {
+                DoubleExpr arg = compileDouble(((Cos) node).expression);
+                if (((Cos) node).isFast()) {
+                    return env -> FastTrig.cos(arg.eval(env));
+                }
+                return env -> Math.cos(arg.eval(env));
+            }
+            Op op = opOf(node);
+            if (op != null) {
+                ASTNode[] operands = operandsOf(node);
+                return doubleBinary(op, compileDouble(operands[0]), compileDouble(operands[1]));
+            }
+        }
+
+        ObjExpr expr = compileObj(node);
+        return env -> Values.toDouble(expr.eval(env));
+    }
+
+    private BoolExpr compileBool(ASTNode node) {
+        Op op = opOf(node);
+        if (op != null && node.kind() == ValueKind.BOOLEAN) {
+            ASTNode[] operands = operandsOf(node);
+            switch (Values.numeric(operands[0].kind(), operands[1].kind())) {
+                case INT:
+                    return intCompare(op, operands[0], operands[1]);
+                case DOUBLE:
+                    return doubleCompare(op, compileDouble(operands[0]), compileDouble(operands[1]));
+                default:
+                    ObjExpr left = compileObj(operands[0]);
+                    ObjExpr right = compileObj(operands[1]);
+                    return env -> compareObjects(op, left.eval(env), right.eval(env));
+            }
+        } else if (node instanceof Constant) {
+            boolean value = Values.toBoolean(((Constant) node).getValue());
+            return env -> value;
+        }
+
+        ObjExpr expr = compileObj(node);
+        return env -> Values.toBoolean(expr.eval(env));
+    }
+
+    private ObjExpr compileObj(ASTNode node) {
+        switch (node.kind()) {
+            case INT: {
+                IntExpr expr = compileInt(node);
+                return env -> expr.eval(env);
+            }
+            case DOUBLE: {
+                DoubleExpr expr = compileDouble(node);
+                return env -> expr.eval(env);
+            }
+            case BOOLEAN: {
+                if (!(node instanceof Constant)) {
+                    BoolExpr expr = compileBool(node);
+                    return env -> expr.eval(env);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        if (node instanceof Constant) {
+            Object value = ((Constant) node).getValue();
+            return env -> value;
+        } else if (node instanceof VarRef) {
+            int slot = ((VarRef) node).getSlot();
+            return env -> env.load(slot);
+        } else if (node instanceof Sin) {
+            ObjExpr arg = compileObj(((Sin) node).expression);
+            if (((Sin) node).isFast()) {
+                return env -> FastTrig.sin(Values.toDouble(arg.eval(env)));
+            }
+            return env -> Math.sin(Values.toDouble(arg.eval(env)));
+        } else if (node instanceof Cos) {
+            ObjExpr arg = compileObj(((Cos) node).expression);
+            if (((Cos) node).isFast()) {
+                return env -> FastTrig.cos(Values.toDouble(arg.eval(env)));
+            }
+            return env -> Math.cos(Values.toDouble(arg.eval(env)));
+        }
+
+        Op op = opOf(node);
+        if (op != null) {
+            ASTNode[] operands = operandsOf(node);
+            ObjExpr left = compileObj(operands[0]);
+            ObjExpr right = compileObj(operands[1]);
+            return env -> arithmeticObjects(op, left.eval(env), right.eval(env));
+        }
+        throw new IllegalArgumentException("Expresion no soportada por el compilador: " + node.getClass().getSimpleName());
+    }
+
+    // ===== Operadores =====
+
+    static Op opOf(ASTNode node) {
+        if (node instanceof Addition) return Op.ADD;
+        if (node instanceof Subtraction) return Op.SUB;
+        if (node instanceof Multiplication) return Op.MUL;
+        if (node instanceof Division) return Op.DIV;
+        if (node instanceof Modulus) return Op.MOD;
+        if (node instanceof Equal) return Op.EQ;
+        if (node instanceof NotEqual) return Op.NEQ;
+        if (node instanceof GreaterThan) return Op.GT;
+        if (node instanceof GreaterOrEqual) return Op.GEQ;
+        if (node instanceof LessThan) return Op.LT;
+        if (node instanceof LessOrEqual) return Op.LEQ;
+        return null;
+    }
+
+    static ASTNode[] operandsOf(ASTNode node) {
+        if (node instanceof Addition) return pair(((Addition) node).getOperand1(), ((Addition) node).getOperand2());
+        if (node instanceof Subtraction) return pair(((Subtraction) node).getOperand1(), ((Subtraction) node).getOperand2());
+        if (node instanceof Multiplication) return pair(((Multiplication) node).getOperand1(), ((Multiplication) node).getOperand2());
+        if (node instanceof Division) return pair(((Division) node).getOperand1(), ((Division) node).getOperand2());
+        if (node instanceof Modulus) return pair(((Modulus) node).getOperand1(), ((Modulus) node).getOperand2());
+        if (node instanceof Equal) return pair(((Equal) node).getExpression1(), ((Equal) node).getExpression2());
+        if (node instanceof NotEqual) return pair(((NotEqual) node).getExpression1(), ((NotEqual) node).getExpression2());
+        if (node instanceof GreaterThan) return pair(((GreaterThan) node).getExpression1(), ((GreaterThan) node).getExpression2());
+        if (node instanceof GreaterOrEqual) return pair(((GreaterOrEqual) node).getExpression1(), ((GreaterOrEqual) node).getExpression2());
+        if (node instanceof LessThan) return pair(((LessThan) node).getExpression1(), ((LessThan) node).getExpression2());
+        return pair(((LessOrEqual) node).getExpression1(), ((LessOrEqual) node).getExpression2());
+    }
+
+    // Slot de una variable int, o -1 si el nodo no es una referencia a una
+    private int intSlot(ASTNode node) {
+        if (node instanceof VarRef && node.kind() == ValueKind.INT) {
+            return ((VarRef) node).getSlot();
+        }
+        return -1;
+    }
+
+    private static boolean isConstant(ASTNode node) {
+        return node instanceof Constant && node.kind() == ValueKind.INT;
+    }
+
+    private static ASTNode[] pair(ASTNode left, ASTNode right) {
+        return new ASTNode[]{left, right};
+    }
+
+    // Cada caso es una lambda distinta para que el JIT vea un solo operador por sitio.
+    // Las formas más comunes (variable o constante como operando) leen el slot o la
+    // constante directamente en vez de llamar a otra lambda.
+    private IntExpr intBinary(Op op, ASTNode left, ASTNode right) {
+        int leftSlot = intSlot(left);
+        if (isConstant(right)) {
+            int c = Values.toInt(((Constant) right).getValue());
+            if (leftSlot >= 0) {
+                switch (op) {
+                case ADD: return env -> env.ints[leftSlot] + c;
+                case SUB: return env -> env.ints[leftSlot] - c;
+                case MUL: return env -> env.ints[leftSlot] * c;
+                case DIV: return env -> env.ints[leftSlot] / c;
+                case MOD: return env -> env.ints[leftSlot] % c;
+                default: throw new IllegalArgumentException(op.name());
+                }
+            }
+            IntExpr a = compileInt(left);
+            switch (op) {
+                case ADD: return env -> a.eval(env) + c;
+                case SUB: return env -> a.eval(env) - c;
+                case MUL: return env -> a.eval(env) * c;
+                case DIV: return env -> a.eval(env) / c;
+                case MOD: return env -> a.eval(env) % c;
+                default: throw new IllegalArgumentException(op.name());
+            }
+        }
+
+        int rightSlot = intSlot(right);
+        if (leftSlot >= 0 && rightSlot >= 0) {
+            switch (op) {
+                case ADD: return env -> env.ints[leftSlot] + env.ints[rightSlot];
+                case SUB: return env -> env.ints[leftSlot] - env.ints[rightSlot];
+                case MUL: return env -> env.ints[leftSlot] * env.ints[rightSlot];
+                case DIV: return env -> env.ints[leftSlot] / env.ints[rightSlot];
+                case MOD: return env -> env.ints[leftSlot] % env.ints[rightSlot];
+                default: throw new IllegalArgumentException(op.name());
+            }
+        }
+
+        if (leftSlot >= 0) {
+            IntExpr b = compileInt(right);
+            switch (op) {
+                case ADD: return env -> env.ints[leftSlot] + b.eval(env);
+                case SUB: return env -> env.ints[leftSlot] - b.eval(env);
+                case MUL: return env -> env.ints[leftSlot] * b.eval(env);
+                case DIV: return env -> env.ints[leftSlot] / b.eval(env);
+                case MOD: return env -> env.ints[leftSlot] % b.eval(env);
+                default: throw new IllegalArgumentException(op.name());
+            }
+        } else if (rightSlot >= 0) {
+            IntExpr a = compileInt(left);
+            switch (op) {
+                case ADD: return env -> a.eval(env) + env.ints[rightSlot];
+                case SUB: return env -> a.eval(env) - env.ints[rightSlot];
+                case MUL: return env -> a.eval(env) * env.ints[rightSlot];
+                case DIV: return env -> a.eval(env) / env.ints[rightSlot];
+                case MOD: return env -> a.eval(env) % env.ints[rightSlot];
+                default: throw new IllegalArgumentException(op.name());
+            }
+        }
+
+        IntExpr a = compileInt(left);
+        IntExpr b = compileInt(right);
+        switch (op) {
+            case ADD: return env -> a.eval(env) + b.eval(env);
+            case SUB: return env -> a.eval(env) - b.eval(env);
+            case MUL: return env -> a.eval(env) * b.eval(env);
+            case DIV: return env -> a.eval(env) / b.eval(env);
+            case MOD: return env -> a.eval(env) % b.eval(env);
+            default: throw new IllegalArgumentException(op.name());
+        }
+    }
+
+    private static DoubleExpr doubleBinary(Op op, DoubleExpr a, DoubleExpr b) {
+        switch (op) {
+            case ADD: return env -> a.eval(env) + b.eval(env);
+            case SUB: return env -> a.eval(env) - b.eval(env);
+            case MUL: return env -> a.eval(env) * b.eval(env);
+            case DIV: return env -> a.eval(env) / b.eval(env);
+            case MOD: return env -> a.eval(env) % b.eval(env);
+            default: throw new IllegalArgumentException(op.name());
+        }
+    }
+
+    private BoolExpr intCompare(Op op, ASTNode left, ASTNode right) {
+        if (isConstant(right)) {
+            int c = Values.toInt(((Constant) right).getValue());
+            int leftSlot = intSlot(left);
+            if (leftSlot >= 0) {
+                switch (op) {
+                case EQ: return env -> env.ints[leftSlot] == c;
+                case NEQ: return env -> env.ints[leftSlot] != c;
+                case GT: return env -> env.ints[leftSlot] > c;
+                case GEQ: return env -> env.ints[leftSlot] >= c;
+                case LT: return env -> env.ints[leftSlot] < c;
+                case LEQ: return env -> env.ints[leftSlot] <= c;
+                default: throw new IllegalArgumentException(op.name());
+                }
+            }
+            IntExpr a = compileInt(left);
+            switch (op) {
+                case EQ: return env -> a.eval(env) == c;
+                case NEQ: return env -> a.eval(env) != c;
+                case GT: return env -> a.eval(env) > c;
+                case GEQ: return env -> a.eval(env) >= c;
+                case LT: return env -> a.eval(env) < c;
+                case LEQ: return env -> a.eval(env) <= c;
+                default: throw new IllegalArgumentException(op.name());
+            }
+        }
+
+        IntExpr a = compileInt(left);
+        IntExpr b = compileInt(right);
+        switch (op) {
+            case EQ: return env -> a.eval(env) == b.eval(env);
+            case NEQ: return env -> a.eval(env) != b.eval(env);
+            case GT: return env -> a.eval(env) > b.eval(env);
+            case GEQ: return env -> a.eval(env) >= b.eval(env);
+            case LT: return env -> a.eval(env) < b.eval(env);
+            case LEQ: return env -> a.eval(env) <= b.eval(env);
+            default: throw new IllegalArgumentException(op.name());
+        }
+    }
+
+    private static BoolExpr doubleCompare(Op op, DoubleExpr a, DoubleExpr b) {
+        switch (op) {
+            case EQ: return env -> a.eval(env) == b.eval(env);
+            case NEQ: return env -> a.eval(env) != b.eval(env);
+            case GT: return env -> a.eval(env) > b.eval(env);
+            case GEQ: return env -> a.eval(env) >= b.eval(env);
+            case LT: return env -> a.eval(env) < b.eval(env);
+            case LEQ: return env -> a.eval(env) <= b.eval(env);
+            default: throw new IllegalArgumentException(op.name());
+        }
+    }
+
+    // Ruta genérica (tipos desconocidos al compilar): mismas reglas que el intérprete
+    static Object arithmeticObjects(Op op, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int a = (Integer) left;
+            int b = (Integer) right;
+            switch (op) {
+                case ADD: return a + b;
+                case SUB: return a - b;
+                case MUL: return a * b;
+                case DIV: return a / b;
+                default: return a % b;
+            }
+        }
+        double a = Values.toDouble(left);
+        double b = Values.toDouble(right);
+        switch (op) {
+            case ADD: return a + b;
+            case SUB: return a - b;
+            case MUL: return a * b;
+            case DIV: return a / b;
+            default: return a % b;
+        }
+    }
+
+    static boolean compareObjects(Op op, Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            int a = (Integer) left;
+            int b = (Integer) right;
+            switch (op) {
+                case EQ: return a == b;
+                case NEQ: return a != b;
+                case GT: return a > b;
+                case GEQ: return a >= b;
+                case LT: return a < b;
+                default: return a <= b;
+            }
+        }
+        double a = Values.toDouble(left);
+        double b = Values.toDouble(right);
+        switch (op) {
+            case EQ: return a == b;
+            case NEQ: return a != b;
+            case GT: return a > b;
+            case GEQ: return a >= b;
+            case LT: return a < b;
+            default: return a <= b;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package v.engine;
+
+/**
+ * Función ya compilada: su cuerpo es una lambda y sus parámetros/locales son
+ * slots resueltos, propios de la función (no los de las globales con el mismo nombre).
+ * Guardar y restaurar esos slots en cada llamada hace de frame: lo que se llama desde el
+ * cuerpo lee las globales y una llamada recursiva no pisa los valores de la anterior.
+ */
+public final class CompiledFunction {
+    private final String name;
+    private final int[] paramSlots;
+    private final int[] localSlots;
+    private final ClosureCompiler.Stmt body;
+
+    CompiledFunction(String name, int[] paramSlots, int[] localSlots, ClosureCompiler.Stmt body) {
+        this.name = name;
+        this.paramSlots = paramSlots;
+        this.localSlots = localSlots;
+        this.body = body;
+    }
+
+    void invoke(Env env, Object[] values) {
+        if (values.length != paramSlots.length) {
+            throw new RuntimeException("Error: '" + name + "' esperaba " + paramSlots.length +
+                    " argumentos, pero se le dieron " + values.length);
+        }
+
+        Object[] saved = new Object[localSlots.length];
+        for (int i = 0; i < localSlots.length; i++) {
+            saved[i] = env.load(localSlots[i]);
+        }
+        try {
+            for (int i = 0; i < paramSlots.length; i++) {
+                env.store(paramSlots[i], values[i]);
+            }
+            body.run(env);
+        } finally {
+            for (int i = 0; i < localSlots.length; i++) {
+                env.store(localSlots[i], saved[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package v.engine;
+
+import v.ast.ValueKind;
+import v.render.RasterTarget;
+
+public final class CompiledProgram {
+    private final ClosureCompiler.Stmt body;
+    private final ValueKind[] kinds;
+
+    CompiledProgram(ClosureCompiler.Stmt body, ValueKind[] kinds) {
+        this.body = body;
+        this.kinds = kinds;
+    }
+
+    // Ejecuta el programa con variables nuevas y devuelve el estado final
+    public Env run() {
+        return run(null);
+    }
+
+    public Env run(RasterTarget target) {
+        Env env = new Env(kinds);
+        env.refs[RasterTarget.SLOT] = target;
+        body.run(env);
+        return env;
+    }
+}
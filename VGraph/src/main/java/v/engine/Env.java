@@ -0,0 +1,52 @@
+package v.engine;
+
+import v.ast.ValueKind;
+import v.ast.Values;
+import v.render.RasterTarget;
+
+/**
+ * Almacenamiento de variables del motor compilado: cada slot vive en el arreglo
+ * de su tipo estático, así las variables int/double no se guardan en caja.
+ */
+public final class Env {
+    final int[] ints;
+    final double[] doubles;
+    final Object[] refs;
+    private final ValueKind[] kinds;
+
+    Env(ValueKind[] kinds) {
+        this.kinds = kinds;
+        this.ints = new int[kinds.length];
+        this.doubles = new double[kinds.length];
+        this.refs = new Object[kinds.length];
+    }
+
+    // Acceso genérico (en caja), solo para llamadas a función y depuración
+    public Object load(int slot) {
+        switch (kinds[slot]) {
+            case INT:
+                return ints[slot];
+            case DOUBLE:
+                return doubles[slot];
+            default:
+                return refs[slot];
+        }
+    }
+
+    public void store(int slot, Object value) {
+        switch (kinds[slot]) {
+            case INT:
+                ints[slot] = Values.toInt(value);
+                break;
+            case DOUBLE:
+                doubles[slot] = Values.toDouble(value);
+                break;
+            default:
+                refs[slot] = value;
+        }
+    }
+
+    RasterTarget target() {
+        return (RasterTarget) refs[RasterTarget.SLOT];
+    }
+}
@@ -0,0 +1,278 @@
+package v.graph;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import v.ast.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arma el árbol de v.ast a partir del árbol de ANTLR. Antes esto lo hacían las acciones de
+ * la gramática en cada parse; ahora solo lo pagan los que ejecutan el programa (vista
+ * previa, motores), no la validación ni la generación de C.
+ */
+public class ASTBuilder extends VGraphBaseVisitor<ASTNode> {
+
+    // Con fastTrig, sin/cos usan la tabla de FastTrig (el mismo modo que --fast-trig en C)
+    private final boolean fastTrig;
+
+    public ASTBuilder() {
+        this(false);
+    }
+
+    public ASTBuilder(boolean fastTrig) {
+        this.fastTrig = fastTrig;
+    }
+
+    public static Program build(VGraphParser.ProgramContext tree) {
+        return build(tree, false);
+    }
+
+    public static Program build(VGraphParser.ProgramContext tree, boolean fastTrig) {
+        return (Program) new ASTBuilder(fastTrig).visit(tree);
+    }
+
+    @Override
+    public ASTNode visitProgram(VGraphParser.ProgramContext ctx) {
+        return new Program(sentences(ctx.sentence()));
+    }
+
+    @Override
+    public ASTNode visitSentence(VGraphParser.SentenceContext ctx) {
+        return visit(ctx.getChild(0));
+    }
+
+    @Override
+    public ASTNode visitPrintln(VGraphParser.PrintlnContext ctx) {
+        return new Println(visit(ctx.expression()));
+    }
+
+    @Override
+    public ASTNode visitWait_command(VGraphParser.Wait_commandContext ctx) {
+        return new WaitComm(visit(ctx.e));
+    }
+
+    @Override
+    public ASTNode visitClear_command(VGraphParser.Clear_commandContext ctx) {
+        return new ClearComm();
+    }
+
+    @Override
+    public ASTNode visitLoop_command(VGraphParser.Loop_commandContext ctx) {
+        return new LoopComm(visit(ctx.e1), visit(ctx.e2), visit(ctx.e3), sentences(ctx.e4.sentence()));
+    }
+
+    @Override
+    public ASTNode visitIncrement_loop(VGraphParser.Increment_loopContext ctx) {
+        return new VarAssign(ctx.ID().getText(), visit(ctx.expression()));
+    }
+
+    @Override
+    public ASTNode visitComparison(VGraphParser.ComparisonContext ctx) {
+        ASTNode left = visit(ctx.e1);
+        ASTNode right = visit(ctx.e2);
+        switch (((TerminalNode) ctx.getChild(1)).getSymbol().getType()) {
+            case VGraphParser.GT:
+                return new GreaterThan(left, right);
+            case VGraphParser.LT:
+                return new LessThan(left, right);
+            case VGraphParser.GEQ:
+                return new GreaterOrEqual(left, right);
+            case VGraphParser.LEQ:
+                return new LessOrEqual(left, right);
+            case VGraphParser.EQ:
+                return new Equal(left, right);
+            default:
+                return new NotEqual(left, right);
+        }
+    }
+
+    // Los cuerpos de if/elseif/else quedan todos en ctx.sentence(), así que se separan
+    // recorriendo los hijos en orden
+    @Override
+    public ASTNode visitConditional(VGraphParser.ConditionalContext ctx) {
+        List<ASTNode> ifBody = new ArrayList<>();
+        List<ConditionalBlock> elseifBlocks = new ArrayList<>();
+        List<ASTNode> elseBody = null;
+
+        List<ASTNode> current = ifBody;
+        ASTNode elseifCond = null;
+        for (ParseTree child : ctx.children) {
+            if (child instanceof TerminalNode) {
+                int type = ((TerminalNode) child).getSymbol().getType();
+                if (type == VGraphParser.ELSEIF) {
+                    current = new ArrayList<>();
+                    elseifCond = null;
+                } else if (type == VGraphParser.ELSE) {
+                    elseBody = new ArrayList<>();
+                    current = elseBody;
+                } else if (type == VGraphParser.BRACKET_CLOSE && current != ifBody && current != elseBody) {
+                    elseifBlocks.add(new ConditionalBlock(elseifCond, current));
+                }
+            } else if (child instanceof VGraphParser.ExpressionContext) {
+                if (child != ctx.cond) {
+                    elseifCond = visit(child);
+                }
+            } else if (child instanceof VGraphParser.SentenceContext) {
+                current.add(visit(child));
+            }
+        }
+        return new If(visit(ctx.cond), ifBody, elseifBlocks, elseBody);
+    }
+
+    @Override
+    public ASTNode visitFrame(VGraphParser.FrameContext ctx) {
+        return new Frame(sentences(ctx.sentence()));
+    }
+
+    @Override
+    public ASTNode visitSetcolor(VGraphParser.SetcolorContext ctx) {
+        return new Setcolor(visit(ctx.t));
+    }
+
+    @Override
+    public ASTNode visitDraw(VGraphParser.DrawContext ctx) {
+        return new shapeCall(visit(ctx.s));
+    }
+
+    @Override
+    public ASTNode visitShapeCall(VGraphParser.ShapeCallContext ctx) {
+        switch (ctx.getStart().getType()) {
+            case VGraphParser.LINE:
+                return new DrawLine(visit(ctx.a), visit(ctx.b), visit(ctx.c), visit(ctx.d));
+            case VGraphParser.RECT:
+                return new DrawRect(visit(ctx.x), visit(ctx.y), visit(ctx.w), visit(ctx.h));
+            case VGraphParser.CIRCLE:
+                return new DrawCircle(visit(ctx.x), visit(ctx.y), visit(ctx.r));
+            default:
+                return new DrawPixel(visit(ctx.x), visit(ctx.y));
+        }
+    }
+
+    @Override
+    public ASTNode visitFunction(VGraphParser.FunctionContext ctx) {
+        // ctx.ID() trae primero el nombre y después los parámetros
+        List<String> args = new ArrayList<>();
+        List<TerminalNode> ids = ctx.ID();
+        for (int i = 1; i < ids.size(); i++) {
+            args.add(ids.get(i).getText());
+        }
+        return new Function(ctx.funID.getText(), args, sentences(ctx.sentence()));
+    }
+
+    @Override
+    public ASTNode visitFunCall(VGraphParser.FunCallContext ctx) {
+        List<ASTNode> args = new ArrayList<>();
+        for (VGraphParser.ExpressionContext expression : ctx.expression()) {
+            args.add(visit(expression));
+        }
+        return new FunctionCall(ctx.funID.getText(), args);
+    }
+
+    @Override
+    public ASTNode visitVar_decl(VGraphParser.Var_declContext ctx) {
+        ASTNode type = visit(ctx.type());
+        Map<String, ASTNode> declMap = new HashMap<>();
+        if (ctx.expr != null) {
+            declMap.put(ctx.id1.getText(), visit(ctx.expr));
+            return new VarDecl2(type, declMap);
+        }
+        for (TerminalNode id : ctx.ID()) {
+            declMap.put(id.getText(), null);
+        }
+        return new VarDecl(type, declMap);
+    }
+
+    @Override
+    public ASTNode visitType(VGraphParser.TypeContext ctx) {
+        return new Type(ctx.getText());
+    }
+
+    @Override
+    public ASTNode visitVar_assign(VGraphParser.Var_assignContext ctx) {
+        return new VarAssign(ctx.idTok.getText(), visit(ctx.expr));
+    }
+
+    @Override
+    public ASTNode visitExpression(VGraphParser.ExpressionContext ctx) {
+        return visit(ctx.getChild(0));
+    }
+
+    @Override
+    public ASTNode visitOperand(VGraphParser.OperandContext ctx) {
+        ASTNode node = visit(ctx.t1);
+        for (int i = 1; i < ctx.getChildCount(); i += 2) {
+            int op = ((TerminalNode) ctx.getChild(i)).getSymbol().getType();
+            ASTNode right = visit(ctx.getChild(i + 1));
+            node = op == VGraphParser.PLUS ? new Addition(node, right) : new Subtraction(node, right);
+        }
+        return node;
+    }
+
+    @Override
+    public ASTNode visitFactor(VGraphParser.FactorContext ctx) {
+        ASTNode node = visit(ctx.t1);
+        for (int i = 1; i < ctx.getChildCount(); i += 2) {
+            int op = ((TerminalNode) ctx.getChild(i)).getSymbol().getType();
+            ASTNode right = visit(ctx.getChild(i + 1));
+            if (op == VGraphParser.MULT) {
+                node = new Multiplication(node, right);
+            } else if (op == VGraphParser.DIV) {
+                node = new Division(node, right);
+            } else {
+                node = new Modulus(node, right);
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public ASTNode visitSin(VGraphParser.SinContext ctx) {
+        return new Sin(visit(ctx.expression()), fastTrig);
+    }
+
+    @Override
+    public ASTNode visitCos(VGraphParser.CosContext ctx) {
+        return new Cos(visit(ctx.expression()), fastTrig);
+    }
+
+    // Se decide por el primer hijo en vez de preguntar por cada token (ctx.NUMBER(), ctx.ID()...),
+    // que recorre los hijos en cada llamada
+    @Override
+    public ASTNode visitTerm(VGraphParser.TermContext ctx) {
+        ParseTree first = ctx.getChild(0);
+        if (!(first instanceof TerminalNode)) {
+            return visit(first); // cos o sin
+        }
+        Token token = ((TerminalNode) first).getSymbol();
+        switch (token.getType()) {
+            case VGraphParser.NUMBER: {
+                String text = token.getText();
+                if (text.contains(".")) {
+                    return new Constant(Double.parseDouble(text));
+                }
+                return new Constant(Integer.parseInt(text));
+            }
+            case VGraphParser.COLOR_VALUES:
+                return new Constant(new vColor(token.getText()));
+            case VGraphParser.BOOLEAN:
+                return new Constant(Boolean.parseBoolean(token.getText()));
+            case VGraphParser.ID:
+                return new VarRef(token.getText());
+            default:
+                return visit(ctx.expression()); // ( expression )
+        }
+    }
+
+    private List<ASTNode> sentences(List<VGraphParser.SentenceContext> contexts) {
+        List<ASTNode> list = new ArrayList<>();
+        for (VGraphParser.SentenceContext sentence : contexts) {
+            list.add(visit(sentence));
+        }
+        return list;
+    }
+}
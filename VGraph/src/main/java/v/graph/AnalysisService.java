@@ -0,0 +1,146 @@
+package v.graph;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Análisis mientras se escribe: cada cambio del documento reprograma una compilación
+ * (IncrementalCompiler) en un hilo aparte, que corre cuando se deja de escribir por
+ * delayMs. Cada cambio sube la generación, así que un análisis que terminó con un texto
+ * viejo se descarta en vez de pintar errores en líneas que ya no corresponden.
+ *
+ * El botón Compile también pasa por acá (compileNow): el compilador solo se usa desde el
+ * hilo de análisis, así que el EDT nunca espera a que termine un análisis en curso.
+ */
+public class AnalysisService {
+
+    // Resultado de compileNow
+    public static final class Compilation {
+        public final List<String> errors;
+        public final int reparsed;
+        public final int sentences;
+        public final RuntimeException failure;
+        // false si el texto cambió mientras se compilaba: las líneas de los errores pueden no
+        // ser las del editor
+        public boolean current;
+
+        Compilation(List<String> errors, int reparsed, int sentences, RuntimeException failure) {
+            this.errors = errors;
+            this.reparsed = reparsed;
+            this.sentences = sentences;
+            this.failure = failure;
+        }
+    }
+
+    private final Document document;
+    private final IncrementalCompiler compiler;
+    private final long delayMs;
+    private final Consumer<List<String>> onResult;   // se llama en el EDT
+    private final AtomicLong generation = new AtomicLong();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> pending;
+
+    public AnalysisService(Document document, IncrementalCompiler compiler, long delayMs,
+                           Consumer<List<String>> onResult) {
+        this.document = document;
+        this.compiler = compiler;
+        this.delayMs = delayMs;
+        this.onResult = onResult;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vgraph-analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Llamar desde el EDT en cada cambio del documento
+    public void schedule() {
+        long current = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(() -> analyze(current), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Llamar desde el EDT con el texto actual del editor. Corre después del análisis que esté
+    // en curso y reemplaza al programado, que analizaría el mismo texto. onCompiled se llama en
+    // el EDT.
+    public void compileNow(String text, Consumer<Compilation> onCompiled) {
+        long current = generation.get();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        executor.execute(() -> {
+            List<String> errors = List.of();
+            int reparsed = 0;
+            int sentences = 0;
+            RuntimeException failure = null;
+            try {
+                errors = compiler.compile(text);
+                reparsed = compiler.getReparsedCount();
+                sentences = compiler.getSentenceCount();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            deliver(new Compilation(errors, reparsed, sentences, failure), current, onCompiled);
+        });
+    }
+
+    private void deliver(Compilation result, long current, Consumer<Compilation> onCompiled) {
+        SwingUtilities.invokeLater(() -> {
+            result.current = generation.get() == current;
+            if (result.current && result.failure == null) {
+                onResult.accept(result.errors);
+            }
+            onCompiled.accept(result);
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void analyze(long current) {
+        if (generation.get() != current) {
+            return;
+        }
+
+        String[] text = new String[1];
+        document.render(() -> {
+            try {
+                text[0] = document.getText(0, document.getLength());
+            } catch (BadLocationException e) {
+                text[0] = null;
+            }
+        });
+        if (text[0] == null) {
+            return;
+        }
+
+        List<String> errors;
+        try {
+            if (text[0].trim().isEmpty()) {
+                errors = List.of();
+            } else {
+                errors = compiler.compile(text[0]);
+            }
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() == current) {
+                onResult.accept(errors);
+            }
+        });
+    }
+}
@@ -0,0 +1,407 @@
+package v.graph;
+
+import v.ast.FastTrig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Expresión tipada entre el árbol de ANTLR y el texto C que genera VGraphCustomVisitor.
+ * Las fábricas (binary, compare, call) pliegan lo que se puede calcular en tiempo de
+ * compilación con las reglas de C (int / int trunca, un double vuelve double a la
+ * operación) y simplifican identidades como x * 1 o x + 0 cuando no cambian el tipo.
+ */
+public abstract class CExpr {
+
+    public enum Type { INT, DOUBLE, COLOR }
+
+    // Precedencias para no poner más paréntesis de los necesarios al imprimir
+    private static final int ADDITIVE = 1;
+    private static final int MULTIPLICATIVE = 2;
+    private static final int ATOM = 3;
+
+    public final Type type;
+
+    private CExpr(Type type) {
+        this.type = type;
+    }
+
+    public abstract String toC();
+
+    abstract int precedence();
+
+    // Nombres (ya resueltos para C) de las variables que lee la expresión
+    public abstract void collectVars(Set<String> vars);
+
+    // true si evaluarla puede abortar el programa (división entera por algo que no es
+    // una constante distinta de cero); esas no se adelantan fuera de un loop
+    public abstract boolean canTrap();
+
+    public boolean isConstant() {
+        return false;
+    }
+
+    // Constantes y variables: no vale la pena guardarlas en un temporal
+    public boolean isTrivial() {
+        return true;
+    }
+
+    // ===== Nodos =====
+
+    public static final class Const extends CExpr {
+        public final Object value; // Integer, Double o el nombre del color
+
+        private Const(Type type, Object value) {
+            super(type);
+            this.value = value;
+        }
+
+        double asDouble() {
+            return ((Number) value).doubleValue();
+        }
+
+        boolean is(int n) {
+            return type != Type.COLOR && asDouble() == n;
+        }
+
+        @Override
+        public String toC() {
+            if (type == Type.COLOR) {
+                return "\"" + value + "\"";
+            }
+            if (type == Type.DOUBLE) {
+                // Double.toString siempre deja un punto o exponente, así C lo lee como double
+                return Double.toString((Double) value);
+            }
+            return value.toString();
+        }
+
+        @Override
+        int precedence() {
+            return ATOM;
+        }
+
+        @Override
+        public void collectVars(Set<String> vars) {
+        }
+
+        @Override
+        public boolean canTrap() {
+            return false;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+    }
+
+    public static final class Var extends CExpr {
+        public final String name;
+
+        private Var(String name, Type type) {
+            super(type);
+            this.name = name;
+        }
+
+        @Override
+        public String toC() {
+            return name;
+        }
+
+        @Override
+        int precedence() {
+            return ATOM;
+        }
+
+        @Override
+        public void collectVars(Set<String> vars) {
+            vars.add(name);
+        }
+
+        @Override
+        public boolean canTrap() {
+            return false;
+        }
+    }
+
+    public static final class Binary extends CExpr {
+        public final char op; // + - * / %
+        public final CExpr left;
+        public final CExpr right;
+
+        private Binary(Type type, char op, CExpr left, CExpr right) {
+            super(type);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toC() {
+            int own = precedence();
+            // El operando derecho con la misma precedencia lleva paréntesis: a - (b - c)
+            String l = left.precedence() < own ? "(" + left.toC() + ")" : left.toC();
+            String r = right.precedence() <= own ? "(" + right.toC() + ")" : right.toC();
+            return l + " " + op + " " + r;
+        }
+
+        @Override
+        int precedence() {
+            return op == '+' || op == '-' ? ADDITIVE : MULTIPLICATIVE;
+        }
+
+        @Override
+        public void collectVars(Set<String> vars) {
+            left.collectVars(vars);
+            right.collectVars(vars);
+        }
+
+        @Override
+        public boolean canTrap() {
+            if ((op == '/' || op == '%') && type == Type.INT
+                    && !(right instanceof Const && !((Const) right).is(0))) {
+                return true;
+            }
+            return left.canTrap() || right.canTrap();
+        }
+
+        @Override
+        public boolean isTrivial() {
+            return false;
+        }
+    }
+
+    public static final class Compare extends CExpr {
+        public final String op;
+        public final CExpr left;
+        public final CExpr right;
+
+        private Compare(String op, CExpr left, CExpr right) {
+            super(Type.INT);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toC() {
+            return "(" + left.toC() + " " + op + " " + right.toC() + ")";
+        }
+
+        @Override
+        int precedence() {
+            return ATOM;
+        }
+
+        @Override
+        public void collectVars(Set<String> vars) {
+            left.collectVars(vars);
+            right.collectVars(vars);
+        }
+
+        @Override
+        public boolean canTrap() {
+            return left.canTrap() || right.canTrap();
+        }
+
+        @Override
+        public boolean isTrivial() {
+            return false;
+        }
+    }
+
+    public static final class Call extends CExpr {
+        public final String function; // sin, cos, fast_sin, fast_cos o una fx_* del modo punto fijo
+        public final List<CExpr> arguments;
+
+        private Call(Type type, String function, List<CExpr> arguments) {
+            super(type);
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public String toC() {
+            StringBuilder sb = new StringBuilder(function).append("(");
+            for (int i = 0; i < arguments.size(); i++) {
+                sb.append(i > 0 ? ", " : "").append(arguments.get(i).toC());
+            }
+            return sb.append(")").toString();
+        }
+
+        @Override
+        int precedence() {
+            return ATOM;
+        }
+
+        @Override
+        public void collectVars(Set<String> vars) {
+            for (CExpr argument : arguments) {
+                argument.collectVars(vars);
+            }
+        }
+
+        @Override
+        public boolean canTrap() {
+            for (CExpr argument : arguments) {
+                if (argument.canTrap()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isTrivial() {
+            return false;
+        }
+    }
+
+    // ===== Fábricas =====
+
+    public static CExpr constant(int value) {
+        return new Const(Type.INT, value);
+    }
+
+    public static CExpr constant(double value) {
+        return new Const(Type.DOUBLE, value);
+    }
+
+    public static CExpr color(String name) {
+        return new Const(Type.COLOR, name);
+    }
+
+    public static CExpr var(String name, Type type) {
+        return new Var(name, type);
+    }
+
+    public static CExpr binary(char op, CExpr left, CExpr right) {
+        if (left.type == Type.COLOR || right.type == Type.COLOR) {
+            return new Binary(Type.INT, op, left, right);
+        }
+        Type type = left.type == Type.DOUBLE || right.type == Type.DOUBLE ? Type.DOUBLE : Type.INT;
+
+        if (left instanceof Const && right instanceof Const) {
+            CExpr folded = fold(op, type, (Const) left, (Const) right);
+            if (folded != null) {
+                return folded;
+            }
+        }
+
+        // Identidades: solo si el resultado queda con el mismo tipo (x * 1.0 con x int es double)
+        if (right instanceof Const) {
+            Const c = (Const) right;
+            boolean sameType = c.type == Type.INT || left.type == Type.DOUBLE;
+            if (sameType && ((op == '+' || op == '-') && c.is(0) || (op == '*' || op == '/') && c.is(1))) {
+                return left;
+            }
+            if (op == '*' && c.is(0) && type == Type.INT && !left.canTrap()) {
+                return constant(0);
+            }
+        }
+        if (left instanceof Const) {
+            Const c = (Const) left;
+            boolean sameType = c.type == Type.INT || right.type == Type.DOUBLE;
+            if (sameType && (op == '+' && c.is(0) || op == '*' && c.is(1))) {
+                return right;
+            }
+            if (op == '*' && c.is(0) && type == Type.INT && !right.canTrap()) {
+                return constant(0);
+            }
+        }
+        return new Binary(type, op, left, right);
+    }
+
+    // null si no se puede plegar sin cambiar lo que haría C (división por cero, desborde...)
+    private static CExpr fold(char op, Type type, Const left, Const right) {
+        if (type == Type.INT) {
+            int a = (Integer) left.value;
+            int b = (Integer) right.value;
+            long result;
+            switch (op) {
+                case '+': result = (long) a + b; break;
+                case '-': result = (long) a - b; break;
+                case '*': result = (long) a * b; break;
+                case '/': if (b == 0) return null; result = (long) a / b; break;
+                default:  if (b == 0) return null; result = (long) a % b; break;
+            }
+            // Integer.MIN_VALUE tampoco: en C "-2147483648" no es un literal int
+            if (result <= Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+                return null;
+            }
+            return constant((int) result);
+        }
+
+        double a = left.asDouble();
+        double b = right.asDouble();
+        double result;
+        switch (op) {
+            case '+': result = a + b; break;
+            case '-': result = a - b; break;
+            case '*': result = a * b; break;
+            case '/': result = a / b; break;
+            default:  return null; // % con double no compila en C; que lo diga gcc
+        }
+        return Double.isFinite(result) ? constant(result) : null;
+    }
+
+    public static CExpr compare(String op, CExpr left, CExpr right) {
+        if (left instanceof Const && right instanceof Const
+                && left.type != Type.COLOR && right.type != Type.COLOR) {
+            double a = ((Const) left).asDouble();
+            double b = ((Const) right).asDouble();
+            boolean result;
+            switch (op) {
+                case ">":  result = a > b; break;
+                case "<":  result = a < b; break;
+                case ">=": result = a >= b; break;
+                case "<=": result = a <= b; break;
+                case "==": result = a == b; break;
+                default:   result = a != b; break;
+            }
+            return constant(result ? 1 : 0);
+        }
+        return new Compare(op, left, right);
+    }
+
+    // Solo se pliega lo que da el mismo double que en la placa: fast_sin/fast_cos usan el
+    // mismo algoritmo y la misma tabla que graphics.c (hasta FastTrig.LIMIT, donde pasan a
+    // libm). sin/cos de libm no se pueden reproducir bit a bit desde Java, así que quedan
+    // como llamada; en un loop el hoisting igual las calcula una sola vez
+    public static CExpr call(String function, CExpr argument) {
+        if (argument instanceof Const && argument.type != Type.COLOR && function.startsWith("fast_")) {
+            double x = ((Const) argument).asDouble();
+            if (Math.abs(x) <= FastTrig.LIMIT) {
+                return constant(function.equals("fast_sin") ? FastTrig.sin(x) : FastTrig.cos(x));
+            }
+        }
+        return new Call(Type.DOUBLE, function, List.of(argument));
+    }
+
+    // Llamada a una función int de graphics.h (las fx_* del modo punto fijo); no se pliega
+    public static CExpr intrinsic(String function, CExpr... arguments) {
+        return new Call(Type.INT, function, Arrays.asList(arguments));
+    }
+
+    // Reconstruye el nodo con otros hijos (para reemplazar subexpresiones por temporales)
+    public CExpr withChildren(java.util.function.UnaryOperator<CExpr> mapper) {
+        if (this instanceof Binary) {
+            Binary b = (Binary) this;
+            return binary(b.op, mapper.apply(b.left), mapper.apply(b.right));
+        }
+        if (this instanceof Compare) {
+            Compare c = (Compare) this;
+            return compare(c.op, mapper.apply(c.left), mapper.apply(c.right));
+        }
+        if (this instanceof Call) {
+            Call c = (Call) this;
+            if (c.type == Type.DOUBLE) {
+                return call(c.function, mapper.apply(c.arguments.get(0)));
+            }
+            return intrinsic(c.function, c.arguments.stream().map(mapper).toArray(CExpr[]::new));
+        }
+        return this;
+    }
+}
@@ -0,0 +1,145 @@
+package v.graph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Caché de compilaciones para "Run on FPGA". La clave es un SHA-256 del código fuente,
+ * de graphics.c/graphics.h, de los flags de gcc y de la placa destino (usuario, host,
+ * puerto y carpeta remota); si coincide, el binario cache/main_&lt;clave&gt; que ya está en
+ * la FPGA sirve tal cual y no hace falta generar, copiar ni compilar nada.
+ *
+ * Localmente se guarda el .c generado de cada entrada (&lt;clave&gt;.c) y la fecha de
+ * modificación hace de orden LRU. evictions() dice qué claves desalojaría una entrada nueva
+ * sin tocar nada, para borrar sus binarios en la placa en el mismo comando que compila;
+ * put() recién se llama cuando esa compilación anduvo, y desaloja esas mismas claves.
+ */
+public class CompileCache {
+    private static final String SUFFIX = ".c";
+
+    private final Path dir;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    public CompileCache(Path dir, int maxEntries, long maxBytes) {
+        this.dir = dir;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+    }
+
+    public static String key(String source, Path graphicsC, Path graphicsH, String flags, String target)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // Cada parte va precedida de su largo para que no se puedan correr los límites
+        update(digest, source.getBytes(StandardCharsets.UTF_8));
+        update(digest, Files.exists(graphicsC) ? Files.readAllBytes(graphicsC) : new byte[0]);
+        update(digest, Files.exists(graphicsH) ? Files.readAllBytes(graphicsH) : new byte[0]);
+        update(digest, flags.getBytes(StandardCharsets.UTF_8));
+        update(digest, target.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    public boolean contains(String key) {
+        return Files.exists(entry(key));
+    }
+
+    // Marca la entrada como la usada más recientemente
+    public void touch(String key) throws IOException {
+        Files.setLastModifiedTime(entry(key), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    // Guarda el .c de una compilación nueva y devuelve las claves que hubo que desalojar
+    // (las mismas que evictions() daba antes de guardarla)
+    public List<String> put(String key, String code) throws IOException {
+        List<String> evicted = evictions(key, code);
+        Files.createDirectories(dir);
+        Files.write(entry(key), code.getBytes(StandardCharsets.UTF_8));
+        touch(key);
+        for (String old : evicted) {
+            Files.deleteIfExists(entry(old));
+        }
+        return evicted;
+    }
+
+    // Las claves que put(key, code) desalojaría, de la más vieja a la más nueva. No cambia nada.
+    public List<String> evictions(String key, String code) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        // entries() viene de la más vieja a la más nueva; la entrada nueva nunca se desaloja
+        List<Path> entries = entries();
+        entries.remove(entry(key));
+        int count = entries.size() + 1;
+        long bytes = code.getBytes(StandardCharsets.UTF_8).length;
+        for (Path path : entries) {
+            bytes += Files.size(path);
+        }
+
+        List<String> evicted = new ArrayList<>();
+        for (Path path : entries) {
+            if (count <= maxEntries && bytes <= maxBytes) {
+                break;
+            }
+            bytes -= Files.size(path);
+            count--;
+            evicted.add(keyOf(path));
+        }
+        return evicted;
+    }
+
+    public void remove(String key) throws IOException {
+        Files.deleteIfExists(entry(key));
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparingLong(CompileCache::lastModified)
+                            .thenComparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private static String keyOf(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - SUFFIX.length());
+    }
+}
@@ -0,0 +1,141 @@
+package v.graph;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Placa emulada: compila generated/main.c con gcc local contra graphics_emu.c, que dibuja
+ * en un archivo mapeado en memoria en vez de /dev/fb0, y lee ese archivo para mostrarlo.
+ * El formato del archivo está descrito en graphics_emu.c.
+ */
+public class EmulatedTarget {
+    private static final int MAGIC = 0x42464756; // "VGFB"
+    private static final int HEADER_WORDS = 8;
+    private static final String BINARY = "emu_main";
+    private static final String FRAMEBUFFER_FILE = "framebuffer.raw";
+
+    private final Path dir;
+    private final List<String> cc;
+    private final String cflags;
+    private final String libs;
+    private final int width;
+    private final int height;
+
+    private IntBuffer words;
+
+    public EmulatedTarget(Path dir, String cc, String cflags, String libs, int width, int height) {
+        this.dir = dir;
+        this.cc = Arrays.asList(cc.trim().split("\\s+"));
+        this.cflags = cflags;
+        this.libs = libs;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static EmulatedTarget fromConfig(Path dir, Properties config) {
+        return new EmulatedTarget(dir,
+                config.getProperty("emu.cc", "gcc"),
+                config.getProperty("emu.cflags", "-O2"),
+                config.getProperty("compile.flags", "-lm"),
+                Integer.parseInt(config.getProperty("emu.width", "640")),
+                Integer.parseInt(config.getProperty("emu.height", "480")));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Compila main.c + graphics.c + graphics_emu.c; si gcc falla, la excepción trae su salida
+    public void build() throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(cc);
+        command.addAll(split(cflags));
+        command.addAll(List.of("-DVGRAPH_EMU", "main.c", "graphics.c", "graphics_emu.c", "-o", BINARY));
+        command.addAll(split(libs));
+        Process process = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IOException("gcc failed:\n" + output);
+        }
+    }
+
+    private static List<String> split(String flags) {
+        return flags.isBlank() ? List.of() : Arrays.asList(flags.trim().split("\\s+"));
+    }
+
+    // Arranca el binario; el archivo viejo se borra para no mostrar el framebuffer anterior
+    public Process start() throws IOException {
+        words = null;
+        Files.deleteIfExists(dir.resolve(FRAMEBUFFER_FILE));
+        ProcessBuilder pb = new ProcessBuilder("./" + BINARY).directory(dir.toFile());
+        pb.environment().put("VGRAPH_FB_FILE", FRAMEBUFFER_FILE);
+        pb.environment().put("VGRAPH_FB_WIDTH", Integer.toString(width));
+        pb.environment().put("VGRAPH_FB_HEIGHT", Integer.toString(height));
+        return pb.start();
+    }
+
+    // El archivo se mapea recién cuando el programa terminó de inicializarlo
+    private boolean map() {
+        if (words != null) {
+            return true;
+        }
+        Path file = dir.resolve(FRAMEBUFFER_FILE);
+        long size = 4L * HEADER_WORDS + 8L * width * height;
+        try {
+            if (!Files.exists(file) || Files.size(file) < size) {
+                return false;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                IntBuffer mapped = buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+                if (mapped.get(0) != MAGIC || mapped.get(1) != width || mapped.get(2) != height) {
+                    return false;
+                }
+                words = mapped;
+                return true;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Copia la página visible a image (TYPE_INT_RGB de width x height); false si aún no hay nada
+    public boolean snapshot(BufferedImage image) {
+        if (!map()) {
+            return false;
+        }
+        int stride = words.get(3) / 4;
+        int page = words.get(4);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        IntBuffer rows = words.duplicate();
+        for (int y = 0; y < height; y++) {
+            rows.position(HEADER_WORDS + (page + y) * stride);
+            rows.get(pixels, y * width, width);
+        }
+        return true;
+    }
+
+    // Frames presentados con frame { } desde que arrancó el programa
+    public int getFrames() {
+        return map() ? words.get(5) : 0;
+    }
+}
@@ -0,0 +1,118 @@
+package v.graph;
+
+/**
+ * Modo punto fijo del generador de C (vgraph --fixed-point): los double del programa pasan a
+ * ser fixed_t, enteros de 32 bits con fracBits bits de fracción (Q16.16 por defecto), y las
+ * operaciones entre ellos pasan a ser las fx_* de graphics.h, que saturan en vez de desbordar.
+ *
+ * Trabaja sobre el CExpr ya tipado y plegado: un nodo DOUBLE pasa a ser el entero escalado
+ * (tipo INT en el árbol nuevo) y donde C convertía solo entre int y double se pone
+ * fx_from_int o fx_to_int. Las constantes se convierten acá con las mismas reglas.
+ */
+final class FixedPoint {
+    static final int DEFAULT_FRAC_BITS = 16;
+    static final int MIN_FRAC_BITS = 1;
+    // Con más de 24 la parte entera no llega ni a ±128, poco para coordenadas de pantalla
+    static final int MAX_FRAC_BITS = 24;
+
+    // Rango simétrico, igual que FX_MIN/FX_MAX: negar un valor nunca desborda
+    private static final long MAX = Integer.MAX_VALUE;
+    private static final long MIN = -Integer.MAX_VALUE;
+
+    final int fracBits;
+
+    FixedPoint(int fracBits) {
+        if (fracBits < MIN_FRAC_BITS || fracBits > MAX_FRAC_BITS) {
+            throw new IllegalArgumentException("Bits de fracción fuera de rango (" + MIN_FRAC_BITS + "-"
+                    + MAX_FRAC_BITS + "): " + fracBits);
+        }
+        this.fracBits = fracBits;
+    }
+
+    // La expresión como valor de tipo type ("int", "double", o "" si no importa): lo que
+    // en C hacía la conversión implícita al asignar o pasar un argumento
+    CExpr convert(CExpr expr, String type) {
+        switch (type) {
+            case "int":    return toInt(expr);
+            case "double": return toFixed(expr);
+            default:       return lower(expr);
+        }
+    }
+
+    // Sin conversión: lo DOUBLE queda en punto fijo y lo demás como está (así sirve como
+    // condición: el valor escalado es distinto de cero cuando el double lo era)
+    CExpr lower(CExpr expr) {
+        return expr.type == CExpr.Type.DOUBLE ? fixed(expr) : integer(expr);
+    }
+
+    private CExpr toFixed(CExpr expr) {
+        if (expr.type == CExpr.Type.DOUBLE) {
+            return fixed(expr);
+        }
+        if (expr instanceof CExpr.Const && expr.type == CExpr.Type.INT) {
+            return CExpr.constant(raw(((CExpr.Const) expr).asDouble()));
+        }
+        return CExpr.intrinsic("fx_from_int", integer(expr));
+    }
+
+    // fx_to_int trunca hacia cero, igual que la conversión de double a int de C
+    private CExpr toInt(CExpr expr) {
+        if (expr.type != CExpr.Type.DOUBLE) {
+            return integer(expr);
+        }
+        if (expr instanceof CExpr.Const) {
+            return CExpr.constant((int) ((CExpr.Const) expr).asDouble());
+        }
+        return CExpr.intrinsic("fx_to_int", fixed(expr));
+    }
+
+    private CExpr fixed(CExpr expr) {
+        if (expr instanceof CExpr.Const) {
+            return CExpr.constant(raw(((CExpr.Const) expr).asDouble()));
+        }
+        if (expr instanceof CExpr.Var) {
+            return CExpr.var(((CExpr.Var) expr).name, CExpr.Type.INT);
+        }
+        if (expr instanceof CExpr.Binary) {
+            CExpr.Binary b = (CExpr.Binary) expr;
+            CExpr left = toFixed(b.left);
+            CExpr right = toFixed(b.right);
+            switch (b.op) {
+                case '+': return CExpr.intrinsic("fx_add", left, right);
+                case '-': return CExpr.intrinsic("fx_sub", left, right);
+                case '*': return CExpr.intrinsic("fx_mul", left, right);
+                case '/': return CExpr.intrinsic("fx_div", left, right);
+                // Con la misma escala en los dos lados, el resto entero es el fmod escalado
+                default:  return CExpr.binary('%', left, right);
+            }
+        }
+        if (expr instanceof CExpr.Call) {
+            CExpr.Call c = (CExpr.Call) expr;
+            String function = c.function.endsWith("sin") ? "fx_sin" : "fx_cos";
+            return CExpr.intrinsic(function, toFixed(c.arguments.get(0)));
+        }
+        throw new IllegalStateException("Expresión double sin equivalente en punto fijo: " + expr.toC());
+    }
+
+    private CExpr integer(CExpr expr) {
+        if (expr instanceof CExpr.Binary) {
+            CExpr.Binary b = (CExpr.Binary) expr;
+            return CExpr.binary(b.op, lower(b.left), lower(b.right));
+        }
+        if (expr instanceof CExpr.Compare) {
+            CExpr.Compare c = (CExpr.Compare) expr;
+            // Si un lado es double se comparan los dos escalados
+            if (c.left.type == CExpr.Type.DOUBLE || c.right.type == CExpr.Type.DOUBLE) {
+                return CExpr.compare(c.op, toFixed(c.left), toFixed(c.right));
+            }
+            return CExpr.compare(c.op, integer(c.left), integer(c.right));
+        }
+        return expr;
+    }
+
+    // Constante en formato Q: redondeada al más cercano y saturada como fx_saturate
+    int raw(double value) {
+        double scaled = Math.rint(value * (1L << fracBits));
+        return (int) Math.max(MIN, Math.min(MAX, scaled));
+    }
+}
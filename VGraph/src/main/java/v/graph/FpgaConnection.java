@@ -0,0 +1,225 @@
+package v.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conexión con la placa para copiar, compilar y ejecutar. En vez de abrir una sesión SSH
+ * nueva por cada scp/ssh (un handshake completo cada vez), se levanta una sola conexión
+ * maestra de OpenSSH (ControlMaster) y los demás comandos viajan multiplexados por su
+ * socket (ControlPath). La maestra queda viva ControlPersist segundos después del último uso.
+ *
+ * Los comandos ssh, scp y sshpass se leen de la configuración (fpga.ssh.command,
+ * fpga.scp.command, fpga.sshpass.command), así se puede apuntar a un sshd local o a un
+ * script que lo imite. Si fpga.password está vacío no se usa sshpass (autenticación por clave).
+ *
+ * connect y upload esperan con tiempo límite y, si fallan, tiran IOException con lo que
+ * ssh/scp escribieron en stderr, para que el IDE pueda mostrar por qué.
+ */
+public class FpgaConnection {
+
+    private final String user;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final List<String> ssh;
+    private final List<String> scp;
+    private final List<String> sshpass;
+    private final String controlPath;
+    private final int persistSeconds;
+    private final int connectTimeout;
+
+    public FpgaConnection(String user, String host, int port, String password, String sshCommand,
+                          String scpCommand, String sshpassCommand, String controlPath, int persistSeconds,
+                          int connectTimeout) {
+        this.user = user;
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.ssh = split(sshCommand);
+        this.scp = split(scpCommand);
+        this.sshpass = split(sshpassCommand);
+        this.controlPath = controlPath;
+        this.persistSeconds = persistSeconds;
+        this.connectTimeout = connectTimeout;
+    }
+
+    public static FpgaConnection fromConfig(Properties config) {
+        // %C es un hash de usuario, host y puerto: corto, para no pasar el límite de largo de un socket
+        String defaultControlPath = System.getProperty("java.io.tmpdir") + File.separator + "vgraph-ssh-%C";
+        return new FpgaConnection(
+                config.getProperty("fpga.user"),
+                config.getProperty("fpga.host"),
+                Integer.parseInt(config.getProperty("fpga.port", "22")),
+                config.getProperty("fpga.password", ""),
+                config.getProperty("fpga.ssh.command", "ssh"),
+                config.getProperty("fpga.scp.command", "scp"),
+                config.getProperty("fpga.sshpass.command", "sshpass"),
+                config.getProperty("fpga.ssh.control.path", defaultControlPath),
+                Integer.parseInt(config.getProperty("fpga.ssh.persist", "600")),
+                Integer.parseInt(config.getProperty("fpga.ssh.timeout", "5")));
+    }
+
+    private static List<String> split(String command) {
+        return Arrays.asList(command.trim().split("\\s+"));
+    }
+
+    public String getTarget() {
+        return user + "@" + host + ":" + port;
+    }
+
+    // Abre la conexión maestra si no hay una viva. Es lo único que paga el handshake.
+    // ConnectTimeout solo cubre la conexión TCP: se da otro tanto para autenticar.
+    public synchronized void connect() throws IOException, InterruptedException {
+        if (isConnected()) {
+            return;
+        }
+        List<String> command = sshCommand("yes");
+        command.addAll(List.of("-o", "ControlPersist=" + persistSeconds, "-f", "-N", user + "@" + host));
+        execute("ssh", command, 2L * connectTimeout);
+        if (!isConnected()) {
+            throw new IOException("ssh exited but the shared connection is not up");
+        }
+    }
+
+    // El handshake corre en segundo plano mientras se valida y se genera el código; si falla
+    // el future termina con la IOException de connect
+    public CompletableFuture<Void> connectAsync() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                connect();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    public boolean isConnected() throws IOException, InterruptedException {
+        return control("check") == 0;
+    }
+
+    // Cierra la conexión maestra (también se cierra sola al vencer ControlPersist)
+    public void close() {
+        try {
+            control("exit");
+        } catch (IOException e) {
+            // No había maestra o ssh no está disponible: no hay nada que cerrar
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int control(String operation) throws IOException, InterruptedException {
+        List<String> command = sshCommand("no");
+        command.addAll(List.of("-O", operation, user + "@" + host));
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(connectTimeout, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    // Arranca un comando remoto por la conexión compartida; la salida queda en el Process
+    public Process start(String remoteCommand) throws IOException {
+        List<String> command = sshCommand("no");
+        command.add(user + "@" + host);
+        command.add(remoteCommand);
+        return new ProcessBuilder(withPassword(command)).start();
+    }
+
+    // Ejecuta un comando remoto y devuelve su código de salida, o -1 si venció el tiempo
+    public int run(String remoteCommand, long timeoutSeconds) throws IOException, InterruptedException {
+        List<String> command = sshCommand("no");
+        command.add(user + "@" + host);
+        command.add(remoteCommand);
+        Process process = new ProcessBuilder(withPassword(command))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    // Copia los archivos a remoteDir en una sola llamada de scp
+    public void upload(List<String> localFiles, String remoteDir, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(scp);
+        command.addAll(options("no"));
+        command.addAll(List.of("-P", Integer.toString(port)));
+        command.addAll(localFiles);
+        command.add(user + "@" + host + ":" + remoteDir + "/");
+        execute("scp", command, timeoutSeconds);
+    }
+
+    // stderr va a un archivo y no a un pipe: con -f la maestra queda en segundo plano con
+    // stderr abierto y leer un pipe no terminaría nunca. Tampoco hace falta un hilo lector.
+    private void execute(String name, List<String> command, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        Path stderr = Files.createTempFile("vgraph-" + name, ".err");
+        try {
+            Process process = new ProcessBuilder(withPassword(command))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(stderr.toFile())
+                    .start();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException(name + " timed out after " + timeoutSeconds + " s" + details(stderr));
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException(name + " failed with exit code " + process.exitValue() + details(stderr));
+            }
+        } finally {
+            Files.deleteIfExists(stderr);
+        }
+    }
+
+    private static String details(Path stderr) throws IOException {
+        String text = new String(Files.readAllBytes(stderr), StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? "" : ":\n" + text;
+    }
+
+    // Con ControlMaster=no, si la maestra se cayó ssh se conecta directo en vez de fallar
+    private List<String> sshCommand(String master) {
+        List<String> command = new ArrayList<>(ssh);
+        command.addAll(options(master));
+        command.addAll(List.of("-p", Integer.toString(port)));
+        return command;
+    }
+
+    private List<String> options(String master) {
+        return new ArrayList<>(List.of(
+                "-o", "ControlMaster=" + master,
+                "-o", "ControlPath=" + controlPath,
+                "-o", "ConnectTimeout=" + connectTimeout));
+    }
+
+    private List<String> withPassword(List<String> command) {
+        if (password == null || password.isEmpty()) {
+            return command;
+        }
+        List<String> full = new ArrayList<>(sshpass);
+        full.addAll(List.of("-p", password));
+        full.addAll(command);
+        return full;
+    }
+}
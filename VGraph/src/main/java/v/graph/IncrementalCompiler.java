@@ -0,0 +1,407 @@
+package v.graph;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sesión de compilación del editor. Guarda el texto anterior partido en sentencias de
+ * primer nivel; cuando cambia, vuelve a tokenizar desde la sentencia editada solo hasta
+ * que los límites coinciden otra vez con los de antes, y parsea únicamente las sentencias
+ * nuevas. Cada sentencia se parsea sola con líneas relativas, así que si solo se corre de
+ * lugar se reutiliza tal cual.
+ *
+ * La validación semántica se guarda por sentencia (SemanticValidator.Trace) y se repite
+ * sin recorrer el árbol mientras las variables y funciones que leyó no cambien.
+ */
+public class IncrementalCompiler {
+
+    private static final class Segment {
+        int start;      // índice del primer token (en code points)
+        int stop;       // índice del último caracter del último token
+        int line;       // línea y columna del primer token
+        int column;
+        VGraphParser.SentenceContext tree;
+        final List<SyntaxError> lexerErrors = new ArrayList<>();
+        final List<SyntaxError> parserErrors = new ArrayList<>();
+        // Errores léxicos entre el final de esta sentencia y la siguiente: ningún segmento
+        // los vuelve a tokenizar
+        final List<SyntaxError> trailingErrors = new ArrayList<>();
+        SemanticValidator.Trace trace;
+    }
+
+    // Error de sintaxis con la posición relativa a su segmento
+    private static final class SyntaxError {
+        final int line;
+        final int column;
+        final String message;
+
+        SyntaxError(int line, int column, String message) {
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+    }
+
+    // Error léxico visto al partir el texto, con su índice para saber si cayó dentro de un segmento
+    private static final class LexerError {
+        final int index;
+        final int line;
+        final int column;
+        final String message;
+
+        LexerError(int index, int line, int column, String message) {
+            this.index = index;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+    }
+
+    private static final class Collector extends BaseErrorListener {
+        private final List<SyntaxError> errors;
+
+        Collector(List<SyntaxError> errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                                int line, int charPositionInLine, String msg, RecognitionException e) {
+            errors.add(new SyntaxError(line, charPositionInLine, msg));
+        }
+    }
+
+    private int[] text = new int[0];
+    private List<Segment> segments = new ArrayList<>();
+    // Errores léxicos antes de la primera sentencia, en posición absoluta
+    private final List<SyntaxError> leadingErrors = new ArrayList<>();
+    private int reparsed;
+    private int revalidated;
+
+    // Devuelve los errores léxicos, sintácticos y semánticos, en ese orden, con el mismo
+    // formato que los listeners de MainIDE
+    public List<String> compile(String source) {
+        int[] next = source.codePoints().toArray();
+        reparsed = 0;
+        revalidated = 0;
+        update(next);
+        text = next;
+
+        if (segments.isEmpty()) {
+            return parseWhole(source);
+        }
+        return validate();
+    }
+
+    // Solo los errores de sintaxis (léxicos y después sintácticos) de un texto completo, con
+    // una sesión nueva: lo que usa TwoStageParser.program(errors) para reportar igual que acá
+    public static List<String> syntaxErrors(String source) {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        compiler.update(source.codePoints().toArray());
+        if (compiler.segments.isEmpty()) {
+            return parseWhole(source);
+        }
+        List<String> errors = new ArrayList<>();
+        compiler.addSyntaxErrors(errors);
+        return errors;
+    }
+
+    public int getSentenceCount() {
+        return segments.size();
+    }
+
+    // Sentencias que se volvieron a parsear / validar en la última compilación
+    public int getReparsedCount() {
+        return reparsed;
+    }
+
+    public int getRevalidatedCount() {
+        return revalidated;
+    }
+
+    private void update(int[] next) {
+        int[] prev = text;
+        int max = Math.min(prev.length, next.length);
+        int prefix = 0;
+        while (prefix < max && prev[prefix] == next[prefix]) {
+            prefix++;
+        }
+        if (prefix == prev.length && prefix == next.length) {
+            return;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && prev[prev.length - 1 - suffix] == next[next.length - 1 - suffix]) {
+            suffix++;
+        }
+        int delta = next.length - prev.length;
+        int editEnd = next.length - suffix;
+
+        // Se retoma una sentencia antes de la editada: si el cambio convierte su primer
+        // token en 'else', la anterior (un if) todavía no había terminado. Con keep == 0 se
+        // tokeniza desde el principio, porque el cambio puede estar antes de la primera.
+        int before = 0;
+        while (before < segments.size() && segments.get(before).start < prefix) {
+            before++;
+        }
+        int keep = Math.max(0, before - 2);
+
+        CodePointCharStream input = CodePointCharStream.fromBuffer(CodePointBuffer.withInts(IntBuffer.wrap(next)));
+        VGraphLexer lexer = new VGraphLexer(input);
+        lexer.removeErrorListeners();
+        List<LexerError> pending = new ArrayList<>();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                                    int line, int charPositionInLine, String msg, RecognitionException e) {
+                pending.add(new LexerError(((Lexer) recognizer)._tokenStartCharIndex, line, charPositionInLine, msg));
+            }
+        });
+        if (keep > 0) {
+            Segment from = segments.get(keep);
+            input.seek(from.start);
+            lexer.setLine(from.line);
+            lexer.setCharPositionInLine(from.column);
+        } else {
+            leadingErrors.clear();
+        }
+
+        List<Segment> rebuilt = new ArrayList<>(segments.subList(0, Math.min(keep, segments.size())));
+        Token open = null;
+        Token last = null;
+        int depth = 0;
+        boolean closing = false;
+
+        while (true) {
+            Token token = lexer.nextToken();
+            boolean eof = token.getType() == Token.EOF;
+
+            if (open != null && (eof || closing && token.getType() != VGraphLexer.ELSE
+                    && token.getType() != VGraphLexer.ELSEIF)) {
+                close(rebuilt, segment(open, last, input, prefix), pending);
+                open = null;
+                closing = false;
+            }
+            if (open == null) {
+                // Lo que el lexer rechazó entre dos sentencias queda en la anterior
+                addTrailing(rebuilt, pending);
+            }
+            if (eof) {
+                break;
+            }
+
+            if (open == null) {
+                // Pasado el cambio, si una sentencia vieja empieza en el mismo lugar los tokens
+                // que siguen son los mismos y el resto se reutiliza corrido
+                int old = token.getStartIndex() >= editEnd ? indexOfStart(token.getStartIndex() - delta) : -1;
+                if (old >= 0) {
+                    Segment sync = segments.get(old);
+                    int syncLine = sync.line;
+                    int lineDelta = token.getLine() - sync.line;
+                    int columnDelta = token.getCharPositionInLine() - sync.column;
+                    for (Segment segment : segments.subList(old, segments.size())) {
+                        segment.start += delta;
+                        segment.stop += delta;
+                        if (segment.line == syncLine) {
+                            segment.column += columnDelta;
+                        }
+                        segment.line += lineDelta;
+                        rebuilt.add(segment);
+                    }
+                    break;
+                }
+                open = token;
+            }
+            last = token;
+            closing = false;
+
+            switch (token.getType()) {
+                case VGraphLexer.PAR_OPEN:
+                case VGraphLexer.BRACKET_OPEN:
+                    depth++;
+                    break;
+                case VGraphLexer.PAR_CLOSE:
+                    depth = Math.max(0, depth - 1);
+                    break;
+                case VGraphLexer.BRACKET_CLOSE:
+                    depth = Math.max(0, depth - 1);
+                    closing = depth == 0;
+                    break;
+                case VGraphLexer.SEMICOLON:
+                    if (depth == 0) {
+                        close(rebuilt, segment(open, last, input, prefix), pending);
+                        open = null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        segments = rebuilt;
+    }
+
+    // Los errores léxicos dentro del segmento los vuelve a dar su propio parseo; los de después
+    // (vistos al buscar el token que sigue a un '}') son de la separación con la siguiente
+    private void close(List<Segment> rebuilt, Segment segment, List<LexerError> pending) {
+        pending.removeIf(error -> error.index <= segment.stop);
+        segment.trailingErrors.clear();
+        rebuilt.add(segment);
+        addTrailing(rebuilt, pending);
+    }
+
+    private void addTrailing(List<Segment> rebuilt, List<LexerError> pending) {
+        for (LexerError error : pending) {
+            if (rebuilt.isEmpty()) {
+                leadingErrors.add(new SyntaxError(error.line, error.column, error.message));
+                continue;
+            }
+            // Relativo al segmento, como los demás: así se corre con él
+            Segment segment = rebuilt.get(rebuilt.size() - 1);
+            int line = error.line - segment.line + 1;
+            int column = line == 1 ? error.column - segment.column : error.column;
+            segment.trailingErrors.add(new SyntaxError(line, column, error.message));
+        }
+        pending.clear();
+    }
+
+    // Segmento entre dos tokens; si está entero antes del cambio es el mismo de antes
+    private Segment segment(Token first, Token last, CodePointCharStream input, int prefix) {
+        int start = first.getStartIndex();
+        int stop = last.getStopIndex();
+        if (stop < prefix) {
+            int old = indexOfStart(start);
+            if (old >= 0 && segments.get(old).stop == stop) {
+                return segments.get(old);
+            }
+        }
+
+        Segment segment = new Segment();
+        segment.start = start;
+        segment.stop = stop;
+        segment.line = first.getLine();
+        segment.column = first.getCharPositionInLine();
+        parse(segment, input.getText(Interval.of(start, stop)));
+        return segment;
+    }
+
+    private void parse(Segment segment, String source) {
+        reparsed++;
+        TwoStageParser parser = new TwoStageParser(CharStreams.fromString(source),
+                new Collector(segment.lexerErrors), new Collector(segment.parserErrors));
+        try {
+            segment.tree = parser.parse(VGraphParser::sentence);
+            Token extra = parser.getParser().getCurrentToken();
+            if (extra.getType() != Token.EOF) {
+                segment.parserErrors.add(new SyntaxError(extra.getLine(), extra.getCharPositionInLine(),
+                        "extraneous input '" + extra.getText() + "' expecting <EOF>"));
+            }
+        } catch (Exception e) {
+            segment.tree = null;
+        }
+    }
+
+    private int indexOfStart(int start) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = segments.get(mid).start;
+            if (value < start) {
+                low = mid + 1;
+            } else if (value > start) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        addSyntaxErrors(errors);
+
+        // Las mismas tres pasadas que SemanticValidator.visitProgram
+        SemanticValidator validator = new SemanticValidator();
+        for (Segment segment : segments) {
+            if (segment.tree != null && segment.tree.function() != null) {
+                try {
+                    validator.collectFunction(segment.tree.function(), segment.line - 1);
+                } catch (Exception e) {
+                    validator.addError("Semantic analysis failed due to syntax errors", segment.line);
+                }
+            }
+        }
+        for (Segment segment : segments) {
+            if (segment.tree != null && segment.tree.var_decl() != null) {
+                check(validator, segment);
+            }
+        }
+        for (Segment segment : segments) {
+            if (segment.tree != null && segment.tree.var_decl() == null && segment.tree.function() == null) {
+                check(validator, segment);
+            }
+        }
+        errors.addAll(validator.getSemanticErrors());
+        return errors;
+    }
+
+    private void check(SemanticValidator validator, Segment segment) {
+        if (segment.trace != null && validator.replay(segment.trace, segment.line - 1)) {
+            return;
+        }
+        revalidated++;
+        try {
+            segment.trace = validator.validateSentence(segment.tree, segment.line - 1);
+        } catch (Exception e) {
+            segment.trace = null;
+            validator.addError("Semantic analysis failed due to syntax errors", segment.line);
+        }
+    }
+
+    private void addSyntaxErrors(List<String> errors) {
+        for (SyntaxError error : leadingErrors) {
+            errors.add("Error at line " + error.line + ":" + error.column + " - " + error.message);
+        }
+        for (Segment segment : segments) {
+            addSyntaxErrors(errors, segment, segment.lexerErrors);
+            addSyntaxErrors(errors, segment, segment.trailingErrors);
+        }
+        for (Segment segment : segments) {
+            addSyntaxErrors(errors, segment, segment.parserErrors);
+        }
+    }
+
+    private void addSyntaxErrors(List<String> errors, Segment segment, List<SyntaxError> found) {
+        for (SyntaxError error : found) {
+            int column = error.line == 1 ? error.column + segment.column : error.column;
+            errors.add("Error at line " + (error.line + segment.line - 1) + ":" + column + " - " + error.message);
+        }
+    }
+
+    // Sin sentencias (solo comentarios o espacios): el parser completo da el error de siempre
+    private static List<String> parseWhole(String source) {
+        List<SyntaxError> found = new ArrayList<>();
+        try {
+            new TwoStageParser(CharStreams.fromString(source), new Collector(found)).program();
+        } catch (Exception e) {
+            // Los errores ya quedaron en el listener
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (SyntaxError error : found) {
+            errors.add("Error at line " + error.line + ":" + error.column + " - " + error.message);
+        }
+        return errors;
+    }
+}
@@ -1,35 +1,250 @@
 package v.graph;
 
+import java.io.File;
 import java.io.IOException;
-import org.antlr.v4.runtime.CharStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
 
-public class Main {
+/**
+ * Compilador de línea de comandos: genera un .c por cada .vgraph, repartiendo los archivos
+ * entre varios hilos. Cada archivo usa su propio lexer, parser, SemanticValidator y
+ * VGraphCustomVisitor, así que no comparten nada mutable (la caché DFA de ANTLR sí se
+ * comparte, pero es segura entre hilos y justamente se calienta más rápido).
+ */
+@Command(name = "vgraph", mixinStandardHelpOptions = true,
+        description = "Compiles VGraph scripts to C for the FPGA framebuffer runtime.")
+public class Main implements Callable<Integer> {
 
     private static final String EXTENSION = "vgraph";
     private static final String DIRBASE = "src/test/resources/";
+    // Lo que ya viene en generated/: el runtime, su emulador, el benchmark de trig y el
+    // main.c del IDE. Un .vgraph con uno de esos nombres los pisaría
+    private static final List<String> RESERVED = List.of("graphics.c", "graphics.h", "graphics_emu.c",
+            "bench_trig.c", "main.c");
 
-    public static void main(String[] args) throws IOException {
-        String files[] = args.length==0? new String[]{ "test." + EXTENSION } : args;
-        System.out.println("Dirbase: " + DIRBASE);
-        for (String file : files){
-            System.out.println("START: " + file);
+    @Parameters(paramLabel = "FILE", description = "." + EXTENSION + " files or directories (searched recursively). "
+            + "Defaults to test." + EXTENSION + ".")
+    private List<File> inputs = new ArrayList<>();
 
-            String projectRoot = System.getProperty("user.dir");
-            //String fullPath = projectRoot + "/VGraph/" + DIRBASE + file;
-            CharStream in = CharStreams.fromFileName("C:\\Users\\josev\\OneDrive\\Documentos\\Semestre II 2025\\Compiladores e Intérpretes\\Proyecto\\VGraph\\VGraph\\src\\test\\resources\\test.vgraph");
-            VGraphLexer lexer = new VGraphLexer(in);
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            VGraphParser parser = new VGraphParser(tokens);
-            VGraphParser.ProgramContext tree = parser.program();
+    @Option(names = {"-o", "--output"}, paramLabel = "DIR", description = "Directory for the generated .c files (default: ${DEFAULT-VALUE}).")
+    private File outputDir = new File("generated");
 
+    @Option(names = {"-j", "--jobs"}, paramLabel = "N", description = "Number of compiler threads (default: available cores).")
+    private int jobs = Runtime.getRuntime().availableProcessors();
 
+    @Option(names = {"-p", "--print"}, description = "Print the generated C code to stdout instead of writing files.")
+    private boolean print;
 
-            VGraphCustomVisitor visitor = new VGraphCustomVisitor();
-            String output   = visitor.visit(tree);
+    @Option(names = {"-q", "--quiet"}, description = "Only print errors and the summary.")
+    private boolean quiet;
 
-            System.out.println(output);
+    @Option(names = "--no-loop-opt", description = "Disable loop-invariant code motion and strength reduction "
+            + "(to compare against the optimized output).")
+    private boolean noLoopOpt;
+
+    @Option(names = "--fast-trig", description = "Emit table-based fast_sin/fast_cos instead of libm sin/cos "
+            + "(max abs error < 3e-7 for |x| <= 1e6).")
+    private boolean fastTrig;
+
+    @Option(names = "--fixed-point", description = "Emit double variables and math as saturating 32-bit "
+            + "fixed point (fx_* in graphics.h, including fx_sin/fx_cos) instead of floating point.")
+    private boolean fixedPoint;
+
+    @Option(names = "--frac-bits", paramLabel = "N", description = "Fractional bits for --fixed-point, "
+            + FixedPoint.MIN_FRAC_BITS + "-" + FixedPoint.MAX_FRAC_BITS + " (default: ${DEFAULT-VALUE}).")
+    private int fracBits = FixedPoint.DEFAULT_FRAC_BITS;
+
+    // Resultado de compilar un archivo
+    private static final class Result {
+        final File source;
+        final List<String> errors = new ArrayList<>();
+        TwoStageParser.Mode mode;
+        String code;
+        File output;
+        long parseNanos;
+        long validateNanos;
+        long generateNanos;
+
+        Result(File source) {
+            this.source = source;
         }
+
+        long totalNanos() {
+            return parseNanos + validateNanos + generateNanos;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new Main()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        if (fracBits < FixedPoint.MIN_FRAC_BITS || fracBits > FixedPoint.MAX_FRAC_BITS) {
+            System.err.println("--frac-bits must be between " + FixedPoint.MIN_FRAC_BITS + " and "
+                    + FixedPoint.MAX_FRAC_BITS + ".");
+            return 2;
+        }
+        List<File> files = collectFiles();
+        if (files.isEmpty()) {
+            System.err.println("No ." + EXTENSION + " files found.");
+            return 2;
+        }
+
+        // Dos entradas con el mismo nombre escribirían el mismo .c
+        Map<String, File> outputs = new HashMap<>();
+        for (File file : files) {
+            String name = outputName(file);
+            if (RESERVED.contains(name) && !print) {
+                System.err.println(file + " would overwrite " + new File(outputDir, name)
+                        + ", a name reserved for the files shipped in generated/; rename the input");
+                return 2;
+            }
+            File previous = outputs.put(name, file);
+            if (previous != null && !print) {
+                System.err.println("Both " + previous + " and " + file + " would be written to " + name);
+                return 2;
+            }
+        }
+        if (!print) {
+            Files.createDirectories(outputDir.toPath());
+        }
+
+        int threads = Math.max(1, Math.min(jobs, files.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>();
+        try {
+            List<Future<Result>> pending = new ArrayList<>();
+            for (File file : files) {
+                pending.add(pool.submit(() -> compile(file)));
+            }
+            // Se reporta en el orden de entrada, no en el que terminan
+            for (Future<Result> future : pending) {
+                Result result = future.get();
+                results.add(result);
+                report(result);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long wall = System.nanoTime() - start;
+
+        printSummary(results, threads, wall);
+        return results.stream().anyMatch(r -> !r.errors.isEmpty()) ? 1 : 0;
+    }
+
+    private List<File> collectFiles() throws IOException {
+        List<File> files = new ArrayList<>();
+        if (inputs.isEmpty()) {
+            inputs.add(new File("test." + EXTENSION));
+        }
+        for (File input : inputs) {
+            File file = input.exists() ? input : new File(DIRBASE, input.getPath());
+            if (file.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(file.toPath())) {
+                    files.addAll(walk.filter(p -> p.toString().endsWith("." + EXTENSION))
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private Result compile(File file) {
+        Result result = new Result(file);
+        try {
+            long t0 = System.nanoTime();
+            String source = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            TwoStageParser parser = new TwoStageParser(CharStreams.fromString(source, file.getPath()));
+            VGraphParser.ProgramContext tree = parser.program(result.errors);
+            result.mode = parser.getMode();
+            long t1 = System.nanoTime();
+            result.parseNanos = t1 - t0;
+            if (!result.errors.isEmpty()) {
+                return result;
+            }
+
+            SemanticValidator validator = new SemanticValidator();
+            validator.visit(tree);
+            result.errors.addAll(validator.getSemanticErrors());
+            long t2 = System.nanoTime();
+            result.validateNanos = t2 - t1;
+            if (!result.errors.isEmpty()) {
+                return result;
+            }
+
+            result.code = new VGraphCustomVisitor(!noLoopOpt, fastTrig, fixedPoint ? fracBits : 0).visit(tree);
+            if (!print) {
+                result.output = new File(outputDir, outputName(file));
+                Files.write(result.output.toPath(), result.code.getBytes(StandardCharsets.UTF_8));
+            }
+            result.generateNanos = System.nanoTime() - t2;
+        } catch (IOException | RuntimeException e) {
+            result.errors.add("Error at line 1 - " + e);
+        }
+        return result;
+    }
+
+    private static String outputName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".c";
+    }
+
+    private void report(Result result) {
+        if (!result.errors.isEmpty()) {
+            System.err.println("FAILED " + result.source + " (" + result.errors.size() + " errors)");
+            for (String error : result.errors) {
+                System.err.println("    " + error);
+            }
+            return;
+        }
+        if (print) {
+            System.out.println("// " + result.source);
+            System.out.println(result.code);
+        } else if (!quiet) {
+            System.out.printf("OK     %s -> %s (%s, %.1f ms)%n", result.source, result.output,
+                    result.mode, result.totalNanos() / 1e6);
+        }
+    }
+
+    private void printSummary(List<Result> results, int threads, long wallNanos) {
+        long failed = results.stream().filter(r -> !r.errors.isEmpty()).count();
+        long errors = results.stream().mapToLong(r -> r.errors.size()).sum();
+        long llFallbacks = results.stream().filter(r -> r.mode == TwoStageParser.Mode.LL).count();
+        long parse = results.stream().mapToLong(r -> r.parseNanos).sum();
+        long validate = results.stream().mapToLong(r -> r.validateNanos).sum();
+        long generate = results.stream().mapToLong(r -> r.generateNanos).sum();
+        long busy = parse + validate + generate;
+
+        // El resumen va a stderr para no mezclarse con --print
+        System.err.printf("%d files (%d ok, %d failed, %d errors), %d threads%n",
+                results.size(), results.size() - failed, failed, errors, threads);
+        System.err.printf("parse %.1f ms (%d LL fallbacks), validate %.1f ms, generate %.1f ms%n",
+                parse / 1e6, llFallbacks, validate / 1e6, generate / 1e6);
+        // busy / wall: cuántos archivos se estuvieron compilando a la vez, en promedio
+        System.err.printf("wall %.1f ms, %.1f files in flight on average%n",
+                wallNanos / 1e6, wallNanos > 0 ? (double) busy / wallNanos : 0.0);
     }
 }
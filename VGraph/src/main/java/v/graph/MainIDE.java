@@ -20,24 +20,21 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.Path;
 
+import v.ast.LoopOptimizer;
+import v.ast.Program;
+import v.engine.BytecodeCompiler;
+
 // Importaciones de ANTLR
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.RecognitionException;
-import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.ANTLRErrorListener;
-import org.antlr.v4.runtime.Parser;
-import org.antlr.v4.runtime.atn.ATNConfigSet;
-import org.antlr.v4.runtime.dfa.DFA;
 
 public class MainIDE extends JFrame {
     private JTextArea codeArea;
     private JTextArea lineNumbers;
     private JTextArea outputArea;
     private JButton compileButton;
+    private JButton previewButton;
+    private JButton localButton;
     private JButton loadButton;
     private JButton saveButton;
     private JButton runButton;
@@ -50,50 +47,22 @@ public class MainIDE extends JFrame {
     private static final String CONFIG_FILE = "config.properties";
     private static final String GENERATED_DIR = "generated";
     private static final String MAIN_C_FILE = "main.c";
+    private static final String CACHE_DIR = "cache";
     private Properties config;
     private Process currentFpgaProcess = null;
     private boolean executionRunning = false;
-
-    // ErrorListener simple para capturar errores
-    private static class SimpleErrorListener implements ANTLRErrorListener {
-        private List<String> errors = new ArrayList<>();
-        private JTextArea output;
-
-        public SimpleErrorListener(JTextArea output) {
-            this.output = output;
-        }
-
-        @Override
-        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
-                                int line, int charPositionInLine, String msg, RecognitionException e) {
-            String errorMsg = "Error at line " + line + ":" + charPositionInLine + " - " + msg;
-            errors.add(errorMsg);
-        }
-
-        @Override
-        public void reportAmbiguity(Parser parser, DFA dfa, int startIndex, int stopIndex,
-                                    boolean exact, java.util.BitSet ambigAlts, ATNConfigSet configs) {}
-
-        @Override
-        public void reportAttemptingFullContext(Parser parser, DFA dfa, int startIndex, int stopIndex,
-                                                java.util.BitSet conflictingAlts, ATNConfigSet configs) {}
-
-        @Override
-        public void reportContextSensitivity(Parser parser, DFA dfa, int startIndex, int stopIndex,
-                                             int prediction, ATNConfigSet configs) {}
-
-        public boolean hasErrors() {
-            return !errors.isEmpty();
-        }
-
-        public void clear() {
-            errors.clear();
-        }
-
-        public List<String> getErrors() {
-            return errors;
-        }
-    }
+    private final IncrementalCompiler incrementalCompiler = new IncrementalCompiler();
+    private AnalysisService analysisService;
+    private CompileCache compileCache;
+    private FpgaConnection fpga;
+    private JLabel analysisLabel;
+    private int lineCount = 1;
+    private static final long ANALYSIS_DELAY_MS = 300;
+    // Salida de los programas: líneas en el buffer, cada cuánto se muestra y tope del área
+    private static final int OUTPUT_BUFFER_LINES = 2000;
+    private static final int OUTPUT_REFRESH_MS = 50;
+    private static final int OUTPUT_MAX_CHARS = 1_000_000;
+    private static final long OUTPUT_DRAIN_MS = 2000;
 
     public MainIDE() {
         setTitle("VGraph IDE - FPGA Compiler");
@@ -102,6 +71,16 @@ public class MainIDE extends JFrame {
         setLocationRelativeTo(null);
 
         initializeConfig();
+        compileCache = new CompileCache(Paths.get(GENERATED_DIR, CACHE_DIR),
+                Integer.parseInt(config.getProperty("cache.max.entries", "16")),
+                Long.parseLong(config.getProperty("cache.max.bytes", "16777216")));
+        fpga = FpgaConnection.fromConfig(config);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                fpga.close();
+            }
+        });
         initComponents();
         setVisible(true);
     }
@@ -130,7 +109,22 @@ public class MainIDE extends JFrame {
         config.setProperty("fpga.password", "temppwd");
         config.setProperty("fpga.port", "22");
         config.setProperty("fpga.remote.path", "/home/ubuntu/vgraph");
+        config.setProperty("fpga.ssh.command", "ssh");
+        config.setProperty("fpga.scp.command", "scp");
+        config.setProperty("fpga.sshpass.command", "sshpass");
+        config.setProperty("fpga.ssh.persist", "600");
         config.setProperty("compile.timeout", "30");
+        config.setProperty("compile.flags", "-lm");
+        config.setProperty("loop.optimize", "true");
+        config.setProperty("trig.fast", "false");
+        config.setProperty("fixed.point", "false");
+        config.setProperty("fixed.frac.bits", "16");
+        config.setProperty("cache.max.entries", "16");
+        config.setProperty("cache.max.bytes", "16777216");
+        config.setProperty("emu.cc", "gcc");
+        config.setProperty("emu.cflags", "-O2");
+        config.setProperty("emu.width", "640");
+        config.setProperty("emu.height", "480");
 
         try (FileOutputStream fos = new FileOutputStream(CONFIG_FILE)) {
             config.store(fos, "VGraph FPGA Configuration");
@@ -154,21 +148,28 @@ public class MainIDE extends JFrame {
 
         setupUndoRedo();
 
-        // Actualizar números de línea cuando cambie el texto
+        // Errores mientras se escribe, calculados fuera del EDT
+        analysisLabel = new JLabel(" ");
+        analysisService = new AnalysisService(codeArea.getDocument(), incrementalCompiler,
+                ANALYSIS_DELAY_MS, this::showAnalysis);
+
+        // Actualizar números de línea y reprogramar el análisis cuando cambie el texto
         codeArea.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
                 updateLineNumbers();
+                analysisService.schedule();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
                 updateLineNumbers();
+                analysisService.schedule();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                updateLineNumbers();
+                // Solo atributos, el texto no cambió
             }
         });
 
@@ -190,6 +191,8 @@ public class MainIDE extends JFrame {
         loadButton = new JButton("Load");
         saveButton = new JButton("Save");
         compileButton = new JButton("Compile");
+        previewButton = new JButton("Preview");
+        localButton = new JButton("Run Local");
         runButton = new JButton("Run on FPGA");
         stopButton = new JButton("Stop Execution");
         stopButton.setEnabled(false);
@@ -200,8 +203,13 @@ public class MainIDE extends JFrame {
         toolbar.add(saveButton);
         toolbar.add(new JToolBar.Separator());
         toolbar.add(compileButton);
+        toolbar.add(previewButton);
+        toolbar.add(localButton);
         toolbar.add(runButton);
         toolbar.add(stopButton);
+        toolbar.add(Box.createHorizontalGlue());
+        toolbar.add(analysisLabel);
+        toolbar.add(Box.createHorizontalStrut(8));
 
         // Configurar file chooser
         fileChooser = new JFileChooser();
@@ -216,6 +224,8 @@ public class MainIDE extends JFrame {
         loadButton.addActionListener(e -> loadFile());
         saveButton.addActionListener(e -> saveFile());
         compileButton.addActionListener(e -> compileCode());
+        previewButton.addActionListener(e -> previewCode());
+        localButton.addActionListener(e -> runLocal());
         runButton.addActionListener(e -> executeCode());
         stopButton.addActionListener(e -> stopExecution());
     }
@@ -251,19 +261,37 @@ public class MainIDE extends JFrame {
 
     private void updateLineNumbers() {
         try {
-            int lineCount = codeArea.getDocument().getDefaultRootElement().getElementCount();
+            // Solo se rearma la columna si cambió la cantidad de líneas, no en cada tecla
+            int count = codeArea.getDocument().getDefaultRootElement().getElementCount();
+            if (count == lineCount) {
+                return;
+            }
+            lineCount = count;
             StringBuilder numbers = new StringBuilder();
-            for (int i = 1; i <= lineCount; i++) {
+            for (int i = 1; i <= count; i++) {
                 numbers.append(i).append("\n");
             }
-            if (!lineNumbers.getText().equals(numbers.toString())) {
-                lineNumbers.setText(numbers.toString());
-            }
+            lineNumbers.setText(numbers.toString());
         } catch (Exception e) {
             // Ignorar errores
         }
     }
 
+    // Resultado del análisis en segundo plano (en el EDT, y solo si el texto no cambió desde entonces)
+    private void showAnalysis(List<String> errors) {
+        clearHighlights();
+        if (errors.isEmpty()) {
+            analysisLabel.setForeground(new Color(0, 150, 0));
+            analysisLabel.setText("No errors");
+            analysisLabel.setToolTipText(null);
+            return;
+        }
+        highlightAllErrorLines(errors);
+        analysisLabel.setForeground(Color.RED);
+        analysisLabel.setText(errors.size() == 1 ? "1 error" : errors.size() + " errors");
+        analysisLabel.setToolTipText(errors.get(0));
+    }
+
     private void loadFile() {
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
@@ -388,62 +416,261 @@ public class MainIDE extends JFrame {
             return;
         }
 
-        try {
-            clearHighlights();
-            List<String> allErrors = new ArrayList<>();
+        // Solo se vuelven a parsear y validar las sentencias que cambiaron. La sesión es la del
+        // análisis en segundo plano y corre en su hilo: el EDT no espera a un análisis en curso
+        compileButton.setEnabled(false);
+        outputArea.setText("Compiling...\n");
+        analysisService.compileNow(codeArea.getText(), this::showCompilation);
+    }
 
-            CharStream input = CharStreams.fromString(codeArea.getText());
-            VGraphLexer lexer = new VGraphLexer(input);
-            SimpleErrorListener lexerErrorListener = new SimpleErrorListener(null);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(lexerErrorListener);
+    private void showCompilation(AnalysisService.Compilation result) {
+        compileButton.setEnabled(true);
+        if (result.failure != null) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("COMPILATION ERROR:\n\n" + result.failure.getMessage());
+            return;
+        }
 
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            VGraphParser parser = new VGraphParser(tokens);
-            SimpleErrorListener parserErrorListener = new SimpleErrorListener(null);
-            parser.removeErrorListeners();
-            parser.addErrorListener(parserErrorListener);
+        List<String> allErrors = result.errors;
+        if (!allErrors.isEmpty()) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("COMPILATION ERRORS FOUND (" + allErrors.size() + "):\n\n");
 
-            VGraphParser.ProgramContext tree = null;
-            try {
-                tree = parser.program();
-            } catch (Exception e) {
-                // Continúa aunque falle el parsing para mostrar errores
+            for (int i = 0; i < allErrors.size(); i++) {
+                outputArea.append((i + 1) + ". " + allErrors.get(i) + "\n");
+            }
+            if (!result.current) {
+                outputArea.append("\n(The code changed while compiling; line numbers may be off.)\n");
+            }
+        } else {
+            outputArea.setForeground(new Color(0, 150, 0));
+            outputArea.setText("✅ COMPILATION SUCCESSFUL\n\n");
+            outputArea.append("Code compiled successfully with no errors.\n");
+            outputArea.append("(" + result.reparsed + " of " + result.sentences + " sentences re-parsed)\n");
+            outputArea.append("Press 'Run on FPGA' to execute on hardware.\n");
+        }
+    }
+
+    // VISTA PREVIA LOCAL - dibuja en un Canvas en memoria, sin scp/gcc/ssh
+    private void previewCode() {
+        outputArea.setText("");
+        outputArea.setForeground(Color.BLACK);
+
+        if (codeArea.getText().trim().isEmpty()) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("No code to preview.");
+            return;
+        }
+
+        clearHighlights();
+        TwoStageParser parser = new TwoStageParser(CharStreams.fromString(codeArea.getText()));
+
+        VGraphParser.ProgramContext tree;
+        List<String> allErrors = new ArrayList<>();
+        try {
+            tree = parser.program(allErrors);
+            if (allErrors.isEmpty()) {
+                SemanticValidator semanticValidator = new SemanticValidator();
+                semanticValidator.visit(tree);
+                allErrors.addAll(semanticValidator.getSemanticErrors());
             }
+        } catch (Exception e) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("PREVIEW ERROR:\n\n" + e.getMessage());
+            return;
+        }
 
-            allErrors.addAll(lexerErrorListener.getErrors());
-            allErrors.addAll(parserErrorListener.getErrors());
+        if (!allErrors.isEmpty()) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("COMPILATION ERRORS FOUND (" + allErrors.size() + "):\n\n");
+            for (int i = 0; i < allErrors.size(); i++) {
+                outputArea.append((i + 1) + ". " + allErrors.get(i) + "\n");
+            }
+            highlightAllErrorLines(allErrors);
+            return;
+        }
 
-            if (tree != null) {
+        Program built = ASTBuilder.build(tree, fastTrig());
+        Program program = loopOptimization() ? LoopOptimizer.optimize(built) : built;
+        v.render.Canvas canvas = new v.render.Canvas();
+        // Se pinta a través del Canvas para no mostrar un frame a medio presentar
+        JPanel view = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                canvas.paintTo(g, 0, 0);
+            }
+        };
+        view.setPreferredSize(new Dimension(canvas.getWidth(), canvas.getHeight()));
+        JDialog dialog = new JDialog(this, "VGraph Preview", false);
+        dialog.add(view);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+
+        // Mientras corre (por ejemplo con wait en un loop) se refresca la imagen
+        Timer refresh = new Timer(33, e -> view.repaint());
+        refresh.start();
+        previewButton.setEnabled(false);
+
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() {
+                long start = System.nanoTime();
+                BytecodeCompiler.compile(program).run(canvas);
+                return (System.nanoTime() - start) / 1_000_000;
+            }
+
+            @Override
+            protected void done() {
+                refresh.stop();
+                view.repaint();
+                previewButton.setEnabled(true);
                 try {
-                    SemanticValidator semanticValidator = new SemanticValidator();
-                    semanticValidator.visit(tree);
-                    allErrors.addAll(semanticValidator.getSemanticErrors());
+                    long elapsed = get();
+                    outputArea.setForeground(new Color(0, 150, 0));
+                    outputArea.setText("✅ PREVIEW RENDERED in " + elapsed + " ms\n");
+                    if (canvas.getClock().getWaits() > 0) {
+                        outputArea.append(canvas.getClock() + "\n");
+                    }
                 } catch (Exception e) {
-                    allErrors.add("Error at line 1 - Semantic analysis failed due to syntax errors");
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    outputArea.setForeground(Color.RED);
+                    outputArea.setText("PREVIEW ERROR:\n\n" + cause.getMessage());
                 }
             }
+        };
+        worker.execute();
+    }
 
+    // EJECUCIÓN LOCAL - compila el C generado con gcc local contra la placa emulada
+    // (graphics_emu.c) y muestra el framebuffer mapeado mientras corre
+    private void runLocal() {
+        outputArea.setText("");
+        outputArea.setForeground(Color.BLACK);
+
+        if (codeArea.getText().trim().isEmpty()) {
+            outputArea.setForeground(Color.RED);
+            outputArea.setText("No code to run.");
+            return;
+        }
+
+        clearHighlights();
+        TwoStageParser parser = new TwoStageParser(CharStreams.fromString(codeArea.getText()));
+
+        String generatedCCode;
+        try {
+            List<String> allErrors = new ArrayList<>();
+            VGraphParser.ProgramContext tree = parser.program(allErrors);
+            if (allErrors.isEmpty()) {
+                SemanticValidator semanticValidator = new SemanticValidator();
+                semanticValidator.visit(tree);
+                allErrors.addAll(semanticValidator.getSemanticErrors());
+            }
             if (!allErrors.isEmpty()) {
                 outputArea.setForeground(Color.RED);
                 outputArea.setText("COMPILATION ERRORS FOUND (" + allErrors.size() + "):\n\n");
-
                 for (int i = 0; i < allErrors.size(); i++) {
                     outputArea.append((i + 1) + ". " + allErrors.get(i) + "\n");
                 }
-
                 highlightAllErrorLines(allErrors);
-            } else {
-                outputArea.setForeground(new Color(0, 150, 0));
-                outputArea.setText("✅ COMPILATION SUCCESSFUL\n\n");
-                outputArea.append("Code compiled successfully with no errors.\n");
-                outputArea.append("Press 'Run on FPGA' to execute on hardware.\n");
+                return;
             }
-
+            generatedCCode = new VGraphCustomVisitor(loopOptimization(), fastTrig(), fixedPoint()).visit(tree);
         } catch (Exception e) {
             outputArea.setForeground(Color.RED);
-            outputArea.setText("COMPILATION ERROR:\n\n" + e.getMessage());
+            outputArea.setText("LOCAL RUN ERROR:\n\n" + e.getMessage());
+            return;
+        }
+        if (!saveMainCFile(generatedCCode)) {
+            return;
         }
+
+        EmulatedTarget target = EmulatedTarget.fromConfig(Paths.get(GENERATED_DIR), config);
+        java.awt.image.BufferedImage image = new java.awt.image.BufferedImage(
+                target.getWidth(), target.getHeight(), java.awt.image.BufferedImage.TYPE_INT_RGB);
+        JPanel view = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                g.drawImage(image, 0, 0, null);
+            }
+        };
+        view.setPreferredSize(new Dimension(target.getWidth(), target.getHeight()));
+        JDialog dialog = new JDialog(this, "VGraph Local Run", false);
+        dialog.add(view);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+
+        Timer refresh = new Timer(33, e -> {
+            if (target.snapshot(image)) {
+                view.repaint();
+            }
+        });
+        localButton.setEnabled(false);
+
+        java.util.concurrent.atomic.AtomicReference<Process> running = new java.util.concurrent.atomic.AtomicReference<>();
+        SwingWorker<String, String> worker = new SwingWorker<String, String>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                publish("🔨 Building with local gcc...");
+                long buildStart = System.nanoTime();
+                target.build();
+                publish("✅ Built in " + (System.nanoTime() - buildStart) / 1_000_000 + " ms");
+
+                long start = System.nanoTime();
+                Process process = target.start();
+                running.set(process);
+                SwingUtilities.invokeLater(() -> {
+                    dialog.setVisible(true);
+                    refresh.start();
+                });
+                OutputPump pump = new OutputPump(outputArea, OUTPUT_BUFFER_LINES, OUTPUT_REFRESH_MS, OUTPUT_MAX_CHARS);
+                pump.attach(process.getInputStream(), "📺 OUTPUT: ", false);
+                pump.attach(process.getErrorStream(), "⚠️ ERROR: ", true);
+                int exitCode = process.waitFor();
+                pump.finish(OUTPUT_DRAIN_MS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                int frames = target.getFrames();
+                return String.format("exit code %d, %.2f s, %d frames (%.1f frames/s)",
+                        exitCode, seconds, frames, seconds > 0 ? frames / seconds : 0.0);
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                for (String message : chunks) {
+                    outputArea.append(message + "\n");
+                }
+            }
+
+            @Override
+            protected void done() {
+                refresh.stop();
+                if (target.snapshot(image)) {
+                    view.repaint();
+                }
+                localButton.setEnabled(true);
+                try {
+                    outputArea.setForeground(new Color(0, 150, 0));
+                    outputArea.append("✅ LOCAL RUN FINISHED: " + get() + "\n");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    outputArea.setForeground(Color.RED);
+                    outputArea.append("LOCAL RUN ERROR:\n\n" + cause.getMessage() + "\n");
+                }
+            }
+        };
+        // Cerrar la ventana corta el programa
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                Process process = running.get();
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+        });
+        worker.execute();
     }
 
     // MÉTODO PRINCIPAL - EJECUCIÓN AUTOMATIZADA EN FPGA - MEJORADO
@@ -472,25 +699,35 @@ public class MainIDE extends JFrame {
             @Override
             protected Boolean doInBackground() throws Exception {
                 try {
+                    String source = codeArea.getText();
+
+                    // El handshake SSH se hace mientras se valida y se genera el código
+                    java.util.concurrent.CompletableFuture<Void> link = fpga.connectAsync();
+
+                    // Si este mismo código (con el mismo graphics.c/h, flags y placa) ya se
+                    // compiló, el binario sigue en la FPGA y se ejecuta directamente
+                    String cacheKey = compileCacheKey(source);
+                    if (cacheKey != null && compileCache.contains(cacheKey)) {
+                        publish("⚡ Cache hit " + cacheKey.substring(0, 12) + ", checking binary on FPGA...");
+                        awaitConnection(link);
+                        if (remoteBinaryExists(cacheKey)) {
+                            compileCache.touch(cacheKey);
+                            publish("✅ Skipping validation, code generation, transfer and compilation");
+                            return startOnFPGA(cacheKey);
+                        }
+                        publish("⚠️ Cached binary is gone from the FPGA, rebuilding");
+                        compileCache.remove(cacheKey);
+                    }
+
                     // PASO 1: VALIDAR CÓDIGO
                     publish("🔍 STEP 1: Validating VGraph code...");
 
                     clearHighlights();
-                    CharStream input = CharStreams.fromString(codeArea.getText());
-                    VGraphLexer lexer = new VGraphLexer(input);
-                    SimpleErrorListener errorListener = new SimpleErrorListener(null);
-                    lexer.removeErrorListeners();
-                    lexer.addErrorListener(errorListener);
-
-                    CommonTokenStream tokens = new CommonTokenStream(lexer);
-                    VGraphParser parser = new VGraphParser(tokens);
-                    parser.removeErrorListeners();
-                    parser.addErrorListener(errorListener);
-
-                    VGraphParser.ProgramContext tree = parser.program();
+                    CharStream input = CharStreams.fromString(source);
+                    TwoStageParser parser = new TwoStageParser(input);
 
                     List<String> allErrors = new ArrayList<>();
-                    allErrors.addAll(errorListener.getErrors());
+                    VGraphParser.ProgramContext tree = parser.program(allErrors);
 
                     if (allErrors.isEmpty()) {
 
@@ -507,11 +744,11 @@ public class MainIDE extends JFrame {
                         return false;
                     }
 
-                    publish("✅ Code validation successful!");
+                    publish("✅ Code validation successful! (parsed in " + parser.getMode() + " mode)");
 
                     // PASO 2: GENERAR CÓDIGO C
                     publish("🔄 STEP 2: Generating C code...");
-                    VGraphCustomVisitor codeGenerator = new VGraphCustomVisitor();
+                    VGraphCustomVisitor codeGenerator = new VGraphCustomVisitor(loopOptimization(), fastTrig(), fixedPoint());
                     String generatedCCode = codeGenerator.visit(tree);
                     publish("✅ C code generated successfully!");
 
@@ -525,7 +762,8 @@ public class MainIDE extends JFrame {
 
                     // PASO 4: TRANSFERIR A FPGA
                     publish("📤 STEP 4: Transferring to FPGA via SCP...");
-                    if (!transferToFPGA()) {
+                    awaitConnection(link);
+                    if (!transferToFPGA(cacheKey != null)) {
                         publish("❌ Failed to transfer file to FPGA");
                         return false;
                     }
@@ -533,24 +771,22 @@ public class MainIDE extends JFrame {
 
                     // PASO 5: COMPILAR EN FPGA
                     publish("🔨 STEP 5: Compiling on FPGA...");
-                    if (!compileOnFPGA()) {
+                    // Los binarios desalojados se borran en el mismo comando, después de gcc; si
+                    // gcc falla no se borra nada y la caché local queda como estaba
+                    List<String> evicted = new ArrayList<>();
+                    if (cacheKey != null) {
+                        evicted = compileCache.evictions(cacheKey, generatedCCode);
+                    }
+                    if (!compileOnFPGA(cacheKey, evicted)) {
                         publish("❌ Compilation failed on FPGA");
                         return false;
                     }
-                    publish("✅ Compilation successful on FPGA!");
-
-                    // PASO 6: EJECUTAR EN FPGA
-                    publish("🚀 STEP 6: Executing on FPGA...");
-                    if (!executeOnFPGA()) {
-                        publish("❌ Execution failed on FPGA");
-                        return false;
+                    if (cacheKey != null) {
+                        compileCache.put(cacheKey, generatedCCode);
                     }
-                    publish("✅ Program started on FPGA!");
-                    publish("📺 Monitoring execution output...");
-                    publish("📋 Program will automatically finish when completed");
-                    publish("⏹️ Or press 'Stop Execution' to terminate manually");
+                    publish("✅ Compilation successful on FPGA!");
 
-                    return true;
+                    return startOnFPGA(cacheKey);
 
                 } catch (Exception e) {
                     publish("❌ ERROR: " + e.getMessage());
@@ -558,6 +794,31 @@ public class MainIDE extends JFrame {
                 }
             }
 
+            // Sin conexión compartida cada ssh/scp se conecta por su cuenta, más lento pero funciona
+            private void awaitConnection(java.util.concurrent.CompletableFuture<Void> link) {
+                try {
+                    link.join();
+                    publish("🔗 Shared SSH connection to " + fpga.getTarget() + " is up");
+                } catch (java.util.concurrent.CompletionException e) {
+                    publish("⚠️ Could not open a shared SSH connection, using one session per step");
+                    publish("   " + e.getCause().getMessage());
+                }
+            }
+
+            // PASO 6: EJECUTAR EN FPGA
+            private boolean startOnFPGA(String cacheKey) {
+                publish("🚀 STEP 6: Executing on FPGA...");
+                if (!executeOnFPGA(cacheKey)) {
+                    publish("❌ Execution failed on FPGA");
+                    return false;
+                }
+                publish("✅ Program started on FPGA!");
+                publish("📺 Monitoring execution output...");
+                publish("📋 Program will automatically finish when completed");
+                publish("⏹️ Or press 'Stop Execution' to terminate manually");
+                return true;
+            }
+
             @Override
             protected void process(List<String> chunks) {
                 for (String message : chunks) {
@@ -625,43 +886,105 @@ public class MainIDE extends JFrame {
         }
     }
 
-    private boolean transferToFPGA() {
+    // Clave de la caché de compilación, o null si no se pudo calcular (la caché se omite)
+    private String compileCacheKey(String source) {
+        String target = config.getProperty("fpga.user") + "@" + config.getProperty("fpga.host") + ":" +
+                config.getProperty("fpga.port", "22") + config.getProperty("fpga.remote.path");
         try {
-            String host = config.getProperty("fpga.host");
-            String user = config.getProperty("fpga.user");
-            String remotePath = config.getProperty("fpga.remote.path");
+            return CompileCache.key(source, Paths.get(GENERATED_DIR, "graphics.c"),
+                    Paths.get(GENERATED_DIR, "graphics.h"),
+                    compileFlags() + (loopOptimization() ? "" : " loop.optimize=false")
+                            + (fastTrig() ? " trig.fast=true" : "")
+                            + (fixedPoint() > 0 ? " fixed.frac.bits=" + fixedPoint() : ""), target);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-            String localFile = GENERATED_DIR + "/" + MAIN_C_FILE;
-            String remoteFile = user + "@" + host + ":" + remotePath + "/" + MAIN_C_FILE;
+    private long compileTimeout() {
+        return Long.parseLong(config.getProperty("compile.timeout", "30"));
+    }
+
+    private String compileFlags() {
+        return config.getProperty("compile.flags", "-lm");
+    }
+
+    // loop.optimize=false desactiva LICM y reducción de fuerza (C y preview) para comparar salidas
+    private boolean loopOptimization() {
+        return Boolean.parseBoolean(config.getProperty("loop.optimize", "true"));
+    }
+
+    // trig.fast=true: sin/cos por tabla (FastTrig en la preview, fast_sin/fast_cos en C)
+    private boolean fastTrig() {
+        return Boolean.parseBoolean(config.getProperty("trig.fast", "false"));
+    }
 
-            ProcessBuilder pb = new ProcessBuilder("sshpass", "-p", config.getProperty("fpga.password"),
-                    "scp", localFile, remoteFile);
+    // fixed.point=true: el C usa punto fijo con fixed.frac.bits bits de fracción (1-24) en vez
+    // de double; devuelve esa cantidad, o 0 si está desactivado. La preview sigue en double
+    private int fixedPoint() {
+        if (!Boolean.parseBoolean(config.getProperty("fixed.point", "false"))) {
+            return 0;
+        }
+        return Integer.parseInt(config.getProperty("fixed.frac.bits", "16").trim());
+    }
 
-            Process process = pb.start();
-            int exitCode = process.waitFor();
+    // Binario de una entrada de la caché, relativo a fpga.remote.path
+    private static String cachedBinary(String cacheKey) {
+        return CACHE_DIR + "/main_" + cacheKey;
+    }
 
-            return exitCode == 0;
+    private boolean remoteBinaryExists(String cacheKey) {
+        try {
+            String remotePath = config.getProperty("fpga.remote.path");
+            return fpga.run("test -x " + remotePath + "/" + cachedBinary(cacheKey), compileTimeout()) == 0;
         } catch (Exception e) {
-            showError("Error during SCP transfer: " + e.getMessage());
             return false;
         }
     }
 
-    private boolean compileOnFPGA() {
+    // Con la caché activa también se copian graphics.c/h: son parte de la clave
+    private boolean transferToFPGA(boolean withRuntime) {
         try {
-            String host = config.getProperty("fpga.host");
-            String user = config.getProperty("fpga.user");
             String remotePath = config.getProperty("fpga.remote.path");
 
-            String command = "cd " + remotePath + " && gcc main.c graphics.c -o main -lm";
+            List<String> files = new ArrayList<>();
+            files.add(GENERATED_DIR + "/" + MAIN_C_FILE);
+            if (withRuntime) {
+                for (String runtime : new String[]{"graphics.c", "graphics.h"}) {
+                    if (Files.exists(Paths.get(GENERATED_DIR, runtime))) {
+                        files.add(GENERATED_DIR + "/" + runtime);
+                    }
+                }
+            }
+            fpga.upload(files, remotePath, compileTimeout());
+            return true;
+        } catch (Exception e) {
+            showError("Error during SCP transfer: " + e.getMessage());
+            return false;
+        }
+    }
 
-            ProcessBuilder pb = new ProcessBuilder("sshpass", "-p", config.getProperty("fpga.password"),
-                    "ssh", user + "@" + host, command);
+    // Con caché, el binario queda como cache/main_<clave> y se borran los desalojados
+    private boolean compileOnFPGA(String cacheKey, List<String> evicted) {
+        try {
+            String remotePath = config.getProperty("fpga.remote.path");
 
-            Process process = pb.start();
-            int exitCode = process.waitFor();
+            String command;
+            if (cacheKey == null) {
+                command = "cd " + remotePath + " && gcc main.c graphics.c -o main " + compileFlags();
+            } else {
+                command = "cd " + remotePath + " && mkdir -p " + CACHE_DIR +
+                        " && gcc main.c graphics.c -o " + cachedBinary(cacheKey) + " " + compileFlags();
+                if (!evicted.isEmpty()) {
+                    StringBuilder remove = new StringBuilder(" && rm -f");
+                    for (String key : evicted) {
+                        remove.append(' ').append(cachedBinary(key));
+                    }
+                    command += remove;
+                }
+            }
 
-            return exitCode == 0;
+            return fpga.run(command, compileTimeout()) == 0;
         } catch (Exception e) {
             showError("Error during compilation: " + e.getMessage());
             return false;
@@ -669,18 +992,14 @@ public class MainIDE extends JFrame {
     }
 
     // MÉTODO MEJORADO: executeOnFPGA con monitoreo automático
-    private boolean executeOnFPGA() {
+    private boolean executeOnFPGA(String cacheKey) {
         try {
-            String host = config.getProperty("fpga.host");
-            String user = config.getProperty("fpga.user");
             String remotePath = config.getProperty("fpga.remote.path");
 
-            String command = "cd " + remotePath + " && sudo ./main";
-
-            ProcessBuilder pb = new ProcessBuilder("sshpass", "-p", config.getProperty("fpga.password"),
-                    "ssh", user + "@" + host, command);
+            String binary = cacheKey != null ? cachedBinary(cacheKey) : "main";
+            String command = "cd " + remotePath + " && sudo ./" + binary;
 
-            currentFpgaProcess = pb.start();
+            currentFpgaProcess = fpga.start(command);
 
             // NUEVO: Monitorear el proceso en un hilo separado
             monitorProcessExecution();
@@ -692,62 +1011,26 @@ public class MainIDE extends JFrame {
         }
     }
 
-    // NUEVO MÉTODO: Monitorear la ejecución del proceso
+    // NUEVO MÉTODO: Monitorear la ejecución del proceso. stdout y stderr se leen a la vez
+    // (OutputPump) y llegan al área de salida en tandas, no una línea por evento
     private void monitorProcessExecution() {
+        Process process = currentFpgaProcess;
+        OutputPump pump = new OutputPump(outputArea, OUTPUT_BUFFER_LINES, OUTPUT_REFRESH_MS, OUTPUT_MAX_CHARS);
+        pump.attach(process.getInputStream(), "📺 OUTPUT: ", false);
+        pump.attach(process.getErrorStream(), "⚠️ ERROR: ", true);
+
         Thread monitorThread = new Thread(() -> {
             try {
-                // Capturar salida del proceso
-                BufferedReader outputReader = new BufferedReader(
-                        new InputStreamReader(currentFpgaProcess.getInputStream()));
-                BufferedReader errorReader = new BufferedReader(
-                        new InputStreamReader(currentFpgaProcess.getErrorStream()));
-
-                // Leer salida en tiempo real
-                SwingWorker<Void, String> outputWorker = new SwingWorker<Void, String>() {
-                    @Override
-                    protected Void doInBackground() throws Exception {
-                        String line;
-
-                        // Leer stdout
-                        while ((line = outputReader.readLine()) != null && !isCancelled()) {
-                            publish("📺 OUTPUT: " + line);
-                        }
-
-                        // Leer stderr si hay errores
-                        while ((line = errorReader.readLine()) != null && !isCancelled()) {
-                            publish("⚠️ ERROR: " + line);
-                        }
-
-                        return null;
-                    }
-
-                    @Override
-                    protected void process(java.util.List<String> chunks) {
-                        for (String message : chunks) {
-                            SwingUtilities.invokeLater(() -> {
-                                outputArea.append(message + "\n");
-                                outputArea.setCaretPosition(outputArea.getDocument().getLength());
-
-                                if (message.contains("ERROR")) {
-                                    outputArea.setForeground(Color.RED);
-                                } else {
-                                    outputArea.setForeground(Color.BLACK);
-                                }
-                            });
-                        }
-                    }
-                };
-
-                outputWorker.execute();
-
-                // Esperar a que termine el proceso
-                int exitCode = currentFpgaProcess.waitFor();
-
-                // Cancelar el worker de salida
-                outputWorker.cancel(true);
+                // Esperar a que termine el proceso y a que se muestre lo que quedó en el buffer
+                int exitCode = process.waitFor();
+                pump.finish(OUTPUT_DRAIN_MS);
+                long dropped = pump.getDroppedLines();
 
                 // Actualizar interfaz en el hilo de Swing
                 SwingUtilities.invokeLater(() -> {
+                    if (dropped > 0) {
+                        outputArea.append("⚠️ " + dropped + " output lines were dropped in total\n");
+                    }
                     handleProcessCompletion(exitCode);
                 });
 
@@ -757,12 +1040,6 @@ public class MainIDE extends JFrame {
                     outputArea.append("⚠️ Process was interrupted\n");
                     outputArea.setForeground(new Color(255, 140, 0));
                 });
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> {
-                    outputArea.append("❌ Error monitoring process: " + e.getMessage() + "\n");
-                    outputArea.setForeground(Color.RED);
-                    handleProcessCompletion(-1);
-                });
             }
         });
 
@@ -832,21 +1109,11 @@ public class MainIDE extends JFrame {
 
         // ESTRATEGIA 2: Matar procesos remotos
         try {
-            String host = config.getProperty("fpga.host");
-            String user = config.getProperty("fpga.user");
-            String password = config.getProperty("fpga.password");
-
             outputArea.append("🔸 Sending kill signal to FPGA...\n");
 
             String killCommand = "sudo pkill -TERM main; sudo pkill -KILL main";
 
-            ProcessBuilder pb = new ProcessBuilder("sshpass", "-p", password,
-                    "ssh", "-o", "ConnectTimeout=5", user + "@" + host, killCommand);
-
-            Process killProcess = pb.start();
-            boolean finished = killProcess.waitFor(5, java.util.concurrent.TimeUnit.SECONDS);
-
-            if (finished && killProcess.exitValue() == 0) {
+            if (fpga.run(killCommand, 5) == 0) {
                 outputArea.append("✅ Remote process terminated\n");
                 stopped = true;
             }
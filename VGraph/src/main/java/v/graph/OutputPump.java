@@ -0,0 +1,139 @@
+package v.graph;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lleva la salida de un proceso (stdout y stderr, cada uno en su hilo) a un JTextArea sin
+ * ahogar el EDT. Los hilos solo dejan líneas en un buffer circular acotado; un Timer de
+ * Swing lo vacía cada refreshMs con un único append. Si el programa escribe más rápido de
+ * lo que se muestra, se descartan las líneas más viejas del buffer y se avisa cuántas.
+ * El área además se recorta a maxChars para que una corrida larga no la haga crecer sin fin.
+ */
+public class OutputPump {
+    private final JTextArea area;
+    private final int maxChars;
+    private final Timer timer;
+    private final List<Thread> readers = new ArrayList<>();
+
+    // Buffer circular: las líneas con su origen (true = stderr)
+    private final String[] lines;
+    private final boolean[] errors;
+    private int head;
+    private int size;
+    private long dropped;
+    private long totalDropped;
+
+    public OutputPump(JTextArea area, int capacity, int refreshMs, int maxChars) {
+        this.area = area;
+        this.maxChars = maxChars;
+        this.lines = new String[capacity];
+        this.errors = new boolean[capacity];
+        this.timer = new Timer(refreshMs, e -> flush());
+    }
+
+    // Empieza a leer un stream en un hilo propio; prefix se antepone a cada línea
+    public void attach(InputStream in, String prefix, boolean error) {
+        Thread reader = new Thread(() -> {
+            try (BufferedReader input = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = input.readLine()) != null) {
+                    offer(prefix + line, error);
+                }
+            } catch (IOException e) {
+                // El proceso se cerró o fue destruido (Stop): no hay más salida
+            }
+        }, "vgraph-output");
+        reader.setDaemon(true);
+        readers.add(reader);
+        reader.start();
+        timer.start();
+    }
+
+    private synchronized void offer(String line, boolean error) {
+        int index = (head + size) % lines.length;
+        if (size == lines.length) {
+            head = (head + 1) % lines.length;
+            dropped++;
+            totalDropped++;
+        } else {
+            size++;
+        }
+        lines[index] = line;
+        errors[index] = error;
+    }
+
+    // Espera a que los lectores lleguen al final (máximo timeoutMs) y muestra lo que quedó.
+    // Se puede llamar desde cualquier hilo; el último vaciado corre en el EDT.
+    public void finish(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Thread reader : readers) {
+            reader.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        SwingUtilities.invokeLater(() -> {
+            timer.stop();
+            flush();
+        });
+    }
+
+    public synchronized long getDroppedLines() {
+        return totalDropped;
+    }
+
+    // Corre en el EDT: un solo append por tick
+    private void flush() {
+        StringBuilder batch = new StringBuilder();
+        Boolean lastError = null;
+        synchronized (this) {
+            if (dropped > 0) {
+                batch.append("⚠️ ").append(dropped).append(" lines dropped (output too fast)\n");
+                dropped = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) % lines.length;
+                batch.append(lines[index]).append('\n');
+                lastError = errors[index];
+                lines[index] = null;
+            }
+            head = 0;
+            size = 0;
+        }
+        if (batch.length() == 0) {
+            return;
+        }
+
+        area.append(batch.toString());
+        trim();
+        area.setCaretPosition(area.getDocument().getLength());
+        if (lastError != null) {
+            area.setForeground(lastError ? Color.RED : Color.BLACK);
+        }
+    }
+
+    private void trim() {
+        Document document = area.getDocument();
+        int excess = document.getLength() - maxChars;
+        if (excess <= 0) {
+            return;
+        }
+        try {
+            // Se corta en un salto de línea para no dejar media línea arriba
+            String cut = document.getText(excess, Math.min(document.getLength() - excess, 256));
+            int newline = cut.indexOf('\n');
+            document.remove(0, newline >= 0 ? excess + newline + 1 : excess);
+        } catch (BadLocationException e) {
+            // No puede pasar: las posiciones salen del propio documento
+        }
+    }
+}
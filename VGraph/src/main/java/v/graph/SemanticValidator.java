@@ -12,6 +12,11 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
     private Map<String, FunctionInfo> functionTable = new HashMap<>();
     private List<String> semanticErrors = new ArrayList<>();
 
+    // Solo durante validateSentence
+    private Trace trace;
+    private int lineOffset;
+    private int functionDepth;
+
     // Tipos válidos del lenguaje
     private static final Set<String> VALID_TYPES = new HashSet<>(Arrays.asList("int", "color", "double"));
 
@@ -30,6 +35,16 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         }
     }
 
+    // Lo que una sentencia leyó de las tablas, lo que declaró y los errores que dio
+    static final class Trace {
+        private final Map<String, String> reads = new HashMap<>();
+        private final Map<String, Integer> functionReads = new HashMap<>();
+        private final List<String[]> writes = new ArrayList<>();
+        private Set<String> written = new HashSet<>();
+        private final List<Integer> errorLines = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+    }
+
     public List<String> getSemanticErrors() {
         return semanticErrors;
     }
@@ -86,10 +101,10 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         // Caso 1: Declaración con asignación (int) x = expr;
         if (ctx.expression() != null) {
             String varName = ctx.id1.getText();
-            if (symbolTable.containsKey(varName)) {
+            if (lookup(varName) != null) {
                 addError("Variable '" + varName + "' is already declared", line);
             } else {
-                symbolTable.put(varName, type);
+                declare(varName, type);
             }
 
             // Validar la expresión y verificar compatibilidad de tipos
@@ -103,20 +118,20 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         else {
             // Variable principal (id1)
             String varName = ctx.id1.getText();
-            if (symbolTable.containsKey(varName)) {
+            if (lookup(varName) != null) {
                 addError("Variable '" + varName + "' is already declared", line);
             } else {
-                symbolTable.put(varName, type);
+                declare(varName, type);
             }
 
             // Variables adicionales
             List<TerminalNode> additionalIds = ctx.ID();
             for (int i = 1; i < additionalIds.size(); i++) {
                 String additionalVar = additionalIds.get(i).getText();
-                if (symbolTable.containsKey(additionalVar)) {
+                if (lookup(additionalVar) != null) {
                     addError("Variable '" + additionalVar + "' is already declared", line);
                 } else {
-                    symbolTable.put(additionalVar, type);
+                    declare(additionalVar, type);
                 }
             }
         }
@@ -129,12 +144,12 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         String varName = ctx.ID().getText();
         int line = ctx.getStart().getLine();
 
-        if (!symbolTable.containsKey(varName)) {
+        if (lookup(varName) == null) {
             addError("Variable '" + varName + "' is not declared", line);
             return null;
         }
 
-        String varType = symbolTable.get(varName);
+        String varType = lookup(varName);
         String exprType = visit(ctx.expression());
 
         if (exprType != null && !isTypeCompatible(varType, exprType)) {
@@ -210,11 +225,11 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
             return "boolean";
         } else if (ctx.ID() != null) {
             String varName = ctx.ID().getText();
-            if (!symbolTable.containsKey(varName)) {
+            if (lookup(varName) == null) {
                 addError("Variable '" + varName + "' is not declared", ctx.getStart().getLine());
                 return "error";
             }
-            return symbolTable.get(varName);
+            return lookup(varName);
         } else if (ctx.expression() != null) {
             return visit(ctx.expression());
         } else if (ctx.cos() != null) {
@@ -297,10 +312,10 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         String funcName = ctx.funID.getText();
         int line = ctx.getStart().getLine();
 
-        if (!functionTable.containsKey(funcName)) {
+        FunctionInfo funcInfo = lookupFunction(funcName);
+        if (funcInfo == null) {
             addError("Function '" + funcName + "' is not declared", line);
         } else {
-            FunctionInfo funcInfo = functionTable.get(funcName);
             int expectedParams = funcInfo.parameters.size();
             int actualParams = ctx.expression().size();
 
@@ -322,14 +337,16 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
     public String visitFunction(VGraphParser.FunctionContext ctx) {
         // Crear nuevo scope local
         Map<String, String> previousScope = new HashMap<>(symbolTable);
+        Set<String> previousWritten = trace != null ? new HashSet<>(trace.written) : null;
+        functionDepth++;
 
         // Agregar parámetros al scope local
         if (ctx.arg1 != null) {
-            symbolTable.put(ctx.arg1.getText(), "int"); // Los parámetros son int por defecto
+            declare(ctx.arg1.getText(), "int"); // Los parámetros son int por defecto
 
             List<TerminalNode> allIds = ctx.ID();
             for (int i = 2; i < allIds.size(); i++) {
-                symbolTable.put(allIds.get(i).getText(), "int");
+                declare(allIds.get(i).getText(), "int");
             }
         }
 
@@ -340,6 +357,10 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
 
         // Restaurar scope anterior
         symbolTable = previousScope;
+        functionDepth--;
+        if (trace != null) {
+            trace.written = previousWritten;
+        }
         return null;
     }
 
@@ -380,12 +401,12 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         String varName = ctx.ID().getText();
         int line = ctx.getStart().getLine();
 
-        if (!symbolTable.containsKey(varName)) {
+        if (lookup(varName) == null) {
             addError("Variable '" + varName + "' is not declared", line);
             return null;
         }
 
-        String varType = symbolTable.get(varName);
+        String varType = lookup(varName);
         String exprType = visit(ctx.expression());
 
         if (exprType != null && !isTypeCompatible(varType, exprType)) {
@@ -528,7 +549,87 @@ public class SemanticValidator extends VGraphBaseVisitor<String> {
         }
     }
 
-    private void addError(String message, int line) {
-        semanticErrors.add("Error at line " + line + " - " + message);
+    void addError(String message, int line) {
+        semanticErrors.add("Error at line " + (line + lineOffset) + " - " + message);
+        if (trace != null) {
+            trace.errorLines.add(line);
+            trace.errorMessages.add(message);
+        }
+    }
+
+    // Acceso a las tablas: si se está grabando una sentencia, queda anotado qué leyó y qué declaró
+
+    private String lookup(String name) {
+        String type = symbolTable.get(name);
+        if (trace != null && !trace.written.contains(name) && !trace.reads.containsKey(name)) {
+            trace.reads.put(name, type);
+        }
+        return type;
+    }
+
+    private void declare(String name, String type) {
+        symbolTable.put(name, type);
+        if (trace != null) {
+            trace.written.add(name);
+            if (functionDepth == 0) {
+                trace.writes.add(new String[]{name, type});
+            }
+        }
+    }
+
+    private FunctionInfo lookupFunction(String name) {
+        FunctionInfo info = functionTable.get(name);
+        if (trace != null) {
+            trace.functionReads.putIfAbsent(name, info != null ? info.parameters.size() : -1);
+        }
+        return info;
+    }
+
+    // Validación por sentencia, usada por IncrementalCompiler. Las líneas de la sentencia
+    // son relativas a su segmento; lineOffset las lleva a la línea real del editor.
+
+    void collectFunction(VGraphParser.FunctionContext ctx, int lineOffset) {
+        this.lineOffset = lineOffset;
+        try {
+            collectFunction(ctx);
+        } finally {
+            this.lineOffset = 0;
+        }
+    }
+
+    Trace validateSentence(VGraphParser.SentenceContext sentence, int lineOffset) {
+        this.lineOffset = lineOffset;
+        trace = new Trace();
+        try {
+            visit(sentence);
+            return trace;
+        } finally {
+            trace = null;
+            functionDepth = 0;
+            this.lineOffset = 0;
+        }
+    }
+
+    // Repite una validación anterior si todo lo que leyó sigue igual; si no, devuelve false
+    boolean replay(Trace previous, int lineOffset) {
+        for (Map.Entry<String, String> read : previous.reads.entrySet()) {
+            if (!Objects.equals(symbolTable.get(read.getKey()), read.getValue())) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, Integer> read : previous.functionReads.entrySet()) {
+            FunctionInfo info = functionTable.get(read.getKey());
+            if ((info != null ? info.parameters.size() : -1) != read.getValue()) {
+                return false;
+            }
+        }
+        for (String[] write : previous.writes) {
+            symbolTable.put(write[0], write[1]);
+        }
+        for (int i = 0; i < previous.errorLines.size(); i++) {
+            semanticErrors.add("Error at line " + (previous.errorLines.get(i) + lineOffset) +
+                    " - " + previous.errorMessages.get(i));
+        }
+        return true;
     }
 }
\ No newline at end of file
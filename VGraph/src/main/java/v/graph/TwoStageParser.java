@@ -0,0 +1,132 @@
+package v.graph;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Parseo en dos etapas: primero con predicción SLL y BailErrorStrategy, que alcanza para
+ * casi cualquier programa válido y evita el análisis de contexto completo que ALL(*) hace
+ * en las alternativas de var_decl y expression. Si esa etapa falla (un error de sintaxis
+ * real o una decisión que SLL no puede resolver) se vuelve al principio de los tokens y se
+ * parsea en modo LL con la estrategia de errores normal, así los mensajes son los de siempre.
+ *
+ * El lexer corre una sola vez: los tokens quedan en el CommonTokenStream para la segunda etapa.
+ *
+ * program(errors) reporta los errores de sintaxis con los mensajes de IncrementalCompiler
+ * (sentencia por sentencia), para que Compile, Preview y Run muestren lo mismo.
+ */
+public class TwoStageParser {
+
+    public enum Mode { SLL, LL }
+
+    // Junta los mensajes del parseo completo; solo se usan si IncrementalCompiler no encuentra
+    // ningún error
+    private static final class Messages extends BaseErrorListener {
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
+                                int line, int charPositionInLine, String msg, RecognitionException e) {
+            errors.add("Error at line " + line + ":" + charPositionInLine + " - " + msg);
+        }
+    }
+
+    private final CharStream input;
+    private final VGraphLexer lexer;
+    private final CommonTokenStream tokens;
+    private final VGraphParser parser;
+    private ANTLRErrorListener parserListener;
+    private Mode mode;
+
+    public TwoStageParser(CharStream input) {
+        this(input, null);
+    }
+
+    public TwoStageParser(CharStream input, ANTLRErrorListener errorListener) {
+        this(input, errorListener, errorListener);
+    }
+
+    public TwoStageParser(CharStream input, ANTLRErrorListener lexerListener, ANTLRErrorListener parserListener) {
+        this.input = input;
+        this.lexer = new VGraphLexer(input);
+        lexer.removeErrorListeners();
+        if (lexerListener != null) {
+            lexer.addErrorListener(lexerListener);
+        }
+        this.tokens = new CommonTokenStream(lexer);
+        this.parser = new VGraphParser(tokens);
+        this.parserListener = parserListener;
+    }
+
+    public VGraphParser.ProgramContext program() {
+        return parse(VGraphParser::program);
+    }
+
+    // Parsea el programa y agrega a errors los errores de sintaxis, con los mismos mensajes y
+    // posiciones que IncrementalCompiler. Con errores el árbol devuelto no sirve para analizarlo.
+    public VGraphParser.ProgramContext program(List<String> errors) {
+        if (parserListener != null) {
+            throw new IllegalStateException("program(errors) necesita un TwoStageParser sin listeners");
+        }
+        Messages whole = new Messages();
+        lexer.addErrorListener(whole);
+        parserListener = whole;
+        VGraphParser.ProgramContext tree;
+        try {
+            tree = program();
+        } finally {
+            lexer.removeErrorListener(whole);
+            parserListener = null;
+        }
+        if (!whole.errors.isEmpty()) {
+            List<String> same = IncrementalCompiler.syntaxErrors(input.getText(Interval.of(0, input.size() - 1)));
+            errors.addAll(same.isEmpty() ? whole.errors : same);
+        }
+        return tree;
+    }
+
+    public <T extends ParserRuleContext> T parse(Function<VGraphParser, T> rule) {
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            T tree = rule.apply(parser);
+            mode = Mode.SLL;
+            return tree;
+        } catch (ParseCancellationException e) {
+            // Se repite desde el principio con LL completo y recuperación de errores
+        }
+
+        parser.reset();
+        if (parserListener != null) {
+            parser.addErrorListener(parserListener);
+        }
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        mode = Mode.LL;
+        return rule.apply(parser);
+    }
+
+    // Modo con el que terminó el último parse
+    public Mode getMode() {
+        return mode;
+    }
+
+    public VGraphParser getParser() {
+        return parser;
+    }
+}
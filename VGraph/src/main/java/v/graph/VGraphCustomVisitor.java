@@ -1,12 +1,21 @@
 package v.graph;
 
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
 
+/**
+ * Genera el main.c para el runtime de graphics.c. Las expresiones pasan por CExpr, que
+ * pliega constantes y simplifica identidades; dentro de un loop, las subexpresiones que
+ * no dependen de nada que el loop modifique se calculan una sola vez antes del while.
+ */
 public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
     private int indentLevel = 0;
     private final StringBuilder includes = new StringBuilder();
@@ -16,6 +25,38 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
     // NUEVO: Mapa para rastrear tipos de variables
     private final Map<String, String> variableTypes = new HashMap<>();
 
+    private final ExpressionLowering lowering = new ExpressionLowering();
+
+    // Loops que se están generando, el más interno primero
+    private final Deque<LoopScope> loops = new ArrayDeque<>();
+    // Variables que alguna función puede modificar: llamar a una función dentro de un
+    // loop cuenta como asignarlas todas
+    private final Set<String> functionAssigned = new HashSet<>();
+    private int tempCounter = 0;
+    // false genera el C tal cual (solo plegado), para comparar la salida con y sin optimizar
+    private final boolean optimizeLoops;
+    private final boolean fastTrig;
+    // null: los double se generan como double; si no, como fixed_t en ese formato Q
+    private final FixedPoint fixedPoint;
+
+    // Un loop en generación: lo que modifica y los temporales que se calculan antes del while
+    private static final class LoopScope {
+        final Set<String> assigned;
+        final StringBuilder hoisted = new StringBuilder();
+        final Map<String, String> temps = new HashMap<>();
+        final String indent;
+        // Variable de inducción (v = v + c con c constante y v sin otra asignación en el
+        // cuerpo) o null; updates son las sumas que reemplazan a los v * k del cuerpo
+        String induction;
+        int step;
+        final StringBuilder updates = new StringBuilder();
+
+        LoopScope(Set<String> assigned, String indent) {
+            this.assigned = assigned;
+            this.indent = indent;
+        }
+    }
+
     // Variables conflictivas con math.h que necesitan ser renombradas
     private static final Set<String> MATH_CONFLICTS = new HashSet<>();
     static {
@@ -29,12 +70,35 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
         MATH_CONFLICTS.add("sin");   // Función seno
         MATH_CONFLICTS.add("cos");   // Función coseno
         MATH_CONFLICTS.add("tan");   // Función tangente
+        MATH_CONFLICTS.add("fast_sin"); // Seno por tabla de graphics.c
+        MATH_CONFLICTS.add("fast_cos"); // Coseno por tabla de graphics.c
     }
 
     public VGraphCustomVisitor() {
+        this(true);
+    }
+
+    public VGraphCustomVisitor(boolean optimizeLoops) {
+        this(optimizeLoops, false);
+    }
+
+    // fastTrig: sin/cos se generan como fast_sin/fast_cos (tabla de graphics.c)
+    public VGraphCustomVisitor(boolean optimizeLoops, boolean fastTrig) {
+        this(optimizeLoops, fastTrig, 0);
+    }
+
+    // fixedFracBits > 0: los double pasan a punto fijo con esa cantidad de bits de fracción
+    // (ver FixedPoint); sin y cos son entonces fx_sin/fx_cos y fastTrig no cambia nada
+    public VGraphCustomVisitor(boolean optimizeLoops, boolean fastTrig, int fixedFracBits) {
+        this.optimizeLoops = optimizeLoops;
+        this.fastTrig = fastTrig;
+        this.fixedPoint = fixedFracBits > 0 ? new FixedPoint(fixedFracBits) : null;
         includes.append("#include <stdio.h>\n");
         includes.append("#include <math.h>\n");
         includes.append("#include <unistd.h>\n");
+        if (fixedPoint != null) {
+            includes.append("#define FX_FRAC_BITS ").append(fixedFracBits).append("\n");
+        }
         includes.append("#include \"graphics.h\"\n\n");
     }
 
@@ -54,28 +118,200 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
         return varName;
     }
 
-    // MODIFICADO: Método para verificar si una expresión es constante
-    private boolean isConstantExpression(String expr) {
-        if (expr.startsWith("\"") && expr.endsWith("\"")) {
-            return true; // Es un string (color)
+    // Tipo de C con el que se declaró una variable (las no declaradas se toman como int)
+    private CExpr.Type typeOf(String varName) {
+        String type = variableTypes.get(varName);
+        if ("double".equals(type)) {
+            return CExpr.Type.DOUBLE;
+        }
+        if ("char*".equals(type)) {
+            return CExpr.Type.COLOR;
         }
+        return CExpr.Type.INT;
+    }
 
-        // Verificar si es un número simple (entero o decimal)
-        try {
-            Double.parseDouble(expr);
-            return true;
-        } catch (NumberFormatException e) {
-            // No es un número simple
+    // Un double constante asignado a un int se trunca acá, como se hacía con los literales
+    private CExpr coerce(CExpr expr, String type) {
+        if (type.equals("int") && expr.isConstant() && expr.type == CExpr.Type.DOUBLE) {
+            return CExpr.constant((int) ((Double) ((CExpr.Const) expr).value).doubleValue());
         }
+        return expr;
+    }
+
+    // La expresión como valor de tipo type (el de la variable que la recibe, "int" para los
+    // argumentos o "" si no importa): ahí es donde C convierte entre int y double
+    private CExpr convert(CExpr expr, String type) {
+        return fixedPoint == null ? coerce(expr, type) : fixedPoint.convert(expr, type);
+    }
+
+    // Tipo de C de una declaración
+    private String declaredType(String type) {
+        return fixedPoint != null && type.equals("double") ? "fixed_t" : type;
+    }
 
-        // Verificar si contiene funciones matemáticas o variables
-        if (expr.contains("cos(") || expr.contains("sin(") ||
-                expr.contains("+") || expr.contains("-") || expr.contains("*") || expr.contains("/") ||
-                expr.matches(".*[a-zA-Z_][a-zA-Z0-9_]*.*")) {
-            return false; // Contiene expresiones complejas
+    // pixel, line, rect, circle, wait, println y los parámetros de las funciones son int
+    private String intArgument(VGraphParser.ExpressionContext ctx) {
+        return emit(convert(lower(ctx), "int"));
+    }
+
+    private CExpr lower(ParseTree ctx) {
+        return lowering.visit(ctx);
+    }
+
+    // Texto C de una expresión, con las partes invariantes de los loops ya adelantadas
+    private String emit(CExpr expr) {
+        return hoist(expr).toC();
+    }
+
+    private CExpr hoist(CExpr expr) {
+        if (!optimizeLoops || loops.isEmpty() || expr.isTrivial() || expr.type == CExpr.Type.COLOR) {
+            return expr;
+        }
+        // Se adelanta al loop más externo del que no depende, así un cálculo que no
+        // cambia en ningún nivel se hace una sola vez
+        if (!expr.canTrap()) {
+            Set<String> vars = new HashSet<>();
+            expr.collectVars(vars);
+            LoopScope target = null;
+            Iterator<LoopScope> outward = loops.descendingIterator();
+            while (outward.hasNext()) {
+                LoopScope scope = outward.next();
+                if (java.util.Collections.disjoint(vars, scope.assigned)) {
+                    target = scope;
+                    break;
+                }
+            }
+            if (target != null) {
+                return invariant(target, expr);
+            }
         }
+        CExpr reduced = reduce(expr);
+        if (reduced != null) {
+            return reduced;
+        }
+        return expr.withChildren(this::hoist);
+    }
 
-        return true;
+    // Temporal const calculado antes del while de target (uno solo por expresión)
+    private CExpr invariant(LoopScope target, CExpr expr) {
+        String text = expr.toC();
+        String temp = target.temps.get(text);
+        if (temp == null) {
+            temp = "_inv" + tempCounter++;
+            String type = expr.type == CExpr.Type.DOUBLE ? "double" : "int";
+            target.hoisted.append(target.indent).append("const ").append(type).append(" ")
+                    .append(temp).append(" = ").append(text).append(";\n");
+            target.temps.put(text, temp);
+        }
+        return CExpr.var(temp, expr.type);
+    }
+
+    // Reducción de fuerza: v * k, con v la inducción de un loop y k invariante en él, pasa
+    // a ser un temporal que arranca en v * k y suma step * k en cada vuelta. Solo con
+    // enteros, donde la suma repetida da exactamente lo mismo que el producto (también
+    // cuando desborda, porque ambos dan el resultado módulo 2^32).
+    private CExpr reduce(CExpr expr) {
+        if (!(expr instanceof CExpr.Binary) || expr.type != CExpr.Type.INT) {
+            return null;
+        }
+        CExpr.Binary product = (CExpr.Binary) expr;
+        if (product.op != '*') {
+            return null;
+        }
+        for (LoopScope scope : loops) {
+            if (scope.induction == null) {
+                continue;
+            }
+            CExpr factor = isVar(product.left, scope.induction) ? product.right
+                    : isVar(product.right, scope.induction) ? product.left : null;
+            if (factor == null || factor.type != CExpr.Type.INT || factor.canTrap()) {
+                continue;
+            }
+            Set<String> vars = new HashSet<>();
+            factor.collectVars(vars);
+            if (!java.util.Collections.disjoint(vars, scope.assigned)) {
+                continue;
+            }
+            // k ya es invariante en este loop: queda en un temporal (o es trivial)
+            CExpr k = hoist(factor);
+            String key = scope.induction + " * " + k.toC();
+            String temp = scope.temps.get(key);
+            if (temp == null) {
+                temp = "_sr" + tempCounter++;
+                CExpr delta = CExpr.binary('*', CExpr.constant(scope.step), k);
+                if (!delta.isTrivial()) {
+                    delta = invariant(scope, delta);
+                }
+                scope.hoisted.append(scope.indent).append("int ").append(temp).append(" = ")
+                        .append(key).append(";\n");
+                scope.updates.append(scope.indent).append("    ").append(temp).append(" = ")
+                        .append(CExpr.binary('+', CExpr.var(temp, CExpr.Type.INT), delta).toC())
+                        .append(";\n");
+                scope.temps.put(key, temp);
+            }
+            return CExpr.var(temp, CExpr.Type.INT);
+        }
+        return null;
+    }
+
+    private static boolean isVar(CExpr expr, String name) {
+        return expr instanceof CExpr.Var && ((CExpr.Var) expr).name.equals(name);
+    }
+
+    // v = v + c o v = v - c (c constante entera) con v int que el cuerpo no toca
+    private void detectInduction(VGraphParser.Loop_commandContext ctx, LoopScope scope) {
+        String name = resolveVariableName(ctx.e3.ID().getText());
+        if (typeOf(name) != CExpr.Type.INT) {
+            return;
+        }
+        Set<String> body = new HashSet<>();
+        collectAssigned(ctx.e4, body);
+        if (body.contains(name)) {
+            return;
+        }
+        CExpr update = lower(ctx.e3.expression());
+        if (!(update instanceof CExpr.Binary)) {
+            return;
+        }
+        CExpr.Binary sum = (CExpr.Binary) update;
+        CExpr.Const c = null;
+        if (sum.op == '+' && isVar(sum.left, name) && sum.right instanceof CExpr.Const) {
+            c = (CExpr.Const) sum.right;
+        } else if (sum.op == '+' && isVar(sum.right, name) && sum.left instanceof CExpr.Const) {
+            c = (CExpr.Const) sum.left;
+        } else if (sum.op == '-' && isVar(sum.left, name) && sum.right instanceof CExpr.Const) {
+            c = (CExpr.Const) sum.right;
+        }
+        if (c == null || c.type != CExpr.Type.INT) {
+            return;
+        }
+        int step = (Integer) c.value;
+        if (sum.op == '-') {
+            if (step == Integer.MIN_VALUE) {
+                return;
+            }
+            step = -step;
+        }
+        scope.induction = name;
+        scope.step = step;
+    }
+
+    // Todo lo que se asigna o declara dentro de tree (para saber qué es invariante en un loop)
+    private void collectAssigned(ParseTree tree, Set<String> assigned) {
+        if (tree instanceof VGraphParser.Var_assignContext) {
+            assigned.add(resolveVariableName(((VGraphParser.Var_assignContext) tree).idTok.getText()));
+        } else if (tree instanceof VGraphParser.Increment_loopContext) {
+            assigned.add(resolveVariableName(((VGraphParser.Increment_loopContext) tree).ID().getText()));
+        } else if (tree instanceof VGraphParser.Var_declContext) {
+            for (TerminalNode id : ((VGraphParser.Var_declContext) tree).ID()) {
+                assigned.add(resolveVariableName(id.getText()));
+            }
+        } else if (tree instanceof VGraphParser.FunCallContext) {
+            assigned.addAll(functionAssigned);
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collectAssigned(tree.getChild(i), assigned);
+        }
     }
 
     @Override
@@ -84,6 +320,12 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
         StringBuilder mainCode = new StringBuilder();
         StringBuilder mainInitializations = new StringBuilder();
 
+        for (VGraphParser.SentenceContext sentence : ctx.sentence()) {
+            if (sentence.function() != null) {
+                collectAssigned(sentence.function(), functionAssigned);
+            }
+        }
+
         // PRIMERA PASADA: Recopilar declaraciones de variables globales
         for (VGraphParser.SentenceContext sentence : ctx.sentence()) {
             if (sentence.var_decl() != null) {
@@ -91,33 +333,22 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
                 if (varDeclCtx.expression() != null) {
                     // Declaración con asignación: verificar si es constante
-                    String expr = visit(varDeclCtx.expression());
+                    CExpr expr = lower(varDeclCtx.expression());
                     String varName = resolveVariableName(varDeclCtx.id1.getText());
                     String type = visit(varDeclCtx.type());
 
                     // NUEVO: Registrar el tipo de la variable
                     variableTypes.put(varName, type);
 
-                    if (isConstantExpression(expr)) {
-                        // Es constante, puede ir como global
+                    if (expr.isConstant()) {
+                        // Es constante (ya plegada), puede ir como global
                         String globalVar = visit(varDeclCtx);
                         globalVars.append(globalVar);
                     } else {
                         // No es constante, declarar como global sin inicializar
-                        globalVars.append(type).append(" ").append(varName).append(";\n");
-
-                        // MODIFICADO: Solo convertir a entero si el tipo es int
-                        if (type.equals("int") && expr.contains(".")) {
-                            try {
-                                double doubleValue = Double.parseDouble(expr);
-                                expr = String.valueOf((int) doubleValue);
-                            } catch (NumberFormatException e) {
-                                // Si no es un número directo, mantener la expresión
-                            }
-                        }
-                        // Si es double, mantener el valor decimal
-
-                        mainInitializations.append("    ").append(varName).append(" = ").append(expr).append(";\n");
+                        globalVars.append(declaredType(type)).append(" ").append(varName).append(";\n");
+                        mainInitializations.append("    ").append(varName).append(" = ")
+                                .append(convert(expr, type).toC()).append(";\n");
                     }
                 } else {
                     // Declaración simple sin asignación
@@ -209,29 +440,22 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
         if (ctx.expression() != null) {
             String varName = resolveVariableName(ctx.id1.getText());
-            String value = visit(ctx.expression());
-
-            // MODIFICADO: Solo convertir a entero si el tipo es int
-            if (type.equals("int") && value.contains(".")) {
-                try {
-                    double doubleValue = Double.parseDouble(value);
-                    value = String.valueOf((int) doubleValue);
-                } catch (NumberFormatException e) {
-                    // Si no es un número directo, mantener la expresión
-                }
-            }
-            // Si es double, mantener el valor decimal tal como está
+            // Solo se trunca si el tipo es int; un double mantiene el valor decimal
+            String value = emit(convert(lower(ctx.expression()), type));
+            variableTypes.put(varName, type);
 
-            sb.append(type).append(" ").append(varName).append(" = ").append(value).append(";\n");
+            sb.append(declaredType(type)).append(" ").append(varName).append(" = ").append(value).append(";\n");
         } else {
-            sb.append(type).append(" ");
+            sb.append(declaredType(type)).append(" ");
             String firstVar = resolveVariableName(ctx.id1.getText());
             sb.append(firstVar);
+            variableTypes.put(firstVar, type);
 
             List<TerminalNode> allIds = ctx.ID();
             for (int i = 1; i < allIds.size(); i++) {
                 String varName = resolveVariableName(allIds.get(i).getText());
                 sb.append(", ").append(varName);
+                variableTypes.put(varName, type);
             }
             sb.append(";\n");
         }
@@ -239,33 +463,13 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
         return sb.toString();
     }
 
-    // MODIFICADO: Método visitVar_assign (sin cambios en lógica, pero documentado)
     @Override
     public String visitVar_assign(VGraphParser.Var_assignContext ctx) {
-        String expr = visit(ctx.expression());
         String varName = resolveVariableName(ctx.ID().getText());
-
-        // NOTA: Aquí podrías usar variableTypes.get(varName) para obtener el tipo
-        // y decidir si convertir o no, pero por simplicidad mantenemos como estaba
-
-        if (expr.contains(".")) {
-            try {
-                double doubleValue = Double.parseDouble(expr);
-                // Solo convertir si sabemos que es int (opcional)
-                String varType = variableTypes.get(varName);
-                if ("int".equals(varType)) {
-                    expr = String.valueOf((int) doubleValue);
-                }
-            } catch (NumberFormatException e) {
-                // Si no es un número directo, mantener la expresión original
-            }
-        }
-
-        if (expr.startsWith("\"") && expr.endsWith("\"")) {
-            return indent() + varName + " = " + expr + ";\n";
-        } else {
-            return indent() + varName + " = " + expr + ";\n";
-        }
+        // Un double constante se trunca solo si sabemos que la variable es int
+        String varType = variableTypes.getOrDefault(varName, "");
+        String expr = emit(convert(lower(ctx.expression()), varType));
+        return indent() + varName + " = " + expr + ";\n";
     }
 
     // Los demás métodos se mantienen iguales...
@@ -307,18 +511,21 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
     public String visitFrame(VGraphParser.FrameContext ctx) {
         StringBuilder sb = new StringBuilder();
         sb.append(indent()).append("// === FRAME START ===\n");
+        sb.append(indent()).append("frame_begin();\n");
 
         for (VGraphParser.SentenceContext sentence : ctx.sentence()) {
             sb.append(visit(sentence));
         }
 
+        // Se presenta el frame completo de una vez (page flip o copia del back buffer)
+        sb.append(indent()).append("frame_end();\n");
         sb.append(indent()).append("// === FRAME END ===\n");
         return sb.toString();
     }
 
     @Override
     public String visitPrintln(VGraphParser.PrintlnContext ctx) {
-        String expr = visit(ctx.expression());
+        String expr = intArgument(ctx.expression());
         return indent() + "println_int(" + expr + ");\n";
     }
 
@@ -326,13 +533,32 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
     public String visitLoop_command(VGraphParser.Loop_commandContext ctx) {
         StringBuilder sb = new StringBuilder();
 
+        // La inicialización corre una vez, fuera del loop
         sb.append(visit(ctx.e1));
-        sb.append(indent()).append("while (").append(visit(ctx.e2)).append(") {\n");
+
+        Set<String> assigned = new HashSet<>();
+        collectAssigned(ctx, assigned);
+        LoopScope scope = new LoopScope(assigned, indent());
+        if (optimizeLoops) {
+            detectInduction(ctx, scope);
+        }
+        loops.push(scope);
+
+        StringBuilder loop = new StringBuilder();
+        loop.append(indent()).append("while (").append(visit(ctx.e2)).append(") {\n");
         indentLevel++;
-        sb.append(visit(ctx.e4));
-        sb.append(visit(ctx.e3));
+        loop.append(visit(ctx.e4));
+        loop.append(visit(ctx.e3));
+        loop.append(scope.updates);
         indentLevel--;
-        sb.append(indent()).append("}\n");
+        loop.append(indent()).append("}\n");
+
+        loops.pop();
+        if (scope.hoisted.length() > 0) {
+            sb.append(indent()).append("// Loop invariants\n");
+            sb.append(scope.hoisted);
+        }
+        sb.append(loop);
 
         return sb.toString();
     }
@@ -348,32 +574,14 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
     @Override
     public String visitIncrement_loop(VGraphParser.Increment_loopContext ctx) {
-        String expr = visit(ctx.expression());
         String varName = resolveVariableName(ctx.ID().getText());
+        String expr = emit(convert(lower(ctx.expression()), variableTypes.getOrDefault(varName, "")));
         return indent() + varName + " = " + expr + ";\n";
     }
 
     @Override
     public String visitComparison(VGraphParser.ComparisonContext ctx) {
-        String left = visit(ctx.e1);
-        String right = visit(ctx.e2);
-
-        String op = "";
-        if (ctx.GT() != null) {
-            op = ">";
-        } else if (ctx.LT() != null) {
-            op = "<";
-        } else if (ctx.GEQ() != null) {
-            op = ">=";
-        } else if (ctx.LEQ() != null) {
-            op = "<=";
-        } else if (ctx.EQ() != null) {
-            op = "==";
-        } else if (ctx.NEQ() != null) {
-            op = "!=";
-        }
-
-        return "(" + left + " " + op + " " + right + ")";
+        return emit(convert(lower(ctx), ""));
     }
 
     @Override
@@ -436,93 +644,14 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
     @Override
     public String visitExpression(VGraphParser.ExpressionContext ctx) {
-        if (ctx.operand() != null) {
-            return visit(ctx.operand());
-        } else if (ctx.comparison() != null) {
-            return visit(ctx.comparison());
-        }
-        return "";
-    }
-
-    @Override
-    public String visitOperand(VGraphParser.OperandContext ctx) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(visit(ctx.t1));
-
-        List<VGraphParser.FactorContext> factors = ctx.factor();
-        int plusCount = ctx.PLUS() != null ? ctx.PLUS().size() : 0;
-        int minusCount = ctx.MINUS() != null ? ctx.MINUS().size() : 0;
-
-        for (int i = 1; i < factors.size(); i++) {
-            if (i <= plusCount) {
-                sb.append(" + ");
-            } else if (i <= plusCount + minusCount) {
-                sb.append(" - ");
-            }
-            sb.append(visit(factors.get(i)));
-        }
-
-        return sb.toString();
-    }
-
-    @Override
-    public String visitFactor(VGraphParser.FactorContext ctx) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(visit(ctx.t1));
-
-        List<VGraphParser.TermContext> terms = ctx.term();
-        int multCount = ctx.MULT() != null ? ctx.MULT().size() : 0;
-        int divCount = ctx.DIV() != null ? ctx.DIV().size() : 0;
-        int modCount = ctx.MODULUS() != null ? ctx.MODULUS().size() : 0;
-
-        for (int i = 1; i < terms.size(); i++) {
-            if (i <= multCount) {
-                sb.append(" * ");
-            } else if (i <= multCount + divCount) {
-                sb.append(" / ");
-            } else if (i <= multCount + divCount + modCount) {
-                sb.append(" % ");
-            }
-            sb.append(visit(terms.get(i)));
-        }
-
-        return sb.toString();
-    }
-
-    @Override
-    public String visitTerm(VGraphParser.TermContext ctx) {
-        if (ctx.NUMBER() != null) {
-            return ctx.NUMBER().getText();
-        } else if (ctx.COLOR_VALUES() != null) {
-            return "\"" + ctx.COLOR_VALUES().getText() + "\"";
-        } else if (ctx.BOOLEAN() != null) {
-            return ctx.BOOLEAN().getText().equals("true") ? "1" : "0";
-        } else if (ctx.ID() != null) {
-            return resolveVariableName(ctx.ID().getText());
-        } else if (ctx.expression() != null) {
-            return "(" + visit(ctx.expression()) + ")";
-        } else if (ctx.cos() != null) {
-            return visit(ctx.cos());
-        } else if (ctx.sin() != null) {
-            return visit(ctx.sin());
-        }
-        return "0";
-    }
-
-    @Override
-    public String visitSin(VGraphParser.SinContext ctx) {
-        return "sin(" + visit(ctx.expression()) + ")";
-    }
-
-    @Override
-    public String visitCos(VGraphParser.CosContext ctx) {
-        return "cos(" + visit(ctx.expression()) + ")";
+        return emit(convert(lower(ctx), ""));
     }
 
     @Override
     public String visitWait_command(VGraphParser.Wait_commandContext ctx) {
-        String time = visit(ctx.e);
-        return indent() + "wait_seconds(" + time + ");\n";
+        String time = intArgument(ctx.e);
+        // En milisegundos, como en la preview, con el reloj de frames de graphics.c
+        return indent() + "wait_ms(" + time + ");\n";
     }
 
     @Override
@@ -544,28 +673,28 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
     @Override
     public String visitShapeCall(VGraphParser.ShapeCallContext ctx) {
         if (ctx.LINE() != null) {
-            String x1 = visit(ctx.a);
-            String y1 = visit(ctx.b);
-            String x2 = visit(ctx.c);
-            String y2 = visit(ctx.d);
+            String x1 = intArgument(ctx.a);
+            String y1 = intArgument(ctx.b);
+            String x2 = intArgument(ctx.c);
+            String y2 = intArgument(ctx.d);
             return indent() + "line(" + x1 + ", " + y1 + ", " + x2 + ", " + y2 + ");\n";
 
         } else if (ctx.RECT() != null) {
-            String x = visit(ctx.x);
-            String y = visit(ctx.y);
-            String w = visit(ctx.w);
-            String h = visit(ctx.h);
+            String x = intArgument(ctx.x);
+            String y = intArgument(ctx.y);
+            String w = intArgument(ctx.w);
+            String h = intArgument(ctx.h);
             return indent() + "rect(" + x + ", " + y + ", " + w + ", " + h + ");\n";
 
         } else if (ctx.CIRCLE() != null) {
-            String x = visit(ctx.x);
-            String y = visit(ctx.y);
-            String r = visit(ctx.r);
+            String x = intArgument(ctx.x);
+            String y = intArgument(ctx.y);
+            String r = intArgument(ctx.r);
             return indent() + "circle(" + x + ", " + y + ", " + r + ");\n";
 
         } else if (ctx.PIXEL() != null) {
-            String x = visit(ctx.x);
-            String y = visit(ctx.y);
+            String x = intArgument(ctx.x);
+            String y = intArgument(ctx.y);
             return indent() + "pixel(" + x + ", " + y + ");\n";
         }
         return "";
@@ -577,14 +706,18 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
         sb.append("void ").append(ctx.funID.getText()).append("(");
 
+        // Los parámetros son int y tapan a las globales del mismo nombre
+        Map<String, String> outerTypes = new HashMap<>(variableTypes);
         if (ctx.arg1 != null) {
             String arg1Name = resolveVariableName(ctx.arg1.getText());
             sb.append("int ").append(arg1Name);
+            variableTypes.put(arg1Name, "int");
 
             List<TerminalNode> allIds = ctx.ID();
             for (int i = 2; i < allIds.size(); i++) {
                 String argName = resolveVariableName(allIds.get(i).getText());
                 sb.append(", int ").append(argName);
+                variableTypes.put(argName, "int");
             }
         }
 
@@ -598,6 +731,8 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
 
         indentLevel--;
         sb.append("}\n\n");
+        variableTypes.clear();
+        variableTypes.putAll(outerTypes);
 
         return sb.toString();
     }
@@ -608,15 +743,89 @@ public class VGraphCustomVisitor extends VGraphBaseVisitor<String> {
         sb.append(indent()).append(ctx.funID.getText()).append("(");
 
         if (ctx.arg1 != null) {
-            sb.append(visit(ctx.arg1));
+            sb.append(intArgument(ctx.arg1));
 
             List<VGraphParser.ExpressionContext> allExpressions = ctx.expression();
             for (int i = 1; i < allExpressions.size(); i++) {
-                sb.append(", ").append(visit(allExpressions.get(i)));
+                sb.append(", ").append(intArgument(allExpressions.get(i)));
             }
         }
 
         sb.append(");\n");
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    // Baja las expresiones del árbol de ANTLR a CExpr. Los operadores se recorren en el
+    // orden del código, así a - b + c queda (a - b) + c
+    private final class ExpressionLowering extends VGraphBaseVisitor<CExpr> {
+
+        @Override
+        public CExpr visitExpression(VGraphParser.ExpressionContext ctx) {
+            return visit(ctx.getChild(0));
+        }
+
+        @Override
+        public CExpr visitComparison(VGraphParser.ComparisonContext ctx) {
+            return CExpr.compare(ctx.getChild(1).getText(), visit(ctx.e1), visit(ctx.e2));
+        }
+
+        @Override
+        public CExpr visitOperand(VGraphParser.OperandContext ctx) {
+            CExpr result = visit(ctx.t1);
+            for (int i = 1; i < ctx.getChildCount(); i += 2) {
+                char op = ctx.getChild(i).getText().charAt(0);
+                result = CExpr.binary(op, result, visit(ctx.getChild(i + 1)));
+            }
+            return result;
+        }
+
+        @Override
+        public CExpr visitFactor(VGraphParser.FactorContext ctx) {
+            CExpr result = visit(ctx.t1);
+            for (int i = 1; i < ctx.getChildCount(); i += 2) {
+                char op = ctx.getChild(i).getText().charAt(0);
+                result = CExpr.binary(op, result, visit(ctx.getChild(i + 1)));
+            }
+            return result;
+        }
+
+        @Override
+        public CExpr visitTerm(VGraphParser.TermContext ctx) {
+            if (ctx.NUMBER() != null) {
+                String text = ctx.NUMBER().getText();
+                if (!text.contains(".")) {
+                    try {
+                        return CExpr.constant(Integer.parseInt(text));
+                    } catch (NumberFormatException e) {
+                        // No entra en un int: se trata como double
+                    }
+                }
+                return CExpr.constant(Double.parseDouble(text));
+            } else if (ctx.COLOR_VALUES() != null) {
+                return CExpr.color(ctx.COLOR_VALUES().getText());
+            } else if (ctx.BOOLEAN() != null) {
+                return CExpr.constant(ctx.BOOLEAN().getText().equals("true") ? 1 : 0);
+            } else if (ctx.ID() != null) {
+                String name = resolveVariableName(ctx.ID().getText());
+                return CExpr.var(name, typeOf(name));
+            } else if (ctx.expression() != null) {
+                return visit(ctx.expression());
+            } else if (ctx.cos() != null) {
+                return visit(ctx.cos());
+            } else if (ctx.sin() != null) {
+                return visit(ctx.sin());
+            }
+            return CExpr.constant(0);
+        }
+
+        @Override
+        public CExpr visitSin(VGraphParser.SinContext ctx) {
+            return CExpr.call(fastTrig ? "fast_sin" : "sin", visit(ctx.expression()));
+        }
+
+        @Override
+        public CExpr visitCos(VGraphParser.CosContext ctx) {
+            return CExpr.call(fastTrig ? "fast_cos" : "cos", visit(ctx.expression()));
+        }
+    }
+}
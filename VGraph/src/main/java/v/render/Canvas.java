@@ -0,0 +1,320 @@
+package v.render;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Framebuffer en memoria: un int[] ARGB (el de un BufferedImage, así la vista previa
+ * no tiene que copiarlo). Usa los mismos algoritmos que generated/graphics.c:
+ * Bresenham para las líneas y punto medio para los círculos rellenos.
+ *
+ * Igual que en graphics.c, dentro de frame { } se dibuja en un buffer de atrás que
+ * parte de lo que ya se ve, y al terminar el bloque se presenta de una sola vez.
+ * También se llevan las mismas regiones sucias, así clear() y la presentación del
+ * frame solo tocan la zona que cambió.
+ */
+public class Canvas implements RasterTarget {
+    public static final int DEFAULT_WIDTH = 640;
+    public static final int DEFAULT_HEIGHT = 480;
+
+    private static final int BLACK = 0xFF000000;
+
+    // Rectángulo (inclusive) modificado, igual que dirty_rect en graphics.c
+    private static final class Region {
+        int x0, y0, x1, y1;
+        boolean empty = true;
+
+        void add(int ax0, int ay0, int ax1, int ay1) {
+            if (empty) {
+                x0 = ax0;
+                y0 = ay0;
+                x1 = ax1;
+                y1 = ay1;
+                empty = false;
+                return;
+            }
+            x0 = Math.min(x0, ax0);
+            y0 = Math.min(y0, ay0);
+            x1 = Math.max(x1, ax1);
+            y1 = Math.max(y1, ay1);
+        }
+
+        void add(Region other) {
+            if (!other.empty) {
+                add(other.x0, other.y0, other.x1, other.y1);
+            }
+        }
+
+        void reset() {
+            empty = true;
+        }
+
+        void set(Region other) {
+            reset();
+            add(other);
+        }
+    }
+
+    // Lo que se sabe del contenido de una página, igual que page_state
+    private static final class PageState {
+        final Region drawn = new Region(); // lo dibujado desde el último clear completo
+        boolean clean;                     // true si fuera de drawn todo es negro
+
+        void set(PageState other) {
+            drawn.set(other.drawn);
+            clean = other.clean;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final BufferedImage image;
+    private final int[] front;   // lo que se ve (el arreglo del BufferedImage)
+    private int[] back;          // se crea con el primer frame
+    private int[] pixels;        // donde se dibuja ahora: front o back
+    private int frameDepth;
+    private int color = BLACK;
+
+    private final PageState frontState = new PageState();
+    private final PageState backState = new PageState();
+    private PageState drawState = frontState;
+    private final Region changed = new Region();  // lo modificado durante el frame actual
+    private final Region pending = new Region();  // donde front y back difieren
+
+    private final FrameClock clock = new FrameClock();
+
+    public Canvas() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public Canvas(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.front = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.pixels = front;
+        Arrays.fill(front, BLACK);
+
+        frontState.clean = true;
+        pending.add(0, 0, width - 1, height - 1); // back todavía no existe
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public FrameClock getClock() {
+        return clock;
+    }
+
+    // Pixeles visibles
+    public int[] getPixels() {
+        return front;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Dibuja la imagen visible sin mezclarla con un frame que se está presentando
+    public void paintTo(Graphics g, int x, int y) {
+        synchronized (front) {
+            g.drawImage(image, x, y, null);
+        }
+    }
+
+    @Override
+    public void setColor(int r, int g, int b) {
+        color = 0xFF000000 | (r & 0xFF) << 16 | (g & 0xFF) << 8 | (b & 0xFF);
+    }
+
+    @Override
+    public void pixel(int x, int y) {
+        mark(x, y, x, y);
+        plot(x, y);
+    }
+
+    @Override
+    public void line(int x0, int y0, int x1, int y1) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int err = dx - dy;
+
+        mark(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1));
+
+        while (true) {
+            plot(x0, y0);
+
+            if (x0 == x1 && y0 == y1) break;
+
+            int e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x0 += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    // Rectángulo relleno, igual que rect() en graphics.c
+    @Override
+    public void rect(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        // Se recorta a la pantalla antes de recorrer las filas, en long porque x + width
+        // puede desbordar: rect(0, -1000000000, 10, 1000000100) son 100 filas, no mil millones
+        long left = Math.max(x, 0L);
+        long right = Math.min((long) x + width, this.width);
+        long top = Math.max(y, 0L);
+        long bottom = Math.min((long) y + height, this.height);
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        mark(left, top, right - 1, bottom - 1);
+        for (long row = top; row < bottom; row++) {
+            span((int) left, (int) right - 1, (int) row, color);
+        }
+    }
+
+    // Círculo relleno con el algoritmo de punto medio, igual que circle() en graphics.c
+    @Override
+    public void circle(int cx, int cy, int radius) {
+        if (radius < 0) {
+            return;
+        }
+        mark((long) cx - radius, (long) cy - radius, (long) cx + radius, (long) cy + radius);
+
+        int x = 0;
+        int y = radius;
+        int d = 1 - radius;
+
+        while (x <= y) {
+            span(cx - x, cx + x, cy + y, color);
+            span(cx - x, cx + x, cy - y, color);
+            span(cx - y, cx + y, cy + x, color);
+            span(cx - y, cx + y, cy - x, color);
+
+            if (d < 0) {
+                d += 2 * x + 3;
+            } else {
+                d += 2 * (x - y) + 5;
+                y--;
+            }
+            x++;
+        }
+    }
+
+    // Si la página ya estaba limpia fuera de lo dibujado, solo se borra esa zona
+    @Override
+    public void clear() {
+        Region region = new Region();
+        if (drawState.clean) {
+            region.set(drawState.drawn);
+        } else {
+            region.add(0, 0, width - 1, height - 1);
+        }
+
+        if (!region.empty) {
+            for (int y = region.y0; y <= region.y1; y++) {
+                span(region.x0, region.x1, y, BLACK);
+            }
+            (frameDepth > 0 ? changed : pending).add(region);
+        }
+        drawState.drawn.reset();
+        drawState.clean = true;
+    }
+
+    @Override
+    public void beginFrame() {
+        if (frameDepth++ > 0) {
+            return;
+        }
+        if (back == null) {
+            back = new int[front.length];
+        }
+        copyRegion(front, back, pending);
+        backState.set(frontState);
+        pending.reset();
+        changed.reset();
+
+        pixels = back;
+        drawState = backState;
+    }
+
+    @Override
+    public void endFrame() {
+        if (frameDepth == 0 || --frameDepth > 0) {
+            return;
+        }
+        synchronized (front) {
+            copyRegion(back, front, changed);
+        }
+        frontState.set(backState);
+        changed.reset();
+
+        pixels = front;
+        drawState = frontState;
+    }
+
+    private void plot(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return;
+        }
+        pixels[y * width + x] = color;
+    }
+
+    // Registra un rectángulo dibujado, recortado a la pantalla. En long para que los bordes
+    // calculados por quien llama (cx + radius) no den la vuelta antes de recortarse
+    private void mark(long x0, long y0, long x1, long y1) {
+        int left = (int) Math.max(x0, 0);
+        int top = (int) Math.max(y0, 0);
+        int right = (int) Math.min(x1, width - 1);
+        int bottom = (int) Math.min(y1, height - 1);
+        if (left > right || top > bottom) {
+            return;
+        }
+        drawState.drawn.add(left, top, right, bottom);
+        (frameDepth > 0 ? changed : pending).add(left, top, right, bottom);
+    }
+
+    private void copyRegion(int[] src, int[] dst, Region region) {
+        if (region.empty) {
+            return;
+        }
+        int length = region.x1 - region.x0 + 1;
+        for (int y = region.y0; y <= region.y1; y++) {
+            int offset = y * width + region.x0;
+            System.arraycopy(src, offset, dst, offset, length);
+        }
+    }
+
+    // Tramo horizontal [x0, x1] ya recortado a la pantalla: cubre los mismos pixeles
+    // que llamar a pixel() en cada x
+    private void span(int x0, int x1, int y, int value) {
+        if (y < 0 || y >= height) {
+            return;
+        }
+        x0 = Math.max(x0, 0);
+        x1 = Math.min(x1, width - 1);
+        if (x0 > x1) {
+            return;
+        }
+        int row = y * width;
+        Arrays.fill(pixels, row + x0, row + x1 + 1, value);
+    }
+}
@@ -0,0 +1,74 @@
+package v.render;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reloj de wait(ms), el mismo que wait_ms de generated/graphics.c. En vez de dormir ms a
+ * partir de ahora, cada wait espera hasta el deadline anterior + ms (en System.nanoTime),
+ * así lo que tarda en dibujarse un frame no se suma al período y una animación no se
+ * atrasa de a poco.
+ *
+ * Si el deadline ya pasó cuando se llama a wait (el frame tardó más que el período) se
+ * cuenta como perdido y el reloj se vuelve a alinear con el momento actual, en lugar de
+ * encadenar frames sin espera para recuperar el tiempo.
+ */
+public final class FrameClock {
+    private long deadline;
+    private boolean started;
+    private int waits;
+    private int missed;
+    private long worstLateNanos;
+
+    // Duerme hasta el próximo deadline. millis <= 0 no espera ni mueve el reloj
+    public void waitMillis(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!started) {
+            deadline = now;
+            started = true;
+        }
+        deadline += millis * 1_000_000L;
+        waits++;
+
+        long late = now - deadline;
+        if (late > 0) {
+            missed++;
+            worstLateNanos = Math.max(worstLateNanos, late);
+            deadline = now;
+            return;
+        }
+        // parkNanos puede volver antes (sin motivo o por una interrupción): se vuelve a
+        // esperar lo que falta, salvo que el hilo esté interrumpido
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // Cantidad de wait que esperaron algo
+    public int getWaits() {
+        return waits;
+    }
+
+    // wait que llegaron después de su deadline
+    public int getMissed() {
+        return missed;
+    }
+
+    public long getWorstLateNanos() {
+        return worstLateNanos;
+    }
+
+    // Resumen para mostrar al terminar, igual al que imprime graphics.c
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "frame clock: %d waits, %d missed deadlines (worst %.1f ms late)",
+                waits, missed, worstLateNanos / 1e6);
+    }
+}
@@ -0,0 +1,51 @@
+package v.render;
+
+import java.util.Map;
+
+/**
+ * Superficie donde dibujan los nodos de v.ast (pixel, line, rect, circle, setcolor y clear).
+ * Tiene las mismas operaciones que generated/graphics.c para que el resultado local
+ * coincida con lo que se ve en la FPGA.
+ */
+public interface RasterTarget {
+
+    // Nombre reservado en la tabla de símbolos; no es un ID válido del lenguaje
+    String SYMBOL = "$canvas";
+
+    // Slot que SlotScope reserva para el destino de dibujo
+    int SLOT = 0;
+
+    int getWidth();
+
+    int getHeight();
+
+    void setColor(int r, int g, int b);
+
+    void pixel(int x, int y);
+
+    void line(int x0, int y0, int x1, int y1);
+
+    void rect(int x, int y, int width, int height);
+
+    void circle(int cx, int cy, int radius);
+
+    void clear();
+
+    // frame { }: lo que se dibuje hasta endFrame no se ve hasta que termine el bloque
+    void beginFrame();
+
+    void endFrame();
+
+    // Reloj de los wait(ms) del programa que dibuja acá
+    FrameClock getClock();
+
+    static RasterTarget from(Map<String, Object> symbolTable) {
+        Object target = symbolTable.get(SYMBOL);
+        return target instanceof RasterTarget ? (RasterTarget) target : null;
+    }
+
+    static RasterTarget from(Object[] slots) {
+        Object target = slots[SLOT];
+        return target instanceof RasterTarget ? (RasterTarget) target : null;
+    }
+}
@@ -0,0 +1,60 @@
+package v.ast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Las cotas de error que promete el comentario de FastTrig
+class FastTrigTest {
+
+    private static double worst(double range, int samples, long seed) {
+        Random random = new Random(seed);
+        double worst = 0;
+        for (int i = 0; i < samples; i++) {
+            double x = (random.nextDouble() * 2 - 1) * range;
+            worst = Math.max(worst, Math.abs(FastTrig.sin(x) - Math.sin(x)));
+            worst = Math.max(worst, Math.abs(FastTrig.cos(x) - Math.cos(x)));
+        }
+        return worst;
+    }
+
+    @Test
+    void interpolationErrorBelowBound() {
+        // h²/8 con h = 2π/SIZE
+        double h = 2 * Math.PI / FastTrig.SIZE;
+        double error = worst(2 * Math.PI, 500_000, 1);
+        assertTrue(error <= h * h / 8 + 1e-12, "error " + error);
+    }
+
+    @Test
+    void errorBelow3e7UpToAMillion() {
+        double error = worst(1e6, 500_000, 2);
+        assertTrue(error < 3e-7, "error " + error);
+    }
+
+    @Test
+    void errorBelow6e7UpToLimit() {
+        double error = worst(FastTrig.LIMIT, 500_000, 3);
+        assertTrue(error < 6e-7, "error " + error);
+    }
+
+    @Test
+    void exactAtTableSamples() {
+        for (int i = -FastTrig.SIZE; i <= FastTrig.SIZE; i += 7) {
+            double x = i * (2 * Math.PI / FastTrig.SIZE);
+            assertEquals(Math.sin(x), FastTrig.sin(x), 1e-15);
+        }
+        assertEquals(1.0, FastTrig.cos(0), 0.0);
+    }
+
+    @Test
+    void outsideTheTableFallsBackToMath() {
+        for (double x : new double[]{2e9, -5e15, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN}) {
+            assertEquals(Math.sin(x), FastTrig.sin(x), 0.0);
+            assertEquals(Math.cos(x), FastTrig.cos(x), 0.0);
+        }
+    }
+}
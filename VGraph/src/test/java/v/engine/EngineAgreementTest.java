@@ -0,0 +1,38 @@
+package v.engine;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Los scripts de src/test/resources en todos los motores, con y sin LoopOptimizer: la
+// referencia es el intérprete con Map sin optimizar
+class EngineAgreementTest {
+
+    private static String script(String name) throws IOException {
+        try (InputStream in = EngineAgreementTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/test.vgraph", "/scripts/spiral.vgraph", "/scripts/shapes.vgraph",
+            "/scripts/functions.vgraph", "/scripts/loops.vgraph"})
+    void allEnginesAgree(String name) throws IOException {
+        String source = script(name);
+        Engines.Run reference = Engines.run(source, Engines.Engine.MAP);
+        assertNull(reference.failure, reference.failure);
+
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            for (boolean optimize : new boolean[]{false, true}) {
+                assertEquals(reference, Engines.run(source, engine, optimize),
+                        engine + (optimize ? " + LoopOptimizer" : ""));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package v.engine;
+
+import org.antlr.v4.runtime.CharStreams;
+import v.ast.LoopOptimizer;
+import v.ast.Program;
+import v.graph.ASTBuilder;
+import v.graph.TwoStageParser;
+import v.graph.VGraphParser;
+import v.render.Canvas;
+import v.render.RasterTarget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Corre un programa en cada motor de Java y junta lo que se puede comparar entre ellos
+final class Engines {
+
+    enum Engine { MAP, SLOTS, CLOSURES, BYTECODE }
+
+    // stdout, hash de los pixeles visibles y el mensaje si el programa tiró una excepción
+    static final class Run {
+        final String stdout;
+        final int pixels;
+        final String failure;
+
+        Run(String stdout, int pixels, String failure) {
+            this.stdout = stdout;
+            this.pixels = pixels;
+            this.failure = failure;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Run)) {
+                return false;
+            }
+            Run run = (Run) other;
+            return stdout.equals(run.stdout) && pixels == run.pixels && String.valueOf(failure).equals(String.valueOf(run.failure));
+        }
+
+        @Override
+        public int hashCode() {
+            return stdout.hashCode() * 31 + pixels;
+        }
+
+        @Override
+        public String toString() {
+            return "stdout=" + stdout.replace("\n", "\\n") + " pixels=" + Integer.toHexString(pixels)
+                    + (failure != null ? " failure=" + failure : "");
+        }
+    }
+
+    private Engines() {
+    }
+
+    static Program build(String source) {
+        List<String> errors = new ArrayList<>();
+        VGraphParser.ProgramContext tree = new TwoStageParser(CharStreams.fromString(source)).program(errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errors));
+        }
+        return ASTBuilder.build(tree);
+    }
+
+    static Run run(String source, Engine engine) {
+        return run(source, engine, false);
+    }
+
+    static Run run(String source, Engine engine, boolean optimizeLoops) {
+        // Cada motor resuelve y reescribe el árbol: uno nuevo por corrida
+        Program program = optimizeLoops ? LoopOptimizer.optimize(build(source)) : build(source);
+        Canvas canvas = new Canvas();
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        String failure = null;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            switch (engine) {
+                case MAP:
+                    Map<String, Object> symbolTable = new HashMap<>();
+                    symbolTable.put(RasterTarget.SYMBOL, canvas);
+                    program.execute(symbolTable);
+                    break;
+                case SLOTS:
+                    program.prepare();
+                    program.run(canvas);
+                    break;
+                case CLOSURES:
+                    ClosureCompiler.compile(program).run(canvas);
+                    break;
+                default:
+                    BytecodeCompiler.compile(program).run(canvas);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        } finally {
+            System.setOut(out);
+        }
+        return new Run(captured.toString(StandardCharsets.UTF_8), Arrays.hashCode(canvas.getPixels()), failure);
+    }
+}
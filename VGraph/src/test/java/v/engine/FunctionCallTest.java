@@ -0,0 +1,74 @@
+package v.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Errores de llamada y redefinición de funciones con la caché del sitio de llamada
+// (FunctionCall.bind): los mismos resultados que el motor con lambdas, que no la usa
+class FunctionCallTest {
+
+    @Test
+    void undeclaredFunctionIsReportedByEveryEngine() {
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            for (boolean optimize : new boolean[]{false, true}) {
+                Engines.Run run = Engines.run("nope(1);", engine, optimize);
+                assertEquals("Error: Funcion 'nope' no ha sido declarada.", run.failure, engine.toString());
+            }
+        }
+    }
+
+    // La misma llamada (dentro de h) antes y después de redefinir f: el guard de la caché
+    // falla y se usa la función nueva, y si cambió la aridad se reporta igual que sin caché
+    @Test
+    void redefinitionAfterACachedCall() {
+        String source = String.join("\n",
+                "function f(a) { println a; }",
+                "function h() { f(1); }",
+                "h();",
+                "h();",
+                "function f(a) { println a * 10; }",
+                "h();",
+                "function f(a, b) { println a + b; }",
+                "h();");
+        Engines.Run reference = Engines.run(source, Engines.Engine.CLOSURES);
+        assertEquals("1\n1\n10\n", reference.stdout);
+        assertEquals("Error: 'f' esperaba 2 argumentos, pero se le dieron 1", reference.failure);
+
+        assertEquals(reference, Engines.run(source, Engines.Engine.MAP));
+        assertEquals(reference, Engines.run(source, Engines.Engine.SLOTS));
+    }
+
+    // Una llamada que antes resolvía bien y después encuentra otra cosa en el nombre
+    @Test
+    void nameThatIsNoLongerAFunction() {
+        String source = String.join("\n",
+                "function f() { println 1; }",
+                "function h() { f(); }",
+                "h();",
+                "(int) f = 2;",
+                "h();");
+        Engines.Run reference = Engines.run(source, Engines.Engine.CLOSURES);
+        assertEquals("1\n", reference.stdout);
+        assertEquals("Error:  'f' no es una funcion", reference.failure);
+
+        assertEquals(reference, Engines.run(source, Engines.Engine.MAP));
+        assertEquals(reference, Engines.run(source, Engines.Engine.SLOTS));
+    }
+
+    @Test
+    void cachedCallsInALoop() {
+        String source = String.join("\n",
+                "(int) total = 0;",
+                "(int) i;",
+                "function suma(n) { total = total + n; }",
+                "loop (i = 0; i < 100; i = i + 1) { suma(i); }",
+                "println total;");
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            Engines.Run run = Engines.run(source, engine);
+            assertNull(run.failure, engine + ": " + run.failure);
+            assertEquals("4950\n", run.stdout, engine.toString());
+        }
+    }
+}
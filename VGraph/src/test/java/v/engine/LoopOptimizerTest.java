@@ -0,0 +1,140 @@
+package v.engine;
+
+import org.junit.jupiter.api.Test;
+import v.ast.ASTNode;
+import v.ast.Constant;
+import v.ast.Division;
+import v.ast.Function;
+import v.ast.LoopComm;
+import v.ast.LoopOptimizer;
+import v.ast.Multiplication;
+import v.ast.Program;
+import v.ast.VarDecl2;
+import v.ast.VarRef;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Los $invN y $srN de LoopOptimizer con los programas de loopopt/ (los mismos que
+// LoopCodegenTest usa para el C): qué se adelanta, qué no, y que todos los motores den lo
+// mismo que el intérprete con Map sin optimizar
+class LoopOptimizerTest {
+
+    private static String script(String name) throws IOException {
+        try (InputStream in = LoopOptimizerTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Temporales que agregó el optimizador, con su valor inicial
+    private static Map<String, ASTNode> temps(String source) {
+        Map<String, ASTNode> temps = new LinkedHashMap<>();
+        collect(LoopOptimizer.optimize(Engines.build(source)).getSentences(), temps);
+        return temps;
+    }
+
+    private static void collect(List<ASTNode> sentences, Map<String, ASTNode> temps) {
+        for (ASTNode sentence : sentences) {
+            if (sentence instanceof VarDecl2) {
+                ((VarDecl2) sentence).getDeclarations().forEach((name, value) -> {
+                    if (name.startsWith("$")) {
+                        temps.put(name, value);
+                    }
+                });
+            } else if (sentence instanceof LoopComm) {
+                collect(((LoopComm) sentence).getBody(), temps);
+            } else if (sentence instanceof Function) {
+                collect(((Function) sentence).getSentences(), temps);
+            }
+        }
+    }
+
+    private static void assertAllEnginesPrint(String expected, String source) {
+        assertEquals(expected, Engines.run(source, Engines.Engine.MAP).stdout);
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            Engines.Run run = Engines.run(source, engine, true);
+            assertEquals(null, run.failure, engine + ": " + run.failure);
+            assertEquals(expected, run.stdout, engine + " + LoopOptimizer");
+        }
+    }
+
+    @Test
+    void trappingDivisionStaysInTheLoop() throws IOException {
+        String source = script("/loopopt/trapping_division.vgraph");
+        Map<String, ASTNode> temps = temps(source);
+        assertEquals(List.of("$inv0"), List.copyOf(temps.keySet()));
+        Division hoisted = assertInstanceOf(Division.class, temps.get("$inv0"));
+        assertEquals(2, ((Constant) hoisted.getOperand2()).getValue());
+
+        assertAllEnginesPrint("7\n", source);
+    }
+
+    @Test
+    void variablesAssignedByACallAreNotInvariant() throws IOException {
+        String source = script("/loopopt/assigned_by_call.vgraph");
+        Map<String, ASTNode> temps = temps(source);
+        assertEquals(List.of("$inv0"), List.copyOf(temps.keySet()));
+        Multiplication hoisted = assertInstanceOf(Multiplication.class, temps.get("$inv0"));
+        assertEquals("m", ((VarRef) hoisted.getOperand1()).getName());
+
+        assertAllEnginesPrint("4\n6\n7\n7\n10\n8\n", source);
+    }
+
+    @Test
+    void strengthReductionOnlyForConstantSteps() throws IOException {
+        String source = script("/loopopt/inductions.vgraph");
+        Map<String, ASTNode> temps = temps(source);
+        assertEquals(List.of("$sr0"), List.copyOf(temps.keySet()));
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i < 100; i *= 2) {
+            expected.append(i * 3).append('\n');
+        }
+        for (int i = 0; i < 10; i += 2) {
+            expected.append(i * 3).append('\n');
+        }
+        for (int i = 10; i > 0; i = 1 - i) {
+            expected.append(i * 3).append('\n');
+        }
+        for (int i = 10; i > 0; i -= 2) {
+            expected.append(i * 3).append('\n');
+        }
+        assertAllEnginesPrint(expected.toString(), source);
+    }
+
+    // Lo que sí se tiene que adelantar, para que los tests de arriba no pasen porque el
+    // optimizador no haga nada
+    @Test
+    void invariantsAndInductionProductsAreRewritten() {
+        String source = String.join("\n",
+                "(int) i;",
+                "(int) j;",
+                "(int) w = 5;",
+                "(double) r = 2.0;",
+                "loop (i = 0; i < 3; i = i + 1) {",
+                "    loop (j = 0; j < 2; j = j + 1) {",
+                "        println i * w + j * 4;",
+                "        println r * cos(0.0) + j;",
+                "    }",
+                "}");
+        Map<String, ASTNode> temps = temps(source);
+        assertTrue(temps.keySet().stream().anyMatch(name -> name.startsWith("$sr")), temps.toString());
+        assertTrue(temps.keySet().stream().anyMatch(name -> name.startsWith("$inv")), temps.toString());
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 2; j++) {
+                expected.append(i * 5 + j * 4).append('\n').append(2.0 + j).append('\n');
+            }
+        }
+        assertAllEnginesPrint(expected.toString(), source);
+    }
+}
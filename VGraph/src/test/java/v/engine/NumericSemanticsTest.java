@@ -0,0 +1,90 @@
+package v.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Aritmética y asignaciones mezclando int y double: todos los motores con las reglas de C
+class NumericSemanticsTest {
+
+    private static void assertPrints(String expected, String source) {
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            Engines.Run run = Engines.run(source, engine);
+            assertNull(run.failure, engine + ": " + run.failure);
+            assertEquals(expected, run.stdout, engine.toString());
+        }
+    }
+
+    @Test
+    void intOpDoubleIsDouble() {
+        assertPrints("5.5\n7.5\n0.5\n1.2\n2.0\n", String.join("\n",
+                "(int) i = 3;",
+                "(double) d = 2.5;",
+                "println i + d;",
+                "println i * d;",
+                "println i - d;",
+                "println i / d;",
+                "println d * 0.8;"));
+    }
+
+    @Test
+    void intOpIntStaysInt() {
+        assertPrints("5\n6\n1\n1\n1\n", String.join("\n",
+                "(int) i = 3;",
+                "(int) j = 2;",
+                "println i + j;",
+                "println i * j;",
+                "println i - j;",
+                "println i / j;",
+                "println i % j;"));
+    }
+
+    // Asignar un double a un int trunca; un int a un double se convierte (antes el intérprete
+    // con Map tiraba "Error de tipo")
+    @Test
+    void assignmentsConvertLikeC() {
+        assertPrints("7\n-2\n3.0\n4.5\n", String.join("\n",
+                "(int) n = 0;",
+                "n = 2.5 * 3;",
+                "println n;",
+                "n = 0 - 2.9;",
+                "println n;",
+                "(double) r = 1.5;",
+                "r = 3;",
+                "println r;",
+                "r = r + 1.5;",
+                "println r;"));
+    }
+
+    @Test
+    void loopCounterMixesWithDoubles() {
+        assertPrints("7.5\n", String.join("\n",
+                "(int) t;",
+                "(double) acc = 0;",
+                "loop (t = 0; t < 5; t = t + 1) {",
+                "    acc = acc + t * 0.5 + 0.5;",
+                "}",
+                "println acc;"));
+    }
+
+    // Las figuras reciben int: una coordenada double se trunca en todos los motores
+    @Test
+    void shapesTruncateDoubleArguments() {
+        String source = String.join("\n",
+                "(double) d = 10.75;",
+                "(int) i = 3;",
+                "setcolor(blanco);",
+                "draw pixel(d * 2, i * 1.5);",
+                "draw line(d, d, d * 4, i / 2.0);",
+                "draw rect(i * 0.5, d, d + 0.9, i * 2.2);",
+                "draw circle(d * 3, d * 3, i * 1.9);");
+        Engines.Run reference = Engines.run(source, Engines.Engine.SLOTS);
+        assertNull(reference.failure);
+        assertNotEquals(Engines.run("clear();", Engines.Engine.SLOTS).pixels, reference.pixels);
+        for (Engines.Engine engine : Engines.Engine.values()) {
+            assertEquals(reference, Engines.run(source, engine), engine.toString());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package v.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import v.ast.FastTrig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Plegado y simplificación de CExpr: solo cuando el resultado es el mismo que daría C
+class CExprTest {
+
+    @TempDir
+    Path dir;
+
+    private static final CExpr X = CExpr.var("x", CExpr.Type.INT);
+    private static final CExpr Y = CExpr.var("y", CExpr.Type.INT);
+    private static final CExpr D = CExpr.var("d", CExpr.Type.DOUBLE);
+
+    private static CExpr i(int value) {
+        return CExpr.constant(value);
+    }
+
+    private static CExpr d(double value) {
+        return CExpr.constant(value);
+    }
+
+    @Test
+    void foldsIntArithmeticLikeC() {
+        assertEquals("7", CExpr.binary('+', i(3), i(4)).toC());
+        assertEquals("-3", CExpr.binary('/', i(-7), i(2)).toC());
+        assertEquals("-1", CExpr.binary('%', i(-7), i(2)).toC());
+        assertEquals("3.5", CExpr.binary('/', i(7), d(2.0)).toC());
+        assertEquals(CExpr.Type.DOUBLE, CExpr.binary('*', i(2), d(1.5)).type);
+    }
+
+    @Test
+    void intOverflowIsNotFolded() {
+        assertEquals("2147483647 + 1", CExpr.binary('+', i(Integer.MAX_VALUE), i(1)).toC());
+        assertEquals("65536 * 65536", CExpr.binary('*', i(65536), i(65536)).toC());
+        // -2147483648 no es un literal int en C (es -(2147483648), que no entra en un int)
+        CExpr min = CExpr.binary('-', i(-Integer.MAX_VALUE), i(1));
+        assertInstanceOf(CExpr.Binary.class, min);
+        assertEquals("-2147483647 - 1", min.toC());
+        assertEquals("2147483647", CExpr.binary('-', i(Integer.MAX_VALUE), i(0)).toC());
+    }
+
+    @Test
+    void divisionByZeroIsNotFolded() {
+        CExpr div = CExpr.binary('/', i(1), i(0));
+        CExpr mod = CExpr.binary('%', i(1), i(0));
+        assertEquals("1 / 0", div.toC());
+        assertEquals("1 % 0", mod.toC());
+        assertTrue(div.canTrap());
+        assertTrue(mod.canTrap());
+        // Con double no aborta: da infinito, que tampoco se pliega (no hay literal para eso)
+        assertEquals("1.0 / 0.0", CExpr.binary('/', d(1.0), d(0.0)).toC());
+        assertFalse(CExpr.binary('/', d(1.0), d(0.0)).canTrap());
+    }
+
+    @Test
+    void doubleModulusIsNotFolded() {
+        CExpr mod = CExpr.binary('%', d(5.5), d(2.0));
+        assertInstanceOf(CExpr.Binary.class, mod);
+        assertEquals("5.5 % 2.0", mod.toC());
+    }
+
+    @Test
+    void identitiesKeepTheType() {
+        assertEquals("x", CExpr.binary('*', X, i(1)).toC());
+        assertEquals("x", CExpr.binary('+', i(0), X).toC());
+        assertEquals("d", CExpr.binary('*', D, d(1.0)).toC());
+        assertEquals("d", CExpr.binary('-', D, i(0)).toC());
+
+        // x * 1.0 con x int es double: sacar el 1.0 cambiaría una división que venga después
+        CExpr scaled = CExpr.binary('*', X, d(1.0));
+        assertEquals(CExpr.Type.DOUBLE, scaled.type);
+        assertEquals("x * 1.0", scaled.toC());
+        assertEquals("x + 0.0", CExpr.binary('+', X, d(0.0)).toC());
+        assertEquals("1.0 * x", CExpr.binary('*', d(1.0), X).toC());
+    }
+
+    @Test
+    void multiplyByZeroKeepsOperandsThatCanTrap() {
+        assertEquals("0", CExpr.binary('*', i(0), X).toC());
+        assertEquals("0", CExpr.binary('*', X, i(0)).toC());
+
+        CExpr trapping = CExpr.binary('/', X, Y);
+        assertEquals("0 * (x / y)", CExpr.binary('*', i(0), trapping).toC());
+        assertEquals("x / y * 0", CExpr.binary('*', trapping, i(0)).toC());
+        assertEquals("0 * (x % y)", CExpr.binary('*', i(0), CExpr.binary('%', X, Y)).toC());
+        // Dividir por una constante distinta de cero no aborta
+        assertEquals("0", CExpr.binary('*', i(0), CExpr.binary('/', X, i(2))).toC());
+        // Con double el resultado puede ser NaN o -0.0: no se toca
+        assertEquals("0 * d", CExpr.binary('*', i(0), D).toC());
+    }
+
+    @Test
+    void parenthesesFollowAssociativity() {
+        CExpr b = CExpr.var("b", CExpr.Type.INT);
+        CExpr c = CExpr.var("c", CExpr.Type.INT);
+        assertEquals("x - (b - c)", CExpr.binary('-', X, CExpr.binary('-', b, c)).toC());
+        assertEquals("x - b - c", CExpr.binary('-', CExpr.binary('-', X, b), c).toC());
+        assertEquals("x / (b * c)", CExpr.binary('/', X, CExpr.binary('*', b, c)).toC());
+        assertEquals("(x + b) * c", CExpr.binary('*', CExpr.binary('+', X, b), c).toC());
+        assertEquals("x + b * c", CExpr.binary('+', X, CExpr.binary('*', b, c)).toC());
+    }
+
+    @Test
+    void comparisonsFold() {
+        assertEquals("1", CExpr.compare("<", i(2), d(2.5)).toC());
+        assertEquals("0", CExpr.compare("==", i(2), d(2.5)).toC());
+        assertEquals("(x >= 3)", CExpr.compare(">=", X, i(3)).toC());
+    }
+
+    @Test
+    void onlyFastTrigOfALiteralFolds() {
+        assertEquals(FastTrig.sin(0.5), ((CExpr.Const) CExpr.call("fast_sin", d(0.5))).value);
+        assertEquals(FastTrig.cos(2.0), ((CExpr.Const) CExpr.call("fast_cos", i(2))).value);
+        // Fuera de FastTrig.LIMIT fast_sin llama a sin de libm
+        assertEquals("fast_sin(2.0E9)", CExpr.call("fast_sin", d(2e9)).toC());
+        assertEquals("sin(0.5)", CExpr.call("sin", d(0.5)).toC());
+        assertEquals("cos(2)", CExpr.call("cos", i(2)).toC());
+        assertEquals("sin(d)", CExpr.call("sin", D).toC());
+    }
+
+    // Lo plegado tiene que ser el double que calcula graphics.c con la misma entrada
+    @Test
+    void fastTrigFoldsMatchTheCRuntime() throws IOException, InterruptedException {
+        Codegen.assumeGcc();
+        double[] inputs = {0.0, 0.5, -1.25, 2.0, Math.PI / 3, Math.PI, 100.0, 12345.678, -1e6, 3e8};
+        String[] functions = {"fast_sin", "fast_cos"};
+        StringBuilder main = new StringBuilder("#include <stdio.h>\n#include \"graphics.h\"\n\n")
+                .append("int main() {\n");
+        for (double x : inputs) {
+            for (String f : functions) {
+                main.append("    printf(\"%a\\n\", ").append(f).append("(").append(Double.toHexString(x)).append("));\n");
+            }
+        }
+        main.append("    return 0;\n}\n");
+
+        String[] printed = Codegen.run(main.toString(), dir).stdout.split("\n");
+        int line = 0;
+        for (double x : inputs) {
+            for (String f : functions) {
+                double runtime = Double.parseDouble(printed[line++]);
+                CExpr folded = CExpr.call(f, d(x));
+                assertEquals(runtime, (Double) ((CExpr.Const) folded).value, f + "(" + x + ")");
+            }
+        }
+    }
+
+    // El C de un loop con trigonometría: lo invariante sale a _inv (sin(1.0) también, que no
+    // se pliega), i * 4 pasa a una suma (_sr) y con fast trig fast_sin(1.0) sí se pliega
+    @Test
+    void trigLoopGolden() {
+        String source = String.join("\n",
+                "(int) i;",
+                "(double) a = 0.5;",
+                "(double) r = 100.0;",
+                "loop (i = 0; i < 100; i = i + 1) {",
+                "    draw pixel(320 + r * cos(a) + i, 240 - r * sin(a * 2) + i * 4 + sin(1.0));",
+                "}");
+        assertEquals(String.join("\n",
+                "i = 0;",
+                "// Loop invariants",
+                "const double _inv0 = 320 + r * cos(a);",
+                "const double _inv1 = 240 - r * sin(a * 2);",
+                "int _sr2 = i * 4;",
+                "const double _inv3 = sin(1.0);",
+                "while ((i < 100)) {",
+                "    pixel(_inv0 + i, _inv1 + _sr2 + _inv3);",
+                "    i = i + 1;",
+                "    _sr2 = _sr2 + 4;",
+                "}",
+                ""), Codegen.body(Codegen.toC(source, true, false)));
+
+        assertEquals(String.join("\n",
+                "i = 0;",
+                "while ((i < 100)) {",
+                "    pixel(320 + r * fast_cos(a) + i, 240 - r * fast_sin(a * 2) + i * 4 + 0.8414708946588101);",
+                "    i = i + 1;",
+                "}",
+                ""), Codegen.body(Codegen.toC(source, false, true)));
+    }
+}
@@ -0,0 +1,104 @@
+package v.graph;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Assumptions;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Genera el C de un script como vgraph -p y lo corre con gcc en la placa emulada
+// (EmulatedTarget). Sin gcc los tests que lo corren se saltean
+final class Codegen {
+
+    private static final Path RUNTIME = Path.of("generated");
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    // Salida del binario (sin la línea de init_framebuffer) y hash de la página visible
+    static final class Output {
+        final String stdout;
+        final int pixels;
+
+        Output(String stdout, int pixels) {
+            this.stdout = stdout;
+            this.pixels = pixels;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Output && stdout.equals(((Output) other).stdout)
+                    && pixels == ((Output) other).pixels;
+        }
+
+        @Override
+        public int hashCode() {
+            return stdout.hashCode() * 31 + pixels;
+        }
+
+        @Override
+        public String toString() {
+            return "stdout=" + stdout.replace("\n", "\\n") + " pixels=" + Integer.toHexString(pixels);
+        }
+    }
+
+    private Codegen() {
+    }
+
+    static String toC(String source, boolean optimizeLoops, boolean fastTrig) {
+        List<String> errors = new ArrayList<>();
+        VGraphParser.ProgramContext tree = new TwoStageParser(CharStreams.fromString(source)).program(errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errors));
+        }
+        return new VGraphCustomVisitor(optimizeLoops, fastTrig, 0).visit(tree);
+    }
+
+    // Las sentencias del main después de clear_screen, sin la espera final
+    static String body(String code) {
+        int start = code.indexOf("clear_screen();\n") + "clear_screen();\n".length();
+        int end = code.indexOf("    wait_seconds(3);");
+        return code.substring(start, end).strip() + "\n";
+    }
+
+    static void assumeGcc() {
+        boolean found = false;
+        try {
+            Process process = new ProcessBuilder("gcc", "--version").redirectErrorStream(true).start();
+            process.getInputStream().readAllBytes();
+            found = process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException | InterruptedException e) {
+            found = false;
+        }
+        Assumptions.assumeTrue(found, "gcc not available");
+    }
+
+    // Compila main.c contra el runtime de generated/ en dir y lo corre hasta que termina
+    static Output run(String mainC, Path dir) throws IOException, InterruptedException {
+        for (String file : new String[]{"graphics.c", "graphics.h", "graphics_emu.c"}) {
+            Files.copy(RUNTIME.resolve(file), dir.resolve(file));
+        }
+        // Los 3 s del final son para mirar la pantalla de la placa
+        Files.writeString(dir.resolve("main.c"), mainC.replace("wait_seconds(3);", ""));
+
+        EmulatedTarget target = new EmulatedTarget(dir, "gcc", "-O2", "-lm", WIDTH, HEIGHT);
+        target.build();
+        Process process = target.start();
+        String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("emu_main timed out");
+        }
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int pixels = target.snapshot(image)
+                ? Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData()) : 0;
+        return new Output(stdout.replaceFirst("(?m)^Resolution: .*\n", ""), pixels);
+    }
+}
@@ -0,0 +1,103 @@
+package v.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompileCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private String key(String source, String flags, String target) throws IOException {
+        return CompileCache.key(source, dir.resolve("graphics.c"), dir.resolve("graphics.h"), flags, target);
+    }
+
+    @Test
+    void keyCoversEveryPart() throws IOException {
+        Files.writeString(dir.resolve("graphics.c"), "int a;");
+        Files.writeString(dir.resolve("graphics.h"), "int b;");
+        String base = key("x = 1;", "-lm", "root@fpga:22/home");
+
+        assertEquals(base, key("x = 1;", "-lm", "root@fpga:22/home"));
+        assertNotEquals(base, key("x = 2;", "-lm", "root@fpga:22/home"));
+        assertNotEquals(base, key("x = 1;", "-lm -O2", "root@fpga:22/home"));
+        assertNotEquals(base, key("x = 1;", "-lm", "root@fpga:2222/home"));
+
+        Files.writeString(dir.resolve("graphics.h"), "int c;");
+        assertNotEquals(base, key("x = 1;", "-lm", "root@fpga:22/home"));
+    }
+
+    // Con el largo delante de cada parte, mover texto de una a otra cambia la clave
+    @Test
+    void partBoundariesCannotShift() throws IOException {
+        assertNotEquals(key("ab", "c", "t"), key("a", "bc", "t"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByCount() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), 2, Long.MAX_VALUE);
+        cache.put("a", "A");
+        age(cache, "a", 3);
+        cache.put("b", "B");
+        age(cache, "b", 2);
+        cache.touch("a");
+
+        List<String> evicted = cache.put("c", "C");
+        assertEquals(List.of("b"), evicted);
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    @Test
+    void evictsBySize() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), 10, 10);
+        cache.put("a", "aaaa");
+        age(cache, "a", 2);
+        cache.put("b", "bbbb");
+        age(cache, "b", 1);
+
+        assertEquals(List.of("a"), cache.put("c", "cccc"));
+        // La entrada nueva se queda aunque sola pase el límite
+        assertEquals(List.of("b", "c"), cache.put("d", "ddddddddddddddd"));
+        assertTrue(cache.contains("d"));
+    }
+
+    @Test
+    void evictionsDoNotTouchTheCache() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), 1, Long.MAX_VALUE);
+        assertEquals(List.of(), cache.evictions("a", "A"));
+        cache.put("a", "A");
+
+        assertEquals(List.of("a"), cache.evictions("b", "B"));
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertEquals(List.of("a"), cache.put("b", "B"));
+    }
+
+    @Test
+    void replacingAnEntryDoesNotEvictIt() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), 1, Long.MAX_VALUE);
+        cache.put("a", "A");
+        assertEquals(List.of(), cache.put("a", "A2"));
+        assertEquals("A2", Files.readString(dir.resolve("cache/a.c"), StandardCharsets.UTF_8));
+    }
+
+    // La fecha de modificación es el orden LRU: se corre al pasado para no depender del reloj
+    private void age(CompileCache cache, String key, int minutes) throws IOException {
+        Files.setLastModifiedTime(dir.resolve("cache").resolve(key + ".c"),
+                FileTime.fromMillis(System.currentTimeMillis() - minutes * 60_000L));
+    }
+}
@@ -0,0 +1,81 @@
+package v.graph;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointTest {
+
+    @Test
+    void rawRoundsToNearest() {
+        FixedPoint q16 = new FixedPoint(16);
+        assertEquals(98304, q16.raw(1.5));
+        assertEquals(-98304, q16.raw(-1.5));
+        assertEquals(1, q16.raw(1.0 / 65536));
+        assertEquals(1, q16.raw(0.75 / 65536));
+        assertEquals(0, q16.raw(0.25 / 65536));
+        assertEquals(205887, q16.raw(Math.PI));
+    }
+
+    // Igual que fx_saturate: el rango es simétrico, ±INT32_MAX
+    @Test
+    void rawSaturates() {
+        FixedPoint q16 = new FixedPoint(16);
+        assertEquals(Integer.MAX_VALUE, q16.raw(32768.0));
+        assertEquals(Integer.MAX_VALUE, q16.raw(1e12));
+        assertEquals(-Integer.MAX_VALUE, q16.raw(-32768.0));
+        assertEquals(-Integer.MAX_VALUE, q16.raw(-1e12));
+        assertEquals(Integer.MAX_VALUE, q16.raw(Double.POSITIVE_INFINITY));
+        assertEquals(-Integer.MAX_VALUE, q16.raw(Double.NEGATIVE_INFINITY));
+        assertEquals(32767 * 65536, q16.raw(32767.0));
+
+        FixedPoint q24 = new FixedPoint(24);
+        assertEquals(Integer.MAX_VALUE, q24.raw(200));
+        assertEquals(-Integer.MAX_VALUE, q24.raw(-128));
+    }
+
+    @Test
+    void rawErrorIsHalfAStep() {
+        for (int bits = FixedPoint.MIN_FRAC_BITS; bits <= FixedPoint.MAX_FRAC_BITS; bits++) {
+            FixedPoint fx = new FixedPoint(bits);
+            double step = 1.0 / (1L << bits);
+            for (double x = -100; x <= 100; x += 0.37) {
+                double max = Integer.MAX_VALUE * step;
+                if (Math.abs(x) < max) {
+                    assertTrue(Math.abs(fx.raw(x) * step - x) <= step / 2, bits + " bits, " + x);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fracBitsAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedPoint(FixedPoint.MIN_FRAC_BITS - 1));
+        assertThrows(IllegalArgumentException.class, () -> new FixedPoint(FixedPoint.MAX_FRAC_BITS + 1));
+    }
+
+    @Test
+    void codegenUsesFixedPointOnlyWhenAsked() {
+        String source = "(double) d = 1.5;\n(int) i = 2;\nd = d * i + 0.25;\ndraw pixel(d, i);\n";
+        List<String> errors = new ArrayList<>();
+        VGraphParser.ProgramContext tree = new TwoStageParser(CharStreams.fromString(source)).program(errors);
+        assertTrue(errors.isEmpty(), errors.toString());
+
+        String fixed = new VGraphCustomVisitor(true, false, 16).visit(tree);
+        assertTrue(fixed.contains("#define FX_FRAC_BITS 16"));
+        assertTrue(fixed.contains("fixed_t d = 98304;"), fixed);
+        assertTrue(fixed.contains("fx_mul("), fixed);
+        assertTrue(fixed.contains("fx_to_int("), fixed);
+
+        String plain = new VGraphCustomVisitor(true, false, 0).visit(tree);
+        assertFalse(plain.contains("fx_"), plain);
+        assertTrue(plain.contains("double d = 1.5;"), plain);
+    }
+}
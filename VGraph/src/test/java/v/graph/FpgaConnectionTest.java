@@ -0,0 +1,187 @@
+package v.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// FpgaConnection contra scripts que hacen de ssh, scp y sshpass: anotan sus argumentos en
+// <nombre>.log y se portan según <nombre>.mode (ok, fail, hang o nomaster). "-O check"
+// responde si existe el archivo master, que crea la conexión maestra (-N) y borra "-O exit"
+class FpgaConnectionTest {
+
+    private static final String FAKE = String.join("\n",
+            "#!/bin/sh",
+            "dir=$(dirname \"$0\")",
+            "name=$(basename \"$0\")",
+            "echo \"$*\" >> \"$dir/$name.log\"",
+            "if [ \"$name\" = sshpass ]; then shift 2; exec \"$@\"; fi",
+            "case \" $* \" in",
+            "    *\" -O check \"*) [ -f \"$dir/master\" ] && exit 0; exit 255 ;;",
+            "    *\" -O exit \"*) rm -f \"$dir/master\"; exit 0 ;;",
+            "esac",
+            "mode=$(cat \"$dir/$name.mode\" 2>/dev/null)",
+            "case \"$mode\" in",
+            "    fail) echo \"$name: Permission denied (publickey,password).\" >&2; exit 255 ;;",
+            "    hang) echo \"$name: connecting...\" >&2; echo $$ > \"$dir/$name.pid\"; exec sleep 60 ;;",
+            "    nomaster) exit 0 ;;",
+            "esac",
+            "case \" $* \" in *\" -N \"*) touch \"$dir/master\" ;; esac",
+            "exit 0",
+            "");
+
+    @TempDir
+    Path dir;
+
+    private String options(String master) {
+        return "-o ControlMaster=" + master + " -o ControlPath=" + dir.resolve("cm-%C") + " -o ConnectTimeout=1";
+    }
+
+    @BeforeEach
+    void installFakes() throws IOException {
+        assumeTrue(File.separatorChar == '/', "the fake ssh is a POSIX shell script");
+        for (String name : new String[]{"ssh", "scp", "sshpass"}) {
+            Path script = dir.resolve(name);
+            Files.writeString(script, FAKE);
+            assertTrue(script.toFile().setExecutable(true));
+        }
+    }
+
+    private FpgaConnection connection(String password) {
+        Properties config = new Properties();
+        config.setProperty("fpga.user", "root");
+        config.setProperty("fpga.host", "board");
+        config.setProperty("fpga.port", "2222");
+        config.setProperty("fpga.password", password);
+        config.setProperty("fpga.ssh.command", dir.resolve("ssh").toString());
+        config.setProperty("fpga.scp.command", dir.resolve("scp").toString());
+        config.setProperty("fpga.sshpass.command", dir.resolve("sshpass").toString());
+        config.setProperty("fpga.ssh.control.path", dir.resolve("cm-%C").toString());
+        config.setProperty("fpga.ssh.persist", "60");
+        config.setProperty("fpga.ssh.timeout", "1");
+        return FpgaConnection.fromConfig(config);
+    }
+
+    private List<String> log(String name) throws IOException {
+        Path log = dir.resolve(name + ".log");
+        return Files.exists(log) ? Files.readAllLines(log) : List.of();
+    }
+
+    private void mode(String name, String mode) throws IOException {
+        Files.writeString(dir.resolve(name + ".mode"), mode + "\n");
+    }
+
+    @Test
+    void connectStartsOneMasterAndReusesIt() throws Exception {
+        FpgaConnection fpga = connection("");
+        fpga.connect();
+        assertEquals(List.of(
+                options("no") + " -p 2222 -O check root@board",
+                options("yes") + " -p 2222 -o ControlPersist=60 -f -N root@board",
+                options("no") + " -p 2222 -O check root@board"), log("ssh"));
+
+        // Con la maestra viva no hay otro handshake
+        fpga.connect();
+        assertEquals(4, log("ssh").size());
+        assertEquals(options("no") + " -p 2222 -O check root@board", log("ssh").get(3));
+
+        fpga.close();
+        assertFalse(fpga.isConnected());
+        assertEquals(options("no") + " -p 2222 -O exit root@board", log("ssh").get(4));
+        assertEquals(List.of(), log("sshpass"));
+    }
+
+    @Test
+    void uploadCopiesEverythingInOneScp() throws Exception {
+        connection("").upload(List.of("main.c", "graphics.c", "graphics.h"), "/home/root/vgraph", 5);
+        assertEquals(List.of(options("no") + " -P 2222 main.c graphics.c graphics.h root@board:/home/root/vgraph/"),
+                log("scp"));
+    }
+
+    // Con contraseña, lo que hace el handshake o copia pasa por sshpass; "-O check" no la necesita
+    @Test
+    void passwordWrapsCommandsInSshpass() throws Exception {
+        FpgaConnection fpga = connection("s3cret");
+        fpga.connect();
+        fpga.upload(List.of("main.c"), "/tmp", 5);
+        assertEquals(List.of(
+                "-p s3cret " + dir.resolve("ssh") + " " + options("yes") + " -p 2222 -o ControlPersist=60 -f -N root@board",
+                "-p s3cret " + dir.resolve("scp") + " " + options("no") + " -P 2222 main.c root@board:/tmp/"),
+                log("sshpass"));
+        assertEquals(3, log("ssh").size());
+        assertEquals(1, log("scp").size());
+    }
+
+    @Test
+    void failureReportsExitCodeAndStderr() throws Exception {
+        mode("ssh", "fail");
+        IOException e = assertThrows(IOException.class, () -> connection("").connect());
+        assertEquals("ssh failed with exit code 255:\nssh: Permission denied (publickey,password).", e.getMessage());
+
+        mode("scp", "fail");
+        e = assertThrows(IOException.class, () -> connection("").upload(List.of("main.c"), "/tmp", 5));
+        assertEquals("scp failed with exit code 255:\nscp: Permission denied (publickey,password).", e.getMessage());
+    }
+
+    // ssh que termina bien pero sin dejar la maestra (por ejemplo un ControlPath inválido)
+    @Test
+    void exitWithoutMasterIsAnError() throws Exception {
+        mode("ssh", "nomaster");
+        IOException e = assertThrows(IOException.class, () -> connection("").connect());
+        assertEquals("ssh exited but the shared connection is not up", e.getMessage());
+    }
+
+    // connect espera el doble de ConnectTimeout (conexión más autenticación), upload lo que
+    // se le pida; después se mata el proceso y el mensaje trae lo que alcanzó a escribir
+    @Test
+    void hungCommandsAreKilledAfterTheTimeout() throws Exception {
+        mode("ssh", "hang");
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> connection("").connect());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals("ssh timed out after 2 s:\nssh: connecting...", e.getMessage());
+        assertTrue(elapsed >= 2000 && elapsed < 10_000, elapsed + " ms");
+        assertKilled("ssh");
+
+        mode("scp", "hang");
+        e = assertThrows(IOException.class, () -> connection("").upload(List.of("main.c"), "/tmp", 1));
+        assertEquals("scp timed out after 1 s:\nscp: connecting...", e.getMessage());
+        assertKilled("scp");
+    }
+
+    private void assertKilled(String name) throws Exception {
+        long pid = Long.parseLong(Files.readString(dir.resolve(name + ".pid")).trim());
+        Optional<ProcessHandle> process = ProcessHandle.of(pid);
+        if (process.isPresent()) {
+            process.get().onExit().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void connectAsyncCompletesWithTheIOException() throws Exception {
+        mode("ssh", "fail");
+        CompletionException e = assertThrows(CompletionException.class, () -> connection("").connectAsync().join());
+        assertInstanceOf(IOException.class, e.getCause());
+
+        mode("ssh", "ok");
+        FpgaConnection fpga = connection("");
+        fpga.connectAsync().join();
+        assertTrue(fpga.isConnected());
+    }
+}
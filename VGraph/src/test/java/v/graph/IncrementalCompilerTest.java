@@ -0,0 +1,116 @@
+package v.graph;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IncrementalCompilerTest {
+
+    private static final String[] SCRIPTS = {"/test.vgraph", "/scripts/spiral.vgraph", "/scripts/shapes.vgraph"};
+    private static final String[] PIECES = {
+        "(", ")", "{", "}", ";", ",", "=", "+", "*", "<", "if", "else", "elseif", "frame", "loop",
+        "function", "draw", "rect", "(int)", "x", "1.5", "#", "@", "\n", " ", "}}", "else {",
+    };
+
+    static String script(String name) throws IOException {
+        try (InputStream in = IncrementalCompilerTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Errores del parseo completo, el que usan Main y Run
+    private static List<String> whole(String source) {
+        List<String> errors = new ArrayList<>();
+        new TwoStageParser(CharStreams.fromString(source)).program(errors);
+        return errors;
+    }
+
+    // Los de sintaxis traen columna; los semánticos solo la línea
+    private static List<String> syntax(List<String> errors) {
+        return errors.stream().filter(e -> e.matches("Error at line \\d+:\\d+ - .*")).collect(Collectors.toList());
+    }
+
+    static String mutate(String source, Random random) {
+        StringBuilder text = new StringBuilder(source);
+        int edits = 1 + random.nextInt(3);
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(text.length() + 1);
+            switch (random.nextInt(3)) {
+                case 0:
+                    text.delete(at, Math.min(text.length(), at + 1 + random.nextInt(12)));
+                    break;
+                case 1:
+                    text.insert(at, PIECES[random.nextInt(PIECES.length)]);
+                    break;
+                default:
+                    int from = random.nextInt(text.length() + 1);
+                    int to = Math.min(text.length(), from + random.nextInt(20));
+                    text.insert(at, text.substring(from, to));
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    void trailingGarbageIsReported() {
+        String source = "(int) x = 1;\nx = 2;\n) ) garbage 3\n";
+        List<String> errors = whole(source);
+        assertFalse(errors.isEmpty());
+        assertEquals(errors, syntax(new IncrementalCompiler().compile(source)));
+    }
+
+    @Test
+    void wholeProgramAndSegmentsReportTheSameSyntaxErrors() throws IOException {
+        Random random = new Random(42);
+        int invalid = 0;
+        for (int i = 0; i < 4000; i++) {
+            String source = mutate(script(SCRIPTS[i % SCRIPTS.length]), random);
+            List<String> expected = syntax(new IncrementalCompiler().compile(source));
+            assertEquals(expected, whole(source), source);
+            if (!expected.isEmpty()) {
+                invalid++;
+            }
+        }
+        // Que el fuzz realmente genere texto inválido
+        assertFalse(invalid < 2000, "solo " + invalid + " textos inválidos");
+    }
+
+    // Una sesión que va recibiendo ediciones tiene que dar lo mismo que compilar de cero
+    @Test
+    void editsReplayLikeAFreshCompile() throws IOException {
+        Random random = new Random(7);
+        for (String name : SCRIPTS) {
+            String original = script(name);
+            IncrementalCompiler session = new IncrementalCompiler();
+            String text = original;
+            for (int i = 0; i < 500; i++) {
+                text = random.nextInt(10) == 0 ? original : mutate(text, random);
+                assertEquals(new IncrementalCompiler().compile(text), session.compile(text), text);
+            }
+        }
+    }
+
+    @Test
+    void unchangedSentencesAreNotReparsed() throws IOException {
+        String source = script("/scripts/shapes.vgraph");
+        IncrementalCompiler session = new IncrementalCompiler();
+        session.compile(source);
+        int sentences = session.getSentenceCount();
+
+        String edited = source.replace("println 7 % 3;", "println 7 % 4;");
+        assertEquals(new IncrementalCompiler().compile(edited), session.compile(edited));
+        assertEquals(sentences, session.getSentenceCount());
+        assertEquals(1, session.getReparsedCount());
+    }
+}
@@ -0,0 +1,103 @@
+package v.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// _invN y _srN del C generado: que se generen donde corresponde, que no se generen donde
+// cambiarían lo que hace el programa, y que el binario dé lo mismo que con --no-loop-opt
+class LoopCodegenTest {
+
+    @TempDir
+    Path dir;
+
+    private static String script(String name) throws IOException {
+        try (InputStream in = LoopCodegenTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Codegen.Output run(String code, String name) throws IOException, InterruptedException {
+        Path build = Files.createDirectories(dir.resolve(name));
+        return Codegen.run(code, build);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/test.vgraph", "/scripts/spiral.vgraph", "/scripts/shapes.vgraph",
+            "/scripts/functions.vgraph", "/scripts/loops.vgraph", "/loopopt/trapping_division.vgraph",
+            "/loopopt/assigned_by_call.vgraph", "/loopopt/inductions.vgraph"})
+    void optimizedBinaryMatchesUnoptimized(String name) throws IOException, InterruptedException {
+        Codegen.assumeGcc();
+        String source = script(name);
+        for (boolean fastTrig : new boolean[]{false, true}) {
+            Codegen.Output plain = run(Codegen.toC(source, false, fastTrig), "plain" + fastTrig);
+            Codegen.Output optimized = run(Codegen.toC(source, true, fastTrig), "opt" + fastTrig);
+            assertEquals(plain, optimized, name + (fastTrig ? " --fast-trig" : ""));
+        }
+    }
+
+    // Los programas de loopopt/ (los mismos que usa LoopOptimizerTest) explican cada caso
+    @Test
+    void trappingDivisionStaysInTheLoop() throws IOException, InterruptedException {
+        String source = script("/loopopt/trapping_division.vgraph");
+        assertEquals(String.join("\n",
+                "i = 0;",
+                "// Loop invariants",
+                "const int _inv0 = a / 2;",
+                "while ((i < 0)) {",
+                "    println_int(a / b + i);",
+                "    println_int(_inv0 + i);",
+                "    i = i + 1;",
+                "}",
+                "println_int(a);",
+                ""), Codegen.body(Codegen.toC(source, true, false)));
+
+        Codegen.assumeGcc();
+        assertEquals("7\n", run(Codegen.toC(source, true, false), "trap").stdout);
+    }
+
+    @Test
+    void variablesAssignedByACallAreNotInvariant() throws IOException, InterruptedException {
+        String source = script("/loopopt/assigned_by_call.vgraph");
+        String body = Codegen.body(Codegen.toC(source, true, false));
+        assertTrue(body.contains("    println_int(k * 2 + i);\n"), body);
+        assertTrue(body.contains("const int _inv0 = m * 2;\n"), body);
+        assertFalse(body.contains("= k * 2"), body);
+
+        Codegen.assumeGcc();
+        assertEquals("4\n6\n7\n7\n10\n8\n",
+                run(Codegen.toC(source, true, false), "call").stdout);
+    }
+
+    @Test
+    void strengthReductionOnlyForConstantSteps() throws IOException, InterruptedException {
+        String source = script("/loopopt/inductions.vgraph");
+        String body = Codegen.body(Codegen.toC(source, true, false));
+        assertEquals(1, body.split("int _sr", -1).length - 1, body);
+        assertTrue(body.contains(String.join("\n",
+                "i = 10;",
+                "// Loop invariants",
+                "int _sr0 = i * 3;",
+                "while ((i > 0)) {",
+                "    println_int(_sr0);",
+                "    i = i - 2;",
+                "    _sr0 = _sr0 + -6;",
+                "}")), body);
+        assertEquals(3, body.split("println_int\\(i \\* 3\\);", -1).length - 1, body);
+
+        Codegen.assumeGcc();
+        assertEquals(run(Codegen.toC(source, false, false), "plain"),
+                run(Codegen.toC(source, true, false), "opt"));
+    }
+}
@@ -0,0 +1,94 @@
+package v.graph;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Buffer acotado de OutputPump, sin ventana. El Timer tiene un período largo para que el
+// único vaciado sea el de finish y lo que se descarta no dependa de cuándo corre el EDT
+class OutputPumpTest {
+
+    private static final int NEVER = 60_000;
+
+    private static ByteArrayInputStream lines(int from, int to) {
+        String text = IntStream.range(from, to).mapToObj(i -> "line " + i + "\n").collect(Collectors.joining());
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String expected(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "line " + i + "\n").collect(Collectors.joining());
+    }
+
+    private static String text(JTextArea area) throws InterruptedException, InvocationTargetException {
+        String[] text = new String[1];
+        SwingUtilities.invokeAndWait(() -> text[0] = area.getText());
+        return text[0];
+    }
+
+    @Test
+    void overflowDropsTheOldestLinesAndSaysHowMany() throws Exception {
+        JTextArea area = new JTextArea();
+        OutputPump pump = new OutputPump(area, 10, NEVER, 1_000_000);
+        pump.attach(lines(0, 17), "", false);
+        pump.finish(5_000);
+
+        assertEquals("⚠️ 7 lines dropped (output too fast)\n" + expected(7, 17), text(area));
+        assertEquals(7, pump.getDroppedLines());
+    }
+
+    // El aviso sale una vez por vaciado y cuenta solo lo de esa tanda; getDroppedLines acumula
+    @Test
+    void noticeOncePerFlush() throws Exception {
+        JTextArea area = new JTextArea();
+        OutputPump pump = new OutputPump(area, 10, NEVER, 1_000_000);
+        pump.attach(lines(0, 13), "", false);
+        pump.finish(5_000);
+        String first = "⚠️ 3 lines dropped (output too fast)\n" + expected(3, 13);
+        assertEquals(first, text(area));
+
+        pump.attach(lines(100, 105), "", false);
+        pump.finish(5_000);
+        String second = first + expected(100, 105);
+        assertEquals(second, text(area));
+
+        pump.attach(lines(200, 225), "", false);
+        pump.finish(5_000);
+        assertEquals(second + "⚠️ 15 lines dropped (output too fast)\n" + expected(215, 225), text(area));
+        assertEquals(18, pump.getDroppedLines());
+    }
+
+    @Test
+    void withinCapacityNothingIsDropped() throws Exception {
+        JTextArea area = new JTextArea();
+        OutputPump pump = new OutputPump(area, 10, NEVER, 1_000_000);
+        pump.attach(lines(0, 10), "[out] ", false);
+        pump.finish(5_000);
+
+        assertEquals(IntStream.range(0, 10).mapToObj(i -> "[out] line " + i + "\n").collect(Collectors.joining()),
+                text(area));
+        assertEquals(0, pump.getDroppedLines());
+    }
+
+    // El área se recorta desde arriba, en un salto de línea
+    @Test
+    void areaIsTrimmedToWholeLines() throws Exception {
+        JTextArea area = new JTextArea();
+        OutputPump pump = new OutputPump(area, 100, NEVER, 40);
+        pump.attach(lines(0, 20), "", false);
+        pump.finish(5_000);
+
+        String text = text(area);
+        assertTrue(text.length() <= 40, text);
+        assertTrue(text.startsWith("line "), text);
+        assertTrue(text.endsWith("line 19\n"), text);
+    }
+}
@@ -0,0 +1,196 @@
+package v.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class CanvasTest {
+
+    private static final int W = 64;
+    private static final int H = 48;
+    private static final int BLACK = 0xFF000000;
+
+    // Modelo sin regiones sucias: cada frame copia la página entera y clear borra todo
+    private static final class Reference {
+        int[] front = new int[W * H];
+        int[] back;
+        int[] pixels = front;
+        int depth;
+        int color = BLACK;
+
+        Reference() {
+            Arrays.fill(front, BLACK);
+        }
+
+        void plot(long x, long y) {
+            if (x >= 0 && x < W && y >= 0 && y < H) {
+                pixels[(int) y * W + (int) x] = color;
+            }
+        }
+
+        void rect(int x, int y, int width, int height) {
+            for (long row = Math.max(y, 0L); row < Math.min((long) y + height, H); row++) {
+                for (long col = Math.max(x, 0L); col < Math.min((long) x + width, W); col++) {
+                    plot(col, row);
+                }
+            }
+        }
+
+        void line(int x0, int y0, int x1, int y1) {
+            int dx = Math.abs(x1 - x0);
+            int dy = Math.abs(y1 - y0);
+            int sx = x0 < x1 ? 1 : -1;
+            int sy = y0 < y1 ? 1 : -1;
+            int err = dx - dy;
+            while (true) {
+                plot(x0, y0);
+                if (x0 == x1 && y0 == y1) break;
+                int e2 = 2 * err;
+                if (e2 > -dy) {
+                    err -= dy;
+                    x0 += sx;
+                }
+                if (e2 < dx) {
+                    err += dx;
+                    y0 += sy;
+                }
+            }
+        }
+
+        void circle(int cx, int cy, int radius) {
+            int x = 0;
+            int y = radius;
+            int d = 1 - radius;
+            while (x <= y) {
+                for (int i = -x; i <= x; i++) {
+                    plot(cx + i, cy + y);
+                    plot(cx + i, cy - y);
+                }
+                for (int i = -y; i <= y; i++) {
+                    plot(cx + i, cy + x);
+                    plot(cx + i, cy - x);
+                }
+                if (d < 0) {
+                    d += 2 * x + 3;
+                } else {
+                    d += 2 * (x - y) + 5;
+                    y--;
+                }
+                x++;
+            }
+        }
+
+        void beginFrame() {
+            if (depth++ == 0) {
+                back = front.clone();
+                pixels = back;
+            }
+        }
+
+        void endFrame() {
+            if (depth > 0 && --depth == 0) {
+                front = back.clone();
+                pixels = front;
+            }
+        }
+    }
+
+    private static int coordinate(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:  return Integer.MAX_VALUE - random.nextInt(100);
+            case 1:  return Integer.MIN_VALUE + random.nextInt(100);
+            case 2:  return -random.nextInt(1_000_000_000);
+            default: return random.nextInt(W + 40) - 20;
+        }
+    }
+
+    @Test
+    void matchesFullRedrawModel() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            Canvas canvas = new Canvas(W, H);
+            Reference reference = new Reference();
+            for (int step = 0; step < 60; step++) {
+                int op = random.nextInt(10);
+                if (op < 3) {
+                    int r = random.nextInt(256);
+                    int g = random.nextInt(256);
+                    int b = random.nextInt(256);
+                    canvas.setColor(r, g, b);
+                    reference.color = 0xFF000000 | r << 16 | g << 8 | b;
+                } else if (op == 3) {
+                    int x = coordinate(random);
+                    int y = coordinate(random);
+                    int w = coordinate(random);
+                    int h = coordinate(random);
+                    canvas.rect(x, y, w, h);
+                    if (w > 0 && h > 0) {
+                        reference.rect(x, y, w, h);
+                    }
+                } else if (op == 4) {
+                    int x0 = random.nextInt(W + 40) - 20;
+                    int y0 = random.nextInt(H + 40) - 20;
+                    int x1 = random.nextInt(W + 40) - 20;
+                    int y1 = random.nextInt(H + 40) - 20;
+                    canvas.line(x0, y0, x1, y1);
+                    reference.line(x0, y0, x1, y1);
+                } else if (op == 5) {
+                    int cx = random.nextInt(W + 40) - 20;
+                    int cy = random.nextInt(H + 40) - 20;
+                    int radius = random.nextInt(40) - 2;
+                    canvas.circle(cx, cy, radius);
+                    if (radius >= 0) {
+                        reference.circle(cx, cy, radius);
+                    }
+                } else if (op == 6) {
+                    int x = random.nextInt(W + 4) - 2;
+                    int y = random.nextInt(H + 4) - 2;
+                    canvas.pixel(x, y);
+                    reference.plot(x, y);
+                } else if (op == 7) {
+                    canvas.clear();
+                    Arrays.fill(reference.pixels, BLACK);
+                } else if (op == 8) {
+                    canvas.beginFrame();
+                    reference.beginFrame();
+                } else {
+                    canvas.endFrame();
+                    reference.endFrame();
+                }
+                assertArrayEquals(reference.front, canvas.getPixels(), "round " + round + ", step " + step);
+            }
+        }
+    }
+
+    @Test
+    void hugeRectOnlyWalksVisibleRows() {
+        Canvas canvas = new Canvas(W, H);
+        canvas.setColor(255, 255, 255);
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(1),
+                () -> canvas.rect(0, -1_000_000_000, 10, 1_000_000_100));
+        assertEquals(0xFFFFFFFF, canvas.getPixels()[(H - 1) * W + 9]);
+        assertEquals(BLACK, canvas.getPixels()[10]);
+    }
+
+    // x + width desborda int: el rectángulo sucio tiene que cubrir igual lo dibujado
+    @Test
+    void overflowingRectIsPresentedAndCleared() {
+        Canvas canvas = new Canvas(W, H);
+        canvas.setColor(0, 255, 0);
+        canvas.beginFrame();
+        canvas.rect(W - 4, 2, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        canvas.endFrame();
+        assertEquals(0xFF00FF00, canvas.getPixels()[2 * W + W - 1]);
+        assertEquals(0xFF00FF00, canvas.getPixels()[(H - 1) * W + W - 4]);
+
+        canvas.clear();
+        int[] black = new int[W * H];
+        Arrays.fill(black, BLACK);
+        assertArrayEquals(black, canvas.getPixels());
+    }
+}
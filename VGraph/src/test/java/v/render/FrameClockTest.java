@@ -0,0 +1,80 @@
+package v.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameClockTest {
+
+    private static void busy(long millis) {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        while (System.nanoTime() < end) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    @Test
+    void nonPositiveWaitsAreIgnored() {
+        FrameClock clock = new FrameClock();
+        clock.waitMillis(0);
+        clock.waitMillis(-5);
+        assertEquals(0, clock.getWaits());
+        assertEquals(0, clock.getMissed());
+    }
+
+    // Con deadlines absolutos lo que tarda el frame no se suma al período: 10 frames de 20 ms
+    // con 10 ms de trabajo cada uno tardan unos 200 ms, no 300
+    @Test
+    void workIsAbsorbedIntoThePeriod() {
+        FrameClock clock = new FrameClock();
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            busy(10);
+            clock.waitMillis(20);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(elapsed >= 200 && elapsed < 280, elapsed + " ms");
+        assertEquals(10, clock.getWaits());
+    }
+
+    // Un deadline perdido se cuenta y el reloj se realinea: el wait siguiente espera su
+    // período completo en vez de volver enseguida para recuperar
+    @Test
+    void missedDeadlineRealigns() {
+        FrameClock clock = new FrameClock();
+        clock.waitMillis(1);
+        busy(30);
+        clock.waitMillis(1);
+        // El reloj se realinea con el momento del wait atrasado, así que se mide desde ahí
+        long start = System.nanoTime();
+        clock.waitMillis(20);
+        long waited = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(waited >= 19, waited + " ms");
+        assertTrue(clock.getWorstLateNanos() >= 25_000_000L, clock.toString());
+        assertEquals(3, clock.getWaits());
+        assertEquals(1, clock.getMissed());
+    }
+
+    @Test
+    void interruptStopsTheWait() {
+        FrameClock clock = new FrameClock();
+        Thread.currentThread().interrupt();
+        try {
+            long start = System.nanoTime();
+            clock.waitMillis(5_000);
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void summaryMatchesGraphicsC() {
+        FrameClock clock = new FrameClock();
+        assertEquals("frame clock: 0 waits, 0 missed deadlines (worst 0.0 ms late)", clock.toString());
+    }
+}